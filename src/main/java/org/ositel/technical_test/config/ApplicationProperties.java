@@ -11,4 +11,314 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
 public class ApplicationProperties {
 
+    private final SheetCache sheetCache = new SheetCache();
+
+    private final ColumnarStore columnarStore = new ColumnarStore();
+
+    private final CellEdits cellEdits = new CellEdits();
+
+    private final FileLocks fileLocks = new FileLocks();
+
+    private final FormulaCache formulaCache = new FormulaCache();
+
+    private final Uploads uploads = new Uploads();
+
+    private final BulkImport bulkImport = new BulkImport();
+
+    public SheetCache getSheetCache() {
+        return sheetCache;
+    }
+
+    public ColumnarStore getColumnarStore() {
+        return columnarStore;
+    }
+
+    public CellEdits getCellEdits() {
+        return cellEdits;
+    }
+
+    public FileLocks getFileLocks() {
+        return fileLocks;
+    }
+
+    public FormulaCache getFormulaCache() {
+        return formulaCache;
+    }
+
+    public Uploads getUploads() {
+        return uploads;
+    }
+
+    public BulkImport getBulkImport() {
+        return bulkImport;
+    }
+
+    public static class SheetCache {
+
+        /**
+         * approximate number of bytes the parsed sheets may retain, 0 to disable the cache
+         */
+        private long maxBytes = 64L * 1024 * 1024;
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+    }
+
+    public static class ColumnarStore {
+
+        /**
+         * local directory of the columnar files written on ingest
+         */
+        private String directory = System.getProperty("java.io.tmpdir") + "/ositel/columnar";
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+    }
+
+    public static class CellEdits {
+
+        /**
+         * number of recorded cell edits from which the edits of a file are written in its content
+         */
+        private long compactionThreshold = 100;
+
+        /**
+         * number of milliseconds between the end of a compaction run and the start of the next one
+         */
+        private long compactionDelay = 60000;
+
+        /**
+         * number of milliseconds during which the edits of a file are collected to be written at once, 0 to write the
+         * edits of each request in the request
+         */
+        private long coalescingWindow = 50;
+
+        /**
+         * number of threads writing the coalesced edits, the edits of a file being written by one thread at a time
+         */
+        private int coalescingThreads = 4;
+
+        /**
+         * number of milliseconds a request waits for its coalesced edits to be written
+         */
+        private long coalescingTimeout = 30000;
+
+        public long getCompactionThreshold() {
+            return compactionThreshold;
+        }
+
+        public void setCompactionThreshold(long compactionThreshold) {
+            this.compactionThreshold = compactionThreshold;
+        }
+
+        public long getCompactionDelay() {
+            return compactionDelay;
+        }
+
+        public void setCompactionDelay(long compactionDelay) {
+            this.compactionDelay = compactionDelay;
+        }
+
+        public long getCoalescingWindow() {
+            return coalescingWindow;
+        }
+
+        public void setCoalescingWindow(long coalescingWindow) {
+            this.coalescingWindow = coalescingWindow;
+        }
+
+        public int getCoalescingThreads() {
+            return coalescingThreads;
+        }
+
+        public void setCoalescingThreads(int coalescingThreads) {
+            this.coalescingThreads = coalescingThreads;
+        }
+
+        public long getCoalescingTimeout() {
+            return coalescingTimeout;
+        }
+
+        public void setCoalescingTimeout(long coalescingTimeout) {
+            this.coalescingTimeout = coalescingTimeout;
+        }
+    }
+
+    public static class FileLocks {
+
+        /**
+         * number of locks the xlsx files are mapped to by name, rounded up to a power of two
+         */
+        private int stripes = 256;
+
+        public int getStripes() {
+            return stripes;
+        }
+
+        public void setStripes(int stripes) {
+            this.stripes = stripes;
+        }
+    }
+
+    public static class FormulaCache {
+
+        /**
+         * number of workbooks kept loaded with the dependency graph of their formulas, 0 to disable the cache
+         */
+        private int maxWorkbooks = 4;
+
+        public int getMaxWorkbooks() {
+            return maxWorkbooks;
+        }
+
+        public void setMaxWorkbooks(int maxWorkbooks) {
+            this.maxWorkbooks = maxWorkbooks;
+        }
+    }
+
+    public static class Uploads {
+
+        /**
+         * local directory of the chunks of the uploads in progress
+         */
+        private String directory = System.getProperty("java.io.tmpdir") + "/ositel/uploads";
+
+        /**
+         * number of milliseconds after its last chunk from which an upload which has not been committed is removed
+         */
+        private long expiration = 24L * 60 * 60 * 1000;
+
+        /**
+         * number of milliseconds between the end of a removal of the expired uploads and the start of the next one
+         */
+        private long reaperDelay = 60L * 60 * 1000;
+
+        /**
+         * maximum number of bytes of a chunk of an upload
+         */
+        private long maxChunkBytes = 16L * 1024 * 1024;
+
+        /**
+         * maximum number of bytes of all the chunks of an upload
+         */
+        private long maxUploadBytes = 256L * 1024 * 1024;
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public long getExpiration() {
+            return expiration;
+        }
+
+        public void setExpiration(long expiration) {
+            this.expiration = expiration;
+        }
+
+        public long getReaperDelay() {
+            return reaperDelay;
+        }
+
+        public void setReaperDelay(long reaperDelay) {
+            this.reaperDelay = reaperDelay;
+        }
+
+        public long getMaxChunkBytes() {
+            return maxChunkBytes;
+        }
+
+        public void setMaxChunkBytes(long maxChunkBytes) {
+            this.maxChunkBytes = maxChunkBytes;
+        }
+
+        public long getMaxUploadBytes() {
+            return maxUploadBytes;
+        }
+
+        public void setMaxUploadBytes(long maxUploadBytes) {
+            this.maxUploadBytes = maxUploadBytes;
+        }
+    }
+
+    public static class BulkImport {
+
+        /**
+         * number of threads saving the files of the imported archives, the number of processors when 0
+         */
+        private int threads = 0;
+
+        /**
+         * number of files of an archive saved in a single transaction
+         */
+        private int batchSize = 50;
+
+        /**
+         * maximum number of entries of an imported archive
+         */
+        private int maxEntries = 1000;
+
+        /**
+         * maximum number of bytes a xlsx file of an imported archive may inflate to
+         */
+        private long maxEntryBytes = 64L * 1024 * 1024;
+
+        /**
+         * maximum number of bytes the xlsx files of an imported archive may inflate to altogether
+         */
+        private long maxTotalBytes = 1024L * 1024 * 1024;
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public long getMaxEntryBytes() {
+            return maxEntryBytes;
+        }
+
+        public void setMaxEntryBytes(long maxEntryBytes) {
+            this.maxEntryBytes = maxEntryBytes;
+        }
+
+        public long getMaxTotalBytes() {
+            return maxTotalBytes;
+        }
+
+        public void setMaxTotalBytes(long maxTotalBytes) {
+            this.maxTotalBytes = maxTotalBytes;
+        }
+    }
 }
@@ -23,8 +23,11 @@ public class AsyncConfiguration implements AsyncConfigurer {
 
     private final JHipsterProperties jHipsterProperties;
 
-    public AsyncConfiguration(JHipsterProperties jHipsterProperties) {
+    private final ApplicationProperties applicationProperties;
+
+    public AsyncConfiguration(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties) {
         this.jHipsterProperties = jHipsterProperties;
+        this.applicationProperties = applicationProperties;
     }
 
     @Override
@@ -39,6 +42,20 @@ public class AsyncConfiguration implements AsyncConfigurer {
         return new ExceptionHandlingAsyncTaskExecutor(executor);
     }
 
+    /**
+     * The pool of the threads saving the files of the imported archives, as many as the processors by default.
+     */
+    @Bean(name = "importExecutor")
+    public Executor getImportExecutor() {
+        log.debug("Creating Import Task Executor");
+        int threads = applicationProperties.getBulkImport().getThreads();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        executor.setMaxPoolSize(executor.getCorePoolSize());
+        executor.setThreadNamePrefix("ositel-Import-");
+        return executor;
+    }
+
     @Override
     public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
         return new SimpleAsyncUncaughtExceptionHandler();
@@ -0,0 +1,26 @@
+package org.ositel.technical_test.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+
+/**
+ * Http message converter reading and writing a binary Jackson data format, such as Smile or CBOR, with the object
+ * mapper of that format.
+ */
+public class JacksonBinaryHttpMessageConverter extends AbstractJackson2HttpMessageConverter {
+
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+    public static final MediaType APPLICATION_CBOR = new MediaType("application", "cbor");
+
+    /**
+     * @param objectMapper the object mapper built on the factory of the binary format
+     * @param mediaType    the media type of the binary format
+     */
+    public JacksonBinaryHttpMessageConverter(ObjectMapper objectMapper, MediaType mediaType) {
+        super(objectMapper, mediaType);
+        // a binary format has no charset
+        setDefaultCharset(null);
+    }
+}
@@ -1,15 +1,32 @@
 package org.ositel.technical_test.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
 import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module;
 import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
 import org.zalando.problem.ProblemModule;
 import org.zalando.problem.validation.ConstraintViolationProblemModule;
 
+import java.util.List;
+
 @Configuration
-public class JacksonConfiguration {
+public class JacksonConfiguration extends WebMvcConfigurerAdapter {
+
+    // resolved lazily, the builder itself depends on the modules declared below
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> jackson2ObjectMapperBuilder;
+
+    public JacksonConfiguration(ObjectProvider<Jackson2ObjectMapperBuilder> jackson2ObjectMapperBuilder) {
+        this.jackson2ObjectMapperBuilder = jackson2ObjectMapperBuilder;
+    }
 
     /*
      * Support for Hibernate types in Jackson.
@@ -43,4 +60,30 @@ public class JacksonConfiguration {
         return new ConstraintViolationProblemModule();
     }
 
+    /*
+     * Smile and CBOR binary formats for the machine clients, negotiated through the Accept header. They are added
+     * after the default converters so that json stays the format of the clients accepting any media type.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(smileHttpMessageConverter(jackson2ObjectMapperBuilder.getObject()));
+        converters.add(cborHttpMessageConverter(jackson2ObjectMapperBuilder.getObject()));
+    }
+
+    /**
+     * The repeated short string values, such as the cell values of a column, are written once and then referenced.
+     */
+    public static JacksonBinaryHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        SmileFactory smileFactory = new SmileFactory();
+        smileFactory.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+        ObjectMapper objectMapper = new ObjectMapper(smileFactory);
+        builder.configure(objectMapper);
+        return new JacksonBinaryHttpMessageConverter(objectMapper, JacksonBinaryHttpMessageConverter.APPLICATION_SMILE);
+    }
+
+    public static JacksonBinaryHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        ObjectMapper objectMapper = new ObjectMapper(new CBORFactory());
+        builder.configure(objectMapper);
+        return new JacksonBinaryHttpMessageConverter(objectMapper, JacksonBinaryHttpMessageConverter.APPLICATION_CBOR);
+    }
 }
@@ -0,0 +1,151 @@
+package org.ositel.technical_test.domain;
+
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * A XlsxCellEdit, a new value of a cell of a XlsxFile not written in its content yet.
+ * <p>
+ * The edits are only appended: they are applied over the content of the file when its sheets are read, the last
+ * edit of a cell winning since the ids grow with the insertion order, until the compactor writes them in the content.
+ */
+@Entity
+@Table(name = "xlsx_cell_edit")
+public class XlsxCellEdit implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JsonIgnore
+    private XlsxFile xlsxFile;
+
+    @NotNull
+    @Column(name = "sheet_index", nullable = false)
+    private Integer sheetIndex;
+
+    @NotNull
+    @Column(name = "row_index", nullable = false)
+    private Integer rowIndex;
+
+    @NotNull
+    @Column(name = "column_index", nullable = false)
+    private Integer columnIndex;
+
+    @Lob
+    @Column(name = "cell_value")
+    private String cellValue;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public XlsxFile getXlsxFile() {
+        return xlsxFile;
+    }
+
+    public XlsxCellEdit xlsxFile(XlsxFile xlsxFile) {
+        this.xlsxFile = xlsxFile;
+        return this;
+    }
+
+    public void setXlsxFile(XlsxFile xlsxFile) {
+        this.xlsxFile = xlsxFile;
+    }
+
+    public Integer getSheetIndex() {
+        return sheetIndex;
+    }
+
+    public XlsxCellEdit sheetIndex(Integer sheetIndex) {
+        this.sheetIndex = sheetIndex;
+        return this;
+    }
+
+    public void setSheetIndex(Integer sheetIndex) {
+        this.sheetIndex = sheetIndex;
+    }
+
+    public Integer getRowIndex() {
+        return rowIndex;
+    }
+
+    public XlsxCellEdit rowIndex(Integer rowIndex) {
+        this.rowIndex = rowIndex;
+        return this;
+    }
+
+    public void setRowIndex(Integer rowIndex) {
+        this.rowIndex = rowIndex;
+    }
+
+    public Integer getColumnIndex() {
+        return columnIndex;
+    }
+
+    public XlsxCellEdit columnIndex(Integer columnIndex) {
+        this.columnIndex = columnIndex;
+        return this;
+    }
+
+    public void setColumnIndex(Integer columnIndex) {
+        this.columnIndex = columnIndex;
+    }
+
+    public String getCellValue() {
+        return cellValue;
+    }
+
+    public XlsxCellEdit cellValue(String cellValue) {
+        this.cellValue = cellValue;
+        return this;
+    }
+
+    public void setCellValue(String cellValue) {
+        this.cellValue = cellValue;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        XlsxCellEdit xlsxCellEdit = (XlsxCellEdit) o;
+        if (xlsxCellEdit.getId() == null || getId() == null) {
+            return false;
+        }
+        return Objects.equals(getId(), xlsxCellEdit.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(getId());
+    }
+
+    @Override
+    public String toString() {
+        return "XlsxCellEdit{" +
+            "id=" + getId() +
+            ", sheetIndex='" + getSheetIndex() + "'" +
+            ", rowIndex='" + getRowIndex() + "'" +
+            ", columnIndex='" + getColumnIndex() + "'" +
+            ", cellValue='" + getCellValue() + "'" +
+            "}";
+    }
+}
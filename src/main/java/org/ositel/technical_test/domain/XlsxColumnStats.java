@@ -0,0 +1,202 @@
+package org.ositel.technical_test.domain;
+
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * A XlsxColumnStats, the statistics of a column of a XlsxSheet computed when its file is ingested.
+ * <p>
+ * The value type is the name of a {@link org.ositel.technical_test.service.dto.XlsxColumnDTO.Type}, the min and max
+ * values are only set for the numeric and date columns, the dates being counted in milliseconds from the epoch.
+ */
+@Entity
+@Table(name = "xlsx_column_stats")
+public class XlsxColumnStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JsonIgnore
+    private XlsxSheet xlsxSheet;
+
+    @NotNull
+    @Column(name = "column_index", nullable = false)
+    private Integer columnIndex;
+
+    @Column(name = "name")
+    private String name;
+
+    @NotNull
+    @Column(name = "value_type", nullable = false)
+    private String valueType;
+
+    @NotNull
+    @Column(name = "value_count", nullable = false)
+    private Long valueCount;
+
+    @NotNull
+    @Column(name = "blank_count", nullable = false)
+    private Long blankCount;
+
+    @Column(name = "min_value")
+    private Double minValue;
+
+    @Column(name = "max_value")
+    private Double maxValue;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public XlsxSheet getXlsxSheet() {
+        return xlsxSheet;
+    }
+
+    public XlsxColumnStats xlsxSheet(XlsxSheet xlsxSheet) {
+        this.xlsxSheet = xlsxSheet;
+        return this;
+    }
+
+    public void setXlsxSheet(XlsxSheet xlsxSheet) {
+        this.xlsxSheet = xlsxSheet;
+    }
+
+    public Integer getColumnIndex() {
+        return columnIndex;
+    }
+
+    public XlsxColumnStats columnIndex(Integer columnIndex) {
+        this.columnIndex = columnIndex;
+        return this;
+    }
+
+    public void setColumnIndex(Integer columnIndex) {
+        this.columnIndex = columnIndex;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public XlsxColumnStats name(String name) {
+        this.name = name;
+        return this;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getValueType() {
+        return valueType;
+    }
+
+    public XlsxColumnStats valueType(String valueType) {
+        this.valueType = valueType;
+        return this;
+    }
+
+    public void setValueType(String valueType) {
+        this.valueType = valueType;
+    }
+
+    public Long getValueCount() {
+        return valueCount;
+    }
+
+    public XlsxColumnStats valueCount(Long valueCount) {
+        this.valueCount = valueCount;
+        return this;
+    }
+
+    public void setValueCount(Long valueCount) {
+        this.valueCount = valueCount;
+    }
+
+    public Long getBlankCount() {
+        return blankCount;
+    }
+
+    public XlsxColumnStats blankCount(Long blankCount) {
+        this.blankCount = blankCount;
+        return this;
+    }
+
+    public void setBlankCount(Long blankCount) {
+        this.blankCount = blankCount;
+    }
+
+    public Double getMinValue() {
+        return minValue;
+    }
+
+    public XlsxColumnStats minValue(Double minValue) {
+        this.minValue = minValue;
+        return this;
+    }
+
+    public void setMinValue(Double minValue) {
+        this.minValue = minValue;
+    }
+
+    public Double getMaxValue() {
+        return maxValue;
+    }
+
+    public XlsxColumnStats maxValue(Double maxValue) {
+        this.maxValue = maxValue;
+        return this;
+    }
+
+    public void setMaxValue(Double maxValue) {
+        this.maxValue = maxValue;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        XlsxColumnStats xlsxColumnStats = (XlsxColumnStats) o;
+        if (xlsxColumnStats.getId() == null || getId() == null) {
+            return false;
+        }
+        return Objects.equals(getId(), xlsxColumnStats.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(getId());
+    }
+
+    @Override
+    public String toString() {
+        return "XlsxColumnStats{" +
+            "id=" + getId() +
+            ", columnIndex='" + getColumnIndex() + "'" +
+            ", name='" + getName() + "'" +
+            ", valueType='" + getValueType() + "'" +
+            ", valueCount='" + getValueCount() + "'" +
+            ", blankCount='" + getBlankCount() + "'" +
+            ", minValue='" + getMinValue() + "'" +
+            ", maxValue='" + getMaxValue() + "'" +
+            "}";
+    }
+}
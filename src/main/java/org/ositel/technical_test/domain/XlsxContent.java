@@ -0,0 +1,120 @@
+package org.ositel.technical_test.domain;
+
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * The content of xlsx files, stored once for all the files holding the same bytes.
+ */
+@Entity
+@Table(name = "xlsx_content")
+public class XlsxContent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * the hex encoded SHA-256 of the content
+     */
+    @Id
+    @Column(name = "hash", length = 64)
+    private String hash;
+
+    @Lob
+    @Column(name = "data")
+    private byte[] data;
+
+    @NotNull
+    @Column(name = "data_length", nullable = false)
+    private Long dataLength;
+
+    /**
+     * the number of xlsx files referencing the content, the content is removed with its last reference
+     */
+    @NotNull
+    @Column(name = "reference_count", nullable = false)
+    private Integer referenceCount;
+
+    public String getHash() {
+        return hash;
+    }
+
+    public XlsxContent hash(String hash) {
+        this.hash = hash;
+        return this;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public XlsxContent data(byte[] data) {
+        this.data = data;
+        return this;
+    }
+
+    public void setData(byte[] data) {
+        this.data = data;
+    }
+
+    public Long getDataLength() {
+        return dataLength;
+    }
+
+    public XlsxContent dataLength(Long dataLength) {
+        this.dataLength = dataLength;
+        return this;
+    }
+
+    public void setDataLength(Long dataLength) {
+        this.dataLength = dataLength;
+    }
+
+    public Integer getReferenceCount() {
+        return referenceCount;
+    }
+
+    public XlsxContent referenceCount(Integer referenceCount) {
+        this.referenceCount = referenceCount;
+        return this;
+    }
+
+    public void setReferenceCount(Integer referenceCount) {
+        this.referenceCount = referenceCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        XlsxContent xlsxContent = (XlsxContent) o;
+        if (xlsxContent.getHash() == null || getHash() == null) {
+            return false;
+        }
+        return Objects.equals(getHash(), xlsxContent.getHash());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(getHash());
+    }
+
+    @Override
+    public String toString() {
+        return "XlsxContent{" +
+            "hash='" + getHash() + "'" +
+            ", dataLength='" + getDataLength() + "'" +
+            ", referenceCount='" + getReferenceCount() + "'" +
+            "}";
+    }
+}
@@ -1,11 +1,17 @@
 package org.ositel.technical_test.domain;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.hibernate.validator.constraints.Length;
+import org.ositel.technical_test.domain.enumeration.XlsxFileStatus;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import java.io.Serializable;
+import java.time.Instant;
 import java.util.Objects;
 
 /**
@@ -13,6 +19,7 @@ import java.util.Objects;
  */
 @Entity
 @Table(name = "xlsx_file")
+@EntityListeners(AuditingEntityListener.class)
 public class XlsxFile implements Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -26,9 +33,35 @@ public class XlsxFile implements Serializable {
     @Column(name = "file_name", nullable = false)
     private String fileName;
 
-    @Lob
-    @Column(name = "content")
-    private byte[] content;
+    /**
+     * the content is shared by all the files holding the same bytes
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "content_hash")
+    @JsonIgnore
+    private XlsxContent content;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    private XlsxFileStatus status;
+
+    /**
+     * incremented by every write of the content or of the cell edits, the version is the ETag of the file
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @CreatedDate
+    @Column(name = "created_date", updatable = false)
+    private Instant createdDate;
+
+    /**
+     * the date of the last write of the file through the entity, the content being written this way
+     */
+    @LastModifiedDate
+    @Column(name = "last_modified_date")
+    private Instant lastModifiedDate;
 
     public Long getId() {
         return id;
@@ -51,19 +84,56 @@ public class XlsxFile implements Serializable {
         this.fileName = fileName;
     }
 
-    public byte[] getContent() {
+    public XlsxContent getContent() {
         return content;
     }
 
-    public XlsxFile content(byte[] content) {
+    public XlsxFile content(XlsxContent content) {
         this.content = content;
         return this;
     }
 
-    public void setContent(byte[] content) {
+    public void setContent(XlsxContent content) {
         this.content = content;
     }
 
+    public XlsxFileStatus getStatus() {
+        return status;
+    }
+
+    public XlsxFile status(XlsxFileStatus status) {
+        this.status = status;
+        return this;
+    }
+
+    public void setStatus(XlsxFileStatus status) {
+        this.status = status;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Instant getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setCreatedDate(Instant createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    public Instant getLastModifiedDate() {
+        return lastModifiedDate;
+    }
+
+    public void setLastModifiedDate(Instant lastModifiedDate) {
+        this.lastModifiedDate = lastModifiedDate;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -89,7 +159,10 @@ public class XlsxFile implements Serializable {
         return "XlsxFile{" +
             "id=" + getId() +
             ", fileName='" + getFileName() + "'" +
-            ", content='" + getContent() + "'" +
+            ", status='" + getStatus() + "'" +
+            ", version='" + getVersion() + "'" +
+            ", createdDate='" + getCreatedDate() + "'" +
+            ", lastModifiedDate='" + getLastModifiedDate() + "'" +
             "}";
     }
 }
@@ -0,0 +1,145 @@
+package org.ositel.technical_test.domain;
+
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * A XlsxSheet, the metadata kept for a sheet of a XlsxFile once it has been read.
+ */
+@Entity
+@Table(name = "xlsx_sheet")
+public class XlsxSheet implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JsonIgnore
+    private XlsxFile xlsxFile;
+
+    @NotNull
+    @Column(name = "sheet_index", nullable = false)
+    private Integer sheetIndex;
+
+    @Column(name = "sheet_name")
+    private String sheetName;
+
+    @Column(name = "row_count")
+    private Long rowCount;
+
+    @Column(name = "formula_count")
+    private Long formulaCount;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public XlsxFile getXlsxFile() {
+        return xlsxFile;
+    }
+
+    public XlsxSheet xlsxFile(XlsxFile xlsxFile) {
+        this.xlsxFile = xlsxFile;
+        return this;
+    }
+
+    public void setXlsxFile(XlsxFile xlsxFile) {
+        this.xlsxFile = xlsxFile;
+    }
+
+    public Integer getSheetIndex() {
+        return sheetIndex;
+    }
+
+    public XlsxSheet sheetIndex(Integer sheetIndex) {
+        this.sheetIndex = sheetIndex;
+        return this;
+    }
+
+    public void setSheetIndex(Integer sheetIndex) {
+        this.sheetIndex = sheetIndex;
+    }
+
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    public XlsxSheet sheetName(String sheetName) {
+        this.sheetName = sheetName;
+        return this;
+    }
+
+    public void setSheetName(String sheetName) {
+        this.sheetName = sheetName;
+    }
+
+    public Long getRowCount() {
+        return rowCount;
+    }
+
+    public XlsxSheet rowCount(Long rowCount) {
+        this.rowCount = rowCount;
+        return this;
+    }
+
+    public void setRowCount(Long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public Long getFormulaCount() {
+        return formulaCount;
+    }
+
+    public XlsxSheet formulaCount(Long formulaCount) {
+        this.formulaCount = formulaCount;
+        return this;
+    }
+
+    public void setFormulaCount(Long formulaCount) {
+        this.formulaCount = formulaCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        XlsxSheet xlsxSheet = (XlsxSheet) o;
+        if (xlsxSheet.getId() == null || getId() == null) {
+            return false;
+        }
+        return Objects.equals(getId(), xlsxSheet.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(getId());
+    }
+
+    @Override
+    public String toString() {
+        return "XlsxSheet{" +
+            "id=" + getId() +
+            ", sheetIndex='" + getSheetIndex() + "'" +
+            ", sheetName='" + getSheetName() + "'" +
+            ", rowCount='" + getRowCount() + "'" +
+            ", formulaCount='" + getFormulaCount() + "'" +
+            "}";
+    }
+}
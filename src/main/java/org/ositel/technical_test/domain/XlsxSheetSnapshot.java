@@ -0,0 +1,148 @@
+package org.ositel.technical_test.domain;
+
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * A XlsxSheetSnapshot, the json document of a whole sheet of a XlsxFile rendered when the file is written, in plain
+ * and gzipped form.
+ */
+@Entity
+@Table(name = "xlsx_sheet_snapshot")
+public class XlsxSheetSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JsonIgnore
+    private XlsxFile xlsxFile;
+
+    @NotNull
+    @Column(name = "sheet_index", nullable = false)
+    private Integer sheetIndex;
+
+    @Column(name = "sheet_name")
+    private String sheetName;
+
+    @NotNull
+    @Lob
+    @Column(name = "json", nullable = false)
+    private byte[] json;
+
+    @NotNull
+    @Lob
+    @Column(name = "json_gzip", nullable = false)
+    private byte[] jsonGzip;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public XlsxFile getXlsxFile() {
+        return xlsxFile;
+    }
+
+    public XlsxSheetSnapshot xlsxFile(XlsxFile xlsxFile) {
+        this.xlsxFile = xlsxFile;
+        return this;
+    }
+
+    public void setXlsxFile(XlsxFile xlsxFile) {
+        this.xlsxFile = xlsxFile;
+    }
+
+    public Integer getSheetIndex() {
+        return sheetIndex;
+    }
+
+    public XlsxSheetSnapshot sheetIndex(Integer sheetIndex) {
+        this.sheetIndex = sheetIndex;
+        return this;
+    }
+
+    public void setSheetIndex(Integer sheetIndex) {
+        this.sheetIndex = sheetIndex;
+    }
+
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    public XlsxSheetSnapshot sheetName(String sheetName) {
+        this.sheetName = sheetName;
+        return this;
+    }
+
+    public void setSheetName(String sheetName) {
+        this.sheetName = sheetName;
+    }
+
+    public byte[] getJson() {
+        return json;
+    }
+
+    public XlsxSheetSnapshot json(byte[] json) {
+        this.json = json;
+        return this;
+    }
+
+    public void setJson(byte[] json) {
+        this.json = json;
+    }
+
+    public byte[] getJsonGzip() {
+        return jsonGzip;
+    }
+
+    public XlsxSheetSnapshot jsonGzip(byte[] jsonGzip) {
+        this.jsonGzip = jsonGzip;
+        return this;
+    }
+
+    public void setJsonGzip(byte[] jsonGzip) {
+        this.jsonGzip = jsonGzip;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        XlsxSheetSnapshot xlsxSheetSnapshot = (XlsxSheetSnapshot) o;
+        if (xlsxSheetSnapshot.getId() == null || getId() == null) {
+            return false;
+        }
+        return Objects.equals(getId(), xlsxSheetSnapshot.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(getId());
+    }
+
+    @Override
+    public String toString() {
+        return "XlsxSheetSnapshot{" +
+            "id=" + getId() +
+            ", sheetIndex='" + getSheetIndex() + "'" +
+            ", sheetName='" + getSheetName() + "'" +
+            "}";
+    }
+}
@@ -0,0 +1,19 @@
+package org.ositel.technical_test.domain.enumeration;
+
+/**
+ * The XlsxFileStatus enumeration, the progress of the ingestion of a XlsxFile.
+ */
+public enum XlsxFileStatus {
+    /**
+     * written, the derived data of its sheets are being built
+     */
+    PENDING,
+    /**
+     * the sheets are cached, counted, described and rendered in json
+     */
+    READY,
+    /**
+     * the derived data could not be built, the sheets are read from the content
+     */
+    FAILED
+}
@@ -0,0 +1,36 @@
+package org.ositel.technical_test.repository;
+
+import org.ositel.technical_test.domain.XlsxCellEdit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+
+/**
+ * Spring Data JPA repository for the XlsxCellEdit entity.
+ * <p>
+ * The edits are read in insertion order so that the last edit of a cell is applied last.
+ */
+@SuppressWarnings("unused")
+@Repository
+public interface XlsxCellEditRepository extends JpaRepository<XlsxCellEdit, Long> {
+
+    List<XlsxCellEdit> findByXlsxFileIdOrderById(Long xlsxFileId);
+
+    @Query("select count(cellEdit) from XlsxCellEdit cellEdit where cellEdit.xlsxFile.fileName = ?1")
+    long countByFileName(String fileName);
+
+    @Query("select cellEdit.xlsxFile.id from XlsxCellEdit cellEdit group by cellEdit.xlsxFile.id having count(cellEdit) >= ?1")
+    List<Long> findXlsxFileIdsWithAtLeast(long cellEditCount);
+
+    @Modifying
+    @Query("delete from XlsxCellEdit cellEdit where cellEdit.xlsxFile.id = ?1 and cellEdit.id <= ?2")
+    void deleteByXlsxFileIdUpToId(Long xlsxFileId, Long lastId);
+
+    @Modifying
+    @Query("delete from XlsxCellEdit cellEdit where cellEdit.xlsxFile.id = ?1")
+    void deleteByXlsxFileId(Long xlsxFileId);
+}
@@ -0,0 +1,24 @@
+package org.ositel.technical_test.repository;
+
+import org.ositel.technical_test.domain.XlsxColumnStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+
+/**
+ * Spring Data JPA repository for the XlsxColumnStats entity.
+ */
+@SuppressWarnings("unused")
+@Repository
+public interface XlsxColumnStatsRepository extends JpaRepository<XlsxColumnStats, Long> {
+
+    List<XlsxColumnStats> findByXlsxSheetIdOrderByColumnIndex(Long xlsxSheetId);
+
+    @Modifying
+    @Query("delete from XlsxColumnStats columnStats where columnStats.xlsxSheet.id = ?1")
+    void deleteByXlsxSheetId(Long xlsxSheetId);
+}
@@ -0,0 +1,36 @@
+package org.ositel.technical_test.repository;
+
+import org.ositel.technical_test.domain.XlsxContent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+
+/**
+ * Spring Data JPA repository for the XlsxContent entity.
+ */
+@SuppressWarnings("unused")
+@Repository
+public interface XlsxContentRepository extends JpaRepository<XlsxContent, String>, XlsxContentRepositoryCustom {
+
+    /**
+     * reference a stored content once more, the row stays locked until the end of the transaction
+     *
+     * @return 1 if the content is stored, 0 otherwise
+     */
+    @Modifying
+    @Query("update XlsxContent content set content.referenceCount = content.referenceCount + 1 where content.hash = ?1")
+    int incrementReferenceCount(String hash);
+
+    @Modifying
+    @Query("update XlsxContent content set content.referenceCount = content.referenceCount - 1 where content.hash = ?1")
+    int decrementReferenceCount(String hash);
+
+    /**
+     * remove a content once it is not referenced anymore
+     */
+    @Modifying
+    @Query("delete from XlsxContent content where content.hash = ?1 and content.referenceCount <= 0")
+    int deleteUnreferenced(String hash);
+}
@@ -0,0 +1,29 @@
+package org.ositel.technical_test.repository;
+
+import java.io.InputStream;
+
+/**
+ * Operations of the XlsxContent repository written with plain JDBC.
+ */
+public interface XlsxContentRepositoryCustom {
+
+    /**
+     * Insert a content referenced once from a stream, without holding the content in memory.
+     *
+     * @param hash   the hex encoded SHA-256 of the content
+     * @param data   the stream of the content, not closed
+     * @param length the number of bytes of the content
+     * @throws org.springframework.dao.DuplicateKeyException if the content is already stored
+     */
+    void insertContent(String hash, InputStream data, long length);
+
+    /**
+     * Open a stream on a stored content, read from the result set within the current transaction rather than loaded in
+     * the XlsxContent entity.
+     *
+     * @param hash the hex encoded SHA-256 of the content
+     * @return the stream of the content, to be closed before the end of the transaction
+     * @throws org.springframework.dao.EmptyResultDataAccessException if the content is not stored
+     */
+    InputStream openContent(String hash);
+}
@@ -0,0 +1,101 @@
+package org.ositel.technical_test.repository;
+
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import javax.sql.DataSource;
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Implementation of the operations of the XlsxContent repository written with plain JDBC, within the JPA transaction.
+ */
+public class XlsxContentRepositoryImpl implements XlsxContentRepositoryCustom {
+
+    /**
+     * the number of bytes read from the stream at a time
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public XlsxContentRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertContent(String hash, InputStream data, long length) {
+        InputStream bufferedData = new BufferedInputStream(data, BUFFER_SIZE);
+        jdbcTemplate.update("insert into xlsx_content (hash, data, data_length, reference_count) values (?, ?, ?, 1)", ps -> {
+            ps.setString(1, hash);
+            ps.setBinaryStream(2, bufferedData, length);
+            ps.setLong(3, length);
+        });
+    }
+
+    @Override
+    public InputStream openContent(String hash) {
+        DataSource dataSource = jdbcTemplate.getDataSource();
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            ps = connection.prepareStatement("select data from xlsx_content where hash = ?");
+            ps.setString(1, hash);
+            rs = ps.executeQuery();
+            if (!rs.next()) {
+                throw new EmptyResultDataAccessException(1);
+            }
+            // the result set stays open until the stream is closed
+            return new ContentInputStream(rs.getBinaryStream(1), connection, ps, rs);
+        } catch (SQLException e) {
+            close(connection, ps, rs);
+            throw jdbcTemplate.getExceptionTranslator().translate("openContent", null, e);
+        } catch (RuntimeException e) {
+            close(connection, ps, rs);
+            throw e;
+        }
+    }
+
+    private void close(Connection connection, PreparedStatement ps, ResultSet rs) {
+        JdbcUtils.closeResultSet(rs);
+        JdbcUtils.closeStatement(ps);
+        DataSourceUtils.releaseConnection(connection, jdbcTemplate.getDataSource());
+    }
+
+    /**
+     * stream of a content, closing the statement it is read from and releasing its connection once closed
+     */
+    private final class ContentInputStream extends FilterInputStream {
+
+        private final Connection connection;
+
+        private final PreparedStatement ps;
+
+        private final ResultSet rs;
+
+        ContentInputStream(InputStream data, Connection connection, PreparedStatement ps, ResultSet rs) {
+            super(new BufferedInputStream(data, BUFFER_SIZE));
+            this.connection = connection;
+            this.ps = ps;
+            this.rs = rs;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                XlsxContentRepositoryImpl.this.close(connection, ps, rs);
+            }
+        }
+    }
+}
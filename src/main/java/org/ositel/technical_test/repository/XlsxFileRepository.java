@@ -1,9 +1,18 @@
 package org.ositel.technical_test.repository;
 
+import org.ositel.technical_test.domain.XlsxContent;
 import org.ositel.technical_test.domain.XlsxFile;
+import org.ositel.technical_test.domain.enumeration.XlsxFileStatus;
+import org.ositel.technical_test.service.dto.XlsxFileMetadataDTO;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 
 /**
  * Spring Data JPA repository for the XlsxFile entity.
@@ -12,4 +21,81 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface XlsxFileRepository extends JpaRepository<XlsxFile, Long> {
     XlsxFile findByFileName(String fileName);
+
+    /**
+     * find the id of a xlsx file without fetching its content
+     */
+    @Query("select xlsxFile.id from XlsxFile xlsxFile where xlsxFile.fileName = ?1")
+    Long findIdByFileName(String fileName);
+
+    @Query("select xlsxFile.fileName from XlsxFile xlsxFile where xlsxFile.fileName in ?1")
+    List<String> findFileNamesByFileNameIn(Collection<String> fileNames);
+
+    /**
+     * find the metadata of the xlsx files following the given id, in ascending order of id, without fetching their
+     * content. The files are read from the primary key index, the cost of a page does not depend on the number of
+     * files preceding it nor on the size of their content
+     *
+     * @param afterId  the id of the last file of the previous page, 0 for the first page
+     * @param pageable the size of the page, its page number must be 0
+     */
+    @Query("select new org.ositel.technical_test.service.dto.XlsxFileMetadataDTO(xlsxFile.id, xlsxFile.fileName, xlsxFile.status, " +
+        "xlsxFile.version, content.hash, content.dataLength, " +
+        "(select count(xlsxSheet) from XlsxSheet xlsxSheet where xlsxSheet.xlsxFile = xlsxFile), " +
+        "(select sum(xlsxSheet.rowCount) from XlsxSheet xlsxSheet where xlsxSheet.xlsxFile = xlsxFile), " +
+        "xlsxFile.createdDate, xlsxFile.lastModifiedDate) " +
+        "from XlsxFile xlsxFile left join xlsxFile.content content where xlsxFile.id > ?1 order by xlsxFile.id")
+    List<XlsxFileMetadataDTO> findMetadataByIdGreaterThan(Long afterId, Pageable pageable);
+
+    @Query("select xlsxFile.fileName from XlsxFile xlsxFile where xlsxFile.id = ?1")
+    String findFileNameById(Long id);
+
+    /**
+     * find the hash of the content of a xlsx file without fetching its content
+     */
+    @Query("select xlsxFile.content.hash from XlsxFile xlsxFile where xlsxFile.id = ?1")
+    String findContentHashById(Long id);
+
+    @Query("select xlsxFile.status from XlsxFile xlsxFile where xlsxFile.id = ?1")
+    XlsxFileStatus findStatusById(Long id);
+
+    /**
+     * find the version of a xlsx file without fetching its content
+     */
+    @Query("select xlsxFile.version from XlsxFile xlsxFile where xlsxFile.fileName = ?1")
+    Long findVersionByFileName(String fileName);
+
+    /**
+     * increment the version of a xlsx file whose content is not written, the row stays locked until the end of the
+     * transaction
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update XlsxFile xlsxFile set xlsxFile.version = xlsxFile.version + 1 where xlsxFile.id = ?1")
+    int incrementVersion(Long id);
+
+    /**
+     * increment the version of a xlsx file whose content is not written, only if it still has the given version
+     *
+     * @return 1 if the version has been incremented, 0 if the file has another version
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update XlsxFile xlsxFile set xlsxFile.version = xlsxFile.version + 1 where xlsxFile.id = ?1 and xlsxFile.version = ?2")
+    int incrementVersion(Long id, Long version);
+
+    /**
+     * update the status of a xlsx file without writing its content again
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update XlsxFile xlsxFile set xlsxFile.status = ?2 where xlsxFile.id = ?1")
+    int updateStatus(Long id, XlsxFileStatus status);
+
+    /**
+     * update the status of a xlsx file without writing its content again, only if it still holds the given content.
+     * The row stays locked until the end of the transaction, the content cannot be written meanwhile
+     *
+     * @return 1 if the status has been updated, 0 if the file holds another content
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update XlsxFile xlsxFile set xlsxFile.status = ?3 where xlsxFile.id = ?1 and xlsxFile.content = ?2")
+    int updateStatus(Long id, XlsxContent content, XlsxFileStatus status);
 }
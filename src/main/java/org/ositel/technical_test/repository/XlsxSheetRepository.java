@@ -0,0 +1,19 @@
+package org.ositel.technical_test.repository;
+
+import org.ositel.technical_test.domain.XlsxSheet;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+
+/**
+ * Spring Data JPA repository for the XlsxSheet entity.
+ */
+@SuppressWarnings("unused")
+@Repository
+public interface XlsxSheetRepository extends JpaRepository<XlsxSheet, Long> {
+    XlsxSheet findOneByXlsxFileIdAndSheetIndex(Long xlsxFileId, Integer sheetIndex);
+
+    List<XlsxSheet> findByXlsxFileIdOrderBySheetIndex(Long xlsxFileId);
+}
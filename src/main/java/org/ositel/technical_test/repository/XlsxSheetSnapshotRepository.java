@@ -0,0 +1,31 @@
+package org.ositel.technical_test.repository;
+
+import org.ositel.technical_test.domain.XlsxSheetSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+
+/**
+ * Spring Data JPA repository for the XlsxSheetSnapshot entity.
+ * <p>
+ * The snapshots are read one column at a time so that only the requested form of the json is fetched.
+ */
+@SuppressWarnings("unused")
+@Repository
+public interface XlsxSheetSnapshotRepository extends JpaRepository<XlsxSheetSnapshot, Long> {
+
+    @Query("select snapshot.json from XlsxSheetSnapshot snapshot where snapshot.xlsxFile.fileName = ?1 and snapshot.sheetIndex = ?2")
+    byte[] findJsonByFileNameAndSheetIndex(String fileName, Integer sheetIndex);
+
+    @Query("select snapshot.jsonGzip from XlsxSheetSnapshot snapshot where snapshot.xlsxFile.fileName = ?1 and snapshot.sheetIndex = ?2")
+    byte[] findJsonGzipByFileNameAndSheetIndex(String fileName, Integer sheetIndex);
+
+    @Query("select snapshot.sheetIndex from XlsxSheetSnapshot snapshot where snapshot.xlsxFile.fileName = ?1 and snapshot.sheetName = ?2")
+    Integer findSheetIndexByFileNameAndSheetName(String fileName, String sheetName);
+
+    @Modifying
+    @Query("delete from XlsxSheetSnapshot snapshot where snapshot.xlsxFile.id = ?1")
+    void deleteByXlsxFileId(Long xlsxFileId);
+}
@@ -0,0 +1,263 @@
+package org.ositel.technical_test.service;
+
+import org.ositel.technical_test.config.ApplicationProperties;
+import org.ositel.technical_test.service.dto.XlsxImportResultDTO;
+import org.ositel.technical_test.web.rest.errors.BadRequestAlertException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Service importing at once the xlsx files of a zip archive.
+ * <p>
+ * The files of the archive are split in batches, each batch being saved in a single transaction by a thread of the
+ * import pool, so that the batches are saved in parallel and each of them costs a single commit. The entries are read
+ * in place from the archive, which is never held in memory. When a batch cannot be saved, its files are saved again
+ * one by one so that only the failing files are reported. The saved files are then ingested in the background, as
+ * the uploaded ones.
+ * <p>
+ * The archive is untrusted: the number of its entries is bounded, and the bytes each xlsx file inflates to are counted
+ * while it is read, so that an entry inflating beyond its limit, or beyond what remains of the limit of the archive,
+ * fails instead of exhausting the memory. The xlsx files whose name is already taken are not imported.
+ */
+@Service
+public class XlsxBulkImportService {
+
+    /**
+     * the entries written by the archivers of macOS along with the files
+     */
+    private static final String MACOS_METADATA = "__MACOSX/";
+
+    private final Logger log = LoggerFactory.getLogger(XlsxBulkImportService.class);
+
+    private final XlsxFileService xlsxFileService;
+
+    private final Executor importExecutor;
+
+    private final int batchSize;
+
+    private final int maxEntries;
+
+    private final long maxEntryBytes;
+
+    private final long maxTotalBytes;
+
+    public XlsxBulkImportService(XlsxFileService xlsxFileService, @Qualifier("importExecutor") Executor importExecutor,
+                                 ApplicationProperties applicationProperties) {
+        this.xlsxFileService = xlsxFileService;
+        this.importExecutor = importExecutor;
+        this.batchSize = Math.max(1, applicationProperties.getBulkImport().getBatchSize());
+        this.maxEntries = applicationProperties.getBulkImport().getMaxEntries();
+        this.maxEntryBytes = applicationProperties.getBulkImport().getMaxEntryBytes();
+        this.maxTotalBytes = applicationProperties.getBulkImport().getMaxTotalBytes();
+    }
+
+    /**
+     * Import the xlsx files of a zip archive, each of them being saved under the name of its entry without its
+     * directories. The entries which are not xlsx files are ignored, the xlsx files whose name is already taken fail.
+     *
+     * @param archive the zip archive
+     * @return the outcome of the import of each xlsx file, in the order of the archive
+     * @throws java.util.zip.ZipException if the archive is not a valid zip archive
+     * @throws IOException                if the archive cannot be read
+     * @throws BadRequestAlertException   if the archive holds too many entries
+     */
+    public List<XlsxImportResultDTO> importArchive(File archive) throws IOException {
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            if (zipFile.size() > maxEntries) {
+                throw new BadRequestAlertException("The archive holds more than " + maxEntries + " entries", "XlsxFile", "archive.tooManyEntries");
+            }
+            List<XlsxImportResultDTO> results = new ArrayList<>();
+            List<ImportEntry> importEntries = new ArrayList<>();
+            Set<String> fileNames = new HashSet<>();
+            Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+            while (zipEntries.hasMoreElements()) {
+                ZipEntry zipEntry = zipEntries.nextElement();
+                String fileName = zipEntry.getName().substring(zipEntry.getName().lastIndexOf('/') + 1);
+                if (zipEntry.isDirectory() || zipEntry.getName().startsWith(MACOS_METADATA)
+                    || !fileName.toLowerCase().endsWith(".xlsx")) {
+                    continue;
+                }
+                results.add(null);
+                if (!fileNames.add(fileName)) {
+                    results.set(results.size() - 1, XlsxImportResultDTO.failed(fileName,
+                        "The archive holds many xlsx files with the name {" + fileName + "}"));
+                    continue;
+                }
+                importEntries.add(new ImportEntry(results.size() - 1, fileName, zipEntry));
+            }
+            // the names already taken are reported here, the saving of the files checks them again under their lock
+            Set<String> existingFileNames = new HashSet<>(this.xlsxFileService.findExistingFileNames(fileNames));
+            List<List<ImportEntry>> batches = new ArrayList<>();
+            List<ImportEntry> batch = new ArrayList<>();
+            for (ImportEntry importEntry : importEntries) {
+                if (existingFileNames.contains(importEntry.fileName)) {
+                    results.set(importEntry.index, XlsxImportResultDTO.failed(importEntry.fileName,
+                        "The xlsx file {" + importEntry.fileName + "} already exists"));
+                    continue;
+                }
+                batch.add(importEntry);
+                if (batch.size() == batchSize) {
+                    batches.add(batch);
+                    batch = new ArrayList<>();
+                }
+            }
+            if (!batch.isEmpty()) {
+                batches.add(batch);
+            }
+            AtomicLong inflatedBytes = new AtomicLong();
+            List<CompletableFuture<List<XlsxImportResultDTO>>> batchResults = new ArrayList<>();
+            for (List<ImportEntry> batchEntries : batches) {
+                batchResults.add(CompletableFuture.supplyAsync(() -> this.importBatch(zipFile, batchEntries, inflatedBytes), importExecutor));
+            }
+            for (int i = 0; i < batches.size(); i++) {
+                List<XlsxImportResultDTO> batchResult = batchResults.get(i).join();
+                for (int j = 0; j < batchResult.size(); j++) {
+                    results.set(batches.get(i).get(j).index, batchResult.get(j));
+                }
+            }
+            log.debug("{} xlsx files have been imported in {} batches from the archive {}", results.size(), batches.size(), archive);
+            return results;
+        }
+    }
+
+    private List<XlsxImportResultDTO> importBatch(ZipFile zipFile, List<ImportEntry> importEntries, AtomicLong inflatedBytes) {
+        List<XlsxImportResultDTO> results = new ArrayList<>();
+        try {
+            this.saveBatch(zipFile, importEntries, inflatedBytes);
+            for (ImportEntry importEntry : importEntries) {
+                results.add(XlsxImportResultDTO.imported(importEntry.fileName));
+            }
+            return results;
+        } catch (IOException | RuntimeException e) {
+            if (importEntries.size() == 1) {
+                log.warn("The xlsx file {} cannot be imported: {}", importEntries.get(0).fileName, e.getMessage());
+                results.add(XlsxImportResultDTO.failed(importEntries.get(0).fileName, e.getMessage()));
+                return results;
+            }
+            log.debug("A batch of {} xlsx files cannot be imported, they are imported one by one: {}", importEntries.size(), e.getMessage());
+        }
+        for (ImportEntry importEntry : importEntries) {
+            results.addAll(this.importBatch(zipFile, Collections.singletonList(importEntry), inflatedBytes));
+        }
+        return results;
+    }
+
+    private void saveBatch(ZipFile zipFile, List<ImportEntry> importEntries, AtomicLong inflatedBytes) throws IOException {
+        Map<String, InputStream> contents = new LinkedHashMap<>();
+        try {
+            for (ImportEntry importEntry : importEntries) {
+                contents.put(importEntry.fileName,
+                    new InflatedBytesLimiter(zipFile.getInputStream(importEntry.zipEntry), importEntry.fileName, inflatedBytes));
+            }
+            this.xlsxFileService.uploadAndSaveXlsxFiles(contents);
+        } catch (IOException | RuntimeException e) {
+            // the files of a failed batch are not saved, their bytes are not counted twice when they are retried
+            for (InputStream content : contents.values()) {
+                inflatedBytes.addAndGet(-((InflatedBytesLimiter) content).entryBytes);
+            }
+            throw e;
+        } finally {
+            for (InputStream content : contents.values()) {
+                content.close();
+            }
+        }
+    }
+
+    /**
+     * stream of an entry of the archive failing as soon as the entry, or the archive, inflates beyond its limit
+     */
+    private final class InflatedBytesLimiter extends FilterInputStream {
+
+        private final String fileName;
+
+        private final AtomicLong inflatedBytes;
+
+        private long entryBytes;
+
+        InflatedBytesLimiter(InputStream in, String fileName, AtomicLong inflatedBytes) {
+            super(in);
+            this.fileName = fileName;
+            this.inflatedBytes = inflatedBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                this.count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                this.count(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            if (skipped > 0) {
+                this.count(skipped);
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void count(long n) throws IOException {
+            entryBytes += n;
+            if (entryBytes > maxEntryBytes) {
+                throw new IOException("The xlsx file {" + fileName + "} inflates to more than " + maxEntryBytes + " bytes");
+            }
+            if (inflatedBytes.addAndGet(n) > maxTotalBytes) {
+                throw new IOException("The xlsx files of the archive inflate to more than " + maxTotalBytes + " bytes");
+            }
+        }
+    }
+
+    /**
+     * a xlsx file of the archive, with the position of its outcome in the report
+     */
+    private static final class ImportEntry {
+
+        private final int index;
+
+        private final String fileName;
+
+        private final ZipEntry zipEntry;
+
+        ImportEntry(int index, String fileName, ZipEntry zipEntry) {
+            this.index = index;
+            this.fileName = fileName;
+            this.zipEntry = zipEntry;
+        }
+    }
+}
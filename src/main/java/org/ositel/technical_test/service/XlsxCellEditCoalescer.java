@@ -0,0 +1,302 @@
+package org.ositel.technical_test.service;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.ositel.technical_test.config.ApplicationProperties;
+import org.ositel.technical_test.service.dto.XlsxCellEditDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Service coalescing the cell edits of a xlsx file sent in a burst into a single write.
+ * <p>
+ * The edits of a file are collected for a short window from the first of them, then applied by a single call to the
+ * {@link XlsxFileService}, in its own transaction. The writes of a file never run concurrently: the edits arriving
+ * while the file is written are applied right after, in the next batch. The future of each caller completes once the
+ * batch holding its edits has been committed. When a batch is rejected, the edits of each caller are applied again on
+ * their own, so that an invalid edit only fails the caller which sent it. The edits conditioned on a version of the
+ * file are not merged with the others, each request being applied on its own in the order of the batch, so that only
+ * the first of the requests based on the same version succeeds. The sizes of the batches are measured in the metric
+ * registry.
+ * <p>
+ * A caller waits for its edits for a bounded time, the edits not written yet by then are withdrawn. Once the coalescer
+ * is shut down, the windows already started are still written but the edits submitted afterwards are rejected, and
+ * the edits still waiting when it has stopped are failed, so that no future is left pending.
+ */
+@Service
+public class XlsxCellEditCoalescer {
+
+    private final Logger log = LoggerFactory.getLogger(XlsxCellEditCoalescer.class);
+
+    private final XlsxFileService xlsxFileService;
+
+    private final long coalescingWindow;
+
+    private final long coalescingTimeout;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Histogram batchSizes;
+
+    /**
+     * the files having edits waiting to be written or being written, by file name, guarded by itself
+     */
+    private final Map<String, FileWrites> fileWrites = new HashMap<>();
+
+    public XlsxCellEditCoalescer(XlsxFileService xlsxFileService, ApplicationProperties applicationProperties,
+                                 MetricRegistry metricRegistry) {
+        this.xlsxFileService = xlsxFileService;
+        ApplicationProperties.CellEdits cellEdits = applicationProperties.getCellEdits();
+        this.coalescingWindow = cellEdits.getCoalescingWindow();
+        this.coalescingTimeout = cellEdits.getCoalescingTimeout();
+        this.scheduler = new ScheduledThreadPoolExecutor(cellEdits.getCoalescingThreads(),
+            new CustomizableThreadFactory("ositel-CellEdits-"));
+        this.batchSizes = metricRegistry.histogram(MetricRegistry.name(XlsxCellEditCoalescer.class, "batch-sizes"));
+    }
+
+    /**
+     * Submit edits of the cells of a xlsx file, to be written with the other edits of the file received in the same
+     * window.
+     *
+     * @param fileName name of the xlsx file
+     * @param edits    the cells to update with their new value
+     * @return the future completed once the edits are committed, or failed if they are rejected
+     */
+    public CompletableFuture<Void> submit(String fileName, List<XlsxCellEditDTO> edits) {
+        return submit(fileName, edits, null);
+    }
+
+    /**
+     * Submit edits of the cells of a xlsx file, to be written only if the file still has the given version when they
+     * are written.
+     *
+     * @param fileName        name of the xlsx file
+     * @param edits           the cells to update with their new value
+     * @param expectedVersion the version the edits are based on, null to update any version
+     * @return the future completed once the edits are committed, or failed if they are rejected
+     */
+    public CompletableFuture<Void> submit(String fileName, List<XlsxCellEditDTO> edits, Long expectedVersion) {
+        return enqueue(fileName, edits, expectedVersion).future;
+    }
+
+    private PendingEdits enqueue(String fileName, List<XlsxCellEditDTO> edits, Long expectedVersion) {
+        PendingEdits pendingEdits = new PendingEdits(edits, expectedVersion);
+        if (coalescingWindow <= 0) {
+            apply(fileName, pendingEdits);
+            return pendingEdits;
+        }
+        synchronized (fileWrites) {
+            if (scheduler.isShutdown()) {
+                pendingEdits.future.completeExceptionally(new RejectedExecutionException(
+                    "The cell edits of the xlsx file " + fileName + " are rejected, the coalescer has been shut down"));
+                return pendingEdits;
+            }
+            FileWrites writes = fileWrites.computeIfAbsent(fileName, FileWrites::new);
+            writes.pending.add(pendingEdits);
+            // the window starts with the first edits, the edits received during a write wait for its end
+            if (writes.pending.size() == 1 && !writes.writing) {
+                try {
+                    scheduler.schedule(() -> write(writes), coalescingWindow, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    failPending(writes, e);
+                }
+            }
+        }
+        return pendingEdits;
+    }
+
+    /**
+     * Update cells of a xlsx file with the other edits of the file received in the same window, waiting for them to be
+     * committed.
+     *
+     * @param fileName        name of the xlsx file
+     * @param edits           the cells to update with their new value
+     * @param expectedVersion the version the edits are based on, null to update any version
+     * @throws IOException            if the xlsx file cannot be read or written, or if the edits are not written in time
+     * @throws InvalidFormatException if the xlsx file is not valid
+     */
+    public void updateCellValues(String fileName, List<XlsxCellEditDTO> edits, Long expectedVersion) throws IOException, InvalidFormatException {
+        PendingEdits pendingEdits = enqueue(fileName, edits, expectedVersion);
+        try {
+            pendingEdits.future.get(coalescingTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            withdraw(fileName, pendingEdits);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the cell edits of the xlsx file " + fileName, e);
+        } catch (TimeoutException e) {
+            // the edits already being written may still be committed
+            String withdrawn = withdraw(fileName, pendingEdits) ? "they have been withdrawn" : "they may still be written";
+            throw new IOException("The cell edits of the xlsx file " + fileName + " have not been written within "
+                + coalescingTimeout + " ms, " + withdrawn, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof InvalidFormatException) {
+                throw (InvalidFormatException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private void write(FileWrites writes) {
+        List<PendingEdits> batch;
+        synchronized (fileWrites) {
+            batch = writes.pending;
+            writes.pending = new ArrayList<>();
+            writes.writing = true;
+        }
+        try {
+            // the edits of the window may all have been withdrawn
+            if (!batch.isEmpty()) {
+                apply(writes.fileName, batch);
+            }
+        } finally {
+            synchronized (fileWrites) {
+                writes.writing = false;
+                if (writes.pending.isEmpty()) {
+                    fileWrites.remove(writes.fileName);
+                } else {
+                    try {
+                        scheduler.execute(() -> write(writes));
+                    } catch (RejectedExecutionException e) {
+                        failPending(writes, e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove edits which are not being written yet from the edits waiting for their file.
+     *
+     * @return true if the edits have been removed, false if they are being written or have been written
+     */
+    private boolean withdraw(String fileName, PendingEdits pendingEdits) {
+        synchronized (fileWrites) {
+            FileWrites writes = fileWrites.get(fileName);
+            return writes != null && writes.pending.remove(pendingEdits);
+        }
+    }
+
+    /**
+     * Fail the edits waiting for a file which cannot be written anymore, to be called holding the lock of the files.
+     */
+    private void failPending(FileWrites writes, Exception cause) {
+        for (PendingEdits pendingEdits : writes.pending) {
+            pendingEdits.future.completeExceptionally(cause);
+        }
+        writes.pending = new ArrayList<>();
+        if (!writes.writing) {
+            fileWrites.remove(writes.fileName);
+        }
+    }
+
+    private void apply(String fileName, PendingEdits pendingEdits) {
+        try {
+            xlsxFileService.updateCellValuesForXlsxFile(fileName, pendingEdits.edits, pendingEdits.expectedVersion);
+            pendingEdits.future.complete(null);
+        } catch (Exception e) {
+            pendingEdits.future.completeExceptionally(e);
+        }
+    }
+
+    private void apply(String fileName, List<PendingEdits> batch) {
+        batchSizes.update(batch.size());
+        List<XlsxCellEditDTO> edits = new ArrayList<>();
+        for (PendingEdits pendingEdits : batch) {
+            if (pendingEdits.expectedVersion != null) {
+                edits = null;
+                break;
+            }
+            edits.addAll(pendingEdits.edits);
+        }
+        if (batch.size() == 1 || edits == null) {
+            for (PendingEdits pendingEdits : batch) {
+                apply(fileName, pendingEdits);
+            }
+            return;
+        }
+        try {
+            xlsxFileService.updateCellValuesForXlsxFile(fileName, edits, null);
+        } catch (Exception e) {
+            log.debug("The {} coalesced cell edits of the xlsx file {} are applied one request at a time: {}",
+                edits.size(), fileName, e.getMessage());
+            for (PendingEdits pendingEdits : batch) {
+                apply(fileName, pendingEdits);
+            }
+            return;
+        }
+        log.debug("{} cell edits of {} requests have been written in the xlsx file {}", edits.size(), batch.size(), fileName);
+        for (PendingEdits pendingEdits : batch) {
+            pendingEdits.future.complete(null);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // the windows already scheduled are still written
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(coalescingTimeout, TimeUnit.MILLISECONDS)) {
+                log.warn("The cell edits still being written after {} ms are abandoned", coalescingTimeout);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (fileWrites) {
+            RejectedExecutionException cause = new RejectedExecutionException("The cell edits coalescer has been shut down");
+            for (FileWrites writes : new ArrayList<>(fileWrites.values())) {
+                failPending(writes, cause);
+            }
+        }
+    }
+
+    private static final class FileWrites {
+
+        private final String fileName;
+
+        private List<PendingEdits> pending = new ArrayList<>();
+
+        private boolean writing;
+
+        FileWrites(String fileName) {
+            this.fileName = fileName;
+        }
+    }
+
+    private static final class PendingEdits {
+
+        private final List<XlsxCellEditDTO> edits;
+
+        private final Long expectedVersion;
+
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        PendingEdits(List<XlsxCellEditDTO> edits, Long expectedVersion) {
+            this.edits = edits;
+            this.expectedVersion = expectedVersion;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.ositel.technical_test.service;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import org.ositel.technical_test.config.ApplicationProperties;
+import org.ositel.technical_test.repository.XlsxCellEditRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service writing the recorded cell edits of the xlsx files in their content.
+ * <p>
+ * The cell edits of an ingested file are only appended, so an update does not rewrite the whole content. They are
+ * compacted once a file has enough of them, in a single read and write of its content, the file being ingested again
+ * afterwards. The compacted files and the failures are measured in the metric registry.
+ */
+@Service
+public class XlsxCellEditCompactor {
+
+    private final Logger log = LoggerFactory.getLogger(XlsxCellEditCompactor.class);
+
+    private final XlsxFileService xlsxFileService;
+
+    private final XlsxCellEditRepository xlsxCellEditRepository;
+
+    private final long compactionThreshold;
+
+    private final Meter compactions;
+
+    private final Meter failures;
+
+    public XlsxCellEditCompactor(XlsxFileService xlsxFileService, XlsxCellEditRepository xlsxCellEditRepository,
+                                 ApplicationProperties applicationProperties, MetricRegistry metricRegistry) {
+        this.xlsxFileService = xlsxFileService;
+        this.xlsxCellEditRepository = xlsxCellEditRepository;
+        this.compactionThreshold = applicationProperties.getCellEdits().getCompactionThreshold();
+        this.compactions = metricRegistry.meter(MetricRegistry.name(XlsxCellEditCompactor.class, "compactions"));
+        this.failures = metricRegistry.meter(MetricRegistry.name(XlsxCellEditCompactor.class, "failures"));
+    }
+
+    /**
+     * Compact the cell edits of the files having at least as many of them as the threshold, each file in its own
+     * transaction.
+     */
+    @Scheduled(fixedDelayString = "${application.cell-edits.compaction-delay:60000}")
+    public void compactCellEdits() {
+        for (Long xlsxFileId : xlsxCellEditRepository.findXlsxFileIdsWithAtLeast(compactionThreshold)) {
+            try {
+                xlsxFileService.compactXlsxFile(xlsxFileId);
+                compactions.mark();
+            } catch (Exception e) {
+                failures.mark();
+                log.error("The cell edits of the xlsx file {} cannot be compacted", xlsxFileId, e);
+            }
+        }
+    }
+}
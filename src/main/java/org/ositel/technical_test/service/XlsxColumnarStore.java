@@ -0,0 +1,74 @@
+package org.ositel.technical_test.service;
+
+import org.ositel.technical_test.config.ApplicationProperties;
+import org.ositel.technical_test.service.xlsx.ColumnarFileSheet;
+import org.ositel.technical_test.service.xlsx.ColumnarFileWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Local disk store of the columnar files of the xlsx files.
+ * <p>
+ * A columnar file holds all the sheets of a xlsx file, it is written when the file is ingested and memory mapped to be
+ * read, so that the queries neither inflate nor parse the xlsx file. It is removed as soon as the content of the xlsx
+ * file changes, the queries then read the xlsx file until it has been ingested again. A columnar file records the hash
+ * of the content it was written from and is only opened for that content, so a file left behind by a write whose
+ * removal failed or raced with an ingestion is never read.
+ */
+@Component
+public class XlsxColumnarStore {
+
+    private final Logger log = LoggerFactory.getLogger(XlsxColumnarStore.class);
+
+    private final Path directory;
+
+    public XlsxColumnarStore(ApplicationProperties applicationProperties) {
+        this.directory = Paths.get(applicationProperties.getColumnarStore().getDirectory());
+    }
+
+    /**
+     * Start writing the columnar file of a xlsx file, it replaces the previous one once committed.
+     *
+     * @param fileId      the id of the xlsx file
+     * @param contentHash the hash of the content of the xlsx file the sheets are read from
+     * @return the writer
+     */
+    public ColumnarFileWriter newWriter(Long fileId, String contentHash) throws IOException {
+        return new ColumnarFileWriter(path(fileId), contentHash);
+    }
+
+    /**
+     * Map a sheet of the columnar file of a xlsx file.
+     *
+     * @param fileId      the id of the xlsx file
+     * @param contentHash the hash of the current content of the xlsx file
+     * @param sheet       the name or the zero based index of the sheet, null for the first sheet
+     * @return the sheet, null if the xlsx file has no columnar file written from its current content
+     */
+    public ColumnarFileSheet open(Long fileId, String contentHash, String sheet) throws IOException {
+        return ColumnarFileSheet.open(path(fileId), contentHash, sheet);
+    }
+
+    /**
+     * Remove the columnar file of a xlsx file, the sheets already mapped can still be read.
+     *
+     * @param fileId the id of the xlsx file
+     */
+    public void delete(Long fileId) {
+        try {
+            Files.deleteIfExists(path(fileId));
+        } catch (IOException e) {
+            log.warn("The columnar file of the xlsx file {} cannot be removed: {}", fileId, e.getMessage());
+        }
+    }
+
+    private Path path(Long fileId) {
+        return directory.resolve(fileId + ".xlsc");
+    }
+}
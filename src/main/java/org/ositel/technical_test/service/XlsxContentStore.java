@@ -0,0 +1,137 @@
+package org.ositel.technical_test.service;
+
+import org.ositel.technical_test.domain.XlsxContent;
+import org.ositel.technical_test.repository.XlsxContentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Content-addressed store of the content of the xlsx files.
+ * <p>
+ * A content is stored once under its SHA-256 whatever the number of xlsx files holding it, each of them referencing it
+ * by its hash. The store keeps the number of references of each content, a content being stored with its first
+ * reference and removed with its last one. The references are counted in the transaction writing the xlsx files, they
+ * are rolled back with it.
+ */
+@Component
+public class XlsxContentStore {
+
+    private final Logger log = LoggerFactory.getLogger(XlsxContentStore.class);
+
+    private final XlsxContentRepository xlsxContentRepository;
+
+    public XlsxContentStore(XlsxContentRepository xlsxContentRepository) {
+        this.xlsxContentRepository = xlsxContentRepository;
+    }
+
+    /**
+     * Reference a content, storing it if no xlsx file holds it yet.
+     *
+     * @param data the bytes of the content
+     * @return the stored content
+     */
+    public XlsxContent store(byte[] data) {
+        MessageDigest digest = newDigest();
+        digest.update(data);
+        return this.store(toHex(digest.digest()), new ByteArrayInputStream(data), data.length);
+    }
+
+    /**
+     * Reference a content read from a stream, storing it if no xlsx file holds it yet. The stream is spooled to a
+     * temporary file while its hash is computed, so that the content is neither held in memory nor written to the
+     * database when it is already stored.
+     *
+     * @param data the stream of the content, not closed
+     * @return the stored content
+     * @throws IOException if the stream cannot be read
+     */
+    public XlsxContent store(InputStream data) throws IOException {
+        Path spool = Files.createTempFile("xlsx-content-", null);
+        try {
+            MessageDigest digest = newDigest();
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(spool), digest)) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = data.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            }
+            try (InputStream spooledData = Files.newInputStream(spool)) {
+                return this.store(toHex(digest.digest()), spooledData, Files.size(spool));
+            }
+        } finally {
+            Files.deleteIfExists(spool);
+        }
+    }
+
+    /**
+     * Open a stream on a stored content, the content is streamed from the database instead of being loaded in memory.
+     *
+     * @param content the content
+     * @return the stream of the content, to be closed before the end of the transaction
+     */
+    public InputStream open(XlsxContent content) {
+        return this.xlsxContentRepository.openContent(content.getHash());
+    }
+
+    /**
+     * Drop a reference to a content, the content is removed once no xlsx file references it. The xlsx file must not
+     * reference the content anymore.
+     *
+     * @param content the content, null if the xlsx file had none
+     */
+    public void release(XlsxContent content) {
+        if (content == null) {
+            return;
+        }
+        // the file referencing the content is written first, the content cannot be removed while it is referenced
+        this.xlsxContentRepository.flush();
+        this.xlsxContentRepository.decrementReferenceCount(content.getHash());
+        if (this.xlsxContentRepository.deleteUnreferenced(content.getHash()) > 0) {
+            log.debug("The content {} is not referenced anymore and has been removed", content.getHash());
+        }
+    }
+
+    private XlsxContent store(String hash, InputStream data, long length) {
+        if (this.xlsxContentRepository.incrementReferenceCount(hash) == 0) {
+            try {
+                this.xlsxContentRepository.insertContent(hash, data, length);
+                log.debug("The content {} of {} bytes has been stored", hash, length);
+            } catch (DuplicateKeyException e) {
+                // the same content has just been stored by another upload
+                this.xlsxContentRepository.incrementReferenceCount(hash);
+            }
+        } else {
+            log.debug("The content {} is already stored, it is referenced once more", hash);
+        }
+        return this.xlsxContentRepository.getOne(hash);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by the JVM", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,162 @@
+package org.ositel.technical_test.service;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.ositel.technical_test.config.ApplicationProperties;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Service coordinating the reads and the updates of the xlsx files within this instance.
+ * <p>
+ * The files are mapped by name to a fixed number of striped {@link StampedLock}s. The reads are first run under an
+ * optimistic stamp, which never blocks nor is blocked by the other readers, and are only run again under a read lock
+ * when a write started meanwhile, so the readers of a file keep running in parallel while a writer waits for the lock.
+ * The updates hold the write lock of their file until the end of their transaction, so that a read never sees a write
+ * which is not committed yet. The lock of a stripe is held at most once by a thread: the reads and the updates run by
+ * the thread holding the write lock do not take it again. The time spent waiting for the read locks after a failed
+ * optimistic read and for the write locks is measured in the metric registry.
+ */
+@Service
+public class XlsxFileLockManager {
+
+    private final StampedLock[] stripes;
+
+    /**
+     * the stamps of the write locks held by the current thread, by stripe
+     */
+    private final ThreadLocal<Map<Integer, Long>> heldWriteLocks = ThreadLocal.withInitial(HashMap::new);
+
+    private final Timer readLockWait;
+
+    private final Timer writeLockWait;
+
+    public XlsxFileLockManager(ApplicationProperties applicationProperties, MetricRegistry metricRegistry) {
+        int stripeCount = Integer.highestOneBit(Math.max(1, applicationProperties.getFileLocks().getStripes() - 1) << 1);
+        this.stripes = new StampedLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new StampedLock();
+        }
+        this.readLockWait = metricRegistry.timer(MetricRegistry.name(XlsxFileLockManager.class, "read-lock-wait"));
+        this.writeLockWait = metricRegistry.timer(MetricRegistry.name(XlsxFileLockManager.class, "write-lock-wait"));
+    }
+
+    /**
+     * Run a read of a xlsx file without any concurrent update of the file. The read may be run twice, it must not write
+     * to the database and its other effects, such as caching what it parsed or publishing events, must be harmless when
+     * it is run again.
+     *
+     * @param fileName name of the xlsx file
+     * @param read     the read of the file
+     * @return the result of the read
+     * @throws IOException            if the read fails
+     * @throws InvalidFormatException if the read fails
+     */
+    public <T> T read(String fileName, FileRead<T> read) throws IOException, InvalidFormatException {
+        int stripe = stripe(fileName);
+        if (heldWriteLocks.get().containsKey(stripe)) {
+            return read.read();
+        }
+        StampedLock lock = stripes[stripe];
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = read.read();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (IOException | InvalidFormatException | RuntimeException e) {
+                // the failure may have been caused by the concurrent update, the read is only run again in that case
+                if (lock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+        Timer.Context wait = readLockWait.time();
+        stamp = lock.readLock();
+        wait.stop();
+        try {
+            return read.read();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Take the write lock of a xlsx file until the end of the current transaction, the lock is released once the
+     * transaction has been committed or rolled back.
+     *
+     * @param fileName name of the xlsx file
+     * @throws IllegalStateException if there is no transaction
+     */
+    public void lockUntilTransactionEnd(String fileName) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("The xlsx file " + fileName + " can only be locked within a transaction");
+        }
+        this.lockStripeUntilTransactionEnd(stripe(fileName));
+    }
+
+    /**
+     * Take the write locks of many xlsx files until the end of the current transaction. The locks are taken in the
+     * order of their stripes, so that two transactions locking files mapped to the same stripes never wait for each
+     * other; the current transaction must not hold any lock yet.
+     *
+     * @param fileNames names of the xlsx files
+     * @throws IllegalStateException if there is no transaction
+     */
+    public void lockUntilTransactionEnd(Collection<String> fileNames) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("The xlsx files " + fileNames + " can only be locked within a transaction");
+        }
+        SortedSet<Integer> fileStripes = new TreeSet<>();
+        for (String fileName : fileNames) {
+            fileStripes.add(stripe(fileName));
+        }
+        for (Integer stripe : fileStripes) {
+            this.lockStripeUntilTransactionEnd(stripe);
+        }
+    }
+
+    private void lockStripeUntilTransactionEnd(int stripe) {
+        Map<Integer, Long> writeLocks = heldWriteLocks.get();
+        if (writeLocks.containsKey(stripe)) {
+            return;
+        }
+        StampedLock lock = stripes[stripe];
+        Timer.Context wait = writeLockWait.time();
+        long stamp = lock.writeLock();
+        wait.stop();
+        writeLocks.put(stripe, stamp);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                heldWriteLocks.get().remove(stripe);
+                lock.unlockWrite(stamp);
+            }
+        });
+    }
+
+    private int stripe(String fileName) {
+        int hash = fileName.hashCode();
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+
+    /**
+     * A read of a xlsx file.
+     */
+    @FunctionalInterface
+    public interface FileRead<T> {
+
+        T read() throws IOException, InvalidFormatException;
+    }
+}
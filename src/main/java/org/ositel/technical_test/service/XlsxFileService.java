@@ -2,12 +2,24 @@ package org.ositel.technical_test.service;
 
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.ositel.technical_test.domain.XlsxFile;
+import org.ositel.technical_test.domain.enumeration.XlsxFileStatus;
+import org.ositel.technical_test.service.dto.XlsxCellEditDTO;
+import org.ositel.technical_test.service.dto.XlsxColumnDTO;
 import org.ositel.technical_test.service.dto.XlsxFileDTO;
+import org.ositel.technical_test.service.dto.XlsxFileMetadataDTO;
+import org.ositel.technical_test.service.dto.XlsxSheetColumnsDTO;
+import org.ositel.technical_test.service.dto.XlsxSheetSchemaDTO;
+import org.ositel.technical_test.service.xlsx.SheetQuery;
+import org.ositel.technical_test.service.xlsx.XlsxSheetReader;
+import org.springframework.data.domain.Slice;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service Interface for managing XlsxFile.
@@ -23,20 +35,69 @@ public interface XlsxFileService {
     XlsxFile save(XlsxFile xlsxFile);
 
     /**
-     * Get all the xlsxFiles.
+     * Get the metadata of the xlsxFiles following the given id, in ascending order of id, without reading their content.
      *
-     * @return the list of entities
+     * @param afterId the id of the last file of the previous slice, null for the first slice
+     * @param size    the maximum number of files of the slice
+     * @return the slice of metadata, telling whether other files follow it
      */
-    List<XlsxFile> findAll();
+    Slice<XlsxFileMetadataDTO> findAllMetadata(Long afterId, int size);
 
     /**
-     * method used to upload xlsx file
+     * Count the xlsxFiles.
+     *
+     * @return the number of files
+     */
+    long count();
+
+    /**
+     * method used to upload xlsx file, the file is saved as PENDING and ingested once the upload has been committed.
+     * The content is streamed from the uploaded file to the database without being held in memory, it is only stored
+     * if no other file holds the same content
      *
      * @param file
      * @throws IOException
      */
     void uploadAndSaveXlsxFile(MultipartFile file) throws IOException;
 
+    /**
+     * Save a xlsx file from a stream of its content, as {@link #uploadAndSaveXlsxFile(MultipartFile)} does.
+     *
+     * @param fileName name of the xlsx file
+     * @param content  the stream of the content, not closed
+     * @throws IOException if the content cannot be read
+     */
+    void uploadAndSaveXlsxFile(String fileName, InputStream content) throws IOException;
+
+    /**
+     * Save many new xlsx files in a single transaction, each of them as {@link #uploadAndSaveXlsxFile(String, InputStream)}
+     * does. All the files are locked before the first one is saved.
+     *
+     * @param contents the streams of the contents by file name, not closed
+     * @throws IOException if a content cannot be read, none of the files is then saved
+     * @throws org.ositel.technical_test.web.rest.errors.BadRequestAlertException if a file with one of the names
+     *                                                                            already exists, none of the files is
+     *                                                                            then saved
+     */
+    void uploadAndSaveXlsxFiles(Map<String, InputStream> contents) throws IOException;
+
+    /**
+     * method used to know which of the given names are already taken by xlsx files
+     *
+     * @param fileNames names of xlsx files
+     * @return the names of the existing xlsx files among them
+     */
+    List<String> findExistingFileNames(Collection<String> fileNames);
+
+    /**
+     * method used to delete a xlsx file with its sheets and cell edits, its content is removed once no other file
+     * holds it
+     *
+     * @param fileName name of the xlsx file
+     * @throws FileNotFoundException if the file does not exist
+     */
+    void deleteXlsxFile(String fileName) throws FileNotFoundException;
+
     /**
      * method used to search xlsx file by name,
      *
@@ -46,6 +107,100 @@ public interface XlsxFileService {
      */
     XlsxFileDTO searchExcelFileByNameAndGetItInJsonFormat(String fileName) throws InvalidFormatException, IOException;
 
+    /**
+     * method used to search xlsx file by name and get only the sheet, lines and columns selected by the query. Only the
+     * part of the selected sheet is inflated and its parsing stops once the lines of the page have been read and the cells of the other columns are skipped
+     * without being decoded. The row count of the sheet is computed on the first call and kept in XlsxSheet to fill
+     * {@link XlsxFileDTO#getTotalLines()}. The whole sheet is kept in the {@link XlsxSheetCache} when it is small enough,
+     * the next calls then read neither the content of the file nor the xlsx.
+     *
+     * @param fileName name of the xlsx file
+     * @param query    the sheet, lines and columns to read
+     * @return the header and the lines selected by the query
+     * @throws FileNotFoundException if the file has not been foud in H2 db
+     */
+    XlsxFileDTO searchExcelFileByNameAndGetItInJsonFormat(String fileName, SheetQuery query) throws InvalidFormatException, IOException;
+
+    /**
+     * method used to search xlsx file by name and get the sheet, lines and columns selected by the query column by
+     * column. The cells are decoded to their type and stored in primitive arrays, see {@link XlsxColumnDTO}.
+     *
+     * @param fileName name of the xlsx file
+     * @param query    the sheet, lines and columns to read
+     * @return the typed columns of the lines selected by the query
+     * @throws FileNotFoundException if the file has not been foud in H2 db
+     */
+    XlsxSheetColumnsDTO searchExcelFileColumns(String fileName, SheetQuery query) throws InvalidFormatException, IOException;
+
+    /**
+     * method used to get the json of a whole sheet as rendered when the file has been uploaded or updated, the
+     * document has the shape of {@link XlsxFileDTO}
+     *
+     * @param fileName name of the xlsx file
+     * @param sheet    name or zero based index of the sheet, null for the first sheet
+     * @param gzip     true to get the gzipped json
+     * @return the json, null if there is no snapshot of this sheet
+     */
+    byte[] findJsonSnapshot(String fileName, String sheet, boolean gzip);
+
+    /**
+     * method used to get the version of a xlsx file, incremented by every update of its cells
+     *
+     * @param fileName name of the xlsx file
+     * @return the version, null if the file does not exist
+     */
+    Long findXlsxFileVersion(String fileName);
+
+    /**
+     * method used to open a xlsx file for a streaming read, the content is streamed out of the db to a temporary file before returning
+     * so that the sheets can be read outside of the transaction
+     *
+     * @param fileName name of the xlsx file
+     * @return the reader of the xlsx file, to be closed by the caller
+     * @throws FileNotFoundException if the file has not been foud in H2 db
+     */
+    XlsxSheetReader openExcelFile(String fileName) throws InvalidFormatException, IOException;
+
+    /**
+     * method used to get the schema of a sheet: its header columns, their types and its number of rows. The schema
+     * is read from the statistics of an ingested file, otherwise only the header and the first line of the sheet
+     * are parsed
+     *
+     * @param fileName the name of the xlsx file
+     * @param sheet    the name or the zero based index of the sheet, null for the first sheet
+     * @return the schema of the sheet
+     * @throws IOException            if the file does not exist or cannot be read
+     * @throws InvalidFormatException if the content is not a valid xlsx
+     */
+    XlsxSheetSchemaDTO findExcelFileSchema(String fileName, String sheet) throws InvalidFormatException, IOException;
+
+    /**
+     * method used to ingest a xlsx file once it has been written: every sheet is parsed once to cache it, count its
+     * rows, compute the statistics of its columns and render its json snapshots. The file is then READY.
+     *
+     * @param id the id of the xlsx file
+     * @throws IOException            if the content cannot be read
+     * @throws InvalidFormatException if the content is not a valid xlsx
+     */
+    void ingestXlsxFile(Long id) throws InvalidFormatException, IOException;
+
+    /**
+     * method used to keep the row count of a sheet counted by a read, in a transaction of its own. Nothing is recorded
+     * if the row count of the sheet is already known or if the content of the file has changed since it was counted.
+     *
+     * @param event the counted sheet
+     * @throws org.springframework.dao.DataIntegrityViolationException if the sheet has been recorded concurrently
+     */
+    void recordSheetRowCount(XlsxSheetCountedEvent event);
+
+    /**
+     * method used to set the ingestion status of a xlsx file
+     *
+     * @param id     the id of the xlsx file
+     * @param status the new status
+     */
+    void updateXlsxFileStatus(Long id, XlsxFileStatus status);
+
     /**
      * used to update cell value
      * @param fileName name of the xlsx file
@@ -54,4 +209,44 @@ public interface XlsxFileService {
      * @throws IOException
      */
     void updateCellValueForXlsxFile(String fileName, Integer column, Integer line, String value) throws IOException, InvalidFormatException;
+
+    /**
+     * used to update cell value of a given sheet
+     * @param fileName name of the xlsx file
+     * @param sheetName name or zero based index of the sheet, null for the first sheet
+     * @param column columnn index
+     * @param line line index
+     * @throws IOException
+     */
+    void updateCellValueForXlsxFile(String fileName, String sheetName, Integer column, Integer line, String value) throws IOException, InvalidFormatException;
+
+    /**
+     * used to update the values of many cells at once, the batch being rejected as a whole if one of its cells does
+     * not exist. Once the file has been ingested the edits are only recorded, to be applied over the content when it
+     * is read until they are compacted into it. Otherwise the xlsx file is read, edited and written back a single time
+     * for the whole batch
+     * @param fileName name of the xlsx file
+     * @param edits the cells to update with their new value
+     * @throws IOException
+     */
+    void updateCellValuesForXlsxFile(String fileName, List<XlsxCellEditDTO> edits) throws IOException, InvalidFormatException;
+
+    /**
+     * used to update the values of many cells at once, only if the xlsx file still has the given version
+     * @param fileName name of the xlsx file
+     * @param edits the cells to update with their new value
+     * @param expectedVersion the version the edits are based on, null to update any version
+     * @throws IOException
+     * @throws org.ositel.technical_test.web.rest.errors.PreconditionFailedAlertException if the file has another version
+     */
+    void updateCellValuesForXlsxFile(String fileName, List<XlsxCellEditDTO> edits, Long expectedVersion) throws IOException, InvalidFormatException;
+
+    /**
+     * method used to write the recorded cell edits of a xlsx file in its content
+     *
+     * @param id the id of the xlsx file
+     * @throws IOException if the content cannot be read
+     * @throws InvalidFormatException if the content is not a valid xlsx
+     */
+    void compactXlsxFile(Long id) throws IOException, InvalidFormatException;
 }
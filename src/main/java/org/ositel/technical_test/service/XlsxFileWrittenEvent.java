@@ -0,0 +1,24 @@
+package org.ositel.technical_test.service;
+
+/**
+ * Event published when the content of a xlsx file has been written, the file then has to be ingested.
+ */
+public class XlsxFileWrittenEvent {
+
+    private final Long xlsxFileId;
+
+    public XlsxFileWrittenEvent(Long xlsxFileId) {
+        this.xlsxFileId = xlsxFileId;
+    }
+
+    public Long getXlsxFileId() {
+        return xlsxFileId;
+    }
+
+    @Override
+    public String toString() {
+        return "XlsxFileWrittenEvent{" +
+            "xlsxFileId=" + xlsxFileId +
+            '}';
+    }
+}
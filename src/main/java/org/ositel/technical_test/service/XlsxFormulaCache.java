@@ -0,0 +1,77 @@
+package org.ositel.technical_test.service;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import org.ositel.technical_test.config.ApplicationProperties;
+import org.ositel.technical_test.service.xlsx.FormulaRecalculator;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-process LRU cache of the workbooks holding formulas, loaded with the dependency graph of their formulas so that
+ * the edits of a file only recompute the formulas depending on the edited cells.
+ * <p>
+ * The workbooks are keyed by the hash of the content they were loaded from or written to, a workbook being shared by
+ * all the xlsx files holding the same content. A workbook is checked out by the write of a file and checked in again
+ * under the hash of the written content once the write has been committed, so that a rolled back write does not leave
+ * its edits in the cache, and that two files holding the same content never edit the same workbook. The hits, misses
+ * and evictions are counted in the metric registry.
+ */
+@Component
+public class XlsxFormulaCache {
+
+    private final int maxWorkbooks;
+
+    private final Map<String, FormulaRecalculator> workbooks = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Counter evictions;
+
+    public XlsxFormulaCache(ApplicationProperties applicationProperties, MetricRegistry metricRegistry) {
+        this.maxWorkbooks = applicationProperties.getFormulaCache().getMaxWorkbooks();
+        this.hits = metricRegistry.counter(MetricRegistry.name(XlsxFormulaCache.class, "hits"));
+        this.misses = metricRegistry.counter(MetricRegistry.name(XlsxFormulaCache.class, "misses"));
+        this.evictions = metricRegistry.counter(MetricRegistry.name(XlsxFormulaCache.class, "evictions"));
+    }
+
+    /**
+     * Take the cached workbook of a content out of the cache.
+     *
+     * @param contentHash the hash of the current content of the xlsx file
+     * @return the recalculator of the workbook, null if it is not cached
+     */
+    public synchronized FormulaRecalculator checkOut(String contentHash) {
+        FormulaRecalculator recalculator = workbooks.remove(contentHash);
+        if (recalculator == null) {
+            misses.inc();
+            return null;
+        }
+        hits.inc();
+        return recalculator;
+    }
+
+    /**
+     * Cache the workbook of a content, evicting the least recently written workbooks to make room for it.
+     *
+     * @param contentHash  the hash of the content the workbook is up to date with
+     * @param recalculator the recalculator of the workbook
+     */
+    public synchronized void checkIn(String contentHash, FormulaRecalculator recalculator) {
+        if (maxWorkbooks <= 0) {
+            return;
+        }
+        workbooks.put(contentHash, recalculator);
+        Iterator<Map.Entry<String, FormulaRecalculator>> leastRecentlyWritten = workbooks.entrySet().iterator();
+        while (workbooks.size() > maxWorkbooks && leastRecentlyWritten.hasNext()) {
+            leastRecentlyWritten.next();
+            leastRecentlyWritten.remove();
+            evictions.inc();
+        }
+    }
+}
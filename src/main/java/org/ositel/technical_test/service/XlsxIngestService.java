@@ -0,0 +1,102 @@
+package org.ositel.technical_test.service;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.ositel.technical_test.domain.enumeration.XlsxFileStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service ingesting the xlsx files in the background once their content has been written.
+ * <p>
+ * The ingestion starts after the commit of the upload or of the update, so the request does not wait for the sheets
+ * to be parsed. The number of queued ingestions, their lag, their duration and their failures are measured in the
+ * metric registry.
+ * <p>
+ * The row counts of the sheets counted by the reads of files not ingested yet are also kept once the reads have been
+ * committed, the reads themselves never writing to the database.
+ */
+@Service
+public class XlsxIngestService {
+
+    private final Logger log = LoggerFactory.getLogger(XlsxIngestService.class);
+
+    private final XlsxFileService xlsxFileService;
+
+    private final Executor taskExecutor;
+
+    private final Counter queued;
+
+    private final Timer lag;
+
+    private final Timer duration;
+
+    private final Meter failures;
+
+    public XlsxIngestService(XlsxFileService xlsxFileService, @Qualifier("taskExecutor") Executor taskExecutor,
+                             MetricRegistry metricRegistry) {
+        this.xlsxFileService = xlsxFileService;
+        this.taskExecutor = taskExecutor;
+        this.queued = metricRegistry.counter(MetricRegistry.name(XlsxIngestService.class, "queued"));
+        this.lag = metricRegistry.timer(MetricRegistry.name(XlsxIngestService.class, "lag"));
+        this.duration = metricRegistry.timer(MetricRegistry.name(XlsxIngestService.class, "duration"));
+        this.failures = metricRegistry.meter(MetricRegistry.name(XlsxIngestService.class, "failures"));
+    }
+
+    /**
+     * Queue the ingestion of a xlsx file once the transaction having written it has been committed.
+     *
+     * @param event the written xlsx file
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onXlsxFileWritten(XlsxFileWrittenEvent event) {
+        Long xlsxFileId = event.getXlsxFileId();
+        long queuedAt = System.nanoTime();
+        queued.inc();
+        try {
+            taskExecutor.execute(() -> {
+                queued.dec();
+                lag.update(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                ingest(xlsxFileId);
+            });
+        } catch (RejectedExecutionException e) {
+            queued.dec();
+            log.warn("The ingestion of the xlsx file {} has been rejected, it stays pending", xlsxFileId);
+        }
+    }
+
+    /**
+     * Keep the row count of a sheet once the read having counted it has been committed.
+     *
+     * @param event the counted sheet
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onXlsxSheetCounted(XlsxSheetCountedEvent event) {
+        try {
+            xlsxFileService.recordSheetRowCount(event);
+        } catch (DataIntegrityViolationException e) {
+            log.debug("The sheet {} of the xlsx file {} has been recorded by a concurrent read", event.getSheetIndex(),
+                event.getXlsxFileId());
+        }
+    }
+
+    private void ingest(Long xlsxFileId) {
+        try (Timer.Context ignored = duration.time()) {
+            xlsxFileService.ingestXlsxFile(xlsxFileId);
+        } catch (Exception e) {
+            failures.mark();
+            log.error("The xlsx file {} cannot be ingested", xlsxFileId, e);
+            xlsxFileService.updateXlsxFileStatus(xlsxFileId, XlsxFileStatus.FAILED);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package org.ositel.technical_test.service;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.ositel.technical_test.config.ApplicationProperties;
+import org.ositel.technical_test.service.xlsx.ParsedSheet;
+import org.ositel.technical_test.service.xlsx.SheetDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * In-process LRU cache of the parsed sheets, bounded by the approximate number of bytes they retain.
+ * <p>
+ * The sheets are keyed by the id of their xlsx file, the hash of the content they were parsed from and their index,
+ * the least recently read sheets being evicted first once the cache is full. A sheet is only served for the content
+ * it was parsed from, so a sheet put by a read or an ingest which started before the file was written is never read.
+ * The sheet names of the files are kept along so that a sheet requested by name is found without reading the file.
+ * The hits, misses and evictions are counted in the metric registry.
+ */
+@Component
+public class XlsxSheetCache {
+
+    private final Logger log = LoggerFactory.getLogger(XlsxSheetCache.class);
+
+    private final long maxWeight;
+
+    private final Map<Key, ParsedSheet> sheets = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Map<Long, CachedFile> files = new HashMap<>();
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Counter evictions;
+
+    private long weight;
+
+    public XlsxSheetCache(ApplicationProperties applicationProperties, MetricRegistry metricRegistry) {
+        this.maxWeight = applicationProperties.getSheetCache().getMaxBytes();
+        this.hits = metricRegistry.counter(MetricRegistry.name(XlsxSheetCache.class, "hits"));
+        this.misses = metricRegistry.counter(MetricRegistry.name(XlsxSheetCache.class, "misses"));
+        this.evictions = metricRegistry.counter(MetricRegistry.name(XlsxSheetCache.class, "evictions"));
+        metricRegistry.register(MetricRegistry.name(XlsxSheetCache.class, "bytes"), (Gauge<Long>) this::getWeight);
+    }
+
+    /**
+     * @return the approximate number of bytes a sheet may retain to be cached
+     */
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * @return the approximate number of bytes retained by the cached sheets
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * Get a cached sheet.
+     *
+     * @param fileId      the id of the xlsx file
+     * @param contentHash the hash of the current content of the xlsx file
+     * @param sheet       the name or the zero based index of the sheet, null for the first sheet
+     * @return the parsed sheet, null if it is not cached for this content
+     * @throws org.ositel.technical_test.web.rest.errors.BadRequestAlertException if the file is cached but the sheet
+     *                                                                            does not exist
+     */
+    public synchronized ParsedSheet get(Long fileId, String contentHash, String sheet) {
+        CachedFile cachedFile = files.get(fileId);
+        ParsedSheet parsedSheet = null;
+        if (cachedFile != null && Objects.equals(cachedFile.contentHash, contentHash)) {
+            parsedSheet = sheets.get(new Key(fileId, contentHash, SheetDirectory.resolveIndex(cachedFile.sheetNames, sheet)));
+        }
+        if (parsedSheet == null) {
+            misses.inc();
+            return null;
+        }
+        hits.inc();
+        return parsedSheet;
+    }
+
+    /**
+     * Cache a parsed sheet, evicting the least recently read sheets to make room for it. A sheet retaining more
+     * bytes than the whole cache is not cached. The sheets cached for another content of the file are removed.
+     *
+     * @param fileId      the id of the xlsx file
+     * @param contentHash the hash of the content the sheet has been parsed from
+     * @param fileName    the name of the xlsx file
+     * @param sheetNames  the names of the sheets of the file, in workbook order
+     * @param parsedSheet the parsed sheet
+     */
+    public synchronized void put(Long fileId, String contentHash, String fileName, List<String> sheetNames, ParsedSheet parsedSheet) {
+        if (parsedSheet.getWeight() > maxWeight) {
+            return;
+        }
+        CachedFile cachedFile = files.get(fileId);
+        if (cachedFile != null && !Objects.equals(cachedFile.contentHash, contentHash)) {
+            removeSheets(fileId);
+            cachedFile = null;
+        }
+        if (cachedFile == null) {
+            cachedFile = new CachedFile(fileName, contentHash, sheetNames);
+            files.put(fileId, cachedFile);
+        }
+        ParsedSheet previous = sheets.put(new Key(fileId, contentHash, parsedSheet.getSheetIndex()), parsedSheet);
+        if (previous != null) {
+            weight -= previous.getWeight();
+        } else {
+            cachedFile.sheetCount++;
+        }
+        weight += parsedSheet.getWeight();
+        Iterator<Map.Entry<Key, ParsedSheet>> leastRecentlyRead = sheets.entrySet().iterator();
+        while (weight > maxWeight && leastRecentlyRead.hasNext()) {
+            Map.Entry<Key, ParsedSheet> evicted = leastRecentlyRead.next();
+            leastRecentlyRead.remove();
+            weight -= evicted.getValue().getWeight();
+            CachedFile evictedFile = files.get(evicted.getKey().fileId);
+            if (--evictedFile.sheetCount == 0) {
+                files.remove(evicted.getKey().fileId);
+            }
+            evictions.inc();
+        }
+    }
+
+    /**
+     * Remove all the cached sheets of the xlsx files with the given name.
+     *
+     * @param fileName the name of the xlsx file
+     */
+    public synchronized void invalidate(String fileName) {
+        Iterator<Map.Entry<Long, CachedFile>> cachedFiles = files.entrySet().iterator();
+        while (cachedFiles.hasNext()) {
+            Map.Entry<Long, CachedFile> cachedFile = cachedFiles.next();
+            if (cachedFile.getValue().fileName.equals(fileName)) {
+                cachedFiles.remove();
+                removeSheets(cachedFile.getKey());
+                log.debug("The sheets of the xlsx file {} have been removed from the cache", fileName);
+            }
+        }
+    }
+
+    /**
+     * remove the cached sheets of a file, whose sheet names must be removed by the caller
+     */
+    private void removeSheets(Long fileId) {
+        Iterator<Map.Entry<Key, ParsedSheet>> cachedSheets = sheets.entrySet().iterator();
+        while (cachedSheets.hasNext()) {
+            Map.Entry<Key, ParsedSheet> cachedSheet = cachedSheets.next();
+            if (cachedSheet.getKey().fileId.equals(fileId)) {
+                weight -= cachedSheet.getValue().getWeight();
+                cachedSheets.remove();
+            }
+        }
+    }
+
+    private static final class Key {
+
+        private final Long fileId;
+
+        private final String contentHash;
+
+        private final int sheetIndex;
+
+        Key(Long fileId, String contentHash, int sheetIndex) {
+            this.fileId = fileId;
+            this.contentHash = contentHash;
+            this.sheetIndex = sheetIndex;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return sheetIndex == key.sheetIndex && Objects.equals(fileId, key.fileId) && Objects.equals(contentHash, key.contentHash);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fileId, contentHash, sheetIndex);
+        }
+    }
+
+    /**
+     * the content and the sheet names of a file having cached sheets, to resolve the requested sheet without reading
+     * the file
+     */
+    private static final class CachedFile {
+
+        private final String fileName;
+
+        private final String contentHash;
+
+        private final List<String> sheetNames;
+
+        private int sheetCount;
+
+        CachedFile(String fileName, String contentHash, List<String> sheetNames) {
+            this.fileName = fileName;
+            this.contentHash = contentHash;
+            this.sheetNames = sheetNames;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.ositel.technical_test.service;
+
+/**
+ * Event published when a read has counted the rows of a sheet whose row count is not known yet, the row count is then
+ * kept with the sheet for the next reads.
+ */
+public class XlsxSheetCountedEvent {
+
+    private final Long xlsxFileId;
+
+    private final String contentHash;
+
+    private final int sheetIndex;
+
+    private final String sheetName;
+
+    private final long rowCount;
+
+    public XlsxSheetCountedEvent(Long xlsxFileId, String contentHash, int sheetIndex, String sheetName, long rowCount) {
+        this.xlsxFileId = xlsxFileId;
+        this.contentHash = contentHash;
+        this.sheetIndex = sheetIndex;
+        this.sheetName = sheetName;
+        this.rowCount = rowCount;
+    }
+
+    public Long getXlsxFileId() {
+        return xlsxFileId;
+    }
+
+    /**
+     * @return the hash of the content the rows have been counted in
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public int getSheetIndex() {
+        return sheetIndex;
+    }
+
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public String toString() {
+        return "XlsxSheetCountedEvent{" +
+            "xlsxFileId=" + xlsxFileId +
+            ", contentHash='" + contentHash + "'" +
+            ", sheetIndex=" + sheetIndex +
+            ", sheetName='" + sheetName + "'" +
+            ", rowCount=" + rowCount +
+            '}';
+    }
+}
@@ -0,0 +1,327 @@
+package org.ositel.technical_test.service;
+
+import org.ositel.technical_test.config.ApplicationProperties;
+import org.ositel.technical_test.service.dto.XlsxUploadDTO;
+import org.ositel.technical_test.web.rest.errors.BadRequestAlertException;
+import org.ositel.technical_test.web.rest.errors.PayloadTooLargeAlertException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Service receiving the xlsx files uploaded in chunks, so that an interrupted upload is resumed from its last chunk.
+ * <p>
+ * An upload is a local directory holding its numbered chunks. A chunk is written aside then moved in place, so that
+ * the chunks are received in any order and in parallel, and a chunk sent again replaces the previous one. The commit
+ * streams the chunks one after the other to the database, without copying them into memory, and removes the upload
+ * once the file is saved; a failed commit leaves the upload as it was so that it can be committed again. The uploads
+ * which have not received any chunk for the expiration delay are removed on a schedule, the commits in progress
+ * being kept for a longer delay.
+ * <p>
+ * The size of a chunk is bounded while it is being written, and the size of all the chunks of an upload when a chunk
+ * is written and again when the upload is committed, since chunks may be written in parallel.
+ */
+@Service
+public class XlsxUploadService {
+
+    private static final String FILE_NAME = "file-name";
+
+    private static final String CHUNK_PREFIX = "chunk-";
+
+    private static final String COMMIT_SUFFIX = ".commit";
+
+    /**
+     * the commits are read for a long time once started, they are only removed when left far beyond the expiration
+     */
+    private static final int COMMIT_EXPIRATION_FACTOR = 10;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Logger log = LoggerFactory.getLogger(XlsxUploadService.class);
+
+    private final XlsxFileService xlsxFileService;
+
+    private final Path directory;
+
+    private final long expiration;
+
+    private final long maxChunkBytes;
+
+    private final long maxUploadBytes;
+
+    public XlsxUploadService(XlsxFileService xlsxFileService, ApplicationProperties applicationProperties) {
+        this.xlsxFileService = xlsxFileService;
+        this.directory = Paths.get(applicationProperties.getUploads().getDirectory());
+        this.expiration = applicationProperties.getUploads().getExpiration();
+        this.maxChunkBytes = applicationProperties.getUploads().getMaxChunkBytes();
+        this.maxUploadBytes = applicationProperties.getUploads().getMaxUploadBytes();
+    }
+
+    /**
+     * Start the upload of a xlsx file.
+     *
+     * @param fileName name of the xlsx file
+     * @return the upload, without any chunk
+     * @throws IOException if the upload cannot be stored
+     */
+    public XlsxUploadDTO startUpload(String fileName) throws IOException {
+        String uploadId = UUID.randomUUID().toString();
+        Path uploadDirectory = Files.createDirectories(directory.resolve(uploadId));
+        Files.write(uploadDirectory.resolve(FILE_NAME), fileName.getBytes(StandardCharsets.UTF_8));
+        log.debug("The upload {} of the xlsx file {} has been started", uploadId, fileName);
+        return new XlsxUploadDTO(uploadId, fileName, new ArrayList<>(), 0);
+    }
+
+    /**
+     * Get the state of an upload.
+     *
+     * @param uploadId the id of the upload
+     * @return the upload with its received chunks
+     * @throws FileNotFoundException if the upload does not exist
+     */
+    public XlsxUploadDTO findUpload(String uploadId) throws IOException {
+        return describe(uploadId, findUploadDirectory(uploadId));
+    }
+
+    /**
+     * Write a chunk of an upload, replacing the chunk with the same index if it has already been received.
+     *
+     * @param uploadId the id of the upload
+     * @param index    the zero based index of the chunk
+     * @param content  the stream of the chunk, not closed
+     * @return the upload with its received chunks
+     * @throws FileNotFoundException         if the upload does not exist
+     * @throws PayloadTooLargeAlertException if the chunk, or the upload with the chunk, is too large
+     */
+    public XlsxUploadDTO writeChunk(String uploadId, int index, InputStream content) throws IOException {
+        if (index < 0) {
+            throw new BadRequestAlertException("The index of a chunk must be positive", "XlsxFile", "upload.chunkIndex");
+        }
+        Path uploadDirectory = findUploadDirectory(uploadId);
+        try {
+            Path chunk = uploadDirectory.resolve(CHUNK_PREFIX + index);
+            // the chunk replaced by this one is not part of the upload any more
+            long otherChunksBytes = describe(uploadId, uploadDirectory).getSize() - (Files.exists(chunk) ? Files.size(chunk) : 0);
+            Path partialChunk = Files.createTempFile(uploadDirectory, "partial-", null);
+            try {
+                copyChunk(content, partialChunk, otherChunksBytes);
+                Files.move(partialChunk, chunk, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(partialChunk);
+            }
+            Files.setLastModifiedTime(uploadDirectory, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            throw uploadNotFound(uploadId);
+        }
+        return describe(uploadId, uploadDirectory);
+    }
+
+    /**
+     * Save the xlsx file made of the chunks of an upload, which must be numbered from 0 without any gap, then remove
+     * the upload.
+     *
+     * @param uploadId the id of the upload
+     * @return the committed upload
+     * @throws FileNotFoundException         if the upload does not exist or is being committed
+     * @throws PayloadTooLargeAlertException if the chunks of the upload are too large altogether
+     */
+    public XlsxUploadDTO commitUpload(String uploadId) throws IOException {
+        Path uploadDirectory = findUploadDirectory(uploadId);
+        Path commitDirectory = directory.resolve(uploadId + COMMIT_SUFFIX);
+        try {
+            // the chunks cannot be written nor committed again while they are being read
+            Files.move(uploadDirectory, commitDirectory, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            throw uploadNotFound(uploadId);
+        }
+        boolean committed = false;
+        try {
+            // the move keeps the time of the last chunk, the commit must not look expired while it is being read
+            Files.setLastModifiedTime(commitDirectory, FileTime.fromMillis(System.currentTimeMillis()));
+            XlsxUploadDTO upload = describe(uploadId, commitDirectory);
+            List<Integer> chunks = upload.getChunks();
+            if (chunks.isEmpty() || chunks.get(chunks.size() - 1) != chunks.size() - 1) {
+                throw new BadRequestAlertException("The upload " + uploadId + " has missing chunks", "XlsxFile", "upload.chunkMissing");
+            }
+            if (upload.getSize() > maxUploadBytes) {
+                throw uploadTooLarge();
+            }
+            try (InputStream content = new SequenceInputStream(new ChunkStreams(commitDirectory, chunks.size()))) {
+                this.xlsxFileService.uploadAndSaveXlsxFile(upload.getFileName(), content);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            committed = true;
+            log.debug("The upload {} of the xlsx file {} has been committed from {} chunks", uploadId, upload.getFileName(), chunks.size());
+            return upload;
+        } finally {
+            if (committed) {
+                FileSystemUtils.deleteRecursively(commitDirectory.toFile());
+            } else {
+                try {
+                    Files.move(commitDirectory, uploadDirectory, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    // the failure of the commit is thrown rather than this one
+                    log.warn("The upload {} cannot be restored after its failed commit: {}", uploadId, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove an upload and its chunks.
+     *
+     * @param uploadId the id of the upload
+     * @throws FileNotFoundException if the upload does not exist
+     */
+    public void abortUpload(String uploadId) throws IOException {
+        FileSystemUtils.deleteRecursively(findUploadDirectory(uploadId).toFile());
+        log.debug("The upload {} has been aborted", uploadId);
+    }
+
+    /**
+     * Remove the uploads which have not received any chunk for the expiration delay, with the commits which have
+     * been interrupted long before.
+     */
+    @Scheduled(fixedDelayString = "${application.uploads.reaper-delay:3600000}")
+    public void removeExpiredUploads() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        long expiredBefore = System.currentTimeMillis() - expiration;
+        long commitExpiredBefore = System.currentTimeMillis() - expiration * COMMIT_EXPIRATION_FACTOR;
+        try (DirectoryStream<Path> uploads = Files.newDirectoryStream(directory)) {
+            for (Path upload : uploads) {
+                boolean commit = upload.getFileName().toString().endsWith(COMMIT_SUFFIX);
+                if (Files.getLastModifiedTime(upload).toMillis() < (commit ? commitExpiredBefore : expiredBefore)) {
+                    FileSystemUtils.deleteRecursively(upload.toFile());
+                    log.debug("The expired upload {} has been removed", upload.getFileName());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("The expired uploads cannot be removed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @throws FileNotFoundException if the id is not the id of an upload in progress
+     */
+    private Path findUploadDirectory(String uploadId) throws FileNotFoundException {
+        // the id is a path element, it must not designate anything but an upload
+        try {
+            if (!UUID.fromString(uploadId).toString().equals(uploadId)) {
+                throw uploadNotFound(uploadId);
+            }
+        } catch (IllegalArgumentException e) {
+            throw uploadNotFound(uploadId);
+        }
+        Path uploadDirectory = directory.resolve(uploadId);
+        if (!Files.isDirectory(uploadDirectory)) {
+            throw uploadNotFound(uploadId);
+        }
+        return uploadDirectory;
+    }
+
+    /**
+     * Copy a chunk, failing as soon as it goes beyond the size of a chunk or the size left to the upload.
+     */
+    private void copyChunk(InputStream content, Path target, long otherChunksBytes) throws IOException {
+        long maxBytes = Math.min(maxChunkBytes, maxUploadBytes - otherChunksBytes);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long copiedBytes = 0;
+        try (OutputStream out = Files.newOutputStream(target)) {
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                copiedBytes += read;
+                if (copiedBytes > maxBytes) {
+                    if (copiedBytes > maxChunkBytes) {
+                        throw new PayloadTooLargeAlertException("A chunk must not be larger than " + maxChunkBytes + " bytes",
+                            "XlsxFile", "upload.chunkTooLarge");
+                    }
+                    throw uploadTooLarge();
+                }
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+
+    private PayloadTooLargeAlertException uploadTooLarge() {
+        return new PayloadTooLargeAlertException("An upload must not be larger than " + maxUploadBytes + " bytes", "XlsxFile",
+            "upload.tooLarge");
+    }
+
+    private static FileNotFoundException uploadNotFound(String uploadId) {
+        return new FileNotFoundException("The upload {" + uploadId + "} does not exist");
+    }
+
+    private static XlsxUploadDTO describe(String uploadId, Path uploadDirectory) throws IOException {
+        try {
+            String fileName = new String(Files.readAllBytes(uploadDirectory.resolve(FILE_NAME)), StandardCharsets.UTF_8);
+            List<Integer> chunks = new ArrayList<>();
+            long size = 0;
+            try (DirectoryStream<Path> chunkFiles = Files.newDirectoryStream(uploadDirectory, CHUNK_PREFIX + "*")) {
+                for (Path chunkFile : chunkFiles) {
+                    chunks.add(Integer.valueOf(chunkFile.getFileName().toString().substring(CHUNK_PREFIX.length())));
+                    size += Files.size(chunkFile);
+                }
+            }
+            Collections.sort(chunks);
+            return new XlsxUploadDTO(uploadId, fileName, chunks, size);
+        } catch (NoSuchFileException e) {
+            throw uploadNotFound(uploadId);
+        }
+    }
+
+    /**
+     * the streams of the chunks of an upload, each of them being opened once the previous one has been read
+     */
+    private static final class ChunkStreams implements Enumeration<InputStream> {
+
+        private final Path uploadDirectory;
+
+        private final int chunkCount;
+
+        private int nextChunk;
+
+        ChunkStreams(Path uploadDirectory, int chunkCount) {
+            this.uploadDirectory = uploadDirectory;
+            this.chunkCount = chunkCount;
+        }
+
+        @Override
+        public boolean hasMoreElements() {
+            return nextChunk < chunkCount;
+        }
+
+        @Override
+        public InputStream nextElement() {
+            try {
+                return Files.newInputStream(uploadDirectory.resolve(CHUNK_PREFIX + nextChunk++));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
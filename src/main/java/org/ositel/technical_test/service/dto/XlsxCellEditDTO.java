@@ -0,0 +1,86 @@
+package org.ositel.technical_test.service.dto;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+
+/**
+ * A new value for a cell of a sheet, part of a batch of edits of a xlsx file.
+ */
+public class XlsxCellEditDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String sheet;
+
+    @NotNull
+    @Min(0)
+    private Integer line;
+
+    @NotNull
+    @Min(0)
+    private Integer column;
+
+    private String value;
+
+    public XlsxCellEditDTO() {
+    }
+
+    public XlsxCellEditDTO(String sheet, Integer line, Integer column, String value) {
+        this.sheet = sheet;
+        this.line = line;
+        this.column = column;
+        this.value = value;
+    }
+
+    /**
+     * @return the name or the zero based index of the sheet, null for the first sheet
+     */
+    public String getSheet() {
+        return sheet;
+    }
+
+    public void setSheet(String sheet) {
+        this.sheet = sheet;
+    }
+
+    /**
+     * @return the zero based index of the row of the cell, the header being the row 0
+     */
+    public Integer getLine() {
+        return line;
+    }
+
+    public void setLine(Integer line) {
+        this.line = line;
+    }
+
+    /**
+     * @return the zero based index of the column of the cell
+     */
+    public Integer getColumn() {
+        return column;
+    }
+
+    public void setColumn(Integer column) {
+        this.column = column;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    @Override
+    public String toString() {
+        return "XlsxCellEditDTO{" +
+            "sheet='" + sheet + '\'' +
+            ", line=" + line +
+            ", column=" + column +
+            ", value='" + value + '\'' +
+            '}';
+    }
+}
@@ -0,0 +1,126 @@
+package org.ositel.technical_test.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A column of a sheet, its values being held in the primitive array matching its type. Only this array is not null.
+ * <p>
+ * The values of a column keep their type only if all its cells have the same one, a column mixing several types
+ * is read as STRING. The lines without value are listed in {@code blanks}, their slot in the values array is left
+ * to its default value.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class XlsxColumnDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Type of the values of a column, INTEGER being a NUMERIC column without any decimal value.
+     */
+    public enum Type {
+        BLANK, INTEGER, NUMERIC, DATE, BOOLEAN, STRING
+    }
+
+    private int columnIndex;
+    private String name;
+    private Type type;
+    private double[] numbers;
+    private long[] integers;
+    /**
+     * milliseconds from the epoch to the date, the dates of a sheet having no time zone they are read in UTC
+     */
+    private long[] dates;
+    private boolean[] booleans;
+    private String[] strings;
+    private int[] blanks;
+
+    public int getColumnIndex() {
+        return columnIndex;
+    }
+
+    public void setColumnIndex(int columnIndex) {
+        this.columnIndex = columnIndex;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public double[] getNumbers() {
+        return numbers;
+    }
+
+    public void setNumbers(double[] numbers) {
+        this.numbers = numbers;
+    }
+
+    public long[] getIntegers() {
+        return integers;
+    }
+
+    public void setIntegers(long[] integers) {
+        this.integers = integers;
+    }
+
+    public long[] getDates() {
+        return dates;
+    }
+
+    public void setDates(long[] dates) {
+        this.dates = dates;
+    }
+
+    public boolean[] getBooleans() {
+        return booleans;
+    }
+
+    public void setBooleans(boolean[] booleans) {
+        this.booleans = booleans;
+    }
+
+    public String[] getStrings() {
+        return strings;
+    }
+
+    public void setStrings(String[] strings) {
+        this.strings = strings;
+    }
+
+    public int[] getBlanks() {
+        return blanks;
+    }
+
+    public void setBlanks(int[] blanks) {
+        this.blanks = blanks;
+    }
+
+    @Override
+    public String toString() {
+        return "XlsxColumnDTO{" +
+            "columnIndex=" + columnIndex +
+            ", name='" + name + '\'' +
+            ", type=" + type +
+            ", numbers=" + Arrays.toString(numbers) +
+            ", integers=" + Arrays.toString(integers) +
+            ", dates=" + Arrays.toString(dates) +
+            ", booleans=" + Arrays.toString(booleans) +
+            ", strings=" + Arrays.toString(strings) +
+            ", blanks=" + Arrays.toString(blanks) +
+            '}';
+    }
+}
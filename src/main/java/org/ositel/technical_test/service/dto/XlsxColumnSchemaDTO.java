@@ -0,0 +1,94 @@
+package org.ositel.technical_test.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.io.Serializable;
+
+/**
+ * A column of the schema of a sheet. The counts and the bounds of the values are only known once the file has been
+ * ingested, the type is otherwise inferred from the first line of the sheet.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class XlsxColumnSchemaDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int columnIndex;
+    private String name;
+    private XlsxColumnDTO.Type type;
+    private Long valueCount;
+    private Long blankCount;
+    private Double min;
+    private Double max;
+
+    public int getColumnIndex() {
+        return columnIndex;
+    }
+
+    public void setColumnIndex(int columnIndex) {
+        this.columnIndex = columnIndex;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public XlsxColumnDTO.Type getType() {
+        return type;
+    }
+
+    public void setType(XlsxColumnDTO.Type type) {
+        this.type = type;
+    }
+
+    public Long getValueCount() {
+        return valueCount;
+    }
+
+    public void setValueCount(Long valueCount) {
+        this.valueCount = valueCount;
+    }
+
+    public Long getBlankCount() {
+        return blankCount;
+    }
+
+    public void setBlankCount(Long blankCount) {
+        this.blankCount = blankCount;
+    }
+
+    /**
+     * @return the minimum of a numeric or date column, the dates being counted in milliseconds from the epoch
+     */
+    public Double getMin() {
+        return min;
+    }
+
+    public void setMin(Double min) {
+        this.min = min;
+    }
+
+    /**
+     * @return the maximum of a numeric or date column, the dates being counted in milliseconds from the epoch
+     */
+    public Double getMax() {
+        return max;
+    }
+
+    public void setMax(Double max) {
+        this.max = max;
+    }
+
+    @Override
+    public String toString() {
+        return "XlsxColumnSchemaDTO{" +
+            "columnIndex=" + columnIndex +
+            ", name='" + name + '\'' +
+            ", type=" + type +
+            '}';
+    }
+}
@@ -9,8 +9,10 @@ public class XlsxFileDTO implements Serializable {
     private static final long serialVersionUID = 2L;
 
     private String fileName;
+    private String sheetName;
     private List<String> headerColumns = new ArrayList<>();
     private List<List<String>> linesValues = new ArrayList<>();
+    private long totalLines;
 
     public String getFileName() {
         return fileName;
@@ -20,6 +22,14 @@ public class XlsxFileDTO implements Serializable {
         this.fileName = fileName;
     }
 
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    public void setSheetName(String sheetName) {
+        this.sheetName = sheetName;
+    }
+
     public List<String> getHeaderColumns() {
         return headerColumns;
     }
@@ -36,12 +46,22 @@ public class XlsxFileDTO implements Serializable {
         this.linesValues = linesValues;
     }
 
+    public long getTotalLines() {
+        return totalLines;
+    }
+
+    public void setTotalLines(long totalLines) {
+        this.totalLines = totalLines;
+    }
+
     @Override
     public String toString() {
         return "XlsxFileDTO{" +
             "fileName='" + fileName + '\'' +
+            ", sheetName='" + sheetName + '\'' +
             ", headerColumns=" + headerColumns +
             ", linesValues=" + linesValues +
+            ", totalLines=" + totalLines +
             '}';
     }
 }
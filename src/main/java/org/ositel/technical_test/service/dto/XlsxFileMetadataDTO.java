@@ -0,0 +1,157 @@
+package org.ositel.technical_test.service.dto;
+
+import org.ositel.technical_test.domain.enumeration.XlsxFileStatus;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * The metadata of a xlsx file, read without its content.
+ */
+public class XlsxFileMetadataDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long id;
+
+    private String fileName;
+
+    private XlsxFileStatus status;
+
+    private Long version;
+
+    private String contentHash;
+
+    private Long size;
+
+    private Long sheetCount;
+
+    private Long rowCount;
+
+    private Instant createdDate;
+
+    private Instant lastModifiedDate;
+
+    public XlsxFileMetadataDTO() {
+    }
+
+    public XlsxFileMetadataDTO(Long id, String fileName, XlsxFileStatus status, Long version, String contentHash, Long size,
+                               Long sheetCount, Long rowCount, Instant createdDate, Instant lastModifiedDate) {
+        this.id = id;
+        this.fileName = fileName;
+        this.status = status;
+        this.version = version;
+        this.contentHash = contentHash;
+        this.size = size;
+        this.sheetCount = sheetCount;
+        this.rowCount = rowCount;
+        this.createdDate = createdDate;
+        this.lastModifiedDate = lastModifiedDate;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public XlsxFileStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(XlsxFileStatus status) {
+        this.status = status;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    /**
+     * @return the SHA-256 of the content, null if the file has no content
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * @return the size of the content in bytes, null if the file has no content
+     */
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    /**
+     * @return the number of sheets ingested, 0 while the file has not been ingested
+     */
+    public Long getSheetCount() {
+        return sheetCount;
+    }
+
+    public void setSheetCount(Long sheetCount) {
+        this.sheetCount = sheetCount;
+    }
+
+    /**
+     * @return the number of rows of the sheets ingested, null while the file has not been ingested
+     */
+    public Long getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(Long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public Instant getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setCreatedDate(Instant createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    public Instant getLastModifiedDate() {
+        return lastModifiedDate;
+    }
+
+    public void setLastModifiedDate(Instant lastModifiedDate) {
+        this.lastModifiedDate = lastModifiedDate;
+    }
+
+    @Override
+    public String toString() {
+        return "XlsxFileMetadataDTO{" +
+            "id=" + id +
+            ", fileName='" + fileName + "'" +
+            ", status='" + status + "'" +
+            ", version=" + version +
+            ", contentHash='" + contentHash + "'" +
+            ", size=" + size +
+            ", sheetCount=" + sheetCount +
+            ", rowCount=" + rowCount +
+            "}";
+    }
+}
@@ -0,0 +1,87 @@
+package org.ositel.technical_test.service.dto;
+
+import java.io.Serializable;
+
+/**
+ * The outcome of the import of a file of an archive.
+ */
+public class XlsxImportResultDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The outcome of the import of a file.
+     */
+    public enum Status {
+        /**
+         * the file has been saved, it is ingested in the background
+         */
+        IMPORTED,
+        /**
+         * the file has not been saved
+         */
+        FAILED
+    }
+
+    private String fileName;
+
+    private Status status;
+
+    private String message;
+
+    public XlsxImportResultDTO() {
+    }
+
+    public XlsxImportResultDTO(String fileName, Status status, String message) {
+        this.fileName = fileName;
+        this.status = status;
+        this.message = message;
+    }
+
+    public static XlsxImportResultDTO imported(String fileName) {
+        return new XlsxImportResultDTO(fileName, Status.IMPORTED, null);
+    }
+
+    public static XlsxImportResultDTO failed(String fileName, String message) {
+        return new XlsxImportResultDTO(fileName, Status.FAILED, message);
+    }
+
+    /**
+     * @return the name of the entry in the archive
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    /**
+     * @return the reason why the file has not been saved, null if it has been
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    @Override
+    public String toString() {
+        return "XlsxImportResultDTO{" +
+            "fileName='" + fileName + '\'' +
+            ", status=" + status +
+            ", message='" + message + '\'' +
+            '}';
+    }
+}
@@ -0,0 +1,73 @@
+package org.ositel.technical_test.service.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The lines of a sheet stored column by column, each column holding typed values.
+ */
+public class XlsxSheetColumnsDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String fileName;
+    private String sheetName;
+    private int lineCount;
+    private long totalLines;
+    private List<XlsxColumnDTO> columns = new ArrayList<>();
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    public void setSheetName(String sheetName) {
+        this.sheetName = sheetName;
+    }
+
+    /**
+     * @return the number of lines held by each column
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    public void setLineCount(int lineCount) {
+        this.lineCount = lineCount;
+    }
+
+    public long getTotalLines() {
+        return totalLines;
+    }
+
+    public void setTotalLines(long totalLines) {
+        this.totalLines = totalLines;
+    }
+
+    public List<XlsxColumnDTO> getColumns() {
+        return columns;
+    }
+
+    public void setColumns(List<XlsxColumnDTO> columns) {
+        this.columns = columns;
+    }
+
+    @Override
+    public String toString() {
+        return "XlsxSheetColumnsDTO{" +
+            "fileName='" + fileName + '\'' +
+            ", sheetName='" + sheetName + '\'' +
+            ", lineCount=" + lineCount +
+            ", totalLines=" + totalLines +
+            ", columns=" + columns +
+            '}';
+    }
+}
@@ -0,0 +1,64 @@
+package org.ositel.technical_test.service.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The schema of a sheet: its header columns with their types, and its number of rows.
+ */
+public class XlsxSheetSchemaDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String fileName;
+    private String sheetName;
+    private Long rowCount;
+    private List<XlsxColumnSchemaDTO> columns = new ArrayList<>();
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    public void setSheetName(String sheetName) {
+        this.sheetName = sheetName;
+    }
+
+    /**
+     * @return the number of rows of the sheet, the header included. It is taken from the dimension declared by the
+     * sheet until the rows have been counted, null if the sheet declares none
+     */
+    public Long getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(Long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public List<XlsxColumnSchemaDTO> getColumns() {
+        return columns;
+    }
+
+    public void setColumns(List<XlsxColumnSchemaDTO> columns) {
+        this.columns = columns;
+    }
+
+    @Override
+    public String toString() {
+        return "XlsxSheetSchemaDTO{" +
+            "fileName='" + fileName + '\'' +
+            ", sheetName='" + sheetName + '\'' +
+            ", rowCount=" + rowCount +
+            ", columns=" + columns +
+            '}';
+    }
+}
@@ -0,0 +1,78 @@
+package org.ositel.technical_test.service.dto;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The state of a chunked upload of a xlsx file, for the client to resume it.
+ */
+public class XlsxUploadDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String uploadId;
+
+    private String fileName;
+
+    private List<Integer> chunks;
+
+    private long size;
+
+    public XlsxUploadDTO() {
+    }
+
+    public XlsxUploadDTO(String uploadId, String fileName, List<Integer> chunks, long size) {
+        this.uploadId = uploadId;
+        this.fileName = fileName;
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    /**
+     * @return the zero based indexes of the chunks received, in ascending order
+     */
+    public List<Integer> getChunks() {
+        return chunks;
+    }
+
+    public void setChunks(List<Integer> chunks) {
+        this.chunks = chunks;
+    }
+
+    /**
+     * @return the number of bytes of the chunks received
+     */
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    @Override
+    public String toString() {
+        return "XlsxUploadDTO{" +
+            "uploadId='" + uploadId + '\'' +
+            ", fileName='" + fileName + '\'' +
+            ", chunks=" + chunks +
+            ", size=" + size +
+            '}';
+    }
+}
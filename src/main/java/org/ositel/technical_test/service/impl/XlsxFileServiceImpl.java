@@ -1,25 +1,82 @@
 package org.ositel.technical_test.service.impl;
 
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
-import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellReference;
+import org.ositel.technical_test.domain.XlsxCellEdit;
+import org.ositel.technical_test.domain.XlsxColumnStats;
+import org.ositel.technical_test.domain.XlsxContent;
 import org.ositel.technical_test.domain.XlsxFile;
+import org.ositel.technical_test.domain.XlsxSheet;
+import org.ositel.technical_test.domain.XlsxSheetSnapshot;
+import org.ositel.technical_test.domain.enumeration.XlsxFileStatus;
+import org.ositel.technical_test.repository.XlsxCellEditRepository;
+import org.ositel.technical_test.repository.XlsxColumnStatsRepository;
 import org.ositel.technical_test.repository.XlsxFileRepository;
+import org.ositel.technical_test.repository.XlsxSheetRepository;
+import org.ositel.technical_test.repository.XlsxSheetSnapshotRepository;
+import org.ositel.technical_test.service.XlsxColumnarStore;
+import org.ositel.technical_test.service.XlsxContentStore;
+import org.ositel.technical_test.service.XlsxFileLockManager;
 import org.ositel.technical_test.service.XlsxFileService;
+import org.ositel.technical_test.service.XlsxFileWrittenEvent;
+import org.ositel.technical_test.service.XlsxFormulaCache;
+import org.ositel.technical_test.service.XlsxSheetCache;
+import org.ositel.technical_test.service.XlsxSheetCountedEvent;
+import org.ositel.technical_test.service.dto.XlsxCellEditDTO;
+import org.ositel.technical_test.service.dto.XlsxColumnDTO;
+import org.ositel.technical_test.service.dto.XlsxColumnSchemaDTO;
 import org.ositel.technical_test.service.dto.XlsxFileDTO;
+import org.ositel.technical_test.service.dto.XlsxFileMetadataDTO;
+import org.ositel.technical_test.service.dto.XlsxSheetColumnsDTO;
+import org.ositel.technical_test.service.dto.XlsxSheetSchemaDTO;
+import org.ositel.technical_test.service.xlsx.ColumnStatisticsHandler;
+import org.ositel.technical_test.service.xlsx.ColumnarFileSheet;
+import org.ositel.technical_test.service.xlsx.ColumnarFileWriter;
+import org.ositel.technical_test.service.xlsx.ColumnarSheetHandler;
+import org.ositel.technical_test.service.xlsx.CompositeRowHandler;
+import org.ositel.technical_test.service.xlsx.FormulaRecalculator;
+import org.ositel.technical_test.service.xlsx.ParsedSheet;
+import org.ositel.technical_test.service.xlsx.ReplayableSheet;
+import org.ositel.technical_test.service.xlsx.SheetCell;
+import org.ositel.technical_test.service.xlsx.SheetCellEdits;
+import org.ositel.technical_test.service.xlsx.SheetDirectory;
+import org.ositel.technical_test.service.xlsx.SheetFormulaValues;
+import org.ositel.technical_test.service.xlsx.SheetQuery;
+import org.ositel.technical_test.service.xlsx.SheetQueryRowHandler;
+import org.ositel.technical_test.service.xlsx.SheetSchemaHandler;
+import org.ositel.technical_test.service.xlsx.XlsxJsonWriter;
+import org.ositel.technical_test.service.xlsx.XlsxPackagePatcher;
+import org.ositel.technical_test.service.xlsx.XlsxSheetReader;
 import org.ositel.technical_test.web.rest.errors.BadRequestAlertException;
+import org.ositel.technical_test.web.rest.errors.PreconditionFailedAlertException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Service Implementation for managing XlsxFile.
@@ -32,8 +89,42 @@ public class XlsxFileServiceImpl implements XlsxFileService {
 
     private final XlsxFileRepository xlsxFileRepository;
 
-    public XlsxFileServiceImpl(XlsxFileRepository xlsxFileRepository) {
+    private final XlsxSheetRepository xlsxSheetRepository;
+
+    private final XlsxSheetSnapshotRepository xlsxSheetSnapshotRepository;
+
+    private final XlsxColumnStatsRepository xlsxColumnStatsRepository;
+
+    private final XlsxCellEditRepository xlsxCellEditRepository;
+
+    private final XlsxSheetCache xlsxSheetCache;
+
+    private final XlsxColumnarStore xlsxColumnarStore;
+
+    private final XlsxFormulaCache xlsxFormulaCache;
+
+    private final XlsxContentStore xlsxContentStore;
+
+    private final XlsxFileLockManager xlsxFileLockManager;
+
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    public XlsxFileServiceImpl(XlsxFileRepository xlsxFileRepository, XlsxSheetRepository xlsxSheetRepository,
+                               XlsxSheetSnapshotRepository xlsxSheetSnapshotRepository, XlsxColumnStatsRepository xlsxColumnStatsRepository,
+                               XlsxCellEditRepository xlsxCellEditRepository, XlsxSheetCache xlsxSheetCache, XlsxColumnarStore xlsxColumnarStore,
+                               XlsxFormulaCache xlsxFormulaCache, XlsxContentStore xlsxContentStore, XlsxFileLockManager xlsxFileLockManager,
+                               ApplicationEventPublisher applicationEventPublisher) {
         this.xlsxFileRepository = xlsxFileRepository;
+        this.xlsxSheetRepository = xlsxSheetRepository;
+        this.xlsxSheetSnapshotRepository = xlsxSheetSnapshotRepository;
+        this.xlsxColumnStatsRepository = xlsxColumnStatsRepository;
+        this.xlsxCellEditRepository = xlsxCellEditRepository;
+        this.xlsxSheetCache = xlsxSheetCache;
+        this.xlsxColumnarStore = xlsxColumnarStore;
+        this.xlsxFormulaCache = xlsxFormulaCache;
+        this.xlsxContentStore = xlsxContentStore;
+        this.xlsxFileLockManager = xlsxFileLockManager;
+        this.applicationEventPublisher = applicationEventPublisher;
     }
 
     /**
@@ -49,86 +140,754 @@ public class XlsxFileServiceImpl implements XlsxFileService {
     }
 
     /**
-     * Get all the xlsxFiles.
+     * Get the metadata of the xlsxFiles following the given id. One more file than the size of the slice is read to
+     * know whether the slice is the last one.
      *
-     * @return the list of entities
+     * @param afterId the id of the last file of the previous slice, null for the first slice
+     * @param size    the maximum number of files of the slice
+     * @return the slice of metadata
      */
     @Override
     @Transactional(readOnly = true)
-    public List<XlsxFile> findAll() {
-        log.debug("Request to get all XlsxFiles");
-        return xlsxFileRepository.findAll();
+    public Slice<XlsxFileMetadataDTO> findAllMetadata(Long afterId, int size) {
+        log.debug("Request to get {} XlsxFiles after the id {}", size, afterId);
+        List<XlsxFileMetadataDTO> metadata = xlsxFileRepository.findMetadataByIdGreaterThan(afterId == null ? 0L : afterId,
+            new PageRequest(0, size + 1));
+        boolean hasNext = metadata.size() > size;
+        if (hasNext) {
+            metadata = metadata.subList(0, size);
+        }
+        return new SliceImpl<>(metadata, new PageRequest(0, size), hasNext);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long count() {
+        return xlsxFileRepository.count();
     }
 
 
     @Override
     public void uploadAndSaveXlsxFile(MultipartFile file) throws IOException {
+        try (InputStream content = file.getInputStream()) {
+            this.uploadAndSaveXlsxFile(file.getOriginalFilename(), content);
+        }
+    }
+
+    @Override
+    public void uploadAndSaveXlsxFile(String fileName, InputStream content) throws IOException {
+        this.xlsxFileLockManager.lockUntilTransactionEnd(fileName);
         XlsxFile xlsxFile = new XlsxFile();
-        xlsxFile.setFileName(file.getOriginalFilename());
-        xlsxFile.setContent(file.getBytes());
+        xlsxFile.setFileName(fileName);
+        xlsxFile.setStatus(XlsxFileStatus.PENDING);
+        // the content is streamed to the database, it is never held in memory as a whole nor stored twice
+        xlsxFile.setContent(this.xlsxContentStore.store(content));
         this.save(xlsxFile);
+        this.invalidateCachedSheets(xlsxFile.getFileName());
+        // the sheets are parsed by the ingest pipeline once the file has been committed
+        this.applicationEventPublisher.publishEvent(new XlsxFileWrittenEvent(xlsxFile.getId()));
     }
 
     @Override
+    @Transactional(rollbackFor = IOException.class)
+    public void uploadAndSaveXlsxFiles(Map<String, InputStream> contents) throws IOException {
+        // the files are locked at once in a fixed order, the transactions importing files concurrently cannot deadlock
+        this.xlsxFileLockManager.lockUntilTransactionEnd(contents.keySet());
+        List<String> existingFileNames = this.xlsxFileRepository.findFileNamesByFileNameIn(contents.keySet());
+        if (!existingFileNames.isEmpty()) {
+            throw new BadRequestAlertException("The xlsx file {" + existingFileNames.get(0) + "} already exists", "XlsxFile", "fileName.exists");
+        }
+        for (Map.Entry<String, InputStream> content : contents.entrySet()) {
+            this.uploadAndSaveXlsxFile(content.getKey(), content.getValue());
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<String> findExistingFileNames(Collection<String> fileNames) {
+        return fileNames.isEmpty() ? Collections.emptyList() : this.xlsxFileRepository.findFileNamesByFileNameIn(fileNames);
+    }
+
+    @Override
+    public void deleteXlsxFile(String fileName) throws FileNotFoundException {
+        log.debug("Request to delete the xlsx file {}", fileName);
+        this.xlsxFileLockManager.lockUntilTransactionEnd(fileName);
+        XlsxFile xlsxFile = this.findExistingFile(fileName);
+        // the sheets, snapshots and cell edits of the file are removed by the database along with it
+        this.xlsxFileRepository.delete(xlsxFile);
+        this.xlsxContentStore.release(xlsxFile.getContent());
+        this.invalidateCachedSheets(fileName);
+        this.xlsxColumnarStore.delete(xlsxFile.getId());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public XlsxFileDTO searchExcelFileByNameAndGetItInJsonFormat(String fileName) throws InvalidFormatException, IOException {
-        XlsxFile xlsxFile = this.xlsxFileRepository.findByFileName(fileName);
+        return this.searchExcelFileByNameAndGetItInJsonFormat(fileName, new SheetQuery());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public XlsxFileDTO searchExcelFileByNameAndGetItInJsonFormat(String fileName, SheetQuery query) throws InvalidFormatException, IOException {
+        log.debug("Request to search the xlsx file {} with {}", fileName, query);
+        return this.xlsxFileLockManager.read(fileName, () -> this.readXlsxFileDTO(fileName, query));
+    }
+
+    private XlsxFileDTO readXlsxFileDTO(String fileName, SheetQuery query) throws InvalidFormatException, IOException {
         XlsxFileDTO xlsxFileDTO = new XlsxFileDTO();
+        xlsxFileDTO.setFileName(fileName);
+        ReplayableSheet replayableSheet = this.findReplayableSheet(fileName, query.getSheet());
+        if (replayableSheet != null) {
+            xlsxFileDTO.setSheetName(replayableSheet.getSheetName());
+            replayableSheet.replay(new XlsxFileDTORowHandler(xlsxFileDTO, query, replayableSheet.getLineCount()));
+            xlsxFileDTO.setTotalLines(replayableSheet.getLineCount());
+            return xlsxFileDTO;
+        }
+        // the sheet is too large to be cached, only the requested lines are read
+        XlsxFileDTORowHandler rowHandler = this.readSheet(fileName, query, (entry, knownLineCount) -> {
+            xlsxFileDTO.setSheetName(entry.getName());
+            return new XlsxFileDTORowHandler(xlsxFileDTO, query, knownLineCount);
+        });
+        xlsxFileDTO.setTotalLines(rowHandler.getTotalLines());
+        return xlsxFileDTO;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public XlsxSheetColumnsDTO searchExcelFileColumns(String fileName, SheetQuery query) throws InvalidFormatException, IOException {
+        log.debug("Request to search the typed columns of the xlsx file {} with {}", fileName, query);
+        return this.xlsxFileLockManager.read(fileName, () -> this.readSheetColumnsDTO(fileName, query));
+    }
+
+    private XlsxSheetColumnsDTO readSheetColumnsDTO(String fileName, SheetQuery query) throws InvalidFormatException, IOException {
+        XlsxSheetColumnsDTO columnsDTO = new XlsxSheetColumnsDTO();
+        columnsDTO.setFileName(fileName);
+        ColumnarSheetHandler rowHandler;
+        // the cached sheets only hold the formatted values, the columnar file keeps the types of the cells
+        Long fileId = this.findExistingFileId(fileName);
+        String contentHash = this.xlsxFileRepository.findContentHashById(fileId);
+        ColumnarFileSheet columnarFileSheet = this.xlsxColumnarStore.open(fileId, contentHash, query.getSheet());
+        if (columnarFileSheet != null) {
+            columnsDTO.setSheetName(columnarFileSheet.getSheetName());
+            rowHandler = new ColumnarSheetHandler(query, columnarFileSheet.getLineCount());
+            this.applyCellEdits(fileId, columnarFileSheet).replay(rowHandler);
+        } else {
+            rowHandler = this.readSheet(fileName, query, (entry, knownLineCount) -> {
+                columnsDTO.setSheetName(entry.getName());
+                return new ColumnarSheetHandler(query, knownLineCount);
+            });
+        }
+        columnsDTO.setTotalLines(rowHandler.getTotalLines());
+        columnsDTO.setLineCount(rowHandler.getPageLineCount());
+        columnsDTO.setColumns(rowHandler.getColumns());
+        return columnsDTO;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public XlsxSheetSchemaDTO findExcelFileSchema(String fileName, String sheet) throws InvalidFormatException, IOException {
+        log.debug("Request to get the schema of the sheet {} of the xlsx file {}", sheet, fileName);
+        return this.xlsxFileLockManager.read(fileName, () -> this.readSheetSchemaDTO(fileName, sheet));
+    }
+
+    private XlsxSheetSchemaDTO readSheetSchemaDTO(String fileName, String sheet) throws InvalidFormatException, IOException {
+        Long fileId = this.findExistingFileId(fileName);
+        XlsxSheetSchemaDTO schemaDTO = new XlsxSheetSchemaDTO();
+        schemaDTO.setFileName(fileName);
+        // the statistics describe the content of the file until it is written again
+        if (this.xlsxFileRepository.findStatusById(fileId) == XlsxFileStatus.READY) {
+            List<XlsxSheet> xlsxSheets = this.xlsxSheetRepository.findByXlsxFileIdOrderBySheetIndex(fileId);
+            List<String> sheetNames = new ArrayList<>();
+            for (XlsxSheet xlsxSheet : xlsxSheets) {
+                sheetNames.add(xlsxSheet.getSheetName());
+            }
+            XlsxSheet xlsxSheet = xlsxSheets.get(SheetDirectory.resolveIndex(sheetNames, sheet));
+            schemaDTO.setSheetName(xlsxSheet.getSheetName());
+            schemaDTO.setRowCount(xlsxSheet.getRowCount());
+            for (XlsxColumnStats columnStats : this.xlsxColumnStatsRepository.findByXlsxSheetIdOrderByColumnIndex(xlsxSheet.getId())) {
+                XlsxColumnSchemaDTO columnSchemaDTO = new XlsxColumnSchemaDTO();
+                columnSchemaDTO.setColumnIndex(columnStats.getColumnIndex());
+                columnSchemaDTO.setName(columnStats.getName());
+                columnSchemaDTO.setType(XlsxColumnDTO.Type.valueOf(columnStats.getValueType()));
+                columnSchemaDTO.setValueCount(columnStats.getValueCount());
+                columnSchemaDTO.setBlankCount(columnStats.getBlankCount());
+                columnSchemaDTO.setMin(columnStats.getMinValue());
+                columnSchemaDTO.setMax(columnStats.getMaxValue());
+                schemaDTO.getColumns().add(columnSchemaDTO);
+            }
+            return schemaDTO;
+        }
+        XlsxFile xlsxFile = this.findExistingFile(fileName);
+        try (XlsxSheetReader reader = this.openReader(xlsxFile)) {
+            SheetDirectory.Entry entry = reader.getSheetDirectory().resolve(sheet);
+            SheetSchemaHandler schemaHandler = new SheetSchemaHandler(1);
+            reader.readSheet(entry, schemaHandler);
+            XlsxSheet xlsxSheet = this.xlsxSheetRepository.findOneByXlsxFileIdAndSheetIndex(fileId, entry.getIndex());
+            schemaDTO.setSheetName(entry.getName());
+            schemaDTO.setRowCount(xlsxSheet == null || xlsxSheet.getRowCount() == null
+                ? schemaHandler.getDimensionRowCount() : xlsxSheet.getRowCount());
+            for (ColumnStatisticsHandler.ColumnStatistics column : schemaHandler.getColumns()) {
+                XlsxColumnSchemaDTO columnSchemaDTO = new XlsxColumnSchemaDTO();
+                columnSchemaDTO.setColumnIndex(column.getColumnIndex());
+                columnSchemaDTO.setName(column.getName());
+                columnSchemaDTO.setType(column.getType());
+                schemaDTO.getColumns().add(columnSchemaDTO);
+            }
+        }
+        return schemaDTO;
+    }
+
+    /**
+     * Get the sheet from the cache, or map it from the columnar file of the xlsx file, or else parse the whole sheet
+     * and cache it. Only the id and the content hash of the file are read from the db unless the sheet has to be
+     * parsed. The cached sheets and the columnar files hold the content of the file, the cell edits not compacted yet
+     * are applied over them.
+     *
+     * @return the sheet, null if it has no columnar file and is too large to be cached
+     */
+    private ReplayableSheet findReplayableSheet(String fileName, String sheet) throws InvalidFormatException, IOException {
+        Long fileId = this.findExistingFileId(fileName);
+        String contentHash = this.xlsxFileRepository.findContentHashById(fileId);
+        boolean cacheEnabled = this.xlsxSheetCache.getMaxWeight() > 0;
+        if (cacheEnabled) {
+            ParsedSheet parsedSheet = this.xlsxSheetCache.get(fileId, contentHash, sheet);
+            if (parsedSheet != null) {
+                return this.applyCellEdits(fileId, parsedSheet);
+            }
+        }
+        ColumnarFileSheet columnarFileSheet = this.xlsxColumnarStore.open(fileId, contentHash, sheet);
+        if (columnarFileSheet != null || !cacheEnabled) {
+            return columnarFileSheet == null ? null : this.applyCellEdits(fileId, columnarFileSheet);
+        }
+        ParsedSheet parsedSheet;
+        XlsxFile xlsxFile = this.findExistingFile(fileName);
+        List<String> sheetNames;
+        try (XlsxSheetReader reader = this.openContentReader(xlsxFile.getContent())) {
+            SheetDirectory.Entry entry = reader.getSheetDirectory().resolve(sheet);
+            sheetNames = reader.getSheetDirectory().getNames();
+            ParsedSheet.Builder builder = new ParsedSheet.Builder(entry, this.xlsxSheetCache.getMaxWeight());
+            reader.readSheet(entry, builder);
+            parsedSheet = builder.build();
+        }
+        if (parsedSheet == null) {
+            log.debug("The sheet {} of the xlsx file {} is too large to be cached", sheet, fileName);
+            return null;
+        }
+        XlsxSheet xlsxSheet = this.xlsxSheetRepository.findOneByXlsxFileIdAndSheetIndex(fileId, parsedSheet.getSheetIndex());
+        if (xlsxSheet == null || xlsxSheet.getRowCount() == null) {
+            this.applicationEventPublisher.publishEvent(new XlsxSheetCountedEvent(fileId, xlsxFile.getContent().getHash(),
+                parsedSheet.getSheetIndex(), parsedSheet.getSheetName(), parsedSheet.getRowCount()));
+        }
+        // the cached sheets are keyed by the content they were parsed from, caching a sheet again is harmless
+        this.xlsxSheetCache.put(fileId, xlsxFile.getContent().getHash(), fileName, sheetNames, parsedSheet);
+        return this.applyCellEdits(fileId, parsedSheet);
+    }
+
+    /**
+     * @return the sheet replaying its rows with the cell edits of the file not compacted yet
+     */
+    private ReplayableSheet applyCellEdits(Long fileId, ReplayableSheet sheet) {
+        SheetCellEdits sheetCellEdits = this.findCellEdits(fileId).get(sheet.getSheetIndex());
+        return sheetCellEdits == null ? sheet : sheetCellEdits.apply(sheet);
+    }
+
+    /**
+     * @return the cell edits of the file not compacted yet, by sheet index
+     */
+    private Map<Integer, SheetCellEdits> findCellEdits(Long fileId) {
+        Map<Integer, SheetCellEdits> cellEdits = new HashMap<>();
+        for (XlsxCellEdit cellEdit : this.xlsxCellEditRepository.findByXlsxFileIdOrderById(fileId)) {
+            cellEdits.computeIfAbsent(cellEdit.getSheetIndex(), sheetIndex -> new SheetCellEdits())
+                .put(cellEdit.getRowIndex(), cellEdit.getColumnIndex(), cellEdit.getCellValue());
+        }
+        return cellEdits;
+    }
+
+    /**
+     * Open a reader on the content of the file, applying the cell edits not compacted yet to the sheets it reads.
+     */
+    private XlsxSheetReader openReader(XlsxFile xlsxFile) throws InvalidFormatException, IOException {
+        XlsxSheetReader reader = this.openContentReader(xlsxFile.getContent());
+        reader.setCellEdits(this.findCellEdits(xlsxFile.getId()));
+        return reader;
+    }
+
+    /**
+     * Open a reader on a content streamed from the database, the reader spools it so the content is never held in
+     * memory.
+     */
+    private XlsxSheetReader openContentReader(XlsxContent content) throws InvalidFormatException, IOException {
+        try (InputStream data = this.xlsxContentStore.open(content)) {
+            return XlsxSheetReader.open(data);
+        }
+    }
+
+    /**
+     * Remove the cached sheets of the file, once more after the commit so that a read running in the meantime cannot
+     * cache the previous content
+     */
+    private void invalidateCachedSheets(String fileName) {
+        this.xlsxSheetCache.invalidate(fileName);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    xlsxSheetCache.invalidate(fileName);
+                }
+            });
+        }
+    }
+
+    /**
+     * Read the sheet selected by the query with the handler given by the factory. The parsing stops once the
+     * requested lines have been read, unless the line count of the sheet is not known yet: it is then counted and
+     * kept in XlsxSheet for the next reads once the read has been committed.
+     *
+     * @param handlerFactory creates the row handler from the sheet entry and the known line count of the sheet
+     * @return the row handler, once the sheet has been read
+     */
+    private <H extends SheetQueryRowHandler> H readSheet(String fileName, SheetQuery query,
+                                                         BiFunction<SheetDirectory.Entry, Long, H> handlerFactory) throws InvalidFormatException, IOException {
+        XlsxFile xlsxFile = this.findExistingFile(fileName);
+        try (XlsxSheetReader reader = this.openReader(xlsxFile)) {
+            SheetDirectory.Entry entry = reader.getSheetDirectory().resolve(query.getSheet());
+            XlsxSheet xlsxSheet = this.xlsxSheetRepository.findOneByXlsxFileIdAndSheetIndex(xlsxFile.getId(), entry.getIndex());
+            Long knownLineCount = xlsxSheet == null || xlsxSheet.getRowCount() == null ? null : Math.max(0, xlsxSheet.getRowCount() - 1);
+            H rowHandler = handlerFactory.apply(entry, knownLineCount);
+            reader.readSheet(entry, rowHandler);
+            if (rowHandler.isCountingLines()) {
+                log.debug("The sheet {} of the xlsx file {} has {} rows", entry.getName(), fileName, rowHandler.getRowCount());
+                this.applicationEventPublisher.publishEvent(new XlsxSheetCountedEvent(xlsxFile.getId(), xlsxFile.getContent().getHash(),
+                    entry.getIndex(), entry.getName(), rowHandler.getRowCount()));
+            }
+            return rowHandler;
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public XlsxSheetReader openExcelFile(String fileName) throws InvalidFormatException, IOException {
+        // the content is streamed from the db to the spool file of the reader, a reader opened during an update is left to the collector
+        return this.xlsxFileLockManager.read(fileName, () -> this.openReader(this.findExistingFile(fileName)));
+    }
+
+    private Long findExistingFileId(String fileName) throws FileNotFoundException {
+        Long fileId = this.xlsxFileRepository.findIdByFileName(fileName);
+        if (fileId == null) {
+            throw new FileNotFoundException("The xlsx file with the name {" + fileName + "} requested does not exist");
+        }
+        return fileId;
+    }
+
+    private XlsxFile findExistingFile(String fileName) throws FileNotFoundException {
+        XlsxFile xlsxFile = this.xlsxFileRepository.findByFileName(fileName);
         if (xlsxFile == null) {
             throw new FileNotFoundException("The xlsx file with the name {" + fileName + "} requested does not exist");
         }
-        xlsxFileDTO.setFileName(xlsxFile.getFileName());
-        Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(xlsxFile.getContent()));
-        // Getting the Sheet at index zero, here we suppose that there is only one sheet to be read
-        Sheet sheet = workbook.getSheetAt(0);
-        boolean headerHasBeenRead = false;
-        int i = 0;
-        for (Iterator<Row> rowIterator = sheet.rowIterator(); rowIterator.hasNext(); i++) {
-            Iterator<Cell> cellIterator = rowIterator.next().cellIterator();
-            if (!headerHasBeenRead) {
-                while (cellIterator.hasNext()) {
-                    Cell cell = cellIterator.next();
-                    xlsxFileDTO.getHeaderColumns().add(cell.getStringCellValue());
+        return xlsxFile;
+    }
+
+    @Override
+    public void updateCellValueForXlsxFile(String fileName, Integer column, Integer line, String value) throws IOException, InvalidFormatException {
+        this.updateCellValueForXlsxFile(fileName, null, column, line, value);
+    }
+
+    @Override
+    public void updateCellValueForXlsxFile(String fileName, String sheetName, Integer column, Integer line, String value) throws IOException, InvalidFormatException {
+        this.updateCellValuesForXlsxFile(fileName, Collections.singletonList(new XlsxCellEditDTO(sheetName, line, column, value)));
+    }
+
+    @Override
+    public void updateCellValuesForXlsxFile(String fileName, List<XlsxCellEditDTO> edits) throws IOException, InvalidFormatException {
+        this.updateCellValuesForXlsxFile(fileName, edits, null);
+    }
+
+    @Override
+    public void updateCellValuesForXlsxFile(String fileName, List<XlsxCellEditDTO> edits, Long expectedVersion) throws IOException, InvalidFormatException {
+        this.xlsxFileLockManager.lockUntilTransactionEnd(fileName);
+        Long fileId = this.findExistingFileId(fileName);
+        List<XlsxSheet> xlsxSheets = this.xlsxFileRepository.findStatusById(fileId) == XlsxFileStatus.READY
+            ? this.xlsxSheetRepository.findByXlsxFileIdOrderBySheetIndex(fileId) : Collections.emptyList();
+        Map<Integer, ReplayableSheet> contentSheets = xlsxSheets.isEmpty() || hasFormulas(xlsxSheets)
+            ? null : this.findContentSheets(fileId, xlsxSheets, edits);
+        if (contentSheets == null) {
+            // the sheets and their cells are not known without reading the content until the file has been ingested
+            // and the edited sheets are cached or in its columnar file, and the formulas depending on the edited cells
+            // are computed again when the content is written
+            XlsxFile xlsxFile = this.findExistingFile(fileName);
+            if (expectedVersion != null && !expectedVersion.equals(xlsxFile.getVersion())) {
+                throw versionMismatch(fileName, expectedVersion);
+            }
+            // the version is incremented when the content is written, a concurrent write fails on flush
+            this.writeCellEdits(xlsxFile, edits);
+            return;
+        }
+        List<String> sheetNames = sheetNames(xlsxSheets);
+        // the edited cells must exist in the content, as when the edits are written in it
+        for (XlsxCellEditDTO edit : edits) {
+            int sheetIndex = SheetDirectory.resolveIndex(sheetNames, edit.getSheet());
+            if (!contentSheets.get(sheetIndex).hasCell(edit.getLine(), edit.getColumn())) {
+                throw cellDoesNotExist(new CellReference(sheetNames.get(sheetIndex), edit.getLine(), edit.getColumn(), false, false));
+            }
+        }
+        // the version is compared and incremented at once, the concurrent edits of the file wait for the end of the transaction
+        int versionUpdates = expectedVersion == null ? this.xlsxFileRepository.incrementVersion(fileId)
+            : this.xlsxFileRepository.incrementVersion(fileId, expectedVersion);
+        if (versionUpdates == 0) {
+            throw versionMismatch(fileName, expectedVersion);
+        }
+        // the edits are appended without reading nor writing the content, they are compacted into it later on
+        XlsxFile xlsxFile = this.xlsxFileRepository.getOne(fileId);
+        List<XlsxCellEdit> cellEdits = new ArrayList<>();
+        for (XlsxCellEditDTO edit : edits) {
+            cellEdits.add(new XlsxCellEdit().xlsxFile(xlsxFile).sheetIndex(SheetDirectory.resolveIndex(sheetNames, edit.getSheet()))
+                .rowIndex(edit.getLine()).columnIndex(edit.getColumn()).cellValue(edit.getValue()));
+        }
+        this.xlsxCellEditRepository.save(cellEdits);
+        this.xlsxSheetSnapshotRepository.deleteByXlsxFileId(fileId);
+        log.debug("{} cell edits of the xlsx file {} have been recorded", cellEdits.size(), fileName);
+    }
+
+    @Override
+    public void compactXlsxFile(Long id) throws IOException, InvalidFormatException {
+        String fileName = this.xlsxFileRepository.findFileNameById(id);
+        if (fileName != null) {
+            this.xlsxFileLockManager.lockUntilTransactionEnd(fileName);
+        }
+        XlsxFile xlsxFile = this.xlsxFileRepository.findOne(id);
+        if (xlsxFile == null) {
+            log.debug("The xlsx file {} has been deleted before being compacted", id);
+            return;
+        }
+        log.debug("Request to compact the cell edits of the xlsx file {}", xlsxFile.getFileName());
+        this.writeCellEdits(xlsxFile, Collections.emptyList());
+    }
+
+    /**
+     * Find the sheets of the content holding the edited cells, from the cache or else from the columnar file of the
+     * file, so that the cells can be checked without reading the content.
+     *
+     * @return the sheets of the content by sheet index, null if one of them is neither cached nor in the columnar file
+     */
+    private Map<Integer, ReplayableSheet> findContentSheets(Long fileId, List<XlsxSheet> xlsxSheets, List<XlsxCellEditDTO> edits) throws IOException {
+        List<String> sheetNames = sheetNames(xlsxSheets);
+        String contentHash = this.xlsxFileRepository.findContentHashById(fileId);
+        Map<Integer, ReplayableSheet> contentSheets = new HashMap<>();
+        for (XlsxCellEditDTO edit : edits) {
+            checkCellEdit(edit);
+            int sheetIndex = SheetDirectory.resolveIndex(sheetNames, edit.getSheet());
+            if (!contentSheets.containsKey(sheetIndex)) {
+                String sheetName = sheetNames.get(sheetIndex);
+                ReplayableSheet contentSheet = this.xlsxSheetCache.get(fileId, contentHash, sheetName);
+                if (contentSheet == null) {
+                    contentSheet = this.xlsxColumnarStore.open(fileId, contentHash, sheetName);
                 }
-                // set the boolean variable to true because in the headder has been read
-                if (!headerHasBeenRead) {
-                    headerHasBeenRead = true;
+                if (contentSheet == null) {
+                    return null;
+                }
+                contentSheets.put(sheetIndex, contentSheet);
+            }
+        }
+        return contentSheets;
+    }
+
+    private static List<String> sheetNames(List<XlsxSheet> xlsxSheets) {
+        List<String> sheetNames = new ArrayList<>();
+        for (XlsxSheet xlsxSheet : xlsxSheets) {
+            sheetNames.add(xlsxSheet.getSheetName());
+        }
+        return sheetNames;
+    }
+
+    /**
+     * the sheets ingested before their formulas were counted may hold formulas
+     */
+    private static boolean hasFormulas(List<XlsxSheet> xlsxSheets) {
+        for (XlsxSheet xlsxSheet : xlsxSheets) {
+            if (xlsxSheet.getFormulaCount() == null || xlsxSheet.getFormulaCount() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Write the cell edits recorded for the file and the given ones in its content, in a single pass over the content
+     * for all of them. An invalid edit rejects the whole batch. Only the xml parts of the edited sheets are rewritten
+     * unless an edit replaces a formula, the workbook is then loaded and written with POI. When the workbook holds
+     * formulas, the formulas depending on the edited cells are computed again with the workbook kept in the formula
+     * cache, and their results are written as the cached values of their cells.
+     */
+    private void writeCellEdits(XlsxFile xlsxFile, List<XlsxCellEditDTO> edits) throws IOException, InvalidFormatException {
+        List<XlsxCellEdit> recordedEdits = this.xlsxCellEditRepository.findByXlsxFileIdOrderById(xlsxFile.getId());
+        Map<Integer, SheetCellEdits> cellEdits = new HashMap<>();
+        for (XlsxCellEdit cellEdit : recordedEdits) {
+            cellEdits.computeIfAbsent(cellEdit.getSheetIndex(), sheetIndex -> new SheetCellEdits())
+                .put(cellEdit.getRowIndex(), cellEdit.getColumnIndex(), cellEdit.getCellValue());
+        }
+        XlsxContent content = xlsxFile.getContent();
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        FormulaRecalculator recalculator;
+        try (XlsxPackagePatcher patcher = XlsxPackagePatcher.open(content.getData())) {
+            List<String> sheetNames = patcher.getSheetDirectory().getNames();
+            // the references of POI do not implement hashCode, they are compared by their text
+            Set<String> updatedCells = new HashSet<>();
+            for (XlsxCellEditDTO edit : edits) {
+                checkCellEdit(edit);
+                int sheetIndex = SheetDirectory.resolveIndex(sheetNames, edit.getSheet());
+                cellEdits.computeIfAbsent(sheetIndex, index -> new SheetCellEdits()).put(edit.getLine(), edit.getColumn(), edit.getValue());
+                updatedCells.add(new CellReference(sheetNames.get(sheetIndex), edit.getLine(), edit.getColumn(), false, false).formatAsString());
+            }
+            recalculator = this.xlsxFormulaCache.checkOut(content.getHash());
+            if (recalculator == null && patcher.hasFormulas()) {
+                recalculator = FormulaRecalculator.load(content.getData());
+                log.debug("The {} formulas of the xlsx file {} have been loaded", recalculator.getFormulaCount(), xlsxFile.getFileName());
+            }
+            Set<CellReference> createdCells;
+            if (recalculator == null) {
+                try {
+                    createdCells = patcher.patch(cellEdits, byteArrayOutputStream);
+                } catch (XlsxPackagePatcher.UnsupportedPatchException e) {
+                    log.debug("The cell edits of the xlsx file {} are written with POI: {}", xlsxFile.getFileName(), e.getMessage());
+                    byteArrayOutputStream.reset();
+                    createdCells = XlsxPackagePatcher.patchWorkbook(content.getData(), cellEdits, byteArrayOutputStream);
                 }
             } else {
-                //read the the the lines/rows situated just after the header/first-row otherwise
-                xlsxFileDTO.getLinesValues().add(new ArrayList<>());
-                while (cellIterator.hasNext()) {
-                    Cell cell = cellIterator.next();
-                    xlsxFileDTO.getLinesValues().get(i - 1).add(cell.getStringCellValue());
+                createdCells = recalculator.apply(cellEdits);
+                Map<Integer, SheetFormulaValues> formulaValues = recalculator.recalculate();
+                try {
+                    patcher.patch(cellEdits, formulaValues, byteArrayOutputStream);
+                } catch (XlsxPackagePatcher.UnsupportedPatchException e) {
+                    log.debug("The cell edits of the xlsx file {} are written with POI: {}", xlsxFile.getFileName(), e.getMessage());
+                    byteArrayOutputStream.reset();
+                    recalculator.write(byteArrayOutputStream);
+                }
+            }
+            // the recorded edits may create cells, the updated ones must exist
+            for (CellReference createdCell : createdCells) {
+                if (updatedCells.contains(createdCell.formatAsString())) {
+                    throw cellDoesNotExist(createdCell);
                 }
             }
         }
-        return xlsxFileDTO;
+        xlsxFile.setContent(this.xlsxContentStore.store(byteArrayOutputStream.toByteArray()));
+        xlsxFile.setStatus(XlsxFileStatus.PENDING);
+        this.invalidateCachedSheets(xlsxFile.getFileName());
+        if (recalculator != null) {
+            this.cacheFormulasAfterCommit(xlsxFile.getContent().getHash(), recalculator);
+        }
+        log.debug("The xlsx file {} has been updated by {} recorded and {} new cell edits", xlsxFile.getFileName(), recordedEdits.size(), edits.size());
+        this.save(xlsxFile);
+        // the previous content is kept as long as other files hold it
+        this.xlsxContentStore.release(content);
+        if (!recordedEdits.isEmpty()) {
+            // the edits recorded while the content was being written are kept for the next compaction
+            this.xlsxCellEditRepository.deleteByXlsxFileIdUpToId(xlsxFile.getId(), recordedEdits.get(recordedEdits.size() - 1).getId());
+        }
+        // the previous snapshots must not be served anymore, they are rendered again by the ingest pipeline
+        this.xlsxSheetSnapshotRepository.deleteByXlsxFileId(xlsxFile.getId());
+        this.xlsxColumnarStore.delete(xlsxFile.getId());
+        this.applicationEventPublisher.publishEvent(new XlsxFileWrittenEvent(xlsxFile.getId()));
+    }
+
+    /**
+     * Keep the workbook holding the edits for the next writes of the file once they are committed, it is dropped if
+     * the edits are rolled back
+     */
+    private void cacheFormulasAfterCommit(String contentHash, FormulaRecalculator recalculator) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    xlsxFormulaCache.checkIn(contentHash, recalculator);
+                }
+            });
+        }
+    }
+
+    private static PreconditionFailedAlertException versionMismatch(String fileName, Long expectedVersion) {
+        return new PreconditionFailedAlertException("The xlsx file {" + fileName + "} has been modified since its version "
+            + expectedVersion, "XlsxFile", "version.mismatch");
+    }
+
+    private static BadRequestAlertException cellDoesNotExist(CellReference cell) {
+        return new BadRequestAlertException("The cell {" + cell.formatAsString() + "} you want to update does not exist",
+            "XlsxFile", "cell.doesNotExist");
+    }
+
+    private static void checkCellEdit(XlsxCellEditDTO edit) {
+        if (edit.getLine() == null || edit.getColumn() == null) {
+            throw new BadRequestAlertException("The line and the column of the cell to update are required", "XlsxFile", "cell.required");
+        }
+        if (edit.getLine() < 0 || edit.getColumn() < 0) {
+            throw new BadRequestAlertException("The cell you want to update does not exist", "XlsxFile", "cell.doesNotExist");
+        }
     }
 
     @Override
-    public void updateCellValueForXlsxFile(String fileName, Integer column, Integer line, String value) throws IOException, InvalidFormatException {
-        XlsxFile xlsxFile = this.xlsxFileRepository.findByFileName(fileName);
+    @Transactional(readOnly = true)
+    public Long findXlsxFileVersion(String fileName) {
+        return this.xlsxFileRepository.findVersionByFileName(fileName);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public byte[] findJsonSnapshot(String fileName, String sheet, boolean gzip) {
+        // the snapshots are rendered from the content, without the cell edits not compacted yet
+        if (this.xlsxCellEditRepository.countByFileName(fileName) > 0) {
+            return null;
+        }
+        Integer sheetIndex = 0;
+        if (sheet != null) {
+            sheetIndex = this.xlsxSheetSnapshotRepository.findSheetIndexByFileNameAndSheetName(fileName, sheet);
+            if (sheetIndex == null) {
+                try {
+                    sheetIndex = Integer.valueOf(sheet.trim());
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+        }
+        if (gzip) {
+            return this.xlsxSheetSnapshotRepository.findJsonGzipByFileNameAndSheetIndex(fileName, sheetIndex);
+        }
+        return this.xlsxSheetSnapshotRepository.findJsonByFileNameAndSheetIndex(fileName, sheetIndex);
+    }
+
+    @Override
+    public void ingestXlsxFile(Long id) throws InvalidFormatException, IOException {
+        XlsxFile xlsxFile = this.xlsxFileRepository.findOne(id);
         if (xlsxFile == null) {
-            throw new FileNotFoundException("The xlsx file with the name {" + fileName + "} requested does not exist");
+            log.debug("The xlsx file {} has been deleted before being ingested", id);
+            return;
         }
-        Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(xlsxFile.getContent()));
-        //As usual here we suppose that there is only one sheet to be read
-        Sheet sheet = workbook.getSheetAt(0);
-        Row row = sheet.getRow(line);
-        if (row == null) {
-            throw new BadRequestAlertException("Line you want to update does not exist", "XlsxFile", "column.doesNotExist");
+        log.debug("Request to ingest the xlsx file {}", xlsxFile.getFileName());
+        // the content is not locked while it is parsed, the ingestion is dropped if the file is written meanwhile
+        XlsxContent content = xlsxFile.getContent();
+        List<XlsxSheetSnapshot> snapshots = new ArrayList<>();
+        Map<SheetDirectory.Entry, ColumnStatisticsHandler> sheetStatistics = new LinkedHashMap<>();
+        List<ParsedSheet> parsedSheets = new ArrayList<>();
+        List<String> sheetNames;
+        try (XlsxSheetReader reader = this.openContentReader(content);
+             ColumnarFileWriter columnarWriter = this.xlsxColumnarStore.newWriter(xlsxFile.getId(), content.getHash())) {
+            sheetNames = reader.getSheetDirectory().getNames();
+            for (SheetDirectory.Entry entry : reader.getSheetDirectory().getEntries()) {
+                // the json, the statistics, the columnar file and the cached sheet are all built from a single parsing of the sheet
+                ByteArrayOutputStream json = new ByteArrayOutputStream();
+                XlsxJsonWriter jsonWriter = new XlsxJsonWriter(json, null);
+                ColumnStatisticsHandler statisticsHandler = new ColumnStatisticsHandler();
+                ColumnarFileWriter.SheetWriter columnarSheetWriter = columnarWriter.startSheet(entry);
+                ParsedSheet.Builder parsedSheetBuilder = new ParsedSheet.Builder(entry, this.xlsxSheetCache.getMaxWeight());
+                jsonWriter.writeStart(xlsxFile.getFileName(), entry);
+                reader.readSheet(entry, new CompositeRowHandler(jsonWriter, statisticsHandler, columnarSheetWriter, parsedSheetBuilder));
+                jsonWriter.writeEnd();
+                columnarSheetWriter.finish();
+
+                ByteArrayOutputStream jsonGzip = new ByteArrayOutputStream();
+                try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(jsonGzip)) {
+                    json.writeTo(gzipOutputStream);
+                }
+                snapshots.add(new XlsxSheetSnapshot().xlsxFile(xlsxFile).sheetIndex(entry.getIndex()).sheetName(entry.getName())
+                    .json(json.toByteArray()).jsonGzip(jsonGzip.toByteArray()));
+                sheetStatistics.put(entry, statisticsHandler);
+                ParsedSheet parsedSheet = parsedSheetBuilder.build();
+                if (parsedSheet != null) {
+                    parsedSheets.add(parsedSheet);
+                }
+            }
+            // the status is only set if the file still holds the parsed content, its row then stays locked until the
+            // commit so that the content cannot be written before the artifacts of the ingestion are published
+            if (this.xlsxFileRepository.updateStatus(xlsxFile.getId(), content, XlsxFileStatus.READY) == 0) {
+                log.debug("The xlsx file {} has been written while being ingested, its previous content is dropped", xlsxFile.getFileName());
+                return;
+            }
+            columnarWriter.commit();
         }
-        Cell cellToUpdate = row.getCell(column);
-        if (cellToUpdate == null) {
-            throw new BadRequestAlertException("The colum you want to update does not exist", "XlsxFile", "line.doesNotExist");
+        this.xlsxSheetSnapshotRepository.deleteByXlsxFileId(xlsxFile.getId());
+        this.xlsxSheetSnapshotRepository.save(snapshots);
+        for (Map.Entry<SheetDirectory.Entry, ColumnStatisticsHandler> statistics : sheetStatistics.entrySet()) {
+            this.saveSheetStatistics(xlsxFile, statistics.getKey(), statistics.getValue());
+        }
+        for (ParsedSheet parsedSheet : parsedSheets) {
+            this.xlsxSheetCache.put(xlsxFile.getId(), content.getHash(), xlsxFile.getFileName(), sheetNames, parsedSheet);
+        }
+    }
+
+    private void saveSheetStatistics(XlsxFile xlsxFile, SheetDirectory.Entry entry, ColumnStatisticsHandler statisticsHandler) {
+        XlsxSheet xlsxSheet = this.xlsxSheetRepository.findOneByXlsxFileIdAndSheetIndex(xlsxFile.getId(), entry.getIndex());
+        if (xlsxSheet == null) {
+            xlsxSheet = new XlsxSheet().xlsxFile(xlsxFile).sheetIndex(entry.getIndex());
+        }
+        xlsxSheet = this.xlsxSheetRepository.save(xlsxSheet.sheetName(entry.getName()).rowCount(statisticsHandler.getRowCount())
+            .formulaCount(statisticsHandler.getFormulaCount()));
+        this.xlsxColumnStatsRepository.deleteByXlsxSheetId(xlsxSheet.getId());
+        List<XlsxColumnStats> columnStats = new ArrayList<>();
+        for (ColumnStatisticsHandler.ColumnStatistics column : statisticsHandler.getColumns()) {
+            columnStats.add(new XlsxColumnStats().xlsxSheet(xlsxSheet).columnIndex(column.getColumnIndex()).name(column.getName())
+                .valueType(column.getType().name()).valueCount(column.getValueCount()).blankCount(column.getBlankCount())
+                .minValue(column.getMin()).maxValue(column.getMax()));
+        }
+        this.xlsxColumnStatsRepository.save(columnStats);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void recordSheetRowCount(XlsxSheetCountedEvent event) {
+        if (!event.getContentHash().equals(this.xlsxFileRepository.findContentHashById(event.getXlsxFileId()))) {
+            log.debug("The xlsx file {} has been written since its sheet {} was counted", event.getXlsxFileId(), event.getSheetIndex());
+            return;
+        }
+        XlsxSheet xlsxSheet = this.xlsxSheetRepository.findOneByXlsxFileIdAndSheetIndex(event.getXlsxFileId(), event.getSheetIndex());
+        if (xlsxSheet == null) {
+            xlsxSheet = new XlsxSheet().xlsxFile(this.xlsxFileRepository.getOne(event.getXlsxFileId())).sheetIndex(event.getSheetIndex());
+        } else if (xlsxSheet.getRowCount() != null) {
+            return;
+        }
+        // a concurrent read recording the same sheet fails on the unique index of the sheets
+        this.xlsxSheetRepository.saveAndFlush(xlsxSheet.sheetName(event.getSheetName()).rowCount(event.getRowCount()));
+    }
+
+    @Override
+    public void updateXlsxFileStatus(Long id, XlsxFileStatus status) {
+        log.debug("Request to set the status of the xlsx file {} to {}", id, status);
+        this.xlsxFileRepository.updateStatus(id, status);
+    }
+
+    /**
+     * Row handler filling the header columns with the first row of the sheet and the lines values with the next ones.
+     * Only the lines and columns selected by the query are decoded, the other ones are skipped or just counted.
+     */
+    private static final class XlsxFileDTORowHandler extends SheetQueryRowHandler {
+
+        private final XlsxFileDTO xlsxFileDTO;
+
+        private List<String> currentLine;
+
+        XlsxFileDTORowHandler(XlsxFileDTO xlsxFileDTO, SheetQuery query, Long knownLineCount) {
+            super(query, knownLineCount);
+            this.xlsxFileDTO = xlsxFileDTO;
+        }
+
+        @Override
+        protected void header(List<Integer> columnIndexes, List<String> names) {
+            xlsxFileDTO.setHeaderColumns(names);
+        }
+
+        @Override
+        protected void startLine(long line) {
+            //read the the lines/rows situated just after the header/first-row otherwise
+            currentLine = new ArrayList<>();
+            xlsxFileDTO.getLinesValues().add(currentLine);
+        }
+
+        @Override
+        protected void lineCell(int columnIndex, SheetCell cell) {
+            currentLine.add(cell.getFormattedValue());
+        }
+
+        @Override
+        protected void endLine(long line) {
+            currentLine = null;
         }
-        // Here we suppose that all values in the xlsx file are of string type
-        cellToUpdate.setCellValue(value);
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        workbook.write(byteArrayOutputStream);
-        byteArrayOutputStream.close();
-        xlsxFile.setContent(byteArrayOutputStream.toByteArray());
-        log.debug("The xlsx file {} is beeing upddated by the new value {} at the indexex (col,line) ({},{})", fileName, value, column, line);
-        this.save(xlsxFile);
     }
 }
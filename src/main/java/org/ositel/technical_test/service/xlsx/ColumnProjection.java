@@ -0,0 +1,82 @@
+package org.ositel.technical_test.service.xlsx;
+
+import org.ositel.technical_test.web.rest.errors.BadRequestAlertException;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columns of a sheet kept by a read, resolved against the header row.
+ * <p>
+ * The header cells are fed to the projection while the first row is parsed, the requested columns are then resolved
+ * by header name first and by zero based index otherwise. Once resolved, {@link #includes(int)} is used by the row
+ * handlers to skip the other cells before they are decoded.
+ */
+public class ColumnProjection {
+
+    private final List<String> selectors;
+
+    private final Map<String, Integer> headerIndexes = new HashMap<>();
+
+    private BitSet columns;
+
+    /**
+     * @param selectors the requested columns, given by header name or zero based index. null or empty for all columns
+     */
+    public ColumnProjection(List<String> selectors) {
+        this.selectors = selectors == null ? Collections.emptyList() : selectors;
+    }
+
+    public boolean isAll() {
+        return selectors.isEmpty();
+    }
+
+    /**
+     * register a cell of the header row
+     */
+    public void headerCell(int columnIndex, String name) {
+        headerIndexes.putIfAbsent(name, columnIndex);
+    }
+
+    /**
+     * resolve the requested columns once the header row has been read
+     *
+     * @throws BadRequestAlertException if a requested column matches neither a header name nor a column index
+     */
+    public void resolve() {
+        if (isAll()) {
+            return;
+        }
+        columns = new BitSet();
+        for (String selector : selectors) {
+            Integer columnIndex = headerIndexes.get(selector);
+            if (columnIndex == null) {
+                columnIndex = parseIndex(selector);
+            }
+            if (columnIndex == null) {
+                throw new BadRequestAlertException("The column {" + selector + "} you want to read does not exist", "XlsxFile", "column.doesNotExist");
+            }
+            columns.set(columnIndex);
+        }
+        headerIndexes.clear();
+    }
+
+    /**
+     * @return true if the cell of the given column has to be read, always true before the projection is resolved
+     */
+    public boolean includes(int columnIndex) {
+        return columns == null || columns.get(columnIndex);
+    }
+
+    private static Integer parseIndex(String selector) {
+        try {
+            int columnIndex = Integer.parseInt(selector.trim());
+            return columnIndex < 0 ? null : columnIndex;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
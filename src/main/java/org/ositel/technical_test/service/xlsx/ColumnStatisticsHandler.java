@@ -0,0 +1,167 @@
+package org.ositel.technical_test.service.xlsx;
+
+import org.ositel.technical_test.service.dto.XlsxColumnDTO.Type;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Row handler computing the statistics of the columns of a whole sheet while it is being parsed, without keeping its
+ * values. The type of a column follows the same rules as the {@link ColumnarSheetHandler}.
+ */
+public class ColumnStatisticsHandler extends SheetQueryRowHandler {
+
+    private final List<ColumnStatistics> columns = new ArrayList<>();
+
+    private final Map<Integer, ColumnStatistics> columnsByIndex = new HashMap<>();
+
+    private long formulaCount;
+
+    public ColumnStatisticsHandler() {
+        super(new SheetQuery(), null);
+    }
+
+    @Override
+    protected void header(List<Integer> columnIndexes, List<String> names) {
+        for (int i = 0; i < columnIndexes.size(); i++) {
+            ColumnStatistics column = new ColumnStatistics(columnIndexes.get(i), names.get(i));
+            columns.add(column);
+            columnsByIndex.put(column.columnIndex, column);
+        }
+    }
+
+    @Override
+    protected void startLine(long line) {
+        // the statistics are updated cell by cell
+    }
+
+    @Override
+    protected void lineCell(int columnIndex, SheetCell cell) {
+        if (cell.isFormula()) {
+            formulaCount++;
+        }
+        ColumnStatistics column = columnsByIndex.get(columnIndex);
+        if (column != null) {
+            column.add(cell);
+        }
+    }
+
+    @Override
+    protected void endLine(long line) {
+        // the blank lines are computed from the line count
+    }
+
+    /**
+     * @return the statistics of the columns of the header, once the sheet has been read
+     */
+    public List<ColumnStatistics> getColumns() {
+        for (ColumnStatistics column : columns) {
+            column.blankCount = getTotalLines() - column.valueCount;
+        }
+        return columns;
+    }
+
+    /**
+     * @return the number of formula cells of the lines, once the sheet has been read
+     */
+    public long getFormulaCount() {
+        return formulaCount;
+    }
+
+    /**
+     * The statistics of a column.
+     */
+    public static final class ColumnStatistics {
+
+        private final int columnIndex;
+
+        private final String name;
+
+        private Type type = Type.BLANK;
+
+        private boolean integral = true;
+
+        private long valueCount;
+
+        private long blankCount;
+
+        private double min = Double.POSITIVE_INFINITY;
+
+        private double max = Double.NEGATIVE_INFINITY;
+
+        ColumnStatistics(int columnIndex, String name) {
+            this.columnIndex = columnIndex;
+            this.name = name;
+        }
+
+        void add(SheetCell cell) {
+            Type cellType;
+            double value = 0;
+            switch (cell.getType()) {
+                case BLANK:
+                    return;
+                case NUMERIC:
+                    cellType = Type.NUMERIC;
+                    value = cell.getNumber();
+                    integral &= value == Math.rint(value);
+                    break;
+                case DATE:
+                    cellType = Type.DATE;
+                    value = cell.getDateMillis();
+                    break;
+                case BOOLEAN:
+                    cellType = Type.BOOLEAN;
+                    break;
+                default:
+                    cellType = Type.STRING;
+                    break;
+            }
+            valueCount++;
+            if (type == Type.BLANK) {
+                type = cellType;
+            } else if (type != cellType) {
+                type = Type.STRING;
+            }
+            if (cellType == Type.NUMERIC || cellType == Type.DATE) {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+        }
+
+        public int getColumnIndex() {
+            return columnIndex;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Type getType() {
+            return type == Type.NUMERIC && integral ? Type.INTEGER : type;
+        }
+
+        public long getValueCount() {
+            return valueCount;
+        }
+
+        public long getBlankCount() {
+            return blankCount;
+        }
+
+        /**
+         * @return the minimum of a numeric or date column, null for the other types
+         */
+        public Double getMin() {
+            return type == Type.NUMERIC || type == Type.DATE ? min : null;
+        }
+
+        /**
+         * @return the maximum of a numeric or date column, null for the other types
+         */
+        public Double getMax() {
+            return type == Type.NUMERIC || type == Type.DATE ? max : null;
+        }
+    }
+}
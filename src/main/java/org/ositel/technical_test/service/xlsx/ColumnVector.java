@@ -0,0 +1,233 @@
+package org.ositel.technical_test.service.xlsx;
+
+import org.apache.poi.ss.util.NumberToTextConverter;
+import org.ositel.technical_test.service.dto.XlsxColumnDTO;
+import org.ositel.technical_test.service.dto.XlsxColumnDTO.Type;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Growable column of typed values, backed by the primitive array of its type.
+ * <p>
+ * The type of the column is the one of its first non blank cell. When a cell of another type is appended, the values
+ * already read are converted to their raw text and the column goes on as a STRING column.
+ */
+final class ColumnVector {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * the doubles above 2^53 are not all integers anymore
+     */
+    private static final double MAX_EXACT_INTEGER = 9_007_199_254_740_992d;
+
+    private final int columnIndex;
+
+    private final String name;
+
+    private final BitSet blanks = new BitSet();
+
+    private Type type = Type.BLANK;
+
+    private int size;
+
+    private int capacity = INITIAL_CAPACITY;
+
+    private boolean integral = true;
+
+    private double[] numbers;
+
+    private long[] dates;
+
+    private boolean[] booleans;
+
+    private String[] strings;
+
+    ColumnVector(int columnIndex, String name) {
+        this.columnIndex = columnIndex;
+        this.name = name;
+    }
+
+    int getColumnIndex() {
+        return columnIndex;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void append(SheetCell cell) {
+        if (size == capacity) {
+            grow();
+        }
+        switch (cell.getType()) {
+            case BLANK:
+                blanks.set(size);
+                break;
+            case NUMERIC:
+                if (accepts(Type.NUMERIC)) {
+                    double number = cell.getNumber();
+                    numbers[size] = number;
+                    integral &= number == Math.rint(number) && Math.abs(number) <= MAX_EXACT_INTEGER;
+                } else {
+                    strings[size] = cell.getFormattedValue();
+                }
+                break;
+            case DATE:
+                if (accepts(Type.DATE)) {
+                    dates[size] = cell.getDateMillis();
+                } else {
+                    strings[size] = cell.getFormattedValue();
+                }
+                break;
+            case BOOLEAN:
+                if (accepts(Type.BOOLEAN)) {
+                    booleans[size] = cell.getBoolean();
+                } else {
+                    strings[size] = cell.getFormattedValue();
+                }
+                break;
+            case STRING:
+                accepts(Type.STRING);
+                strings[size] = cell.getString();
+                break;
+            default:
+                accepts(Type.STRING);
+                strings[size] = cell.getFormattedValue();
+                break;
+        }
+        size++;
+    }
+
+    /**
+     * append blanks up to the given size, for the lines in which the column has no cell
+     */
+    void fill(int lineCount) {
+        while (size < lineCount) {
+            if (size == capacity) {
+                grow();
+            }
+            blanks.set(size++);
+        }
+    }
+
+    XlsxColumnDTO toDTO() {
+        XlsxColumnDTO columnDTO = new XlsxColumnDTO();
+        columnDTO.setColumnIndex(columnIndex);
+        columnDTO.setName(name);
+        switch (type) {
+            case NUMERIC:
+                if (integral) {
+                    long[] integers = new long[size];
+                    for (int i = 0; i < size; i++) {
+                        integers[i] = (long) numbers[i];
+                    }
+                    columnDTO.setType(Type.INTEGER);
+                    columnDTO.setIntegers(integers);
+                } else {
+                    columnDTO.setType(Type.NUMERIC);
+                    columnDTO.setNumbers(Arrays.copyOf(numbers, size));
+                }
+                break;
+            case DATE:
+                columnDTO.setType(Type.DATE);
+                columnDTO.setDates(Arrays.copyOf(dates, size));
+                break;
+            case BOOLEAN:
+                columnDTO.setType(Type.BOOLEAN);
+                columnDTO.setBooleans(Arrays.copyOf(booleans, size));
+                break;
+            case STRING:
+                columnDTO.setType(Type.STRING);
+                columnDTO.setStrings(Arrays.copyOf(strings, size));
+                break;
+            default:
+                columnDTO.setType(Type.BLANK);
+                break;
+        }
+        if (!blanks.isEmpty()) {
+            columnDTO.setBlanks(blanks.stream().toArray());
+        }
+        return columnDTO;
+    }
+
+    /**
+     * check that a value of the given type can be stored in the column, the column switches to STRING otherwise
+     *
+     * @return true if the value is stored in the array of its type, false if it must be stored as a string
+     */
+    private boolean accepts(Type valueType) {
+        if (type == valueType) {
+            return true;
+        }
+        if (type == Type.BLANK) {
+            type = valueType;
+            allocate();
+            return true;
+        }
+        if (type != Type.STRING) {
+            toStrings();
+        }
+        return false;
+    }
+
+    private void allocate() {
+        switch (type) {
+            case NUMERIC:
+                numbers = new double[capacity];
+                break;
+            case DATE:
+                dates = new long[capacity];
+                break;
+            case BOOLEAN:
+                booleans = new boolean[capacity];
+                break;
+            default:
+                strings = new String[capacity];
+                break;
+        }
+    }
+
+    private void toStrings() {
+        String[] values = new String[capacity];
+        for (int i = 0; i < size; i++) {
+            if (blanks.get(i)) {
+                continue;
+            }
+            switch (type) {
+                case NUMERIC:
+                    values[i] = NumberToTextConverter.toText(numbers[i]);
+                    break;
+                case DATE:
+                    values[i] = Instant.ofEpochMilli(dates[i]).toString();
+                    break;
+                default:
+                    values[i] = booleans[i] ? "TRUE" : "FALSE";
+                    break;
+            }
+        }
+        numbers = null;
+        dates = null;
+        booleans = null;
+        strings = values;
+        type = Type.STRING;
+    }
+
+    private void grow() {
+        capacity = capacity * 2;
+        if (numbers != null) {
+            numbers = Arrays.copyOf(numbers, capacity);
+        }
+        if (dates != null) {
+            dates = Arrays.copyOf(dates, capacity);
+        }
+        if (booleans != null) {
+            booleans = Arrays.copyOf(booleans, capacity);
+        }
+        if (strings != null) {
+            strings = Arrays.copyOf(strings, capacity);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package org.ositel.technical_test.service.xlsx;
+
+import org.apache.poi.ss.usermodel.DataFormatter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.ositel.technical_test.service.xlsx.ColumnarFileWriter.ABSENT;
+import static org.ositel.technical_test.service.xlsx.ColumnarFileWriter.FORMULA;
+import static org.ositel.technical_test.service.xlsx.ColumnarFileWriter.MAGIC;
+import static org.ositel.technical_test.service.xlsx.ColumnarFileWriter.TRAILER_SIZE;
+import static org.ositel.technical_test.service.xlsx.ColumnarFileWriter.VERSION;
+
+/**
+ * A sheet of a columnar file written by the {@link ColumnarFileWriter}, memory mapped to be read.
+ * <p>
+ * Only the footer of the sheet is decoded when it is opened. The cells are read from the mapping when the rows are
+ * replayed: the skipped rows and the columns outside of the projection are never read, and the strings are only
+ * decoded from the dictionary when they are reported. The cells keep the type they had in the xlsx file.
+ */
+public final class ColumnarFileSheet implements ReplayableSheet {
+
+    private static final SheetCell.Type[] TYPES = SheetCell.Type.values();
+
+    private final int sheetIndex;
+
+    private final String sheetName;
+
+    private final ByteBuffer buffer;
+
+    private final int rowCount;
+
+    private final int rowGroupSize;
+
+    /**
+     * position of the indexes of the rows in the sheet, one int per row in ascending order
+     */
+    private final int rowIndexesPosition;
+
+    private final short[] formatIndexes;
+
+    private final String[] formatStrings;
+
+    private final int stringOffsetsPosition;
+
+    private final int stringCount;
+
+    private final int stringsPosition;
+
+    private final int stringsLength;
+
+    private final int[] columnIndexes;
+
+    private final int[][] chunkOffsets;
+
+    private ColumnarFileSheet(int sheetIndex, String sheetName, ByteBuffer buffer, int footer) {
+        this.sheetIndex = sheetIndex;
+        this.sheetName = sheetName;
+        this.buffer = buffer;
+        ByteBuffer footerBuffer = buffer.duplicate();
+        footerBuffer.position(footer);
+        this.rowCount = footerBuffer.getInt();
+        this.rowGroupSize = footerBuffer.getInt();
+        this.rowIndexesPosition = footerBuffer.position();
+        footerBuffer.position(rowIndexesPosition + 4 * rowCount);
+        int formatCount = footerBuffer.getInt();
+        this.formatIndexes = new short[formatCount];
+        this.formatStrings = new String[formatCount];
+        for (int i = 0; i < formatCount; i++) {
+            formatIndexes[i] = footerBuffer.getShort();
+            formatStrings[i] = getString(footerBuffer);
+        }
+        this.stringCount = footerBuffer.getInt();
+        this.stringOffsetsPosition = footerBuffer.position();
+        footerBuffer.position(stringOffsetsPosition + 4 * stringCount);
+        this.stringsLength = footerBuffer.getInt();
+        this.stringsPosition = footerBuffer.position();
+        footerBuffer.position(stringsPosition + stringsLength);
+        int groupCount = footerBuffer.getInt();
+        int columnCount = footerBuffer.getInt();
+        this.columnIndexes = new int[columnCount];
+        this.chunkOffsets = new int[columnCount][groupCount];
+        for (int column = 0; column < columnCount; column++) {
+            columnIndexes[column] = footerBuffer.getInt();
+            for (int group = 0; group < groupCount; group++) {
+                chunkOffsets[column][group] = (int) footerBuffer.getLong();
+            }
+        }
+    }
+
+    /**
+     * Map a sheet of a columnar file.
+     *
+     * @param path        the columnar file
+     * @param contentHash the hash of the current content of the xlsx file
+     * @param sheet       the name or the zero based index of the sheet, null for the first sheet
+     * @return the sheet, null if the file does not exist, if it was written from another content or if the sheet is
+     * too large to be mapped at once
+     * @throws IOException if the file is not a columnar file
+     * @throws org.ositel.technical_test.web.rest.errors.BadRequestAlertException if the sheet does not exist
+     */
+    public static ColumnarFileSheet open(Path path, String contentHash, String sheet) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < TRAILER_SIZE) {
+                throw new IOException("The file " + path + " is not a columnar file");
+            }
+            ByteBuffer trailer = read(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+            long directoryOffset = trailer.getLong();
+            if (trailer.getInt() != MAGIC) {
+                throw new IOException("The file " + path + " is not a columnar file");
+            }
+            ByteBuffer directory = read(channel, directoryOffset, (int) (size - TRAILER_SIZE - directoryOffset));
+            if (directory.getInt() != VERSION || !Objects.equals(getString(directory), contentHash)) {
+                return null;
+            }
+            int sheetCount = directory.getInt();
+            List<String> sheetNames = new ArrayList<>(sheetCount);
+            long[] regions = new long[3 * sheetCount];
+            for (int i = 0; i < sheetCount; i++) {
+                directory.getInt();
+                sheetNames.add(getString(directory));
+                regions[3 * i] = directory.getLong();
+                regions[3 * i + 1] = directory.getLong();
+                regions[3 * i + 2] = directory.getLong();
+            }
+            int index = SheetDirectory.resolveIndex(sheetNames, sheet);
+            long start = regions[3 * index];
+            long end = regions[3 * index + 2];
+            if (end - start > Integer.MAX_VALUE) {
+                return null;
+            }
+            // the mapping stays valid once the channel is closed
+            ByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            return new ColumnarFileSheet(index, sheetNames.get(index), mapping, (int) (regions[3 * index + 1] - start));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public int getSheetIndex() {
+        return sheetIndex;
+    }
+
+    @Override
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    @Override
+    public long getLineCount() {
+        return Math.max(0, rowCount - 1);
+    }
+
+    @Override
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public boolean hasCell(int rowIndex, int columnIndex) {
+        int row = findRow(rowIndex);
+        if (row < 0) {
+            return false;
+        }
+        for (int column = 0; column < columnIndexes.length; column++) {
+            if (columnIndexes[column] == columnIndex) {
+                int group = row / rowGroupSize;
+                int chunk = chunkOffsets[column][group];
+                int groupRowCount = Math.min(rowGroupSize, rowCount - group * rowGroupSize);
+                return chunk >= 0 && buffer.get(chunk + 10 * groupRowCount + row - group * rowGroupSize) != ABSENT;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void replay(SheetRowHandler rowHandler) throws IOException {
+        SheetCell cell = new SheetCell(null, new DataFormatter());
+        for (int row = 0; row < rowCount; row++) {
+            int rowIndex = buffer.getInt(rowIndexesPosition + 4 * row);
+            if (rowHandler.startRow(rowIndex)) {
+                int group = row / rowGroupSize;
+                int groupRowCount = Math.min(rowGroupSize, rowCount - group * rowGroupSize);
+                int groupRow = row - group * rowGroupSize;
+                for (int column = 0; column < columnIndexes.length; column++) {
+                    int chunk = chunkOffsets[column][group];
+                    if (chunk >= 0 && rowHandler.acceptsCell(columnIndexes[column])) {
+                        byte type = buffer.get(chunk + 10 * groupRowCount + groupRow);
+                        if (type != ABSENT) {
+                            decode(cell, type, chunk, groupRowCount, groupRow);
+                            rowHandler.cell(columnIndexes[column], cell);
+                        }
+                    }
+                }
+            }
+            rowHandler.endRow(rowIndex);
+            if (rowHandler.isDone()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the position of the row with the given index among the rows of the sheet, -1 if the sheet has no such row
+     */
+    private int findRow(int rowIndex) {
+        int low = 0;
+        int high = rowCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleRowIndex = buffer.getInt(rowIndexesPosition + 4 * middle);
+            if (middleRowIndex < rowIndex) {
+                low = middle + 1;
+            } else if (middleRowIndex > rowIndex) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private void decode(SheetCell cell, byte type, int chunk, int groupRowCount, int row) {
+        cell.reset((type & FORMULA) != 0);
+        SheetCell.Type cellType = TYPES[type & ~FORMULA];
+        long value = buffer.getLong(chunk + 8 * row);
+        switch (cellType) {
+            case NUMERIC:
+            case DATE:
+                short format = buffer.getShort(chunk + 8 * groupRowCount + 2 * row);
+                cell.setNumber(Double.longBitsToDouble(value), formatIndexes[format], formatStrings[format],
+                    cellType == SheetCell.Type.DATE);
+                break;
+            case BOOLEAN:
+                cell.setBoolean(value != 0);
+                break;
+            case STRING:
+            case ERROR:
+                cell.setText(cellType, dictionaryString((int) value));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private String dictionaryString(int id) {
+        int offset = buffer.getInt(stringOffsetsPosition + 4 * id);
+        int nextOffset = id + 1 < stringCount ? buffer.getInt(stringOffsetsPosition + 4 * (id + 1)) : stringsLength;
+        byte[] utf8 = new byte[nextOffset - offset];
+        ByteBuffer strings = buffer.duplicate();
+        strings.position(stringsPosition + offset);
+        strings.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        buffer.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of the columnar file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
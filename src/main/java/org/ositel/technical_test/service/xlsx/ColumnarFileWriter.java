@@ -0,0 +1,473 @@
+package org.ositel.technical_test.service.xlsx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writer of the columnar file of a xlsx file, read back without any xml parsing by {@link ColumnarFileSheet}.
+ * <p>
+ * The sheets are written one after the other. The rows of a sheet are split in row groups, and each row group stores
+ * one chunk per column holding the cells of that column: their values as longs, then their number formats as shorts,
+ * then their types as bytes. The footer of the sheet holds the indexes of the rows in the sheet, the number formats, the
+ * dictionary of the strings and the offsets of the chunks. The directory of the sheets, led by the hash of the content the file was written from, and a
+ * trailer pointing to it end the file.
+ * <p>
+ * The file is written to a temporary file and replaces the previous one in a single move on {@link #commit()}, so a
+ * reader never sees a partial file.
+ */
+public final class ColumnarFileWriter implements Closeable {
+
+    static final int MAGIC = 0x584C5343;
+
+    static final int VERSION = 3;
+
+    static final int ROW_GROUP_SIZE = 1024;
+
+    /**
+     * size of the trailer: the offset of the directory and the magic number
+     */
+    static final int TRAILER_SIZE = 12;
+
+    /**
+     * number of bytes stored for a cell in a chunk: its value, its number format and its type
+     */
+    static final int CELL_SIZE = 11;
+
+    /**
+     * type of a cell which is not in the row
+     */
+    static final byte ABSENT = -1;
+
+    /**
+     * flag added to the type of a formula cell
+     */
+    static final byte FORMULA = 0x40;
+
+    private final Path target;
+
+    private final String contentHash;
+
+    private final Path temporaryFile;
+
+    private final FileChannel channel;
+
+    private final ByteBuffer chunkBuffer = ByteBuffer.allocate(ROW_GROUP_SIZE * CELL_SIZE);
+
+    private final List<SheetEntry> sheetEntries = new ArrayList<>();
+
+    private long position;
+
+    private boolean committed;
+
+    /**
+     * @param target      the columnar file to write, replaced on commit
+     * @param contentHash the hash of the content of the xlsx file the sheets are read from
+     */
+    public ColumnarFileWriter(Path target, String contentHash) throws IOException {
+        this.target = target;
+        this.contentHash = contentHash;
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        this.temporaryFile = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName().toString(), ".tmp");
+        this.channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Start the next sheet of the file.
+     *
+     * @param entry the sheet
+     * @return the row handler writing the sheet, to be finished once the sheet has been read
+     */
+    public SheetWriter startSheet(SheetDirectory.Entry entry) {
+        return new SheetWriter(entry);
+    }
+
+    /**
+     * Write the directory of the sheets and replace the previous columnar file.
+     */
+    public void commit() throws IOException {
+        ByteArrayBuilder directoryBytes = new ByteArrayBuilder();
+        directoryBytes.putInt(VERSION);
+        directoryBytes.putString(contentHash);
+        directoryBytes.putInt(sheetEntries.size());
+        for (SheetEntry sheetEntry : sheetEntries) {
+            directoryBytes.putInt(sheetEntry.index);
+            directoryBytes.putString(sheetEntry.name);
+            directoryBytes.putLong(sheetEntry.start);
+            directoryBytes.putLong(sheetEntry.footer);
+            directoryBytes.putLong(sheetEntry.end);
+        }
+        long directoryOffset = position;
+        write(directoryBytes.toByteBuffer());
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+        trailer.putLong(directoryOffset).putInt(MAGIC).flip();
+        write(trailer);
+        channel.force(false);
+        channel.close();
+        Files.move(temporaryFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+    }
+
+    /**
+     * Remove the temporary file unless the file has been committed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!committed) {
+            channel.close();
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer);
+        }
+    }
+
+    /**
+     * Row handler writing a sheet, the cells being buffered one row group at a time.
+     */
+    public final class SheetWriter implements SheetRowHandler {
+
+        private final SheetDirectory.Entry entry;
+
+        private final long start;
+
+        private final Map<String, Integer> stringIds = new HashMap<>();
+
+        private final ByteArrayBuilder strings = new ByteArrayBuilder();
+
+        private final List<Integer> stringOffsets = new ArrayList<>();
+
+        private final Map<String, Integer> formatIds = new HashMap<>();
+
+        private final List<SheetCellFormat> formats = new ArrayList<>();
+
+        private ColumnChunk[] columns = new ColumnChunk[16];
+
+        private int[] rowIndexes = new int[ROW_GROUP_SIZE];
+
+        private int rowCount;
+
+        private int groupRowCount;
+
+        private int groupCount;
+
+        private SheetCellFormat lastFormat;
+
+        private int lastFormatId;
+
+        private SheetWriter(SheetDirectory.Entry entry) {
+            this.entry = entry;
+            this.start = position;
+        }
+
+        @Override
+        public boolean startRow(int rowIndex) {
+            return true;
+        }
+
+        @Override
+        public void cell(int columnIndex, SheetCell cell) {
+            if (columnIndex >= columns.length) {
+                columns = Arrays.copyOf(columns, Math.max(columnIndex + 1, columns.length * 2));
+            }
+            ColumnChunk column = columns[columnIndex];
+            if (column == null) {
+                column = new ColumnChunk(columnIndex);
+                columns[columnIndex] = column;
+            }
+            byte type = (byte) cell.getType().ordinal();
+            if (cell.isFormula()) {
+                type |= FORMULA;
+            }
+            long value = 0;
+            short format = -1;
+            switch (cell.getType()) {
+                case NUMERIC:
+                case DATE:
+                    value = Double.doubleToRawLongBits(cell.getNumber());
+                    format = (short) formatId(cell);
+                    break;
+                case BOOLEAN:
+                    value = cell.getBoolean() ? 1 : 0;
+                    break;
+                case STRING:
+                case ERROR:
+                    value = stringId(cell.getString());
+                    break;
+                default:
+                    break;
+            }
+            column.set(groupRowCount, type, value, format);
+        }
+
+        @Override
+        public void endRow(int rowIndex) throws IOException {
+            if (rowCount == rowIndexes.length) {
+                rowIndexes = Arrays.copyOf(rowIndexes, rowIndexes.length * 2);
+            }
+            rowIndexes[rowCount++] = rowIndex;
+            if (++groupRowCount == ROW_GROUP_SIZE) {
+                writeRowGroup();
+            }
+        }
+
+        /**
+         * Write the last row group and the footer of the sheet.
+         */
+        public void finish() throws IOException {
+            if (groupRowCount > 0) {
+                writeRowGroup();
+            }
+            long footer = position;
+            ByteArrayBuilder footerBytes = new ByteArrayBuilder();
+            footerBytes.putInt(rowCount);
+            footerBytes.putInt(ROW_GROUP_SIZE);
+            for (int row = 0; row < rowCount; row++) {
+                footerBytes.putInt(rowIndexes[row]);
+            }
+            footerBytes.putInt(formats.size());
+            for (SheetCellFormat format : formats) {
+                footerBytes.putShort(format.formatIndex);
+                footerBytes.putString(format.formatString);
+            }
+            footerBytes.putInt(stringOffsets.size());
+            for (Integer stringOffset : stringOffsets) {
+                footerBytes.putInt(stringOffset);
+            }
+            footerBytes.putInt(strings.size());
+            footerBytes.putBytes(strings);
+            int columnCount = 0;
+            for (ColumnChunk column : columns) {
+                if (column != null) {
+                    columnCount++;
+                }
+            }
+            footerBytes.putInt(groupCount);
+            footerBytes.putInt(columnCount);
+            for (ColumnChunk column : columns) {
+                if (column != null) {
+                    footerBytes.putInt(column.columnIndex);
+                    for (int group = 0; group < groupCount; group++) {
+                        footerBytes.putLong(group < column.chunkOffsets.length ? column.chunkOffsets[group] : -1);
+                    }
+                }
+            }
+            write(footerBytes.toByteBuffer());
+            sheetEntries.add(new SheetEntry(entry.getIndex(), entry.getName(), start, footer, position));
+        }
+
+        private void writeRowGroup() throws IOException {
+            for (ColumnChunk column : columns) {
+                if (column != null && column.filled) {
+                    column.setChunkOffset(groupCount, position - start);
+                    chunkBuffer.clear();
+                    column.writeTo(chunkBuffer, groupRowCount);
+                    chunkBuffer.flip();
+                    write(chunkBuffer);
+                }
+            }
+            groupCount++;
+            groupRowCount = 0;
+        }
+
+        private int stringId(String value) {
+            Integer id = stringIds.get(value);
+            if (id == null) {
+                id = stringOffsets.size();
+                stringIds.put(value, id);
+                stringOffsets.add(strings.size());
+                strings.putUtf8(value);
+            }
+            return id;
+        }
+
+        private int formatId(SheetCell cell) {
+            // the cells of a column mostly share the same style, whose format string is the same instance
+            if (lastFormat != null && lastFormat.formatString == cell.getFormatString()
+                && lastFormat.formatIndex == cell.getFormatIndex()) {
+                return lastFormatId;
+            }
+            String key = cell.getFormatIndex() + ":" + cell.getFormatString();
+            Integer id = formatIds.get(key);
+            if (id == null) {
+                id = formats.size();
+                formatIds.put(key, id);
+                formats.add(new SheetCellFormat(cell.getFormatIndex(), cell.getFormatString()));
+            }
+            lastFormat = formats.get(id);
+            lastFormatId = id;
+            return id;
+        }
+    }
+
+    /**
+     * the cells of a column in the current row group
+     */
+    private static final class ColumnChunk {
+
+        private final int columnIndex;
+
+        private final long[] values = new long[ROW_GROUP_SIZE];
+
+        private final short[] formats = new short[ROW_GROUP_SIZE];
+
+        private final byte[] types = new byte[ROW_GROUP_SIZE];
+
+        private long[] chunkOffsets = new long[0];
+
+        private boolean filled;
+
+        ColumnChunk(int columnIndex) {
+            this.columnIndex = columnIndex;
+            Arrays.fill(types, ABSENT);
+        }
+
+        void set(int row, byte type, long value, short format) {
+            types[row] = type;
+            values[row] = value;
+            formats[row] = format;
+            filled = true;
+        }
+
+        void setChunkOffset(int group, long offset) {
+            if (group >= chunkOffsets.length) {
+                int length = chunkOffsets.length;
+                chunkOffsets = Arrays.copyOf(chunkOffsets, Math.max(group + 1, length * 2));
+                Arrays.fill(chunkOffsets, length, chunkOffsets.length, -1);
+            }
+            chunkOffsets[group] = offset;
+        }
+
+        void writeTo(ByteBuffer buffer, int rowCount) {
+            for (int row = 0; row < rowCount; row++) {
+                buffer.putLong(values[row]);
+            }
+            for (int row = 0; row < rowCount; row++) {
+                buffer.putShort(formats[row]);
+            }
+            buffer.put(types, 0, rowCount);
+            Arrays.fill(types, 0, rowCount, ABSENT);
+            filled = false;
+        }
+    }
+
+    private static final class SheetCellFormat {
+
+        private final short formatIndex;
+
+        private final String formatString;
+
+        SheetCellFormat(short formatIndex, String formatString) {
+            this.formatIndex = formatIndex;
+            this.formatString = formatString;
+        }
+    }
+
+    private static final class SheetEntry {
+
+        private final int index;
+
+        private final String name;
+
+        private final long start;
+
+        private final long footer;
+
+        private final long end;
+
+        SheetEntry(int index, String name, long start, long footer, long end) {
+            this.index = index;
+            this.name = name;
+            this.start = start;
+            this.footer = footer;
+            this.end = end;
+        }
+    }
+
+    /**
+     * growable big endian buffer of the footers and of the dictionaries
+     */
+    private static final class ByteArrayBuilder {
+
+        private byte[] bytes = new byte[256];
+
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        void putShort(short value) {
+            ensureCapacity(2);
+            bytes[size++] = (byte) (value >> 8);
+            bytes[size++] = (byte) value;
+        }
+
+        void putInt(int value) {
+            ensureCapacity(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (value >> shift);
+            }
+        }
+
+        void putLong(long value) {
+            ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (value >> shift);
+            }
+        }
+
+        void putUtf8(String value) {
+            putBytes(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * put the length of the string, -1 for null, then its utf-8 bytes
+         */
+        void putString(String value) {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            putInt(utf8.length);
+            putBytes(utf8);
+        }
+
+        void putBytes(ByteArrayBuilder other) {
+            ensureCapacity(other.size);
+            System.arraycopy(other.bytes, 0, bytes, size, other.size);
+            size += other.size;
+        }
+
+        private void putBytes(byte[] other) {
+            ensureCapacity(other.length);
+            System.arraycopy(other, 0, bytes, size, other.length);
+            size += other.length;
+        }
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(bytes, 0, size);
+        }
+
+        private void ensureCapacity(int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(size + length, bytes.length * 2));
+            }
+        }
+    }
+}
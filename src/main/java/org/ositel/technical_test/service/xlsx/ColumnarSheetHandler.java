@@ -0,0 +1,77 @@
+package org.ositel.technical_test.service.xlsx;
+
+import org.ositel.technical_test.service.dto.XlsxColumnDTO;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Row handler reading the lines of a sheet column by column, each cell being appended to the typed vector of its
+ * column without going through its text. The columns are the ones of the header, the cells beyond it are ignored.
+ */
+public class ColumnarSheetHandler extends SheetQueryRowHandler {
+
+    private final List<ColumnVector> vectors = new ArrayList<>();
+
+    private final Map<Integer, ColumnVector> vectorsByColumnIndex = new HashMap<>();
+
+    private int pageLineCount;
+
+    /**
+     * @param query          the lines and columns to read
+     * @param knownLineCount the number of lines of the sheet if it is already known, null to count them
+     */
+    public ColumnarSheetHandler(SheetQuery query, Long knownLineCount) {
+        super(query, knownLineCount);
+    }
+
+    @Override
+    protected void header(List<Integer> columnIndexes, List<String> names) {
+        for (int i = 0; i < columnIndexes.size(); i++) {
+            ColumnVector vector = new ColumnVector(columnIndexes.get(i), names.get(i));
+            vectors.add(vector);
+            vectorsByColumnIndex.put(vector.getColumnIndex(), vector);
+        }
+    }
+
+    @Override
+    protected void startLine(long line) {
+        // the cells are appended as they come
+    }
+
+    @Override
+    protected void lineCell(int columnIndex, SheetCell cell) {
+        ColumnVector vector = vectorsByColumnIndex.get(columnIndex);
+        if (vector != null && vector.size() == pageLineCount) {
+            vector.append(cell);
+        }
+    }
+
+    @Override
+    protected void endLine(long line) {
+        pageLineCount++;
+        for (ColumnVector vector : vectors) {
+            vector.fill(pageLineCount);
+        }
+    }
+
+    /**
+     * @return the number of lines of the page which have been read
+     */
+    public int getPageLineCount() {
+        return pageLineCount;
+    }
+
+    /**
+     * @return the columns of the page, in header order
+     */
+    public List<XlsxColumnDTO> getColumns() {
+        List<XlsxColumnDTO> columns = new ArrayList<>(vectors.size());
+        for (ColumnVector vector : vectors) {
+            columns.add(vector.toDTO());
+        }
+        return columns;
+    }
+}
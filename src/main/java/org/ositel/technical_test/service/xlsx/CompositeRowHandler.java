@@ -0,0 +1,82 @@
+package org.ositel.technical_test.service.xlsx;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Row handler pushing the rows of a sheet to several handlers, so that they are all fed by a single parsing.
+ * <p>
+ * Each handler only receives the rows and cells it accepts, a handler which is done does not receive any further
+ * row and the parsing stops once all of them are done.
+ */
+public class CompositeRowHandler implements SheetRowHandler {
+
+    private final List<SheetRowHandler> rowHandlers;
+
+    private final boolean[] readingRow;
+
+    private final boolean[] done;
+
+    public CompositeRowHandler(SheetRowHandler... rowHandlers) {
+        this.rowHandlers = Arrays.asList(rowHandlers);
+        this.readingRow = new boolean[rowHandlers.length];
+        this.done = new boolean[rowHandlers.length];
+    }
+
+    @Override
+    public void dimension(int firstRowIndex, int lastRowIndex) throws IOException {
+        for (SheetRowHandler rowHandler : rowHandlers) {
+            rowHandler.dimension(firstRowIndex, lastRowIndex);
+        }
+    }
+
+    @Override
+    public boolean startRow(int rowIndex) throws IOException {
+        boolean anyReadingRow = false;
+        for (int i = 0; i < readingRow.length; i++) {
+            readingRow[i] = !done[i] && rowHandlers.get(i).startRow(rowIndex);
+            anyReadingRow |= readingRow[i];
+        }
+        return anyReadingRow;
+    }
+
+    @Override
+    public boolean acceptsCell(int columnIndex) {
+        for (int i = 0; i < readingRow.length; i++) {
+            if (readingRow[i] && rowHandlers.get(i).acceptsCell(columnIndex)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void cell(int columnIndex, SheetCell cell) throws IOException {
+        for (int i = 0; i < readingRow.length; i++) {
+            if (readingRow[i] && rowHandlers.get(i).acceptsCell(columnIndex)) {
+                rowHandlers.get(i).cell(columnIndex, cell);
+            }
+        }
+    }
+
+    @Override
+    public void endRow(int rowIndex) throws IOException {
+        for (int i = 0; i < done.length; i++) {
+            if (!done[i]) {
+                rowHandlers.get(i).endRow(rowIndex);
+                done[i] = rowHandlers.get(i).isDone();
+            }
+        }
+    }
+
+    @Override
+    public boolean isDone() {
+        for (boolean handlerDone : done) {
+            if (!handlerDone) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
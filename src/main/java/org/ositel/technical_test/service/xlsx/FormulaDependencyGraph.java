@@ -0,0 +1,387 @@
+package org.ositel.technical_test.service.xlsx;
+
+import org.apache.poi.ss.formula.ExternSheetReferenceToken;
+import org.apache.poi.ss.formula.FormulaParser;
+import org.apache.poi.ss.formula.FormulaType;
+import org.apache.poi.ss.formula.ptg.AbstractFunctionPtg;
+import org.apache.poi.ss.formula.ptg.AreaPtgBase;
+import org.apache.poi.ss.formula.ptg.NamePtg;
+import org.apache.poi.ss.formula.ptg.NameXPtg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.RefPtgBase;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.usermodel.XSSFEvaluationWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFName;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Graph of the dependencies between the cells of a workbook and its formulas, built once from the formulas of the
+ * workbook and updated formula by formula.
+ * <p>
+ * The cells are identified by a key packing their sheet index, row and column. A formula depends on the cells it
+ * references, directly or through a defined name. The references to single cells are indexed by cell, the references
+ * to ranges by sheet and column, the ranges spanning many columns being kept apart for their sheet, so that the
+ * formulas depending on a cell are found without going through all the formulas. The formulas calling a volatile
+ * function, whose references are only known once evaluated, and the formulas which cannot be parsed are recomputed
+ * on every change.
+ */
+public final class FormulaDependencyGraph {
+
+    /**
+     * the functions whose result does not only depend on the cells they reference
+     */
+    private static final Set<String> VOLATILE_FUNCTIONS = new HashSet<>(Arrays.asList(
+        "INDIRECT", "OFFSET", "NOW", "TODAY", "RAND", "RANDBETWEEN", "CELL", "INFO"));
+
+    /**
+     * the ranges spanning more columns are not indexed by column
+     */
+    private static final int MAX_INDEXED_COLUMNS = 16;
+
+    private static final int MAX_NAME_DEPTH = 8;
+
+    private final XSSFWorkbook workbook;
+
+    private final XSSFEvaluationWorkbook evaluationWorkbook;
+
+    /**
+     * the references of the formulas, by key of their cell
+     */
+    private final Map<Long, FormulaReferences> formulas = new HashMap<>();
+
+    /**
+     * the formulas referencing a single cell, by key of the cell
+     */
+    private final Map<Long, Set<Long>> cellDependents = new HashMap<>();
+
+    /**
+     * the ranges referenced by the formulas, by sheet index and column
+     */
+    private final Map<Long, List<RangeReference>> columnRanges = new HashMap<>();
+
+    /**
+     * the ranges spanning many columns referenced by the formulas, by sheet index
+     */
+    private final Map<Integer, List<RangeReference>> wideRanges = new HashMap<>();
+
+    private final Set<Long> volatileFormulas = new LinkedHashSet<>();
+
+    private FormulaDependencyGraph(XSSFWorkbook workbook) {
+        this.workbook = workbook;
+        this.evaluationWorkbook = XSSFEvaluationWorkbook.create(workbook);
+    }
+
+    /**
+     * Build the graph of the formulas of a workbook.
+     *
+     * @param workbook the workbook, the graph must be updated with the formulas set or removed afterwards
+     * @return the graph
+     */
+    public static FormulaDependencyGraph build(XSSFWorkbook workbook) {
+        FormulaDependencyGraph graph = new FormulaDependencyGraph(workbook);
+        for (int sheetIndex = 0; sheetIndex < workbook.getNumberOfSheets(); sheetIndex++) {
+            XSSFSheet sheet = workbook.getSheetAt(sheetIndex);
+            for (Row row : sheet) {
+                for (Cell cell : row) {
+                    if (cell.getCellType() == Cell.CELL_TYPE_FORMULA) {
+                        graph.setFormula(sheetIndex, cell.getRowIndex(), cell.getColumnIndex(), cell.getCellFormula());
+                    }
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * @return the key of a cell
+     */
+    public static long cellKey(int sheetIndex, int rowIndex, int columnIndex) {
+        return ((long) sheetIndex << 40) | ((long) rowIndex << 14) | columnIndex;
+    }
+
+    public static int sheetIndexOf(long cellKey) {
+        return (int) (cellKey >>> 40);
+    }
+
+    public static int rowIndexOf(long cellKey) {
+        return (int) ((cellKey >>> 14) & 0x3FFFFFF);
+    }
+
+    public static int columnIndexOf(long cellKey) {
+        return (int) (cellKey & 0x3FFF);
+    }
+
+    /**
+     * @return the number of formulas of the graph
+     */
+    public int size() {
+        return formulas.size();
+    }
+
+    public boolean isFormula(long cellKey) {
+        return formulas.containsKey(cellKey);
+    }
+
+    /**
+     * @return true if the formula of a cell is recomputed on every change
+     */
+    public boolean isVolatile(long cellKey) {
+        return volatileFormulas.contains(cellKey);
+    }
+
+    /**
+     * Set the formula of a cell, replacing the dependencies of its previous formula.
+     *
+     * @param formula the text of the formula, without the leading equal sign
+     */
+    public void setFormula(int sheetIndex, int rowIndex, int columnIndex, String formula) {
+        long key = cellKey(sheetIndex, rowIndex, columnIndex);
+        removeFormula(key);
+        FormulaReferences references = new FormulaReferences();
+        try {
+            collectReferences(FormulaParser.parse(formula, evaluationWorkbook, FormulaType.CELL, sheetIndex),
+                sheetIndex, references, 0);
+        } catch (RuntimeException e) {
+            // the references of the formula are not known, it is recomputed on every change
+            references.volatileFormula = true;
+        }
+        formulas.put(key, references);
+        for (Long cell : references.cells) {
+            cellDependents.computeIfAbsent(cell, k -> new HashSet<>()).add(key);
+        }
+        for (RangeReference range : references.ranges) {
+            range.formula = key;
+            if (range.lastColumn - range.firstColumn >= MAX_INDEXED_COLUMNS) {
+                wideRanges.computeIfAbsent(range.sheetIndex, k -> new ArrayList<>()).add(range);
+            } else {
+                for (int column = range.firstColumn; column <= range.lastColumn; column++) {
+                    columnRanges.computeIfAbsent(columnKey(range.sheetIndex, column), k -> new ArrayList<>()).add(range);
+                }
+            }
+        }
+        if (references.volatileFormula) {
+            volatileFormulas.add(key);
+        }
+    }
+
+    /**
+     * Remove the formula of a cell and its dependencies, nothing if the cell does not hold a formula.
+     */
+    public void removeFormula(long cellKey) {
+        FormulaReferences references = formulas.remove(cellKey);
+        if (references == null) {
+            return;
+        }
+        for (Long cell : references.cells) {
+            Set<Long> dependents = cellDependents.get(cell);
+            dependents.remove(cellKey);
+            if (dependents.isEmpty()) {
+                cellDependents.remove(cell);
+            }
+        }
+        for (RangeReference range : references.ranges) {
+            if (range.lastColumn - range.firstColumn >= MAX_INDEXED_COLUMNS) {
+                removeRange(wideRanges, range.sheetIndex, range);
+            } else {
+                for (int column = range.firstColumn; column <= range.lastColumn; column++) {
+                    removeRange(columnRanges, columnKey(range.sheetIndex, column), range);
+                }
+            }
+        }
+        volatileFormulas.remove(cellKey);
+    }
+
+    /**
+     * Get the formulas to recompute once cells have changed: the formulas depending on them directly or transitively
+     * and the volatile formulas, ordered so that a formula comes after the formulas it depends on. The formulas of a
+     * circular reference are returned in any order.
+     *
+     * @param changedCells the keys of the changed cells
+     * @return the keys of the formulas to recompute, in evaluation order
+     */
+    public List<Long> affectedFormulas(Collection<Long> changedCells) {
+        Set<Long> roots = new LinkedHashSet<>(changedCells);
+        roots.addAll(volatileFormulas);
+        // depth first search over the dependents, the reverse of the post-order being a topological order
+        Set<Long> visited = new HashSet<>();
+        List<Long> postOrder = new ArrayList<>();
+        Deque<Long> path = new ArrayDeque<>();
+        Deque<Iterator<Long>> pendingDependents = new ArrayDeque<>();
+        for (Long root : roots) {
+            if (!visited.add(root)) {
+                continue;
+            }
+            path.push(root);
+            pendingDependents.push(dependentsOf(root).iterator());
+            while (!path.isEmpty()) {
+                Iterator<Long> dependents = pendingDependents.peek();
+                if (dependents.hasNext()) {
+                    Long dependent = dependents.next();
+                    if (visited.add(dependent)) {
+                        path.push(dependent);
+                        pendingDependents.push(dependentsOf(dependent).iterator());
+                    }
+                } else {
+                    pendingDependents.pop();
+                    postOrder.add(path.pop());
+                }
+            }
+        }
+        List<Long> affected = new ArrayList<>();
+        for (int i = postOrder.size() - 1; i >= 0; i--) {
+            Long cell = postOrder.get(i);
+            if (formulas.containsKey(cell)) {
+                affected.add(cell);
+            }
+        }
+        return affected;
+    }
+
+    /**
+     * @return the formulas referencing a cell directly
+     */
+    private Collection<Long> dependentsOf(long cellKey) {
+        int sheetIndex = sheetIndexOf(cellKey);
+        int rowIndex = rowIndexOf(cellKey);
+        int columnIndex = columnIndexOf(cellKey);
+        Set<Long> dependents = cellDependents.getOrDefault(cellKey, Collections.emptySet());
+        List<RangeReference> ranges = columnRanges.get(columnKey(sheetIndex, columnIndex));
+        List<RangeReference> sheetWideRanges = wideRanges.get(sheetIndex);
+        if (ranges == null && sheetWideRanges == null) {
+            return dependents;
+        }
+        Set<Long> allDependents = new LinkedHashSet<>(dependents);
+        addRangeDependents(ranges, rowIndex, columnIndex, allDependents);
+        addRangeDependents(sheetWideRanges, rowIndex, columnIndex, allDependents);
+        return allDependents;
+    }
+
+    private static void addRangeDependents(List<RangeReference> ranges, int rowIndex, int columnIndex, Set<Long> dependents) {
+        if (ranges == null) {
+            return;
+        }
+        for (RangeReference range : ranges) {
+            if (range.contains(rowIndex, columnIndex)) {
+                dependents.add(range.formula);
+            }
+        }
+    }
+
+    private void collectReferences(Ptg[] ptgs, int sheetIndex, FormulaReferences references, int nameDepth) {
+        for (Ptg ptg : ptgs) {
+            if (ptg instanceof RefPtgBase) {
+                RefPtgBase ref = (RefPtgBase) ptg;
+                int refSheetIndex = referencedSheet(ptg, sheetIndex);
+                if (refSheetIndex >= 0) {
+                    references.cells.add(cellKey(refSheetIndex, ref.getRow(), ref.getColumn()));
+                }
+            } else if (ptg instanceof AreaPtgBase) {
+                AreaPtgBase area = (AreaPtgBase) ptg;
+                int refSheetIndex = referencedSheet(ptg, sheetIndex);
+                if (refSheetIndex >= 0) {
+                    references.ranges.add(new RangeReference(refSheetIndex, Math.min(area.getFirstRow(), area.getLastRow()),
+                        Math.max(area.getFirstRow(), area.getLastRow()), Math.min(area.getFirstColumn(), area.getLastColumn()),
+                        Math.max(area.getFirstColumn(), area.getLastColumn())));
+                }
+            } else if (ptg instanceof NamePtg) {
+                collectNameReferences((NamePtg) ptg, references, nameDepth);
+            } else if (ptg instanceof NameXPtg) {
+                // a name of another workbook or an add-in function
+                references.volatileFormula = true;
+            } else if (ptg instanceof AbstractFunctionPtg
+                && VOLATILE_FUNCTIONS.contains(((AbstractFunctionPtg) ptg).getName())) {
+                references.volatileFormula = true;
+            }
+        }
+    }
+
+    private void collectNameReferences(NamePtg namePtg, FormulaReferences references, int nameDepth) {
+        XSSFName name = workbook.getNameAt(namePtg.getIndex());
+        if (name.isFunctionName() || nameDepth >= MAX_NAME_DEPTH) {
+            references.volatileFormula = true;
+            return;
+        }
+        String refersTo = name.getRefersToFormula();
+        if (refersTo == null || refersTo.isEmpty()) {
+            return;
+        }
+        int nameSheetIndex = name.getSheetIndex() < 0 ? 0 : name.getSheetIndex();
+        collectReferences(FormulaParser.parse(refersTo, evaluationWorkbook, FormulaType.NAMEDRANGE, nameSheetIndex),
+            nameSheetIndex, references, nameDepth + 1);
+    }
+
+    /**
+     * @return the index of the sheet referenced by a token, -1 if it is not a sheet of the workbook
+     */
+    private int referencedSheet(Ptg ptg, int sheetIndex) {
+        if (ptg instanceof ExternSheetReferenceToken) {
+            int refSheetIndex = evaluationWorkbook.convertFromExternSheetIndex(((ExternSheetReferenceToken) ptg).getExternSheetIndex());
+            return refSheetIndex < workbook.getNumberOfSheets() ? refSheetIndex : -1;
+        }
+        return sheetIndex;
+    }
+
+    private static long columnKey(int sheetIndex, int columnIndex) {
+        return ((long) sheetIndex << 14) | columnIndex;
+    }
+
+    private static <K> void removeRange(Map<K, List<RangeReference>> rangesByKey, K key, RangeReference range) {
+        List<RangeReference> ranges = rangesByKey.get(key);
+        ranges.remove(range);
+        if (ranges.isEmpty()) {
+            rangesByKey.remove(key);
+        }
+    }
+
+    private static final class FormulaReferences {
+
+        private final Set<Long> cells = new HashSet<>();
+
+        private final List<RangeReference> ranges = new ArrayList<>();
+
+        private boolean volatileFormula;
+    }
+
+    private static final class RangeReference {
+
+        private final int sheetIndex;
+
+        private final int firstRow;
+
+        private final int lastRow;
+
+        private final int firstColumn;
+
+        private final int lastColumn;
+
+        private long formula;
+
+        RangeReference(int sheetIndex, int firstRow, int lastRow, int firstColumn, int lastColumn) {
+            this.sheetIndex = sheetIndex;
+            this.firstRow = firstRow;
+            this.lastRow = lastRow;
+            this.firstColumn = firstColumn;
+            this.lastColumn = lastColumn;
+        }
+
+        boolean contains(int rowIndex, int columnIndex) {
+            return rowIndex >= firstRow && rowIndex <= lastRow && columnIndex >= firstColumn && columnIndex <= lastColumn;
+        }
+    }
+}
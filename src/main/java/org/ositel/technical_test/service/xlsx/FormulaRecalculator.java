@@ -0,0 +1,159 @@
+package org.ositel.technical_test.service.xlsx;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.usermodel.XSSFCell;
+import org.apache.poi.xssf.usermodel.XSSFFormulaEvaluator;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCell;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Incremental recalculation of the formulas of a workbook as its cells are edited.
+ * <p>
+ * The workbook is loaded once with the graph of the dependencies of its formulas, and both are kept up to date by the
+ * edits applied through the recalculator, so that it can be kept between the writes of the file. After edits, only
+ * the formulas depending on the edited cells are evaluated again, in dependency order, with an evaluator which keeps
+ * the results of the other formulas it has already computed. A formula the evaluator does not support keeps its
+ * cached result.
+ */
+public final class FormulaRecalculator {
+
+    private final XSSFWorkbook workbook;
+
+    private final XSSFFormulaEvaluator evaluator;
+
+    private final FormulaDependencyGraph graph;
+
+    /**
+     * the keys of the cells edited since the last recalculation
+     */
+    private final Set<Long> changedCells = new LinkedHashSet<>();
+
+    private FormulaRecalculator(XSSFWorkbook workbook) {
+        this.workbook = workbook;
+        this.evaluator = new XSSFFormulaEvaluator(workbook);
+        this.graph = FormulaDependencyGraph.build(workbook);
+    }
+
+    /**
+     * Load a workbook and build the graph of its formulas.
+     *
+     * @param content the raw xlsx content
+     * @return the recalculator of the workbook
+     * @throws IOException if the content is not a valid xlsx package
+     */
+    public static FormulaRecalculator load(byte[] content) throws IOException {
+        return new FormulaRecalculator(new XSSFWorkbook(new ByteArrayInputStream(content)));
+    }
+
+    /**
+     * @return the number of formulas of the workbook
+     */
+    public int getFormulaCount() {
+        return graph.size();
+    }
+
+    /**
+     * Apply edits to the cells of the workbook, as {@link XlsxPackagePatcher#patch(Map, OutputStream)} writes them. An
+     * edited formula is replaced by the new value of its cell.
+     *
+     * @param cellEdits the edits of the sheets, by zero based sheet index
+     * @return the edited cells which did not exist in the sheets and have been created
+     */
+    public Set<CellReference> apply(Map<Integer, SheetCellEdits> cellEdits) {
+        Set<CellReference> createdCells = new HashSet<>();
+        for (Map.Entry<Integer, SheetCellEdits> sheetCellEdits : cellEdits.entrySet()) {
+            int sheetIndex = sheetCellEdits.getKey();
+            XSSFSheet sheet = workbook.getSheetAt(sheetIndex);
+            for (Map.Entry<Integer, TreeMap<Integer, String>> rowEdits : sheetCellEdits.getValue().getRows().entrySet()) {
+                XSSFRow row = sheet.getRow(rowEdits.getKey());
+                for (Map.Entry<Integer, String> cellEdit : rowEdits.getValue().entrySet()) {
+                    long cellKey = FormulaDependencyGraph.cellKey(sheetIndex, rowEdits.getKey(), cellEdit.getKey());
+                    XSSFCell cell = row == null ? null : row.getCell(cellEdit.getKey());
+                    if (cell != null && cell.getCellType() == Cell.CELL_TYPE_FORMULA) {
+                        // the evaluator forgets the formula and the results depending on it
+                        evaluator.notifyDeleteCell(cell);
+                        cell.setCellType(Cell.CELL_TYPE_BLANK);
+                        graph.removeFormula(cellKey);
+                    }
+                    changedCells.add(cellKey);
+                    if (cellEdit.getValue() == null) {
+                        if (cell != null) {
+                            evaluator.notifyDeleteCell(cell);
+                            row.removeCell(cell);
+                        }
+                        continue;
+                    }
+                    if (cell == null) {
+                        if (row == null) {
+                            row = sheet.createRow(rowEdits.getKey());
+                        }
+                        cell = row.createCell(cellEdit.getKey());
+                        createdCells.add(new CellReference(sheet.getSheetName(), rowEdits.getKey(), cellEdit.getKey(), false, false));
+                    }
+                    cell.setCellValue(cellEdit.getValue());
+                    evaluator.notifyUpdateCell(cell);
+                }
+            }
+        }
+        return createdCells;
+    }
+
+    /**
+     * Evaluate again the formulas depending on the cells edited since the last recalculation, and the volatile ones.
+     *
+     * @return the new cached results of the evaluated formulas, by zero based sheet index
+     */
+    public Map<Integer, SheetFormulaValues> recalculate() {
+        List<Long> affectedFormulas = graph.affectedFormulas(changedCells);
+        changedCells.clear();
+        Map<Integer, SheetFormulaValues> formulaValues = new HashMap<>();
+        for (Long cellKey : affectedFormulas) {
+            int sheetIndex = FormulaDependencyGraph.sheetIndexOf(cellKey);
+            int rowIndex = FormulaDependencyGraph.rowIndexOf(cellKey);
+            int columnIndex = FormulaDependencyGraph.columnIndexOf(cellKey);
+            XSSFRow row = workbook.getSheetAt(sheetIndex).getRow(rowIndex);
+            XSSFCell cell = row == null ? null : row.getCell(columnIndex);
+            if (cell == null || cell.getCellType() != Cell.CELL_TYPE_FORMULA) {
+                continue;
+            }
+            if (graph.isVolatile(cellKey)) {
+                // the result of a volatile formula is not invalidated by the evaluator
+                evaluator.notifyUpdateCell(cell);
+            }
+            try {
+                evaluator.evaluateFormulaCell(cell);
+            } catch (RuntimeException e) {
+                // the formula is not supported by the evaluator, its cached result is kept
+                continue;
+            }
+            CTCell ctCell = cell.getCTCell();
+            formulaValues.computeIfAbsent(sheetIndex, index -> new SheetFormulaValues()).put(rowIndex, columnIndex,
+                ctCell.isSetT() ? ctCell.getT().toString() : "n", ctCell.isSetV() ? ctCell.getV() : null);
+        }
+        return formulaValues;
+    }
+
+    /**
+     * Write the whole workbook with its edits and recomputed formulas, for the edits the patcher cannot write.
+     *
+     * @param out the stream receiving the content, not closed
+     * @throws IOException if the content cannot be written
+     */
+    public void write(OutputStream out) throws IOException {
+        workbook.write(out);
+    }
+}
@@ -0,0 +1,180 @@
+package org.ositel.technical_test.service.xlsx;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The formatted values of a whole sheet, kept in memory so that it can be read again without parsing the xlsx file.
+ * <p>
+ * Each row is an array indexed by column, null where the row has no cell, kept with its index in the sheet so that the
+ * rows missing from the sheet xml are skipped as they are by the {@link XlsxSheetReader}. The sheet is read again by
+ * replaying its rows to a {@link SheetRowHandler} as the reader would do, so the same handlers select the lines and
+ * columns of a query and the cell edits are applied to the same rows. The approximate number of bytes retained by the sheet is computed while it is built.
+ */
+public final class ParsedSheet implements ReplayableSheet {
+
+    /**
+     * object header, fields and char array header of a string
+     */
+    private static final long STRING_OVERHEAD = 40;
+
+    /**
+     * array header, reference in the list of rows and row index
+     */
+    private static final long ROW_OVERHEAD = 28;
+
+    private final int sheetIndex;
+
+    private final String sheetName;
+
+    private final List<String[]> rows;
+
+    /**
+     * the zero based indexes of the rows in the sheet, in ascending order
+     */
+    private final int[] rowIndexes;
+
+    private final long weight;
+
+    private ParsedSheet(int sheetIndex, String sheetName, List<String[]> rows, int[] rowIndexes, long weight) {
+        this.sheetIndex = sheetIndex;
+        this.sheetName = sheetName;
+        this.rows = Collections.unmodifiableList(rows);
+        this.rowIndexes = rowIndexes;
+        this.weight = weight;
+    }
+
+    @Override
+    public int getSheetIndex() {
+        return sheetIndex;
+    }
+
+    @Override
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    @Override
+    public long getLineCount() {
+        return Math.max(0, rows.size() - 1);
+    }
+
+    @Override
+    public long getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public boolean hasCell(int rowIndex, int columnIndex) {
+        int row = Arrays.binarySearch(rowIndexes, rowIndex);
+        return row >= 0 && columnIndex >= 0 && columnIndex < rows.get(row).length && rows.get(row)[columnIndex] != null;
+    }
+
+    /**
+     * @return the approximate number of bytes retained by the sheet
+     */
+    public long getWeight() {
+        return weight;
+    }
+
+    /**
+     * The cells are reported as strings holding their formatted value.
+     */
+    @Override
+    public void replay(SheetRowHandler rowHandler) throws IOException {
+        SheetCell cell = new SheetCell(null, null);
+        for (int row = 0; row < rows.size(); row++) {
+            String[] cells = rows.get(row);
+            int rowIndex = rowIndexes[row];
+            if (rowHandler.startRow(rowIndex)) {
+                for (int columnIndex = 0; columnIndex < cells.length; columnIndex++) {
+                    if (cells[columnIndex] != null && rowHandler.acceptsCell(columnIndex)) {
+                        cell.reset(false);
+                        cell.setText(SheetCell.Type.STRING, cells[columnIndex]);
+                        rowHandler.cell(columnIndex, cell);
+                    }
+                }
+            }
+            rowHandler.endRow(rowIndex);
+            if (rowHandler.isDone()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Row handler building a parsed sheet. The parsing stops as soon as the sheet retains more bytes than allowed,
+     * {@link #build()} then returns null.
+     */
+    public static final class Builder implements SheetRowHandler {
+
+        private final SheetDirectory.Entry entry;
+
+        private final long maxWeight;
+
+        private final List<String[]> rows = new ArrayList<>();
+
+        private int[] rowIndexes = new int[16];
+
+        private String[] currentRow = new String[16];
+
+        private int currentRowLength;
+
+        private long weight;
+
+        /**
+         * @param entry     the sheet being parsed
+         * @param maxWeight the maximum number of bytes the sheet may retain
+         */
+        public Builder(SheetDirectory.Entry entry, long maxWeight) {
+            this.entry = entry;
+            this.maxWeight = maxWeight;
+        }
+
+        @Override
+        public boolean startRow(int rowIndex) {
+            currentRowLength = 0;
+            return true;
+        }
+
+        @Override
+        public void cell(int columnIndex, SheetCell cell) {
+            if (columnIndex >= currentRow.length) {
+                currentRow = Arrays.copyOf(currentRow, Math.max(columnIndex + 1, currentRow.length * 2));
+            }
+            String value = cell.getFormattedValue();
+            currentRow[columnIndex] = value;
+            currentRowLength = columnIndex + 1;
+            weight += STRING_OVERHEAD + 2L * value.length();
+        }
+
+        @Override
+        public void endRow(int rowIndex) {
+            if (rows.size() == rowIndexes.length) {
+                rowIndexes = Arrays.copyOf(rowIndexes, rowIndexes.length * 2);
+            }
+            rowIndexes[rows.size()] = rowIndex;
+            rows.add(Arrays.copyOf(currentRow, currentRowLength));
+            Arrays.fill(currentRow, 0, currentRowLength, null);
+            weight += ROW_OVERHEAD + 4L * currentRowLength;
+        }
+
+        @Override
+        public boolean isDone() {
+            return weight > maxWeight;
+        }
+
+        /**
+         * @return the parsed sheet, null if it retains more bytes than allowed
+         */
+        public ParsedSheet build() {
+            if (isDone()) {
+                return null;
+            }
+            return new ParsedSheet(entry.getIndex(), entry.getName(), rows, Arrays.copyOf(rowIndexes, rows.size()), weight);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.ositel.technical_test.service.xlsx;
+
+import java.io.IOException;
+
+/**
+ * A sheet held outside of its xlsx file, read again without parsing the xlsx file.
+ * <p>
+ * The rows are replayed to a {@link SheetRowHandler} as the {@link XlsxSheetReader} would push them, so the same
+ * handlers select the lines and columns of a query. The rows are reported with their index in the sheet, the rows
+ * missing from the sheet being skipped.
+ */
+public interface ReplayableSheet {
+
+    int getSheetIndex();
+
+    String getSheetName();
+
+    /**
+     * @return the number of lines of the sheet, the header is not counted
+     */
+    long getLineCount();
+
+    /**
+     * @return the number of rows of the sheet, the header included
+     */
+    long getRowCount();
+
+    /**
+     * @param rowIndex    zero based index of the row in the sheet
+     * @param columnIndex zero based index of the column
+     * @return whether the sheet has a cell at the given row and column
+     */
+    boolean hasCell(int rowIndex, int columnIndex);
+
+    /**
+     * Push the rows of the sheet to the handler.
+     *
+     * @param rowHandler the handler receiving the rows
+     * @throws IOException if thrown by the handler
+     */
+    void replay(SheetRowHandler rowHandler) throws IOException;
+}
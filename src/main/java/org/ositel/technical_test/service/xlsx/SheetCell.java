@@ -0,0 +1,168 @@
+package org.ositel.technical_test.service.xlsx;
+
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.NumberToTextConverter;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+
+/**
+ * The cell being decoded by the {@link SheetXmlHandler}, with its value kept in primitive form.
+ * <p>
+ * A single instance is reused for all the cells of a sheet: it is only valid during the
+ * {@link SheetRowHandler#cell(int, SheetCell)} callback. Strings are resolved and numbers formatted only when
+ * {@link #getString()} or {@link #getFormattedValue()} is called, typed consumers never allocate them.
+ */
+public final class SheetCell {
+
+    /**
+     * Type of a cell, the cached value is used for formula cells.
+     */
+    public enum Type {
+        BLANK, NUMERIC, DATE, BOOLEAN, STRING, ERROR
+    }
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    /**
+     * excel serial date of 1970-01-01, in the 1900 date system
+     */
+    private static final int EPOCH_SERIAL_DATE = 25_569;
+
+    private final ReadOnlySharedStringsTable sharedStrings;
+
+    private final DataFormatter dataFormatter;
+
+    private Type type;
+
+    private boolean formula;
+
+    private double number;
+
+    private boolean bool;
+
+    private int sharedStringIndex;
+
+    private String text;
+
+    private short formatIndex;
+
+    private String formatString;
+
+    SheetCell(ReadOnlySharedStringsTable sharedStrings, DataFormatter dataFormatter) {
+        this.sharedStrings = sharedStrings;
+        this.dataFormatter = dataFormatter;
+    }
+
+    void reset(boolean formula) {
+        this.type = Type.BLANK;
+        this.formula = formula;
+        this.sharedStringIndex = -1;
+        this.text = null;
+    }
+
+    void setNumber(double number, short formatIndex, String formatString, boolean date) {
+        this.type = date ? Type.DATE : Type.NUMERIC;
+        this.number = number;
+        this.formatIndex = formatIndex;
+        this.formatString = formatString;
+    }
+
+    void setBoolean(boolean bool) {
+        this.type = Type.BOOLEAN;
+        this.bool = bool;
+    }
+
+    void setSharedString(int sharedStringIndex) {
+        this.type = Type.STRING;
+        this.sharedStringIndex = sharedStringIndex;
+    }
+
+    void setText(Type type, String text) {
+        this.type = type;
+        this.text = text;
+    }
+
+    short getFormatIndex() {
+        return formatIndex;
+    }
+
+    String getFormatString() {
+        return formatString;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return true if the cell holds a formula, its type and value are then the ones of the cached result
+     */
+    public boolean isFormula() {
+        return formula;
+    }
+
+    /**
+     * @return the value of a NUMERIC cell, or the excel serial date of a DATE cell
+     */
+    public double getNumber() {
+        return number;
+    }
+
+    /**
+     * The excel dates have no time zone, the date is returned as the number of milliseconds from the epoch to the
+     * same wall clock time in UTC.
+     *
+     * @return the value of a DATE cell
+     */
+    public long getDateMillis() {
+        // excel counts the 1900-02-29 which does not exist, the serial dates before it are shifted by one day
+        double days = number < 61 ? number - EPOCH_SERIAL_DATE + 1 : number - EPOCH_SERIAL_DATE;
+        return Math.round(days * MILLIS_PER_DAY);
+    }
+
+    /**
+     * @return the value of a BOOLEAN cell
+     */
+    public boolean getBoolean() {
+        return bool;
+    }
+
+    /**
+     * @return the value of a STRING or ERROR cell
+     */
+    public String getString() {
+        if (text == null && sharedStringIndex >= 0) {
+            text = sharedStrings.getEntryAt(sharedStringIndex);
+        }
+        return text;
+    }
+
+    /**
+     * @return the value of the cell as displayed by excel, empty for a blank cell
+     */
+    public String getFormattedValue() {
+        switch (type) {
+            case BLANK:
+                return "";
+            case NUMERIC:
+            case DATE:
+                if (formatString == null) {
+                    return NumberToTextConverter.toText(number);
+                }
+                return dataFormatter.formatRawCellContents(number, formatIndex, formatString);
+            case BOOLEAN:
+                return bool ? "TRUE" : "FALSE";
+            case ERROR:
+                return "ERROR:" + getString();
+            default:
+                return getString();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SheetCell{" +
+            "type=" + type +
+            ", value='" + getFormattedValue() + '\'' +
+            '}';
+    }
+}
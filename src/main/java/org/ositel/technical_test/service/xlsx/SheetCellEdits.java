@@ -0,0 +1,173 @@
+package org.ositel.technical_test.service.xlsx;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * The new values of cells of a sheet which are not written in the xlsx content yet, applied over the rows of the sheet
+ * while it is read.
+ * <p>
+ * An edited cell is reported as a string cell holding its new value in place of the cell of the sheet, or between the
+ * cells of its row if the sheet has no cell at its column. A null value removes the cell. The edited rows must exist
+ * in the sheet, a row without any cell is not reported.
+ */
+public final class SheetCellEdits {
+
+    private final NavigableMap<Integer, TreeMap<Integer, String>> rows = new TreeMap<>();
+
+    /**
+     * Set the new value of a cell, replacing the previous edit of the same cell.
+     *
+     * @param rowIndex    zero based index of the row of the cell
+     * @param columnIndex zero based index of the column of the cell
+     * @param value       the new value, null to clear the cell
+     */
+    public void put(int rowIndex, int columnIndex, String value) {
+        rows.computeIfAbsent(rowIndex, row -> new TreeMap<>()).put(columnIndex, value);
+    }
+
+    public boolean isEmpty() {
+        return rows.isEmpty();
+    }
+
+    /**
+     * @return the edited rows in row order, each of them holding the new values by column index
+     */
+    NavigableMap<Integer, TreeMap<Integer, String>> getRows() {
+        return rows;
+    }
+
+    /**
+     * @param rowHandler the handler to feed with the edited rows
+     * @return a handler applying the edits to the rows before pushing them to the given handler
+     */
+    public SheetRowHandler apply(SheetRowHandler rowHandler) {
+        return isEmpty() ? rowHandler : new EditingRowHandler(rowHandler);
+    }
+
+    /**
+     * @param sheet a sheet read from the xlsx content
+     * @return the sheet replaying its rows with the edits applied
+     */
+    public ReplayableSheet apply(ReplayableSheet sheet) {
+        if (isEmpty()) {
+            return sheet;
+        }
+        return new ReplayableSheet() {
+            @Override
+            public int getSheetIndex() {
+                return sheet.getSheetIndex();
+            }
+
+            @Override
+            public String getSheetName() {
+                return sheet.getSheetName();
+            }
+
+            @Override
+            public long getLineCount() {
+                return sheet.getLineCount();
+            }
+
+            @Override
+            public long getRowCount() {
+                return sheet.getRowCount();
+            }
+
+            /**
+             * the cells of the sheet read from the xlsx content, an edit never creates a cell
+             */
+            @Override
+            public boolean hasCell(int rowIndex, int columnIndex) {
+                return sheet.hasCell(rowIndex, columnIndex);
+            }
+
+            @Override
+            public void replay(SheetRowHandler rowHandler) throws IOException {
+                sheet.replay(new EditingRowHandler(rowHandler));
+            }
+        };
+    }
+
+    private final class EditingRowHandler implements SheetRowHandler {
+
+        private final SheetRowHandler rowHandler;
+
+        private final SheetCell editedCell = new SheetCell(null, null);
+
+        private Iterator<Map.Entry<Integer, String>> pendingEdits;
+
+        private Map.Entry<Integer, String> nextEdit;
+
+        EditingRowHandler(SheetRowHandler rowHandler) {
+            this.rowHandler = rowHandler;
+        }
+
+        @Override
+        public void dimension(int firstRowIndex, int lastRowIndex) throws IOException {
+            rowHandler.dimension(firstRowIndex, lastRowIndex);
+        }
+
+        @Override
+        public boolean startRow(int rowIndex) throws IOException {
+            boolean readingRow = rowHandler.startRow(rowIndex);
+            TreeMap<Integer, String> rowEdits = readingRow ? rows.get(rowIndex) : null;
+            pendingEdits = rowEdits == null ? null : rowEdits.entrySet().iterator();
+            nextEdit = pendingEdits == null ? null : pendingEdits.next();
+            return readingRow;
+        }
+
+        @Override
+        public boolean acceptsCell(int columnIndex) {
+            return rowHandler.acceptsCell(columnIndex);
+        }
+
+        @Override
+        public void cell(int columnIndex, SheetCell cell) throws IOException {
+            reportEditsBefore(columnIndex);
+            if (nextEdit != null && nextEdit.getKey() == columnIndex) {
+                reportEdit();
+            } else {
+                rowHandler.cell(columnIndex, cell);
+            }
+        }
+
+        @Override
+        public void endRow(int rowIndex) throws IOException {
+            reportEditsBefore(Integer.MAX_VALUE);
+            rowHandler.endRow(rowIndex);
+        }
+
+        @Override
+        public boolean isDone() {
+            return rowHandler.isDone();
+        }
+
+        /**
+         * report the edited cells of the current row which are not in the sheet and come before the given column
+         */
+        private void reportEditsBefore(int columnIndex) throws IOException {
+            while (nextEdit != null && nextEdit.getKey() < columnIndex) {
+                if (rowHandler.acceptsCell(nextEdit.getKey())) {
+                    reportEdit();
+                } else {
+                    nextEdit = pendingEdits.hasNext() ? pendingEdits.next() : null;
+                }
+            }
+        }
+
+        private void reportEdit() throws IOException {
+            int columnIndex = nextEdit.getKey();
+            String value = nextEdit.getValue();
+            nextEdit = pendingEdits.hasNext() ? pendingEdits.next() : null;
+            if (value != null) {
+                editedCell.reset(false);
+                editedCell.setText(SheetCell.Type.STRING, value);
+                rowHandler.cell(columnIndex, editedCell);
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.ositel.technical_test.service.xlsx;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Row handler exporting a sheet as RFC 4180 csv: the header names form the first record, the records end with CRLF
+ * and the fields holding a comma, a double quote or a line break are quoted.
+ */
+public class SheetCsvWriter extends SheetExportWriter {
+
+    private final Writer writer;
+
+    /**
+     * @param out     the stream to write the csv to, in utf-8
+     * @param columns the columns to export, given by header name or zero based index, empty to export all the columns
+     */
+    public SheetCsvWriter(OutputStream out, List<String> columns) {
+        super(columns);
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    protected void writeHeader(List<String> names) throws IOException {
+        writeRecord(names.toArray(new String[names.size()]));
+    }
+
+    @Override
+    protected void writeRecord(String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (values[i] != null) {
+                writeField(values[i]);
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writer.flush();
+    }
+
+    private void writeField(String value) throws IOException {
+        boolean quoted = false;
+        for (int i = 0; i < value.length() && !quoted; i++) {
+            char c = value.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quoted) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+}
@@ -0,0 +1,154 @@
+package org.ositel.technical_test.service.xlsx;
+
+import org.ositel.technical_test.web.rest.errors.BadRequestAlertException;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The sheets of a workbook, in workbook order, as declared in {@code xl/workbook.xml}.
+ * <p>
+ * Only the workbook part is parsed to build the directory, each entry keeps the relationship id of its sheet part so
+ * that the part of the requested sheet can be inflated without touching the other ones.
+ */
+public class SheetDirectory {
+
+    private static final String RELATIONSHIPS_NAMESPACE = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    private static final SAXParserFactory SAX_PARSER_FACTORY = XmlParsers.newSaxParserFactory();
+
+    private final List<Entry> entries;
+
+    private SheetDirectory(List<Entry> entries) {
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Parse the sheets declared in the workbook part, without any DTD nor external entity.
+     *
+     * @param workbookXml the content of {@code xl/workbook.xml}
+     * @return the sheet directory
+     * @throws IOException if the workbook part cannot be parsed
+     */
+    static SheetDirectory parse(InputStream workbookXml) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try {
+            XMLReader xmlReader = SAX_PARSER_FACTORY.newSAXParser().getXMLReader();
+            xmlReader.setContentHandler(new DefaultHandler() {
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                    if ("sheet".equals(localName)) {
+                        entries.add(new Entry(entries.size(), attributes.getValue("name"), attributes.getValue(RELATIONSHIPS_NAMESPACE, "id")));
+                    }
+                }
+            });
+            xmlReader.parse(new InputSource(workbookXml));
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("The workbook xml cannot be parsed", e);
+        }
+        return new SheetDirectory(entries);
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return the names of the sheets, in workbook order
+     */
+    public List<String> getNames() {
+        List<String> names = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            names.add(entry.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Find the sheet selected by name or by zero based index, the name being tried first.
+     *
+     * @param sheet the name or the index of the sheet, null for the first sheet
+     * @return the entry of the sheet
+     * @throws BadRequestAlertException if no sheet matches
+     */
+    public Entry resolve(String sheet) {
+        return entries.get(resolveIndex(getNames(), sheet));
+    }
+
+    /**
+     * Find the index of the sheet selected by name or by zero based index, the name being tried first.
+     *
+     * @param sheetNames the names of the sheets of the workbook, in workbook order
+     * @param sheet      the name or the index of the sheet, null for the first sheet
+     * @return the index of the sheet
+     * @throws BadRequestAlertException if no sheet matches
+     */
+    public static int resolveIndex(List<String> sheetNames, String sheet) {
+        if (sheet == null) {
+            if (sheetNames.isEmpty()) {
+                throw new BadRequestAlertException("The workbook does not contain any sheet", "XlsxFile", "sheet.doesNotExist");
+            }
+            return 0;
+        }
+        int index = sheetNames.indexOf(sheet);
+        if (index < 0) {
+            try {
+                index = Integer.parseInt(sheet.trim());
+            } catch (NumberFormatException e) {
+                index = -1;
+            }
+        }
+        if (index < 0 || index >= sheetNames.size()) {
+            throw new BadRequestAlertException("The sheet {" + sheet + "} you requested does not exist", "XlsxFile", "sheet.doesNotExist");
+        }
+        return index;
+    }
+
+    /**
+     * A sheet of the workbook.
+     */
+    public static final class Entry {
+
+        private final int index;
+
+        private final String name;
+
+        private final String relationshipId;
+
+        Entry(int index, String name, String relationshipId) {
+            this.index = index;
+            this.name = name;
+            this.relationshipId = relationshipId;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        String getRelationshipId() {
+            return relationshipId;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{" +
+                "index=" + index +
+                ", name='" + name + '\'' +
+                '}';
+        }
+    }
+}
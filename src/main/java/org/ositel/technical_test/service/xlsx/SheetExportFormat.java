@@ -0,0 +1,57 @@
+package org.ositel.technical_test.service.xlsx;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * The formats a sheet can be exported to.
+ */
+public enum SheetExportFormat {
+
+    NDJSON("application/x-ndjson", "ndjson"),
+
+    CSV("text/csv;charset=UTF-8", "csv");
+
+    private final String contentType;
+
+    private final String extension;
+
+    SheetExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @param out     the stream to export the sheet to
+     * @param columns the columns to export, given by header name or zero based index, empty to export all the columns
+     * @return the row handler exporting the sheet
+     */
+    public SheetExportWriter createWriter(OutputStream out, List<String> columns) throws IOException {
+        if (this == CSV) {
+            return new SheetCsvWriter(out, columns);
+        }
+        return new SheetNdjsonWriter(out, columns);
+    }
+
+    /**
+     * @param extension the extension of the format, case insensitive
+     * @return the format, null if no format has this extension
+     */
+    public static SheetExportFormat fromExtension(String extension) {
+        for (SheetExportFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(extension)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
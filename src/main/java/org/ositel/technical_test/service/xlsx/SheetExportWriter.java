@@ -0,0 +1,76 @@
+package org.ositel.technical_test.service.xlsx;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Base row handler exporting a sheet record by record while it is being read.
+ * <p>
+ * Each line is written as a record aligned on the header: a cell is placed under the header column it belongs to and
+ * the missing cells are left null. The cells of the columns without header are not exported. Only the current line
+ * is held in memory, so a sheet of any size is exported in constant memory.
+ */
+public abstract class SheetExportWriter extends SheetQueryRowHandler {
+
+    private int[] positions = new int[0];
+
+    private String[] record;
+
+    /**
+     * @param columns the columns to export, given by header name or zero based index, empty to export all the columns
+     */
+    protected SheetExportWriter(List<String> columns) {
+        super(new SheetQuery().columns(columns), null);
+    }
+
+    /**
+     * called once with the names of the exported columns
+     */
+    protected abstract void writeHeader(List<String> names) throws IOException;
+
+    /**
+     * called for every line of the sheet
+     *
+     * @param values the formatted values of the line, indexed as the header names, null for a missing cell. The array
+     *               is reused for the next line
+     */
+    protected abstract void writeRecord(String[] values) throws IOException;
+
+    /**
+     * Flush the export once the whole sheet has been read.
+     */
+    public abstract void finish() throws IOException;
+
+    @Override
+    protected void header(List<Integer> columnIndexes, List<String> names) throws IOException {
+        int maxColumnIndex = -1;
+        for (Integer columnIndex : columnIndexes) {
+            maxColumnIndex = Math.max(maxColumnIndex, columnIndex);
+        }
+        positions = new int[maxColumnIndex + 1];
+        Arrays.fill(positions, -1);
+        for (int i = 0; i < columnIndexes.size(); i++) {
+            positions[columnIndexes.get(i)] = i;
+        }
+        record = new String[names.size()];
+        writeHeader(names);
+    }
+
+    @Override
+    protected void startLine(long line) {
+        Arrays.fill(record, null);
+    }
+
+    @Override
+    protected void lineCell(int columnIndex, SheetCell cell) {
+        if (columnIndex < positions.length && positions[columnIndex] >= 0) {
+            record[positions[columnIndex]] = cell.getFormattedValue();
+        }
+    }
+
+    @Override
+    protected void endLine(long line) throws IOException {
+        writeRecord(record);
+    }
+}
@@ -0,0 +1,59 @@
+package org.ositel.technical_test.service.xlsx;
+
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * The results of the formulas of a sheet computed again after cells have changed, to be written as the cached values
+ * of the formula cells while their formulas are kept.
+ */
+public final class SheetFormulaValues {
+
+    private final NavigableMap<Integer, TreeMap<Integer, FormulaValue>> rows = new TreeMap<>();
+
+    /**
+     * Set the cached result of a formula cell.
+     *
+     * @param rowIndex    zero based index of the row of the cell
+     * @param columnIndex zero based index of the column of the cell
+     * @param type        the type of the result as written in the sheet xml, "n" for a number
+     * @param value       the result as written in the sheet xml, null if there is none
+     */
+    public void put(int rowIndex, int columnIndex, String type, String value) {
+        rows.computeIfAbsent(rowIndex, row -> new TreeMap<>()).put(columnIndex, new FormulaValue(type, value));
+    }
+
+    public boolean isEmpty() {
+        return rows.isEmpty();
+    }
+
+    /**
+     * @return the rows holding recomputed formulas in row order, each of them holding the results by column index
+     */
+    NavigableMap<Integer, TreeMap<Integer, FormulaValue>> getRows() {
+        return rows;
+    }
+
+    /**
+     * The cached result of a formula.
+     */
+    static final class FormulaValue {
+
+        private final String type;
+
+        private final String value;
+
+        FormulaValue(String type, String value) {
+            this.type = type;
+            this.value = value;
+        }
+
+        String getType() {
+            return type;
+        }
+
+        String getValue() {
+            return value;
+        }
+    }
+}
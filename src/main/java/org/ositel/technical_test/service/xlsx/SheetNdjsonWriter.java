@@ -0,0 +1,61 @@
+package org.ositel.technical_test.service.xlsx;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Row handler exporting a sheet as newline delimited json: every line of the sheet is written as a json object on its
+ * own line, keyed by the header names. The missing cells are not written.
+ */
+public class SheetNdjsonWriter extends SheetExportWriter {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonGenerator generator;
+
+    private String[] names;
+
+    private boolean written;
+
+    /**
+     * @param out     the stream to write the json objects to
+     * @param columns the columns to export, given by header name or zero based index, empty to export all the columns
+     */
+    public SheetNdjsonWriter(OutputStream out, List<String> columns) throws IOException {
+        super(columns);
+        this.generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8);
+        this.generator.setRootValueSeparator(new SerializedString("\n"));
+    }
+
+    @Override
+    protected void writeHeader(List<String> names) {
+        this.names = names.toArray(new String[names.size()]);
+    }
+
+    @Override
+    protected void writeRecord(String[] values) throws IOException {
+        generator.writeStartObject();
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                generator.writeStringField(names[i], values[i]);
+            }
+        }
+        generator.writeEndObject();
+        written = true;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (written) {
+            // the separator is only written between the objects, the last line is ended here
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+    }
+}
@@ -0,0 +1,81 @@
+package org.ositel.technical_test.service.xlsx;
+
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The part of a workbook requested by a read: a sheet, a page of its lines and a subset of its columns.
+ */
+public class SheetQuery {
+
+    private String sheet;
+
+    private Pageable pageable;
+
+    private List<String> columns = new ArrayList<>();
+
+    public String getSheet() {
+        return sheet;
+    }
+
+    /**
+     * @param sheet the name or the zero based index of the sheet to read. null to read the first sheet
+     */
+    public SheetQuery sheet(String sheet) {
+        this.sheet = sheet;
+        return this;
+    }
+
+    public Pageable getPageable() {
+        return pageable;
+    }
+
+    /**
+     * @param pageable the page of lines to read, the header is not counted as a line. null to read all the lines
+     */
+    public SheetQuery pageable(Pageable pageable) {
+        this.pageable = pageable;
+        return this;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * @param columns the columns to read, given by header name or zero based index. empty to read all the columns
+     */
+    public SheetQuery columns(List<String> columns) {
+        this.columns = columns == null ? new ArrayList<>() : columns;
+        return this;
+    }
+
+    public boolean isPaged() {
+        return pageable != null;
+    }
+
+    /**
+     * @return index of the first line to read, inclusive
+     */
+    public long getFirstLine() {
+        return pageable == null ? 0 : pageable.getOffset();
+    }
+
+    /**
+     * @return index of the last line to read, exclusive
+     */
+    public long getLastLine() {
+        return pageable == null ? Long.MAX_VALUE : (long) pageable.getOffset() + pageable.getPageSize();
+    }
+
+    @Override
+    public String toString() {
+        return "SheetQuery{" +
+            "sheet='" + sheet + '\'' +
+            ", pageable=" + pageable +
+            ", columns=" + columns +
+            '}';
+    }
+}
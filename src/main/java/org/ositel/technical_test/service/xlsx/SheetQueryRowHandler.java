@@ -0,0 +1,151 @@
+package org.ositel.technical_test.service.xlsx;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base row handler reading the part of a sheet selected by a {@link SheetQuery}.
+ * <p>
+ * The first row of the sheet is the header, the next rows are the lines. The lines outside of the page are skipped
+ * and just counted, the cells outside of the column projection are not decoded and the parsing stops after the last
+ * line of the page unless the lines have to be counted.
+ */
+public abstract class SheetQueryRowHandler implements SheetRowHandler {
+
+    private final long firstLine;
+
+    private final long lastLine;
+
+    private final ColumnProjection projection;
+
+    private final Long knownLineCount;
+
+    private final List<Integer> headerColumnIndexes = new ArrayList<>();
+
+    private final List<String> headerColumns = new ArrayList<>();
+
+    private boolean headerHasBeenRead;
+
+    private long lineCount;
+
+    /**
+     * @param query          the lines and columns to read
+     * @param knownLineCount the number of lines of the sheet if it is already known, null to parse the whole sheet
+     *                       in order to count them
+     */
+    protected SheetQueryRowHandler(SheetQuery query, Long knownLineCount) {
+        this.firstLine = query.getFirstLine();
+        this.lastLine = query.getLastLine();
+        this.projection = new ColumnProjection(query.getColumns());
+        this.knownLineCount = knownLineCount;
+    }
+
+    /**
+     * called once the header has been read, with the columns kept by the projection
+     *
+     * @param columnIndexes zero based indexes of the columns
+     * @param names         names of the columns
+     */
+    protected abstract void header(List<Integer> columnIndexes, List<String> names) throws IOException;
+
+    /**
+     * called when a line of the page starts
+     *
+     * @param line zero based index of the line, the header is not counted
+     */
+    protected abstract void startLine(long line) throws IOException;
+
+    /**
+     * called for every cell of the current line kept by the projection
+     */
+    protected abstract void lineCell(int columnIndex, SheetCell cell) throws IOException;
+
+    /**
+     * called when a line of the page ends
+     *
+     * @param line zero based index of the line, the header is not counted
+     */
+    protected abstract void endLine(long line) throws IOException;
+
+    @Override
+    public final boolean startRow(int rowIndex) throws IOException {
+        if (!headerHasBeenRead) {
+            return true;
+        }
+        if (!isInPage()) {
+            return false;
+        }
+        startLine(lineCount);
+        return true;
+    }
+
+    @Override
+    public final boolean acceptsCell(int columnIndex) {
+        return projection.includes(columnIndex);
+    }
+
+    @Override
+    public final void cell(int columnIndex, SheetCell cell) throws IOException {
+        if (headerHasBeenRead) {
+            lineCell(columnIndex, cell);
+        } else {
+            String name = cell.getFormattedValue();
+            projection.headerCell(columnIndex, name);
+            headerColumnIndexes.add(columnIndex);
+            headerColumns.add(name);
+        }
+    }
+
+    @Override
+    public final void endRow(int rowIndex) throws IOException {
+        if (headerHasBeenRead) {
+            if (isInPage()) {
+                endLine(lineCount);
+            }
+            lineCount++;
+            return;
+        }
+        headerHasBeenRead = true;
+        projection.resolve();
+        List<Integer> columnIndexes = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < headerColumnIndexes.size(); i++) {
+            if (projection.includes(headerColumnIndexes.get(i))) {
+                columnIndexes.add(headerColumnIndexes.get(i));
+                names.add(headerColumns.get(i));
+            }
+        }
+        header(columnIndexes, names);
+    }
+
+    @Override
+    public final boolean isDone() {
+        return knownLineCount != null && headerHasBeenRead && lineCount >= lastLine;
+    }
+
+    private boolean isInPage() {
+        return lineCount >= firstLine && lineCount < lastLine;
+    }
+
+    public boolean isCountingLines() {
+        return knownLineCount == null;
+    }
+
+    /**
+     * @return the number of lines of the sheet, the header is not counted
+     */
+    public long getTotalLines() {
+        return knownLineCount == null ? lineCount : knownLineCount;
+    }
+
+    /**
+     * @return the number of rows of the sheet, the header included
+     */
+    public long getRowCount() {
+        if (knownLineCount != null) {
+            return knownLineCount + 1;
+        }
+        return headerHasBeenRead ? lineCount + 1 : 0;
+    }
+}
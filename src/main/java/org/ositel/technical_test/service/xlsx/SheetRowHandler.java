@@ -0,0 +1,64 @@
+package org.ositel.technical_test.service.xlsx;
+
+import java.io.IOException;
+
+/**
+ * Callback receiving the rows of a sheet while it is being parsed by the {@link XlsxSheetReader}.
+ * <p>
+ * Rows and cells are pushed in document order, only the cells physically present in the sheet xml are reported.
+ * An {@link IOException} thrown by a callback stops the parsing and is rethrown by the reader.
+ */
+public interface SheetRowHandler {
+
+    /**
+     * called before the first row when the sheet declares the range of its cells, which may be inexact as it is
+     * written by the application that saved the workbook
+     *
+     * @param firstRowIndex zero based index of the first row of the sheet
+     * @param lastRowIndex  zero based index of the last row of the sheet
+     */
+    default void dimension(int firstRowIndex, int lastRowIndex) throws IOException {
+    }
+
+    /**
+     * called when a new row starts
+     *
+     * @param rowIndex zero based index of the row in the sheet
+     * @return false to skip the row, its cells are then neither decoded nor reported
+     */
+    boolean startRow(int rowIndex) throws IOException;
+
+    /**
+     * called before a cell of the current row is decoded
+     *
+     * @param columnIndex zero based index of the column of the cell
+     * @return false to skip the cell, its value is then neither decoded nor reported
+     */
+    default boolean acceptsCell(int columnIndex) {
+        return true;
+    }
+
+    /**
+     * called for every accepted cell of the current row
+     *
+     * @param columnIndex zero based index of the column of the cell
+     * @param cell        the decoded cell, reused for the next cells: it must not be kept after the call
+     */
+    void cell(int columnIndex, SheetCell cell) throws IOException;
+
+    /**
+     * called when the current row ends
+     *
+     * @param rowIndex zero based index of the row in the sheet
+     */
+    void endRow(int rowIndex) throws IOException;
+
+    /**
+     * checked after every row, the parsing of the sheet stops as soon as the handler does not need any further row
+     *
+     * @return true if the remaining rows of the sheet can be ignored
+     */
+    default boolean isDone() {
+        return false;
+    }
+}
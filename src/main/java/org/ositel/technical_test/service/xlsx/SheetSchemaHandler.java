@@ -0,0 +1,86 @@
+package org.ositel.technical_test.service.xlsx;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Row handler reading the schema of a sheet: the names of the header columns, the types of the columns inferred from
+ * the first lines and the number of rows declared by the dimension of the sheet. The parsing stops once the sampled
+ * lines have been read, so the cost does not depend on the size of the sheet.
+ */
+public class SheetSchemaHandler implements SheetRowHandler {
+
+    private final int sampleLines;
+
+    private final List<ColumnStatisticsHandler.ColumnStatistics> columns = new ArrayList<>();
+
+    private final Map<Integer, ColumnStatisticsHandler.ColumnStatistics> columnsByIndex = new HashMap<>();
+
+    private Long dimensionRowCount;
+
+    private boolean headerHasBeenRead;
+
+    private int sampledLines;
+
+    /**
+     * @param sampleLines the number of lines read after the header to infer the types of the columns
+     */
+    public SheetSchemaHandler(int sampleLines) {
+        this.sampleLines = sampleLines;
+    }
+
+    @Override
+    public void dimension(int firstRowIndex, int lastRowIndex) {
+        this.dimensionRowCount = (long) lastRowIndex - firstRowIndex + 1;
+    }
+
+    @Override
+    public boolean startRow(int rowIndex) {
+        return true;
+    }
+
+    @Override
+    public void cell(int columnIndex, SheetCell cell) {
+        if (!headerHasBeenRead) {
+            ColumnStatisticsHandler.ColumnStatistics column = new ColumnStatisticsHandler.ColumnStatistics(columnIndex,
+                cell.getFormattedValue());
+            columns.add(column);
+            columnsByIndex.put(columnIndex, column);
+            return;
+        }
+        ColumnStatisticsHandler.ColumnStatistics column = columnsByIndex.get(columnIndex);
+        if (column != null) {
+            column.add(cell);
+        }
+    }
+
+    @Override
+    public void endRow(int rowIndex) {
+        if (headerHasBeenRead) {
+            sampledLines++;
+        }
+        headerHasBeenRead = true;
+    }
+
+    @Override
+    public boolean isDone() {
+        return headerHasBeenRead && sampledLines >= sampleLines;
+    }
+
+    /**
+     * @return the columns of the header, typed from the sampled lines
+     */
+    public List<ColumnStatisticsHandler.ColumnStatistics> getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the number of rows declared by the dimension of the sheet, the header included, null if the sheet does
+     * not declare it
+     */
+    public Long getDimensionRowCount() {
+        return dimensionRowCount;
+    }
+}
@@ -0,0 +1,302 @@
+package org.ositel.technical_test.service.xlsx;
+
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * SAX handler decoding the {@code sheetData} of a worksheet part and pushing its rows to a {@link SheetRowHandler}.
+ * <p>
+ * Only the current cell is held in memory, so the memory used while parsing depends on the width of a row and
+ * not on the size of the sheet. Cells are decoded to their type into a single reused {@link SheetCell}, the number
+ * format of each style being looked up once per sheet.
+ */
+class SheetXmlHandler extends DefaultHandler {
+
+    private static final NumberStyle GENERAL = new NumberStyle((short) 0, BuiltinFormats.getBuiltinFormat(0), false);
+
+    private final StylesTable styles;
+
+    private final SheetRowHandler rowHandler;
+
+    private final SheetCell cell;
+
+    private NumberStyle[] numberStyles = new NumberStyle[16];
+
+    private final StringBuilder value = new StringBuilder(64);
+
+    private int rowIndex = -1;
+
+    private int columnIndex = -1;
+
+    private String cellType;
+
+    private String cellStyle;
+
+    private boolean cellHasValue;
+
+    private boolean cellHasFormula;
+
+    private boolean readingValue;
+
+    private boolean insideInlineString;
+
+    private boolean skippingRow;
+
+    private boolean skippingCell;
+
+    SheetXmlHandler(ReadOnlySharedStringsTable sharedStrings, StylesTable styles, SheetRowHandler rowHandler) {
+        this.styles = styles;
+        this.rowHandler = rowHandler;
+        this.cell = new SheetCell(sharedStrings, new DataFormatter());
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+        if ((skippingRow && !"row".equals(localName)) || skippingCell) {
+            return;
+        }
+        switch (localName) {
+            case "dimension":
+                reportDimension(attributes.getValue("ref"));
+                break;
+            case "row":
+                String rowRef = attributes.getValue("r");
+                rowIndex = rowRef == null ? rowIndex + 1 : Integer.parseInt(rowRef) - 1;
+                columnIndex = -1;
+                try {
+                    skippingRow = !rowHandler.startRow(rowIndex);
+                } catch (IOException e) {
+                    throw new SAXException(e);
+                }
+                break;
+            case "c":
+                String cellRef = attributes.getValue("r");
+                columnIndex = cellRef == null ? columnIndex + 1 : columnIndexOf(cellRef);
+                if (!rowHandler.acceptsCell(columnIndex)) {
+                    skippingCell = true;
+                    break;
+                }
+                cellType = attributes.getValue("t");
+                cellStyle = attributes.getValue("s");
+                cellHasValue = false;
+                cellHasFormula = false;
+                value.setLength(0);
+                break;
+            case "f":
+                cellHasFormula = true;
+                break;
+            case "is":
+                insideInlineString = true;
+                break;
+            case "v":
+                readingValue = true;
+                cellHasValue = true;
+                break;
+            case "t":
+                if (insideInlineString) {
+                    readingValue = true;
+                    cellHasValue = true;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        if (skippingRow && !"row".equals(localName)) {
+            return;
+        }
+        if (skippingCell) {
+            skippingCell = !"c".equals(localName);
+            return;
+        }
+        switch (localName) {
+            case "row":
+                skippingRow = false;
+                try {
+                    rowHandler.endRow(rowIndex);
+                } catch (IOException e) {
+                    throw new SAXException(e);
+                }
+                if (rowHandler.isDone()) {
+                    throw new StopParsingException();
+                }
+                break;
+            case "c":
+                try {
+                    decodeCell();
+                    rowHandler.cell(columnIndex, cell);
+                } catch (IOException e) {
+                    throw new SAXException(e);
+                }
+                break;
+            case "is":
+                insideInlineString = false;
+                break;
+            case "v":
+            case "t":
+                readingValue = false;
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+        if (readingValue) {
+            value.append(ch, start, length);
+        }
+    }
+
+    private void decodeCell() {
+        cell.reset(cellHasFormula);
+        if (!cellHasValue) {
+            return;
+        }
+        if (cellType == null || "n".equals(cellType)) {
+            NumberStyle numberStyle = numberStyle();
+            double number = Double.parseDouble(value.toString());
+            cell.setNumber(number, numberStyle.formatIndex, numberStyle.formatString,
+                numberStyle.date && DateUtil.isValidExcelDate(number));
+            return;
+        }
+        switch (cellType) {
+            case "s":
+                cell.setSharedString(Integer.parseInt(value.toString()));
+                break;
+            case "b":
+                cell.setBoolean(value.length() == 1 && value.charAt(0) == '1');
+                break;
+            case "e":
+                cell.setText(SheetCell.Type.ERROR, value.toString());
+                break;
+            default:
+                // inline strings, formula strings and iso dates are stored as text
+                cell.setText(SheetCell.Type.STRING, value.toString());
+                break;
+        }
+    }
+
+    private NumberStyle numberStyle() {
+        if (cellStyle == null || styles == null) {
+            return GENERAL;
+        }
+        int styleIndex = Integer.parseInt(cellStyle);
+        if (styleIndex >= numberStyles.length) {
+            numberStyles = Arrays.copyOf(numberStyles, Math.max(styleIndex + 1, numberStyles.length * 2));
+        }
+        NumberStyle numberStyle = numberStyles[styleIndex];
+        if (numberStyle == null) {
+            XSSFCellStyle style = styles.getStyleAt(styleIndex);
+            short formatIndex = style.getDataFormat();
+            String formatString = style.getDataFormatString();
+            if (formatString == null) {
+                formatString = BuiltinFormats.getBuiltinFormat(formatIndex);
+            }
+            numberStyle = new NumberStyle(formatIndex, formatString,
+                formatString != null && DateUtil.isADateFormat(formatIndex, formatString));
+            numberStyles[styleIndex] = numberStyle;
+        }
+        return numberStyle;
+    }
+
+    /**
+     * report the rows of a dimension such as {@code A1:C500001}, or {@code A1} for a sheet holding a single cell
+     */
+    private void reportDimension(String ref) throws SAXException {
+        if (ref == null) {
+            return;
+        }
+        int separator = ref.indexOf(':');
+        // a single cell is the placeholder written by the libraries not tracking the used range, POI among them
+        if (separator < 0) {
+            return;
+        }
+        int firstRowIndex = rowIndexOf(ref.substring(0, separator));
+        int lastRowIndex = rowIndexOf(ref.substring(separator + 1));
+        if (firstRowIndex < 0 || lastRowIndex < firstRowIndex) {
+            return;
+        }
+        try {
+            rowHandler.dimension(firstRowIndex, lastRowIndex);
+        } catch (IOException e) {
+            throw new SAXException(e);
+        }
+    }
+
+    /**
+     * compute the zero based row index of a cell reference such as {@code AB12}
+     *
+     * @return the row index, -1 if the reference has no row
+     */
+    static int rowIndexOf(String cellRef) {
+        int row = 0;
+        boolean hasRow = false;
+        for (int i = 0; i < cellRef.length(); i++) {
+            char c = cellRef.charAt(i);
+            if (c >= '0' && c <= '9') {
+                row = row * 10 + (c - '0');
+                hasRow = true;
+            }
+        }
+        return hasRow ? row - 1 : -1;
+    }
+
+    /**
+     * compute the zero based column index of a cell reference such as {@code AB12}
+     */
+    static int columnIndexOf(String cellRef) {
+        int column = 0;
+        for (int i = 0; i < cellRef.length(); i++) {
+            char c = cellRef.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            column = column * 26 + (c - 'A' + 1);
+        }
+        return column - 1;
+    }
+
+    /**
+     * thrown to stop the SAX parser once the row handler is done, caught by the reader
+     */
+    static final class StopParsingException extends SAXException {
+
+        private static final long serialVersionUID = 1L;
+
+        StopParsingException() {
+            super("The row handler does not need any further row");
+        }
+    }
+
+    /**
+     * number format of a cell style
+     */
+    private static final class NumberStyle {
+
+        private final short formatIndex;
+
+        private final String formatString;
+
+        private final boolean date;
+
+        NumberStyle(short formatIndex, String formatString, boolean date) {
+            this.formatIndex = formatIndex;
+            this.formatString = formatString;
+            this.date = date;
+        }
+    }
+}
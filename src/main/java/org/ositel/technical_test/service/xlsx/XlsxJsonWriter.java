@@ -0,0 +1,134 @@
+package org.ositel.technical_test.service.xlsx;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Row handler writing a sheet as json while it is being parsed.
+ * <p>
+ * The document has the same shape as {@link org.ositel.technical_test.service.dto.XlsxFileDTO}: the first row is
+ * written in {@code headerColumns} and the next ones in {@code linesValues}, each row being handed to the
+ * generator as soon as it has been decoded, followed by {@code totalLines}. The header row is buffered until the
+ * {@link ColumnProjection} is resolved.
+ */
+public class XlsxJsonWriter implements SheetRowHandler {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonGenerator generator;
+
+    private final ColumnProjection projection;
+
+    private final List<Integer> headerColumnIndexes = new ArrayList<>();
+
+    private final List<String> headerColumns = new ArrayList<>();
+
+    private boolean headerHasBeenRead;
+
+    private long lineCount;
+
+    /**
+     * @param out     the stream to write the json to
+     * @param columns the columns to write, given by header name or zero based index. empty to write all the columns
+     */
+    public XlsxJsonWriter(OutputStream out, List<String> columns) throws IOException {
+        this.generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8);
+        this.projection = new ColumnProjection(columns);
+    }
+
+    /**
+     * Stream a sheet of the reader as json.
+     *
+     * @param fileName the name of the xlsx file
+     * @param entry    the sheet to write, from the sheet directory of the reader
+     * @param reader   the reader of the xlsx file
+     * @throws IOException            if the sheet cannot be read or written
+     * @throws InvalidFormatException if the workbook is corrupted
+     */
+    public void write(String fileName, SheetDirectory.Entry entry, XlsxSheetReader reader) throws IOException, InvalidFormatException {
+        writeStart(fileName, entry);
+        reader.readSheet(entry, this);
+        writeEnd();
+    }
+
+    /**
+     * Write the beginning of the document, before the rows of the sheet are pushed to this handler.
+     *
+     * @param fileName the name of the xlsx file
+     * @param entry    the sheet to write
+     */
+    public void writeStart(String fileName, SheetDirectory.Entry entry) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("fileName", fileName);
+        generator.writeStringField("sheetName", entry.getName());
+        generator.writeArrayFieldStart("headerColumns");
+    }
+
+    /**
+     * Write the end of the document, once all the rows of the sheet have been pushed to this handler.
+     */
+    public void writeEnd() throws IOException {
+        if (!headerHasBeenRead) {
+            // empty sheet, the header array is still open
+            endHeader();
+        }
+        generator.writeEndArray();
+        generator.writeNumberField("totalLines", lineCount);
+        generator.writeEndObject();
+        generator.flush();
+    }
+
+    @Override
+    public boolean startRow(int rowIndex) throws IOException {
+        if (headerHasBeenRead) {
+            generator.writeStartArray();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean acceptsCell(int columnIndex) {
+        return projection.includes(columnIndex);
+    }
+
+    @Override
+    public void cell(int columnIndex, SheetCell cell) throws IOException {
+        String value = cell.getFormattedValue();
+        if (headerHasBeenRead) {
+            generator.writeString(value);
+        } else {
+            projection.headerCell(columnIndex, value);
+            headerColumnIndexes.add(columnIndex);
+            headerColumns.add(value);
+        }
+    }
+
+    @Override
+    public void endRow(int rowIndex) throws IOException {
+        if (headerHasBeenRead) {
+            generator.writeEndArray();
+            lineCount++;
+        } else {
+            headerHasBeenRead = true;
+            endHeader();
+        }
+    }
+
+    private void endHeader() throws IOException {
+        projection.resolve();
+        for (int i = 0; i < headerColumns.size(); i++) {
+            if (projection.includes(headerColumnIndexes.get(i))) {
+                generator.writeString(headerColumns.get(i));
+            }
+        }
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("linesValues");
+    }
+}
@@ -0,0 +1,633 @@
+package org.ositel.technical_test.service.xlsx;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.ss.util.CellReference;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+
+/**
+ * Writer of cell edits in a xlsx content which does not build the object model of the workbook.
+ * <p>
+ * Only the xml parts of the edited sheets are rewritten, as a stream of StAX events in which the edited cells are
+ * replaced by inline strings, so that the shared strings part is left untouched. Every other entry of the zip is
+ * copied raw, without being inflated and deflated again. The recomputed results of formulas are written in place of
+ * the cached values of their cells, the formulas being kept. An edit which cannot be written this way, such as the
+ * replacement of a formula listed in the calculation chain, fails with an {@link UnsupportedPatchException}.
+ */
+public final class XlsxPackagePatcher implements Closeable {
+
+    private static final String XML_NAMESPACE = "http://www.w3.org/XML/1998/namespace";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    private static final XMLEventFactory XML_EVENT_FACTORY = XMLEventFactory.newInstance();
+
+    static {
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private final ZipFile zipFile;
+
+    private final SheetDirectory sheetDirectory;
+
+    private final Map<Integer, String> sheetPartNames = new HashMap<>();
+
+    private boolean hasCalculationChain;
+
+    private XlsxPackagePatcher(ZipFile zipFile) throws IOException, InvalidFormatException {
+        this.zipFile = zipFile;
+        String workbookPartName = null;
+        for (Relationship relationship : readRelationships("")) {
+            if (relationship.type.endsWith("/officeDocument")) {
+                workbookPartName = relationship.target;
+            }
+        }
+        if (workbookPartName == null) {
+            throw new InvalidFormatException("The package does not contain any workbook part");
+        }
+        try (InputStream workbookXml = getPart(workbookPartName)) {
+            this.sheetDirectory = SheetDirectory.parse(workbookXml);
+        }
+        Map<String, String> targets = new HashMap<>();
+        for (Relationship relationship : readRelationships(workbookPartName)) {
+            targets.put(relationship.id, relationship.target);
+            hasCalculationChain |= relationship.type.endsWith("/calcChain");
+        }
+        for (SheetDirectory.Entry entry : sheetDirectory.getEntries()) {
+            sheetPartNames.put(entry.getIndex(), targets.get(entry.getRelationshipId()));
+        }
+    }
+
+    /**
+     * Open a patcher on the given xlsx content, only the relationships and the workbook part are read.
+     *
+     * @param content the raw xlsx content
+     * @return the patcher, to be closed once the content has been patched
+     * @throws IOException            if the content is not a zip
+     * @throws InvalidFormatException if the content is not a valid xlsx package
+     */
+    public static XlsxPackagePatcher open(byte[] content) throws IOException, InvalidFormatException {
+        return new XlsxPackagePatcher(new ZipFile(new SeekableInMemoryByteChannel(content)));
+    }
+
+    public SheetDirectory getSheetDirectory() {
+        return sheetDirectory;
+    }
+
+    /**
+     * @return true if the workbook holds formulas, the sheets being read up to their first formula unless the package
+     * has a calculation chain
+     * @throws IOException if a sheet cannot be read
+     */
+    public boolean hasFormulas() throws IOException {
+        if (hasCalculationChain) {
+            return true;
+        }
+        for (String sheetPartName : sheetPartNames.values()) {
+            ZipArchiveEntry zipEntry = sheetPartName == null ? null : zipFile.getEntry(sheetPartName);
+            if (zipEntry == null) {
+                continue;
+            }
+            try (InputStream sheetXml = zipFile.getInputStream(zipEntry)) {
+                XMLEventReader reader = XML_INPUT_FACTORY.createXMLEventReader(sheetXml);
+                while (reader.hasNext()) {
+                    XMLEvent event = reader.nextEvent();
+                    if (event.isStartElement() && "f".equals(event.asStartElement().getName().getLocalPart())) {
+                        return true;
+                    }
+                }
+            } catch (XMLStreamException e) {
+                throw new IOException("The sheet xml " + sheetPartName + " cannot be parsed", e);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Write the xlsx content with the edits applied to its sheets. A cell edited with a null value is removed, the
+     * edited cells and rows missing from the sheets are created.
+     *
+     * @param cellEdits the edits of the sheets, by zero based sheet index
+     * @param out       the stream receiving the patched content, not closed
+     * @return the edited cells which did not exist in the sheets and have been created
+     * @throws UnsupportedPatchException if an edit cannot be written without the object model of the workbook, in
+     *                                   which case the written content must be discarded
+     * @throws IOException               if the content cannot be read or written
+     */
+    public Set<CellReference> patch(Map<Integer, SheetCellEdits> cellEdits, OutputStream out) throws IOException {
+        return patch(cellEdits, Collections.emptyMap(), out);
+    }
+
+    /**
+     * Write the xlsx content with the edits applied to its sheets and the recomputed results of formulas written as
+     * the cached values of their cells.
+     *
+     * @param cellEdits     the edits of the sheets, by zero based sheet index
+     * @param formulaValues the results of the formulas computed again, by zero based sheet index
+     * @param out           the stream receiving the patched content, not closed
+     * @return the edited cells which did not exist in the sheets and have been created
+     * @throws UnsupportedPatchException if an edit cannot be written without the object model of the workbook, in
+     *                                   which case the written content must be discarded
+     * @throws IOException               if the content cannot be read or written
+     */
+    public Set<CellReference> patch(Map<Integer, SheetCellEdits> cellEdits, Map<Integer, SheetFormulaValues> formulaValues,
+                                    OutputStream out) throws IOException {
+        Map<String, SheetDirectory.Entry> editedParts = new HashMap<>();
+        for (SheetDirectory.Entry entry : sheetDirectory.getEntries()) {
+            SheetCellEdits sheetCellEdits = cellEdits.get(entry.getIndex());
+            SheetFormulaValues sheetFormulaValues = formulaValues.get(entry.getIndex());
+            if ((sheetCellEdits != null && !sheetCellEdits.isEmpty()) || (sheetFormulaValues != null && !sheetFormulaValues.isEmpty())) {
+                editedParts.put(sheetPartNames.get(entry.getIndex()), entry);
+            }
+        }
+        Set<CellReference> createdCells = new HashSet<>();
+        ZipArchiveOutputStream zipOut = new ZipArchiveOutputStream(out);
+        for (ZipArchiveEntry zipEntry : Collections.list(zipFile.getEntriesInPhysicalOrder())) {
+            SheetDirectory.Entry entry = editedParts.get(zipEntry.getName());
+            if (entry == null) {
+                try (InputStream raw = zipFile.getRawInputStream(zipEntry)) {
+                    zipOut.addRawArchiveEntry(zipEntry, raw);
+                }
+                continue;
+            }
+            ZipArchiveEntry patchedEntry = new ZipArchiveEntry(zipEntry.getName());
+            patchedEntry.setMethod(ZipEntry.DEFLATED);
+            patchedEntry.setTime(zipEntry.getTime());
+            zipOut.putArchiveEntry(patchedEntry);
+            try (InputStream sheetXml = zipFile.getInputStream(zipEntry)) {
+                new SheetPatch(entry.getName(), cellEdits.getOrDefault(entry.getIndex(), new SheetCellEdits()),
+                    formulaValues.get(entry.getIndex()), createdCells).write(sheetXml, zipOut);
+            }
+            zipOut.closeArchiveEntry();
+        }
+        zipOut.finish();
+        return createdCells;
+    }
+
+    /**
+     * Write the xlsx content with the edits applied to its sheets through the object model of the workbook, for the
+     * edits the patcher cannot write. The edits are applied as by {@link #patch(Map, OutputStream)}.
+     *
+     * @param content   the raw xlsx content
+     * @param cellEdits the edits of the sheets, by zero based sheet index
+     * @param out       the stream receiving the edited content, not closed
+     * @return the edited cells which did not exist in the sheets and have been created
+     */
+    public static Set<CellReference> patchWorkbook(byte[] content, Map<Integer, SheetCellEdits> cellEdits, OutputStream out)
+        throws IOException, InvalidFormatException {
+        Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(content));
+        Set<CellReference> createdCells = new HashSet<>();
+        for (Map.Entry<Integer, SheetCellEdits> sheetCellEdits : cellEdits.entrySet()) {
+            Sheet sheet = workbook.getSheetAt(sheetCellEdits.getKey());
+            for (Map.Entry<Integer, TreeMap<Integer, String>> rowEdits : sheetCellEdits.getValue().getRows().entrySet()) {
+                Row row = sheet.getRow(rowEdits.getKey());
+                for (Map.Entry<Integer, String> cellEdit : rowEdits.getValue().entrySet()) {
+                    Cell cell = row == null ? null : row.getCell(cellEdit.getKey());
+                    if (cellEdit.getValue() == null) {
+                        if (cell != null) {
+                            row.removeCell(cell);
+                        }
+                        continue;
+                    }
+                    if (cell == null) {
+                        if (row == null) {
+                            row = sheet.createRow(rowEdits.getKey());
+                        }
+                        cell = row.createCell(cellEdit.getKey());
+                        createdCells.add(new CellReference(sheet.getSheetName(), rowEdits.getKey(), cellEdit.getKey(), false, false));
+                    } else if (cell.getCellType() == Cell.CELL_TYPE_FORMULA) {
+                        // the formula is removed along with its entry in the calculation chain
+                        cell.setCellType(Cell.CELL_TYPE_BLANK);
+                    }
+                    cell.setCellValue(cellEdit.getValue());
+                }
+            }
+        }
+        workbook.write(out);
+        return createdCells;
+    }
+
+    @Override
+    public void close() throws IOException {
+        zipFile.close();
+    }
+
+    private InputStream getPart(String partName) throws IOException, InvalidFormatException {
+        ZipArchiveEntry zipEntry = zipFile.getEntry(partName);
+        if (zipEntry == null) {
+            throw new InvalidFormatException("The package does not contain the part " + partName);
+        }
+        return zipFile.getInputStream(zipEntry);
+    }
+
+    /**
+     * read the internal relationships of a part, their targets being resolved to zip entry names
+     *
+     * @param sourcePartName the name of the part, empty for the package itself
+     */
+    private List<Relationship> readRelationships(String sourcePartName) throws IOException, InvalidFormatException {
+        int separator = sourcePartName.lastIndexOf('/');
+        String relationshipsPartName = sourcePartName.substring(0, separator + 1) + "_rels/"
+            + sourcePartName.substring(separator + 1) + ".rels";
+        URI sourceUri = URI.create("/" + sourcePartName);
+        List<Relationship> relationships = new ArrayList<>();
+        try (InputStream relationshipsXml = getPart(relationshipsPartName)) {
+            XMLEventReader reader = XML_INPUT_FACTORY.createXMLEventReader(relationshipsXml);
+            while (reader.hasNext()) {
+                XMLEvent event = reader.nextEvent();
+                if (event.isStartElement() && "Relationship".equals(event.asStartElement().getName().getLocalPart())) {
+                    StartElement element = event.asStartElement();
+                    if ("External".equals(attribute(element, "TargetMode"))) {
+                        continue;
+                    }
+                    String target = sourceUri.resolve(attribute(element, "Target")).getPath().substring(1);
+                    relationships.add(new Relationship(attribute(element, "Id"), attribute(element, "Type"), target));
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("The relationships part " + relationshipsPartName + " cannot be parsed", e);
+        }
+        return relationships;
+    }
+
+    private static String attribute(StartElement element, String name) {
+        Attribute attribute = element.getAttributeByName(new QName(name));
+        return attribute == null ? null : attribute.getValue();
+    }
+
+    private static final class Relationship {
+
+        private final String id;
+
+        private final String type;
+
+        private final String target;
+
+        Relationship(String id, String type, String target) {
+            this.id = id;
+            this.type = type;
+            this.target = target;
+        }
+    }
+
+    /**
+     * The rewriting of the xml part of a sheet: the events are copied to the output, except for the edited cells
+     * which are replaced, for the missing ones which are inserted in row and column order, and for the cached values
+     * of the recomputed formulas.
+     */
+    private static final class SheetPatch {
+
+        private final String sheetName;
+
+        private final SheetCellEdits sheetCellEdits;
+
+        private final SheetFormulaValues formulaValues;
+
+        private final Set<CellReference> createdCells;
+
+        private final Iterator<Map.Entry<Integer, TreeMap<Integer, String>>> pendingRows;
+
+        private Map.Entry<Integer, TreeMap<Integer, String>> nextRow;
+
+        private Iterator<Map.Entry<Integer, String>> pendingCells;
+
+        private Map.Entry<Integer, String> nextCell;
+
+        private TreeMap<Integer, SheetFormulaValues.FormulaValue> rowFormulaValues;
+
+        private XMLEventWriter writer;
+
+        private QName sheetDataName;
+
+        SheetPatch(String sheetName, SheetCellEdits sheetCellEdits, SheetFormulaValues formulaValues, Set<CellReference> createdCells) {
+            this.sheetName = sheetName;
+            this.sheetCellEdits = sheetCellEdits;
+            this.formulaValues = formulaValues;
+            this.createdCells = createdCells;
+            this.pendingRows = sheetCellEdits.getRows().entrySet().iterator();
+            this.nextRow = pendingRows.hasNext() ? pendingRows.next() : null;
+        }
+
+        void write(InputStream sheetXml, OutputStream out) throws IOException {
+            try {
+                XMLEventReader reader = XML_INPUT_FACTORY.createXMLEventReader(sheetXml);
+                writer = XML_OUTPUT_FACTORY.createXMLEventWriter(out, "UTF-8");
+                int rowIndex = -1;
+                int columnIndex = -1;
+                while (reader.hasNext()) {
+                    XMLEvent event = reader.nextEvent();
+                    if (event.isStartElement()) {
+                        StartElement element = event.asStartElement();
+                        String localName = element.getName().getLocalPart();
+                        if ("dimension".equals(localName)) {
+                            event = dimension(element);
+                        } else if ("sheetData".equals(localName)) {
+                            sheetDataName = element.getName();
+                        } else if ("row".equals(localName) && sheetDataName != null) {
+                            String rowRef = attribute(element, "r");
+                            rowIndex = rowRef == null ? rowIndex + 1 : Integer.parseInt(rowRef) - 1;
+                            columnIndex = -1;
+                            writeRowsBefore(rowIndex);
+                            rowFormulaValues = formulaValues == null ? null : formulaValues.getRows().get(rowIndex);
+                            if (nextRow != null && nextRow.getKey() == rowIndex) {
+                                pendingCells = nextRow.getValue().entrySet().iterator();
+                                nextCell = pendingCells.next();
+                                nextRow = pendingRows.hasNext() ? pendingRows.next() : null;
+                                // the span of the columns is only a hint, it may not hold once cells are inserted
+                                event = withoutAttribute(element, "spans");
+                            }
+                        } else if ("c".equals(localName) && (pendingCells != null || rowFormulaValues != null)) {
+                            String cellRef = attribute(element, "r");
+                            columnIndex = cellRef == null ? columnIndex + 1 : SheetXmlHandler.columnIndexOf(cellRef);
+                            if (pendingCells != null) {
+                                writeCellsBefore(rowIndex, columnIndex);
+                                if (nextCell != null && nextCell.getKey() == columnIndex) {
+                                    skipCell(reader, rowIndex, columnIndex);
+                                    writeCell(rowIndex, columnIndex, attribute(element, "s"), nextCell.getValue());
+                                    nextCell = pendingCells.hasNext() ? pendingCells.next() : null;
+                                    continue;
+                                }
+                            }
+                            SheetFormulaValues.FormulaValue formulaValue = rowFormulaValues == null ? null : rowFormulaValues.get(columnIndex);
+                            if (formulaValue != null) {
+                                writeFormulaCell(reader, element, formulaValue);
+                                continue;
+                            }
+                        }
+                    } else if (event.isEndElement()) {
+                        String localName = event.asEndElement().getName().getLocalPart();
+                        if ("row".equals(localName) && (pendingCells != null || rowFormulaValues != null)) {
+                            if (pendingCells != null) {
+                                writeCellsBefore(rowIndex, Integer.MAX_VALUE);
+                            }
+                            pendingCells = null;
+                            rowFormulaValues = null;
+                        } else if ("sheetData".equals(localName)) {
+                            writeRowsBefore(Integer.MAX_VALUE);
+                        }
+                    }
+                    writer.add(event);
+                }
+                writer.flush();
+            } catch (XMLStreamException e) {
+                throw new IOException("The sheet xml of " + sheetName + " cannot be patched", e);
+            }
+        }
+
+        /**
+         * extend the declared range of the cells of the sheet to the edited cells, a single cell being left as is
+         * since it is only a placeholder
+         */
+        private StartElement dimension(StartElement element) {
+            String ref = attribute(element, "ref");
+            int separator = ref == null ? -1 : ref.indexOf(':');
+            if (separator < 0) {
+                return element;
+            }
+            CellReference first = new CellReference(ref.substring(0, separator));
+            CellReference last = new CellReference(ref.substring(separator + 1));
+            int firstRow = first.getRow();
+            int lastRow = last.getRow();
+            int firstColumn = first.getCol();
+            int lastColumn = last.getCol();
+            for (Map.Entry<Integer, TreeMap<Integer, String>> row : sheetCellEdits.getRows().entrySet()) {
+                for (Map.Entry<Integer, String> cell : row.getValue().entrySet()) {
+                    if (cell.getValue() != null) {
+                        firstRow = Math.min(firstRow, row.getKey());
+                        lastRow = Math.max(lastRow, row.getKey());
+                        firstColumn = Math.min(firstColumn, cell.getKey());
+                        lastColumn = Math.max(lastColumn, cell.getKey());
+                    }
+                }
+            }
+            List<Attribute> attributes = new ArrayList<>();
+            for (Iterator<?> it = element.getAttributes(); it.hasNext(); ) {
+                Attribute attribute = (Attribute) it.next();
+                if ("ref".equals(attribute.getName().getLocalPart())) {
+                    attribute = XML_EVENT_FACTORY.createAttribute("ref", new CellReference(firstRow, firstColumn).formatAsString()
+                        + ":" + new CellReference(lastRow, lastColumn).formatAsString());
+                }
+                attributes.add(attribute);
+            }
+            return createStartElement(element, attributes);
+        }
+
+        /**
+         * insert the edited rows missing from the sheet before the given row
+         */
+        private void writeRowsBefore(int rowIndex) throws XMLStreamException {
+            while (nextRow != null && nextRow.getKey() < rowIndex) {
+                int newRowIndex = nextRow.getKey();
+                if (nextRow.getValue().values().stream().anyMatch(value -> value != null)) {
+                    writer.add(XML_EVENT_FACTORY.createStartElement(sheetDataName.getPrefix(), sheetDataName.getNamespaceURI(), "row",
+                        Collections.singletonList(XML_EVENT_FACTORY.createAttribute("r", String.valueOf(newRowIndex + 1))).iterator(), null));
+                    for (Map.Entry<Integer, String> cell : nextRow.getValue().entrySet()) {
+                        writeNewCell(newRowIndex, cell.getKey(), cell.getValue());
+                    }
+                    writer.add(XML_EVENT_FACTORY.createEndElement(sheetDataName.getPrefix(), sheetDataName.getNamespaceURI(), "row"));
+                }
+                nextRow = pendingRows.hasNext() ? pendingRows.next() : null;
+            }
+        }
+
+        /**
+         * insert the edited cells of the current row missing from the sheet before the given column
+         */
+        private void writeCellsBefore(int rowIndex, int columnIndex) throws XMLStreamException {
+            while (nextCell != null && nextCell.getKey() < columnIndex) {
+                writeNewCell(rowIndex, nextCell.getKey(), nextCell.getValue());
+                nextCell = pendingCells.hasNext() ? pendingCells.next() : null;
+            }
+        }
+
+        private void writeNewCell(int rowIndex, int columnIndex, String value) throws XMLStreamException {
+            if (value != null) {
+                createdCells.add(new CellReference(sheetName, rowIndex, columnIndex, false, false));
+                writeCell(rowIndex, columnIndex, null, value);
+            }
+        }
+
+        /**
+         * write a cell holding an inline string, nothing if the value is null
+         */
+        private void writeCell(int rowIndex, int columnIndex, String style, String value) throws XMLStreamException {
+            if (value == null) {
+                return;
+            }
+            String prefix = sheetDataName.getPrefix();
+            String namespace = sheetDataName.getNamespaceURI();
+            List<Attribute> attributes = new ArrayList<>();
+            attributes.add(XML_EVENT_FACTORY.createAttribute("r", new CellReference(rowIndex, columnIndex).formatAsString()));
+            if (style != null) {
+                attributes.add(XML_EVENT_FACTORY.createAttribute("s", style));
+            }
+            attributes.add(XML_EVENT_FACTORY.createAttribute("t", "inlineStr"));
+            writer.add(XML_EVENT_FACTORY.createStartElement(prefix, namespace, "c", attributes.iterator(), null));
+            writer.add(XML_EVENT_FACTORY.createStartElement(prefix, namespace, "is"));
+            writer.add(XML_EVENT_FACTORY.createStartElement(prefix, namespace, "t",
+                Collections.singletonList(XML_EVENT_FACTORY.createAttribute("xml", XML_NAMESPACE, "space", "preserve")).iterator(), null));
+            writer.add(XML_EVENT_FACTORY.createCharacters(value));
+            writer.add(XML_EVENT_FACTORY.createEndElement(prefix, namespace, "t"));
+            writer.add(XML_EVENT_FACTORY.createEndElement(prefix, namespace, "is"));
+            writer.add(XML_EVENT_FACTORY.createEndElement(prefix, namespace, "c"));
+        }
+
+        /**
+         * copy a formula cell up to its end with the given result as its cached value, the type of the cell being the
+         * one of the result
+         */
+        private void writeFormulaCell(XMLEventReader reader, StartElement element, SheetFormulaValues.FormulaValue formulaValue)
+            throws XMLStreamException {
+            List<Attribute> attributes = new ArrayList<>();
+            for (Iterator<?> it = element.getAttributes(); it.hasNext(); ) {
+                Attribute attribute = (Attribute) it.next();
+                if (!"t".equals(attribute.getName().getLocalPart())) {
+                    attributes.add(attribute);
+                }
+            }
+            if (!"n".equals(formulaValue.getType())) {
+                attributes.add(XML_EVENT_FACTORY.createAttribute("t", formulaValue.getType()));
+            }
+            writer.add(createStartElement(element, attributes));
+            QName cellName = element.getName();
+            boolean valueWritten = false;
+            int depth = 1;
+            while (depth > 0) {
+                XMLEvent event = reader.nextEvent();
+                if (event.isStartElement()) {
+                    String localName = event.asStartElement().getName().getLocalPart();
+                    if (depth == 1 && "v".equals(localName)) {
+                        // the previous value is dropped, the new one is written in its place
+                        skipElement(reader);
+                        writeValue(cellName, formulaValue.getValue());
+                        valueWritten = true;
+                        continue;
+                    }
+                    if (depth == 1 && !"f".equals(localName) && !valueWritten) {
+                        writeValue(cellName, formulaValue.getValue());
+                        valueWritten = true;
+                    }
+                    depth++;
+                } else if (event.isEndElement()) {
+                    depth--;
+                    if (depth == 0 && !valueWritten) {
+                        writeValue(cellName, formulaValue.getValue());
+                    }
+                }
+                writer.add(event);
+            }
+        }
+
+        private void writeValue(QName cellName, String value) throws XMLStreamException {
+            if (value == null) {
+                return;
+            }
+            writer.add(XML_EVENT_FACTORY.createStartElement(cellName.getPrefix(), cellName.getNamespaceURI(), "v"));
+            writer.add(XML_EVENT_FACTORY.createCharacters(value));
+            writer.add(XML_EVENT_FACTORY.createEndElement(cellName.getPrefix(), cellName.getNamespaceURI(), "v"));
+        }
+
+        /**
+         * consume the events of the current element up to its end
+         */
+        private static void skipElement(XMLEventReader reader) throws XMLStreamException {
+            int depth = 1;
+            while (depth > 0) {
+                XMLEvent event = reader.nextEvent();
+                if (event.isStartElement()) {
+                    depth++;
+                } else if (event.isEndElement()) {
+                    depth--;
+                }
+            }
+        }
+
+        /**
+         * consume the events of the replaced cell up to its end
+         *
+         * @throws UnsupportedPatchException if the cell holds a formula, which may be listed in the calculation chain
+         *                                   or shared with other cells
+         */
+        private void skipCell(XMLEventReader reader, int rowIndex, int columnIndex) throws XMLStreamException, UnsupportedPatchException {
+            int depth = 1;
+            while (depth > 0) {
+                XMLEvent event = reader.nextEvent();
+                if (event.isStartElement()) {
+                    if ("f".equals(event.asStartElement().getName().getLocalPart())) {
+                        throw new UnsupportedPatchException("The cell " + new CellReference(sheetName, rowIndex, columnIndex, false, false)
+                            .formatAsString() + " holds a formula");
+                    }
+                    depth++;
+                } else if (event.isEndElement()) {
+                    depth--;
+                }
+            }
+        }
+
+        private static StartElement withoutAttribute(StartElement element, String name) {
+            List<Attribute> attributes = new ArrayList<>();
+            for (Iterator<?> it = element.getAttributes(); it.hasNext(); ) {
+                Attribute attribute = (Attribute) it.next();
+                if (!name.equals(attribute.getName().getLocalPart())) {
+                    attributes.add(attribute);
+                }
+            }
+            return createStartElement(element, attributes);
+        }
+
+        private static StartElement createStartElement(StartElement element, List<Attribute> attributes) {
+            QName name = element.getName();
+            return XML_EVENT_FACTORY.createStartElement(name.getPrefix(), name.getNamespaceURI(), name.getLocalPart(),
+                attributes.iterator(), element.getNamespaces());
+        }
+    }
+
+    /**
+     * thrown when the edits cannot be written without the object model of the workbook
+     */
+    public static final class UnsupportedPatchException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedPatchException(String message) {
+            super(message);
+        }
+    }
+}
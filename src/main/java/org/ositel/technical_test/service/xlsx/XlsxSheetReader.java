@@ -0,0 +1,184 @@
+package org.ositel.technical_test.service.xlsx;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Streaming reader of xlsx sheets built on the POI event API.
+ * <p>
+ * Unlike {@link org.apache.poi.ss.usermodel.WorkbookFactory}, no object model of the workbook is built: the content
+ * is spooled to a temporary file so that the zip entries are inflated on demand, the shared strings are loaded in a
+ * read-only table and the sheet xml is parsed with SAX, row by row. The sheet xml is parsed without any DTD nor
+ * external entity.
+ */
+public final class XlsxSheetReader implements Closeable {
+
+    private static final SAXParserFactory SAX_PARSER_FACTORY = XmlParsers.newSaxParserFactory();
+
+    private final File spoolFile;
+
+    private final OPCPackage xlsxPackage;
+
+    private final XSSFReader xssfReader;
+
+    private ReadOnlySharedStringsTable sharedStrings;
+
+    private StylesTable styles;
+
+    private SheetDirectory sheetDirectory;
+
+    private Map<Integer, SheetCellEdits> cellEdits = Collections.emptyMap();
+
+    private XlsxSheetReader(File spoolFile, OPCPackage xlsxPackage) throws IOException, InvalidFormatException {
+        this.spoolFile = spoolFile;
+        this.xlsxPackage = xlsxPackage;
+        try {
+            this.xssfReader = new XSSFReader(xlsxPackage);
+        } catch (InvalidFormatException e) {
+            throw e;
+        } catch (OpenXML4JException e) {
+            throw new InvalidFormatException(e.getMessage());
+        }
+    }
+
+    /**
+     * Open a reader on the given xlsx content, the stream is fully consumed but not closed.
+     *
+     * @param content the raw xlsx content
+     * @return the reader, to be closed once the sheets have been read
+     * @throws IOException            if the content cannot be spooled
+     * @throws InvalidFormatException if the content is not a valid xlsx package
+     */
+    public static XlsxSheetReader open(InputStream content) throws IOException, InvalidFormatException {
+        File spoolFile = File.createTempFile("ositel-", ".xlsx");
+        try {
+            Files.copy(content, spoolFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return new XlsxSheetReader(spoolFile, OPCPackage.open(spoolFile.getPath(), PackageAccess.READ));
+        } catch (IOException | InvalidFormatException | RuntimeException e) {
+            Files.deleteIfExists(spoolFile.toPath());
+            throw e;
+        }
+    }
+
+    /**
+     * Set the edits not written in the content yet, applied to the rows of the sheets when they are read.
+     *
+     * @param cellEdits the edits of the sheets, by zero based sheet index
+     */
+    public void setCellEdits(Map<Integer, SheetCellEdits> cellEdits) {
+        this.cellEdits = cellEdits;
+    }
+
+    /**
+     * Get the sheets of the workbook, only the workbook part is parsed on the first call.
+     *
+     * @return the sheet directory of the workbook
+     * @throws IOException            if the workbook part cannot be read
+     * @throws InvalidFormatException if the workbook part is missing
+     */
+    public SheetDirectory getSheetDirectory() throws IOException, InvalidFormatException {
+        if (sheetDirectory == null) {
+            try (InputStream workbookXml = xssfReader.getWorkbookData()) {
+                sheetDirectory = SheetDirectory.parse(workbookXml);
+            }
+        }
+        return sheetDirectory;
+    }
+
+    /**
+     * Parse a sheet of the workbook and push its rows to the handler. Only the part of this sheet is inflated.
+     *
+     * @param sheet      the name or the zero based index of the sheet, null for the first sheet
+     * @param rowHandler the handler receiving the rows
+     * @return the entry of the sheet which has been read
+     * @throws IOException            if the sheet cannot be read
+     * @throws InvalidFormatException if the parts of the workbook are corrupted
+     * @throws org.ositel.technical_test.web.rest.errors.BadRequestAlertException if the sheet does not exist
+     */
+    public SheetDirectory.Entry readSheet(String sheet, SheetRowHandler rowHandler) throws IOException, InvalidFormatException {
+        SheetDirectory.Entry entry = getSheetDirectory().resolve(sheet);
+        readSheet(entry, rowHandler);
+        return entry;
+    }
+
+    /**
+     * Parse a sheet of the workbook and push its rows to the handler. Only the part of this sheet is inflated.
+     *
+     * @param entry      the sheet to read, from the sheet directory of this reader
+     * @param rowHandler the handler receiving the rows
+     * @throws IOException            if the sheet cannot be read
+     * @throws InvalidFormatException if the parts of the workbook are corrupted
+     */
+    public void readSheet(SheetDirectory.Entry entry, SheetRowHandler rowHandler) throws IOException, InvalidFormatException {
+        try (InputStream sheet = xssfReader.getSheet(entry.getRelationshipId())) {
+            SheetCellEdits sheetCellEdits = cellEdits.get(entry.getIndex());
+            SheetRowHandler editedRowHandler = sheetCellEdits == null ? rowHandler : sheetCellEdits.apply(rowHandler);
+            parse(sheet, new SheetXmlHandler(getSharedStrings(), getStyles(), editedRowHandler));
+        }
+    }
+
+    private ReadOnlySharedStringsTable getSharedStrings() throws IOException {
+        if (sharedStrings == null) {
+            try {
+                sharedStrings = new ReadOnlySharedStringsTable(xlsxPackage);
+            } catch (SAXException e) {
+                throw new IOException("The shared strings of the workbook cannot be parsed", e);
+            }
+        }
+        return sharedStrings;
+    }
+
+    private StylesTable getStyles() throws IOException, InvalidFormatException {
+        if (styles == null) {
+            styles = xssfReader.getStylesTable();
+        }
+        return styles;
+    }
+
+    private static void parse(InputStream sheet, SheetXmlHandler handler) throws IOException {
+        try {
+            XMLReader xmlReader = SAX_PARSER_FACTORY.newSAXParser().getXMLReader();
+            xmlReader.setContentHandler(handler);
+            xmlReader.parse(new InputSource(sheet));
+        } catch (SheetXmlHandler.StopParsingException e) {
+            // the remaining rows are not needed, the rest of the sheet is not even inflated
+        } catch (SAXException e) {
+            if (e.getException() instanceof IOException) {
+                // thrown by the row handler
+                throw (IOException) e.getException();
+            }
+            throw new IOException("The sheet xml cannot be parsed", e);
+        } catch (ParserConfigurationException e) {
+            throw new IOException("The sheet xml cannot be parsed", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            // the package has been opened read only, reverting it closes it without writing anything back
+            xlsxPackage.revert();
+        } finally {
+            Files.deleteIfExists(spoolFile.toPath());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.ositel.technical_test.service.xlsx;
+
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+/**
+ * Factories of the parsers of the xml parts of the uploaded workbooks.
+ * <p>
+ * The parts are written by the client, so the parsers reject any DOCTYPE and never resolve external entities: a part
+ * can neither read local files or urls through an entity nor expand entities until the memory is exhausted.
+ */
+final class XmlParsers {
+
+    private XmlParsers() {
+    }
+
+    /**
+     * @return a namespace aware SAX parser factory which rejects the DTDs and the external entities
+     */
+    static SAXParserFactory newSaxParserFactory() {
+        SAXParserFactory saxParserFactory = SAXParserFactory.newInstance();
+        saxParserFactory.setNamespaceAware(true);
+        saxParserFactory.setXIncludeAware(false);
+        try {
+            saxParserFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            saxParserFactory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            saxParserFactory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+            saxParserFactory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+            saxParserFactory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IllegalStateException("The xml parser cannot be secured", e);
+        }
+        return saxParserFactory;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Streaming readers and writers working directly on the xlsx package parts.
+ */
+package org.ositel.technical_test.service.xlsx;
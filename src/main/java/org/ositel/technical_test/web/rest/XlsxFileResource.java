@@ -2,19 +2,61 @@ package org.ositel.technical_test.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.ositel.technical_test.config.JacksonBinaryHttpMessageConverter;
 import org.ositel.technical_test.domain.XlsxFile;
+import org.ositel.technical_test.service.XlsxBulkImportService;
+import org.ositel.technical_test.service.XlsxCellEditCoalescer;
 import org.ositel.technical_test.service.XlsxFileService;
+import org.ositel.technical_test.service.XlsxUploadService;
+import org.ositel.technical_test.service.dto.XlsxCellEditDTO;
+import org.ositel.technical_test.service.dto.XlsxColumnDTO;
 import org.ositel.technical_test.service.dto.XlsxFileDTO;
+import org.ositel.technical_test.service.dto.XlsxFileMetadataDTO;
+import org.ositel.technical_test.service.dto.XlsxImportResultDTO;
+import org.ositel.technical_test.service.dto.XlsxSheetColumnsDTO;
+import org.ositel.technical_test.service.dto.XlsxSheetSchemaDTO;
+import org.ositel.technical_test.service.dto.XlsxUploadDTO;
+import org.ositel.technical_test.service.xlsx.SheetDirectory;
+import org.ositel.technical_test.service.xlsx.SheetExportFormat;
+import org.ositel.technical_test.service.xlsx.SheetExportWriter;
+import org.ositel.technical_test.service.xlsx.SheetQuery;
+import org.ositel.technical_test.service.xlsx.XlsxJsonWriter;
+import org.ositel.technical_test.service.xlsx.XlsxSheetReader;
 import org.ositel.technical_test.web.rest.util.HeaderUtil;
+import org.ositel.technical_test.web.rest.util.PaginationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
 
+import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
 
 /**
  * REST controller for managing XlsxFile.
@@ -27,22 +69,57 @@ public class XlsxFileResource {
 
     private static final String ENTITY_NAME = "xlsxFile";
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * version expected by a precondition which cannot match any version of a file
+     */
+    private static final long UNMATCHED_VERSION = -1L;
+
+    private static final String FORMAT_JSON = "json";
+
     private final XlsxFileService xlsxFileService;
 
-    public XlsxFileResource(XlsxFileService xlsxFileService) {
+    private final XlsxCellEditCoalescer xlsxCellEditCoalescer;
+
+    private final XlsxUploadService xlsxUploadService;
+
+    private final XlsxBulkImportService xlsxBulkImportService;
+
+    public XlsxFileResource(XlsxFileService xlsxFileService, XlsxCellEditCoalescer xlsxCellEditCoalescer,
+                            XlsxUploadService xlsxUploadService, XlsxBulkImportService xlsxBulkImportService) {
         this.xlsxFileService = xlsxFileService;
+        this.xlsxCellEditCoalescer = xlsxCellEditCoalescer;
+        this.xlsxUploadService = xlsxUploadService;
+        this.xlsxBulkImportService = xlsxBulkImportService;
     }
 
     /**
-     * just for test to request all xlsx files that have been uploaded till now and saved in H2 db
+     * list the metadata of the xlsx files without their content, in ascending order of id. The files are listed by
+     * slices read after the id of the last file of the previous slice, the link to the next slice is returned in the
+     * headers
      *
-     * @return
+     * @param afterId id of the last file of the previous slice, the first slice if not given
+     * @param size    number of files of a slice
+     * @return the metadata of the files of the slice
      */
     @GetMapping("/xlsx-files")
     @Timed
-    public List<XlsxFile> getAllXlsxFiles() {
-        log.debug("REST request to get all XlsxFiles");
-        return xlsxFileService.findAll();
+    public ResponseEntity<List<XlsxFileMetadataDTO>> getAllXlsxFiles(@RequestParam(value = "afterId", required = false) Long afterId,
+                                                                     @RequestParam(value = "size", required = false) Integer size) {
+        log.debug("REST request to get {} XlsxFiles after the id {}", size, afterId);
+        if (size != null && size < 1) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "error.pagination",
+                "The size must be strictly positive")).build();
+        }
+        Slice<XlsxFileMetadataDTO> slice = xlsxFileService.findAllMetadata(afterId, size == null ? DEFAULT_PAGE_SIZE : size);
+        List<XlsxFileMetadataDTO> metadata = slice.getContent();
+        Long lastId = metadata.isEmpty() ? null : metadata.get(metadata.size() - 1).getId();
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(slice, "afterId", lastId, xlsxFileService.count(),
+            "/api/ositel/xlsx-files");
+        return new ResponseEntity<>(metadata, headers, HttpStatus.OK);
     }
 
     /* Ositel requested ws will be placed here*/
@@ -68,28 +145,612 @@ public class XlsxFileResource {
             HeaderUtil.createEntityCreationAlert(ENTITY_NAME, file.getOriginalFilename()), HttpStatus.OK);
     }
 
+    /**
+     * import all the xlsx files of a zip archive in a single request, the files are saved in parallel by batches and
+     * then ingested in the background as the uploaded files
+     *
+     * @param file the zip archive of the xlsx files
+     * @return the outcome of the import of each xlsx file of the archive, 400 if the archive is not a zip archive
+     */
+    @PostMapping("/importExcelFiles")
+    public ResponseEntity<List<XlsxImportResultDTO>> importExcelFiles(@RequestParam("file") MultipartFile file) {
+        log.debug("Request to import the xlsx files of the archive {}", file.getOriginalFilename());
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "error.emptyFile", "please select a file!")).build();
+        }
+        File archive = null;
+        try {
+            // the archive is read in place by the threads of the import, an archive already written to disk is moved
+            archive = File.createTempFile("ositel-import-", ".zip");
+            file.transferTo(archive);
+            return ResponseEntity.ok(this.xlsxBulkImportService.importArchive(archive));
+        } catch (ZipException ex) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "error.invalidArchive", ex.getMessage())).build();
+        } catch (IOException ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).headers(HeaderUtil.createFailureAlert(ENTITY_NAME,
+                "error.exception", ex.getMessage())).build();
+        } finally {
+            if (archive != null && !archive.delete()) {
+                log.warn("The imported archive {} cannot be removed", archive);
+            }
+        }
+    }
+
+    /**
+     * start the upload of a xlsx file sent in chunks, for the files too large to be sent again from the start when
+     * the connection is lost
+     *
+     * @param fileName name of the xlsx file
+     * @return 201 with the upload, whose id is given to send its chunks
+     */
+    @PostMapping("/uploads")
+    public ResponseEntity<XlsxUploadDTO> startUpload(@RequestParam("fileName") String fileName) {
+        log.debug("Request to start the upload of the xlsx file {}", fileName);
+        try {
+            XlsxUploadDTO upload = this.xlsxUploadService.startUpload(fileName);
+            return ResponseEntity.created(URI.create("/api/ositel/uploads/" + upload.getUploadId())).body(upload);
+        } catch (IOException ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).headers(HeaderUtil.createFailureAlert(ENTITY_NAME,
+                "error.exception", ex.getMessage())).build();
+        }
+    }
+
+    /**
+     * get the chunks received by an upload, for the client to resume it with the missing ones
+     *
+     * @param uploadId the id of the upload
+     * @return the upload, 404 if it does not exist
+     */
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<XlsxUploadDTO> getUpload(@PathVariable("uploadId") String uploadId) {
+        try {
+            return ResponseEntity.ok(this.xlsxUploadService.findUpload(uploadId));
+        } catch (IOException ex) {
+            return uploadFailure(ex);
+        }
+    }
+
+    /**
+     * send a chunk of an upload as the raw body of the request. The chunks may be sent in any order and in parallel,
+     * a chunk sent again replaces the previous one
+     *
+     * @param uploadId the id of the upload
+     * @param index    the zero based index of the chunk
+     * @param content  the bytes of the chunk
+     * @return the upload with its received chunks, 404 if it does not exist
+     */
+    @PutMapping("/uploads/{uploadId}/chunks/{index}")
+    public ResponseEntity<XlsxUploadDTO> uploadChunk(@PathVariable("uploadId") String uploadId, @PathVariable("index") Integer index,
+                                                     InputStream content) {
+        log.debug("Request to write the chunk {} of the upload {}", index, uploadId);
+        try {
+            return ResponseEntity.ok(this.xlsxUploadService.writeChunk(uploadId, index, content));
+        } catch (IOException ex) {
+            return uploadFailure(ex);
+        }
+    }
+
+    /**
+     * save the xlsx file made of the chunks of an upload, numbered from 0 without any gap, then remove the upload
+     *
+     * @param uploadId the id of the upload
+     * @return 200 once the file is saved, 400 if chunks are missing, 404 if the upload does not exist
+     */
+    @PostMapping("/uploads/{uploadId}/commit")
+    public ResponseEntity<?> commitUpload(@PathVariable("uploadId") String uploadId) {
+        log.debug("Request to commit the upload {}", uploadId);
+        try {
+            XlsxUploadDTO upload = this.xlsxUploadService.commitUpload(uploadId);
+            return new ResponseEntity("Successfully uploaded - " + upload.getFileName(),
+                HeaderUtil.createEntityCreationAlert(ENTITY_NAME, upload.getFileName()), HttpStatus.OK);
+        } catch (IOException ex) {
+            return uploadFailure(ex);
+        }
+    }
+
+    /**
+     * abort an upload, its chunks are removed
+     *
+     * @param uploadId the id of the upload
+     * @return 200 once the upload is removed, 404 if it does not exist
+     */
+    @DeleteMapping("/uploads/{uploadId}")
+    public ResponseEntity<Void> abortUpload(@PathVariable("uploadId") String uploadId) {
+        log.debug("Request to abort the upload {}", uploadId);
+        try {
+            this.xlsxUploadService.abortUpload(uploadId);
+            return ResponseEntity.ok().build();
+        } catch (IOException ex) {
+            return uploadFailure(ex);
+        }
+    }
+
+    private static <T> ResponseEntity<T> uploadFailure(IOException ex) {
+        HttpStatus status = ex instanceof FileNotFoundException ? HttpStatus.NOT_FOUND : HttpStatus.INTERNAL_SERVER_ERROR;
+        return ResponseEntity.status(status).headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "error.upload", ex.getMessage())).build();
+    }
+
+    /**
+     * get the xlsx file in json format, when a page or a size is given only the lines of that page are read and
+     * the pagination links are returned in the headers. The whole sheet is served from the json rendered when the
+     * file has been written, gzipped if the client accepts it. The machine clients may accept smile or cbor
+     * instead of json. The ETag is made of the version of the file and of the representation: the format, the
+     * encoding and the sheet, columns and page read. A client sending the ETag it has already received in
+     * If-None-Match gets 304 without the sheet being read
+     *
+     * @param fileName name of the xlsx file
+     * @param sheet    name or zero based index of the sheet, the first sheet if not given
+     * @param page     index of the page of lines, starting at 0
+     * @param size     number of lines of a page
+     * @param columns  the columns to read, given by header name or zero based index, all the columns if empty
+     * @param accept         the media types accepted by the client
+     * @param acceptEncoding the encodings accepted by the client
+     * @param webRequest     the request, holding the ETags of the client
+     * @return the header and the lines of the xlsx file
+     */
     @GetMapping("/searchExcelFile")
-    public ResponseEntity<XlsxFileDTO> searchExcelFileByNameAndGetItInJsonFormat(@RequestParam("fileName") String fileName) {
+    public ResponseEntity<?> searchExcelFileByNameAndGetItInJsonFormat(@RequestParam("fileName") String fileName,
+                                                                       @RequestParam(value = "sheet", required = false) String sheet,
+                                                                       @RequestParam(value = "page", required = false) Integer page,
+                                                                       @RequestParam(value = "size", required = false) Integer size,
+                                                                       @RequestParam(value = "columns", required = false) List<String> columns,
+                                                                       @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                                       @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                                       WebRequest webRequest) {
         log.debug("Request to get the xlsx file {} in json format", fileName);
         XlsxFileDTO xlsxFileDTO;
+        SheetQuery query = new SheetQuery().sheet(sheet).columns(columns);
+        Long version = this.xlsxFileService.findXlsxFileVersion(fileName);
+        HttpHeaders versionHeaders = new HttpHeaders();
+        // the body is negotiated from both headers, a shared cache must not serve it to another client
+        versionHeaders.setVary(Arrays.asList(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING));
+        String format = negotiatedFormat(accept);
+        String projection = projection(false, sheet, page, size, columns);
         try {
-            xlsxFileDTO = this.xlsxFileService.searchExcelFileByNameAndGetItInJsonFormat(fileName);
-            return ResponseEntity.ok(xlsxFileDTO);
+            // the snapshot is rendered in json, the binary formats are serialized from the dto
+            boolean snapshotRead = page == null && size == null && (columns == null || columns.isEmpty()) && FORMAT_JSON.equals(format);
+            if (snapshotRead && acceptsGzip(acceptEncoding)) {
+                // the gzipped json is only served from the snapshot, which is looked up before its ETag is compared
+                byte[] snapshot = this.xlsxFileService.findJsonSnapshot(fileName, sheet, true);
+                if (snapshot != null) {
+                    if (isNotModified(webRequest, versionHeaders, version, format + "-gzip", projection)) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(versionHeaders).build();
+                    }
+                    return ResponseEntity.ok().headers(versionHeaders).contentType(MediaType.APPLICATION_JSON_UTF8)
+                        .header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot);
+                }
+            }
+            if (isNotModified(webRequest, versionHeaders, version, format, projection)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(versionHeaders).build();
+            }
+            if (page == null && size == null) {
+                if (snapshotRead) {
+                    byte[] snapshot = this.xlsxFileService.findJsonSnapshot(fileName, sheet, false);
+                    if (snapshot != null) {
+                        return ResponseEntity.ok().headers(versionHeaders).contentType(MediaType.APPLICATION_JSON_UTF8).body(snapshot);
+                    }
+                }
+                xlsxFileDTO = this.xlsxFileService.searchExcelFileByNameAndGetItInJsonFormat(fileName, query);
+                return ResponseEntity.ok().headers(versionHeaders).body(xlsxFileDTO);
+            }
+            if ((page != null && page < 0) || (size != null && size < 1)) {
+                return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "error.pagination",
+                    "The page must be positive and the size strictly positive")).build();
+            }
+            Pageable pageable = new PageRequest(page == null ? 0 : page, size == null ? DEFAULT_PAGE_SIZE : size);
+            xlsxFileDTO = this.xlsxFileService.searchExcelFileByNameAndGetItInJsonFormat(fileName, query.pageable(pageable));
+            Page<List<String>> linesPage = new PageImpl<>(xlsxFileDTO.getLinesValues(), pageable, xlsxFileDTO.getTotalLines());
+            HttpHeaders headers = paginationHeaders(linesPage, fileName, sheet, columns, false);
+            headers.putAll(versionHeaders);
+            return new ResponseEntity<>(xlsxFileDTO, headers, HttpStatus.OK);
             //FileNotFoundException is a subclass of IOException, so no need to catch it, we have only to catch IOException
         } catch (IOException | InvalidFormatException ex) {
             return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "error.exception", ex.getMessage())).build();
         }
     }
 
+    /**
+     * get the xlsx file column by column, each column holding typed values: numbers, dates and booleans are written
+     * as native json values. When a page or a size is given only the lines of that page are read and the pagination
+     * links are returned in the headers
+     *
+     * @param fileName name of the xlsx file
+     * @param sheet    name or zero based index of the sheet, the first sheet if not given
+     * @param page     index of the page of lines, starting at 0
+     * @param size     number of lines of a page
+     * @param columns  the columns to read, given by header name or zero based index, all the columns if empty
+     * @param accept     the media types accepted by the client
+     * @param webRequest the request, holding the ETags of the client
+     * @return the typed columns of the xlsx file
+     */
+    @GetMapping(value = "/searchExcelFile", params = "typed=true")
+    public ResponseEntity<XlsxSheetColumnsDTO> searchExcelFileColumns(@RequestParam("fileName") String fileName,
+                                                                      @RequestParam(value = "sheet", required = false) String sheet,
+                                                                      @RequestParam(value = "page", required = false) Integer page,
+                                                                      @RequestParam(value = "size", required = false) Integer size,
+                                                                      @RequestParam(value = "columns", required = false) List<String> columns,
+                                                                      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                                      WebRequest webRequest) {
+        log.debug("Request to get the typed columns of the xlsx file {}", fileName);
+        SheetQuery query = new SheetQuery().sheet(sheet).columns(columns);
+        Long version = this.xlsxFileService.findXlsxFileVersion(fileName);
+        HttpHeaders versionHeaders = new HttpHeaders();
+        versionHeaders.setVary(Collections.singletonList(HttpHeaders.ACCEPT));
+        if (isNotModified(webRequest, versionHeaders, version, negotiatedFormat(accept), projection(true, sheet, page, size, columns))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(versionHeaders).build();
+        }
+        try {
+            if (page == null && size == null) {
+                return ResponseEntity.ok().headers(versionHeaders).body(this.xlsxFileService.searchExcelFileColumns(fileName, query));
+            }
+            if ((page != null && page < 0) || (size != null && size < 1)) {
+                return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "error.pagination",
+                    "The page must be positive and the size strictly positive")).build();
+            }
+            Pageable pageable = new PageRequest(page == null ? 0 : page, size == null ? DEFAULT_PAGE_SIZE : size);
+            XlsxSheetColumnsDTO columnsDTO = this.xlsxFileService.searchExcelFileColumns(fileName, query.pageable(pageable));
+            Page<XlsxColumnDTO> columnsPage = new PageImpl<>(columnsDTO.getColumns(), pageable, columnsDTO.getTotalLines());
+            HttpHeaders headers = paginationHeaders(columnsPage, fileName, sheet, columns, true);
+            headers.putAll(versionHeaders);
+            return new ResponseEntity<>(columnsDTO, headers, HttpStatus.OK);
+        } catch (IOException | InvalidFormatException ex) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "error.exception", ex.getMessage())).build();
+        }
+    }
+
+    /**
+     * get the schema of a sheet of the xlsx file: its header columns with their types and its number of rows, without
+     * reading the lines of the sheet
+     *
+     * @param fileName name of the xlsx file
+     * @param sheet    name or zero based index of the sheet, the first sheet if not given
+     * @return the schema of the sheet
+     */
+    @GetMapping("/excelFileSchema")
+    public ResponseEntity<XlsxSheetSchemaDTO> getExcelFileSchema(@RequestParam("fileName") String fileName,
+                                                                 @RequestParam(value = "sheet", required = false) String sheet) {
+        log.debug("Request to get the schema of the xlsx file {}", fileName);
+        try {
+            return ResponseEntity.ok(this.xlsxFileService.findExcelFileSchema(fileName, sheet));
+        } catch (IOException | InvalidFormatException ex) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "error.exception", ex.getMessage())).build();
+        }
+    }
+
+    /**
+     * stream the xlsx file in json format row by row, without building the XlsxFileDTO in memory
+     *
+     * @param fileName name of the xlsx file
+     * @param sheet    name or zero based index of the sheet, the first sheet if not given
+     * @param columns  the columns to write, given by header name or zero based index, all the columns if empty
+     * @return the json document written while the sheet is being read
+     */
+    @GetMapping(value = "/searchExcelFile", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamExcelFileByNameInJsonFormat(@RequestParam("fileName") String fileName,
+                                                                                   @RequestParam(value = "sheet", required = false) String sheet,
+                                                                                   @RequestParam(value = "columns", required = false) List<String> columns) {
+        log.debug("Request to stream the xlsx file {} in json format", fileName);
+        return streamSheet(fileName, sheet, ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8), false,
+            (out, entry, reader) -> new XlsxJsonWriter(out, columns).write(fileName, entry, reader));
+    }
+
+    /**
+     * export a sheet of the xlsx file record by record, as newline delimited json objects keyed by the header names or
+     * as RFC 4180 csv. The export is written while the sheet is being read, in constant memory, and is compressed when
+     * the client accepts gzip
+     *
+     * @param fileName       name of the xlsx file
+     * @param sheet          name or zero based index of the sheet, the first sheet if not given
+     * @param columns        the columns to export, given by header name or zero based index, all the columns if empty
+     * @param format         ndjson or csv
+     * @param acceptEncoding the encodings accepted by the client
+     * @return the records of the sheet, written while the sheet is being read
+     */
+    @GetMapping("/exportExcelFile")
+    public ResponseEntity<StreamingResponseBody> exportExcelFile(@RequestParam("fileName") String fileName,
+                                                                 @RequestParam(value = "sheet", required = false) String sheet,
+                                                                 @RequestParam(value = "columns", required = false) List<String> columns,
+                                                                 @RequestParam(value = "format", defaultValue = "ndjson") String format,
+                                                                 @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        log.debug("Request to export the xlsx file {} in {} format", fileName, format);
+        SheetExportFormat exportFormat = SheetExportFormat.fromExtension(format);
+        if (exportFormat == null) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "error.format",
+                "The export format must be ndjson or csv")).build();
+        }
+        boolean gzip = acceptsGzip(acceptEncoding);
+        String baseName = fileName.endsWith(".xlsx") ? fileName.substring(0, fileName.length() - 5) : fileName;
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+            .header(HttpHeaders.CONTENT_DISPOSITION, attachment(baseName + "." + exportFormat.getExtension()))
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return streamSheet(fileName, sheet, response, gzip, (out, entry, reader) -> {
+            SheetExportWriter exportWriter = exportFormat.createWriter(out, columns);
+            reader.readSheet(entry, exportWriter);
+            exportWriter.finish();
+        });
+    }
+
+    /**
+     * Open the xlsx file and resolve the sheet before the response is committed, so that an unknown file or sheet
+     * still answers 400, then write the sheet to the response body once the request thread has been released.
+     */
+    private ResponseEntity<StreamingResponseBody> streamSheet(String fileName, String sheet, ResponseEntity.BodyBuilder response,
+                                                              boolean gzip, SheetStreamer sheetStreamer) {
+        XlsxSheetReader reader;
+        SheetDirectory.Entry entry;
+        try {
+            reader = this.xlsxFileService.openExcelFile(fileName);
+        } catch (IOException | InvalidFormatException ex) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "error.exception", ex.getMessage())).build();
+        }
+        try {
+            entry = reader.getSheetDirectory().resolve(sheet);
+        } catch (IOException | InvalidFormatException ex) {
+            closeQuietly(reader);
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "error.exception", ex.getMessage())).build();
+        } catch (RuntimeException ex) {
+            closeQuietly(reader);
+            throw ex;
+        }
+        StreamingResponseBody body = out -> {
+            try (XlsxSheetReader sheetReader = reader) {
+                if (gzip) {
+                    GZIPOutputStream gzipOut = new GZIPOutputStream(out, STREAM_BUFFER_SIZE);
+                    sheetStreamer.stream(gzipOut, entry, sheetReader);
+                    gzipOut.finish();
+                } else {
+                    sheetStreamer.stream(out, entry, sheetReader);
+                }
+            } catch (InvalidFormatException ex) {
+                throw new IOException(ex.getMessage(), ex);
+            }
+        };
+        return response.body(body);
+    }
+
+    /**
+     * update a cell of the xlsx file, only if the file still has the version given in If-Match when it is present
+     *
+     * @return 200 once the cell is updated, 400 if it does not exist, 412 if the file has another version
+     */
     @PutMapping("/{column}/{line}/updateCellValue")
-    public ResponseEntity<?> updateCellValue(@PathVariable("column") Integer column, @PathVariable("line") Integer line, @RequestParam("fileName") String fileName, @RequestParam("newValue") String newValue) {
-        log.debug("Request to updateCellValue of the xlsx file {} at colum {} and line {} with the value {}", fileName, column, line, newValue);
+    public ResponseEntity<?> updateCellValue(@PathVariable("column") Integer column, @PathVariable("line") Integer line, @RequestParam("fileName") String fileName,
+                                             @RequestParam(value = "sheet", required = false) String sheet, @RequestParam("newValue") String newValue,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.debug("Request to updateCellValue of the xlsx file {} at sheet {}, colum {} and line {} with the value {}", fileName, sheet, column, line, newValue);
+        try {
+            this.xlsxCellEditCoalescer.updateCellValues(fileName, Collections.singletonList(new XlsxCellEditDTO(sheet, line, column, newValue)),
+                expectedVersion(ifMatch));
+            return ResponseEntity.ok().build();
+        } catch (IOException | InvalidFormatException ex) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "error.exception", ex.getMessage())).build();
+        }
+    }
+
+    /**
+     * update many cells of the xlsx file in a single read and write of the file, written with the other edits of the
+     * file received at the same time, only if the file still has the version given in If-Match when it is present
+     *
+     * @param fileName name of the xlsx file
+     * @param edits    the cells to update with their new value
+     * @param ifMatch  the ETag of the version of the file the edits are based on
+     * @return 200 once all the cells are updated, 400 if one of them does not exist and then none is updated, 412 if
+     * the file has another version
+     */
+    @PutMapping("/updateCellValues")
+    public ResponseEntity<?> updateCellValues(@RequestParam("fileName") String fileName, @RequestBody List<XlsxCellEditDTO> edits,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.debug("Request to update {} cells of the xlsx file {}", edits.size(), fileName);
         try {
-            this.xlsxFileService.updateCellValueForXlsxFile(fileName, column, line, newValue);
+            this.xlsxCellEditCoalescer.updateCellValues(fileName, edits, expectedVersion(ifMatch));
             return ResponseEntity.ok().build();
         } catch (IOException | InvalidFormatException ex) {
             return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "error.exception", ex.getMessage())).build();
         }
     }
 
+    /**
+     * delete the xlsx file with its sheets and cell edits, its content is kept as long as other files hold it
+     *
+     * @param fileName name of the xlsx file
+     * @return 200 once the file is deleted, 400 if it does not exist
+     */
+    @DeleteMapping("/deleteExcelFile")
+    public ResponseEntity<Void> deleteExcelFile(@RequestParam("fileName") String fileName) {
+        log.debug("Request to delete the xlsx file {}", fileName);
+        try {
+            this.xlsxFileService.deleteXlsxFile(fileName);
+            return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert(ENTITY_NAME, fileName)).build();
+        } catch (IOException ex) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "error.exception", ex.getMessage())).build();
+        }
+    }
+
+    /**
+     * Set the ETag of the representation, made of the version of the file, read before the sheet so that the ETag is
+     * never more recent than the lines returned, and of the representation, so that two representations of a version
+     * never share an ETag.
+     *
+     * @param version        the version of the file, null if the file does not exist
+     * @param representation the format of the body and its encoding
+     * @param projection     the fingerprint of the sheet, columns and page read, null for the whole first sheet
+     * @return true if the client already holds this representation
+     */
+    private static boolean isNotModified(WebRequest webRequest, HttpHeaders headers, Long version, String representation,
+                                         String projection) {
+        if (version == null) {
+            return false;
+        }
+        String eTag = "\"" + version + "-" + representation + (projection == null ? "" : "-" + projection) + "\"";
+        headers.setETag(eTag);
+        return webRequest.checkNotModified(eTag);
+    }
+
+    /**
+     * @return the fingerprint of the part of the file read, null when the whole first sheet is read
+     */
+    private static String projection(boolean typed, String sheet, Integer page, Integer size, List<String> columns) {
+        if (!typed && sheet == null && page == null && size == null && (columns == null || columns.isEmpty())) {
+            return null;
+        }
+        String projection = "typed=" + typed + "&sheet=" + sheet + "&page=" + page + "&size=" + size + "&columns=" + columns;
+        return DigestUtils.md5DigestAsHex(projection.getBytes(StandardCharsets.UTF_8)).substring(0, 16);
+    }
+
+    /**
+     * @return the version of the file given by an If-Match header, null if any version matches. Only the version part
+     * of the ETag is compared, whatever the representation it has been received with. The weak ETags are never
+     * returned by the server and a If-Match requires a strong comparison, so they match no version
+     */
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String eTag = ifMatch.trim();
+        if (eTag.length() < 2 || !eTag.startsWith("\"") || !eTag.endsWith("\"")) {
+            return UNMATCHED_VERSION;
+        }
+        String tag = eTag.substring(1, eTag.length() - 1);
+        int representation = tag.indexOf('-');
+        try {
+            return Long.parseLong(representation < 0 ? tag : tag.substring(0, representation));
+        } catch (NumberFormatException e) {
+            return UNMATCHED_VERSION;
+        }
+    }
+
+    /**
+     * The names given by the client are encoded in the links, so that a name holding a reserved character such as
+     * {@code &}, {@code #} or {@code +} is read back whole by the next request.
+     */
+    private HttpHeaders paginationHeaders(Page<?> page, String fileName, String sheet, List<String> columns, boolean typed) {
+        UriComponentsBuilder baseUrl = UriComponentsBuilder.fromPath("/api/ositel/searchExcelFile")
+            .queryParam("fileName", encodeQueryParam(fileName));
+        if (typed) {
+            baseUrl.queryParam("typed", true);
+        }
+        if (sheet != null) {
+            baseUrl.queryParam("sheet", encodeQueryParam(sheet));
+        }
+        if (columns != null) {
+            for (String column : columns) {
+                baseUrl.queryParam("columns", encodeQueryParam(column));
+            }
+        }
+        return PaginationUtil.generatePaginationHttpHeaders(page, baseUrl.build(true).toUriString());
+    }
+
+    /**
+     * @return the value percent-encoded for a query parameter, the {@code +} included since it is read as a space
+     */
+    private static String encodeQueryParam(String value) {
+        try {
+            return UriUtils.encodeQueryParam(value, StandardCharsets.UTF_8.name()).replace("+", "%2B");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The name is given by the client: the quoted name keeps only the printable ascii characters which cannot end the
+     * quoted string, the whole name being given in the RFC 5987 form for the clients which read it.
+     *
+     * @return the Content-Disposition of an attachment with the given name
+     */
+    private static String attachment(String fileName) {
+        StringBuilder asciiName = new StringBuilder();
+        for (char c : fileName.toCharArray()) {
+            asciiName.append(c < 0x20 || c > 0x7e || c == '"' || c == '\\' || c == ';' ? '_' : c);
+        }
+        StringBuilder encodedName = new StringBuilder();
+        for (byte b : fileName.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || "!#$&+-.^_`|~".indexOf(c) >= 0) {
+                encodedName.append(c);
+            } else {
+                encodedName.append('%').append(Character.toUpperCase(Character.forDigit(c >> 4, 16)))
+                    .append(Character.toUpperCase(Character.forDigit(c & 0xf, 16)));
+            }
+        }
+        return "attachment; filename=\"" + asciiName + "\"; filename*=UTF-8''" + encodedName;
+    }
+
+    /**
+     * @return true if the client accepts gzip, named or through the wildcard, with a quality above 0
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double wildcardQuality = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1;
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if (parameter.toLowerCase(Locale.ROOT).startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if ("gzip".equals(name) || "x-gzip".equals(name)) {
+                gzipQuality = quality;
+            } else if ("*".equals(name)) {
+                wildcardQuality = quality;
+            }
+        }
+        if (gzipQuality != null) {
+            return gzipQuality > 0;
+        }
+        return wildcardQuality != null && wildcardQuality > 0;
+    }
+
+    /**
+     * @return the format the body is written in: json unless the client prefers one of the binary formats
+     */
+    private static String negotiatedFormat(String accept) {
+        if (accept == null) {
+            return FORMAT_JSON;
+        }
+        List<MediaType> acceptedTypes = MediaType.parseMediaTypes(accept);
+        MediaType.sortBySpecificityAndQuality(acceptedTypes);
+        for (MediaType acceptedType : acceptedTypes) {
+            if (acceptedType.includes(MediaType.APPLICATION_JSON)) {
+                return FORMAT_JSON;
+            }
+            if (acceptedType.includes(JacksonBinaryHttpMessageConverter.APPLICATION_SMILE)) {
+                return "smile";
+            }
+            if (acceptedType.includes(JacksonBinaryHttpMessageConverter.APPLICATION_CBOR)) {
+                return "cbor";
+            }
+        }
+        return FORMAT_JSON;
+    }
+
+    private void closeQuietly(XlsxSheetReader reader) {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            log.warn("The reader of the xlsx file could not be closed", e);
+        }
+    }
+
+    /**
+     * writes a sheet of an opened xlsx file to the response body
+     */
+    @FunctionalInterface
+    private interface SheetStreamer {
+
+        void stream(OutputStream out, SheetDirectory.Entry entry, XlsxSheetReader reader) throws IOException, InvalidFormatException;
+    }
 }
@@ -0,0 +1,38 @@
+package org.ositel.technical_test.web.rest.errors;
+
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Status;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Exception returning a Request Entity Too Large code, when the content sent by the client goes beyond its limit.
+ */
+public class PayloadTooLargeAlertException extends AbstractThrowableProblem {
+
+    private final String entityName;
+
+    private final String errorKey;
+
+    public PayloadTooLargeAlertException(String defaultMessage, String entityName, String errorKey) {
+        super(ErrorConstants.DEFAULT_TYPE, defaultMessage, Status.REQUEST_ENTITY_TOO_LARGE, null, null, null, getAlertParameters(entityName, errorKey));
+        this.entityName = entityName;
+        this.errorKey = errorKey;
+    }
+
+    public String getEntityName() {
+        return entityName;
+    }
+
+    public String getErrorKey() {
+        return errorKey;
+    }
+
+    private static Map<String, Object> getAlertParameters(String entityName, String errorKey) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("message", "error." + errorKey);
+        parameters.put("params", entityName);
+        return parameters;
+    }
+}
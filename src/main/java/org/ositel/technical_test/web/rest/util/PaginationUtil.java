@@ -1,6 +1,7 @@
 package org.ositel.technical_test.web.rest.util;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.web.util.UriComponentsBuilder;
 
@@ -16,6 +17,12 @@ public final class PaginationUtil {
     private PaginationUtil() {
     }
 
+    /**
+     * Generate the headers of a page read at an offset.
+     *
+     * @param page    the page
+     * @param baseUrl the url of the resource with its query, already encoded: it is not encoded again
+     */
     public static HttpHeaders generatePaginationHttpHeaders(Page page, String baseUrl) {
 
         HttpHeaders headers = new HttpHeaders();
@@ -39,7 +46,32 @@ public final class PaginationUtil {
         return headers;
     }
 
+    /**
+     * Generate the headers of a slice read after a key rather than at an offset: the next link carries the key of the
+     * last element of the slice, so that the next slice is read from the index without skipping the preceding ones.
+     *
+     * @param slice        the slice
+     * @param keyParameter the name of the query parameter of the key
+     * @param lastKey      the key of the last element of the slice, null if the slice is empty
+     * @param totalCount   the total number of elements
+     * @param baseUrl      the url of the resource, already encoded
+     */
+    public static HttpHeaders generateKeysetPaginationHttpHeaders(Slice slice, String keyParameter, Object lastKey, long totalCount,
+                                                                  String baseUrl) {
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("X-Total-Count", Long.toString(totalCount));
+        String link = "";
+        if (slice.hasNext() && lastKey != null) {
+            link = "<" + UriComponentsBuilder.fromUriString(baseUrl).queryParam(keyParameter, lastKey)
+                .queryParam("size", slice.getSize()).build().toUriString() + ">; rel=\"next\",";
+        }
+        link += "<" + UriComponentsBuilder.fromUriString(baseUrl).queryParam("size", slice.getSize()).build().toUriString() + ">; rel=\"first\"";
+        headers.add(HttpHeaders.LINK, link);
+        return headers;
+    }
+
     private static String generateUri(String baseUrl, int page, int size) {
-        return UriComponentsBuilder.fromUriString(baseUrl).queryParam("page", page).queryParam("size", size).toUriString();
+        return UriComponentsBuilder.fromUriString(baseUrl).queryParam("page", page).queryParam("size", size).build().toUriString();
     }
 }
@@ -0,0 +1,133 @@
+package org.ositel.technical_test.service;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ositel.technical_test.config.ApplicationProperties;
+import org.ositel.technical_test.service.dto.XlsxCellEditDTO;
+import org.ositel.technical_test.web.rest.errors.BadRequestAlertException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Test class for the XlsxCellEditCoalescer.
+ *
+ * @see XlsxCellEditCoalescer
+ */
+public class XlsxCellEditCoalescerUnitTest {
+
+    private final List<List<XlsxCellEditDTO>> writes = Collections.synchronizedList(new ArrayList<>());
+
+    private XlsxFileService xlsxFileService;
+
+    private XlsxCellEditCoalescer xlsxCellEditCoalescer;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+        xlsxFileService = mock(XlsxFileService.class);
+        doAnswer(invocation -> {
+            List<XlsxCellEditDTO> edits = (List<XlsxCellEditDTO>) invocation.getArguments()[1];
+            for (XlsxCellEditDTO edit : edits) {
+                if (edit.getLine() >= 10) {
+                    throw new BadRequestAlertException("Line you want to update does not exist", "XlsxFile", "column.doesNotExist");
+                }
+            }
+            writes.add(edits);
+            return null;
+        }).when(xlsxFileService).updateCellValuesForXlsxFile(eq("burst.xlsx"), anyListOf(XlsxCellEditDTO.class), isNull(Long.class));
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getCellEdits().setCoalescingWindow(200);
+        xlsxCellEditCoalescer = new XlsxCellEditCoalescer(xlsxFileService, applicationProperties, new MetricRegistry());
+    }
+
+    @After
+    public void shutdown() {
+        xlsxCellEditCoalescer.shutdown();
+    }
+
+    @Test
+    public void coalesceCellEditsTest() throws Exception {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int line = 1; line <= 3; line++) {
+            futures.add(xlsxCellEditCoalescer.submit("burst.xlsx",
+                Collections.singletonList(new XlsxCellEditDTO(null, line, 0, "value" + line))));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+        // the edits received in the window are written at once, in the order they were received
+        assertThat(writes).hasSize(1);
+        assertThat(writes.get(0)).extracting(XlsxCellEditDTO::getLine).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    public void rejectCoalescedCellEditsTest() throws Exception {
+        CompletableFuture<Void> valid = xlsxCellEditCoalescer.submit("burst.xlsx",
+            Collections.singletonList(new XlsxCellEditDTO(null, 1, 0, "valid")));
+        CompletableFuture<Void> invalid = xlsxCellEditCoalescer.submit("burst.xlsx",
+            Collections.singletonList(new XlsxCellEditDTO(null, 10, 0, "invalid")));
+
+        valid.get(5, TimeUnit.SECONDS);
+        try {
+            invalid.get(5, TimeUnit.SECONDS);
+            fail("the edit of a missing line must be rejected");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(BadRequestAlertException.class);
+        }
+        // the rejected batch is applied again one request at a time, only the invalid edit is lost
+        assertThat(writes).hasSize(1);
+        assertThat(writes.get(0)).extracting(XlsxCellEditDTO::getValue).containsExactly("valid");
+    }
+
+    @Test
+    public void withdrawTimedOutCellEditsTest() throws Exception {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getCellEdits().setCoalescingWindow(200);
+        applicationProperties.getCellEdits().setCoalescingTimeout(50);
+        XlsxCellEditCoalescer timingOutCoalescer = new XlsxCellEditCoalescer(xlsxFileService, applicationProperties, new MetricRegistry());
+        try {
+            timingOutCoalescer.updateCellValues("burst.xlsx", Collections.singletonList(new XlsxCellEditDTO(null, 1, 0, "late")), null);
+            fail("the edits must not be waited for longer than the timeout");
+        } catch (IOException e) {
+            assertThat(e).hasMessageContaining("withdrawn");
+        } finally {
+            timingOutCoalescer.shutdown();
+        }
+        // the edits withdrawn before their window ended are never written
+        assertThat(writes).isEmpty();
+    }
+
+    @Test
+    public void rejectCellEditsAfterShutdownTest() throws Exception {
+        CompletableFuture<Void> submitted = xlsxCellEditCoalescer.submit("burst.xlsx",
+            Collections.singletonList(new XlsxCellEditDTO(null, 1, 0, "submitted")));
+        xlsxCellEditCoalescer.shutdown();
+        // the window already started is written on shutdown, the edits submitted afterwards fail instead of waiting forever
+        assertThat(submitted).isCompleted();
+        assertThat(writes).hasSize(1);
+        CompletableFuture<Void> rejected = xlsxCellEditCoalescer.submit("burst.xlsx",
+            Collections.singletonList(new XlsxCellEditDTO(null, 2, 0, "rejected")));
+        try {
+            rejected.get(5, TimeUnit.SECONDS);
+            fail("the edits submitted after the shutdown must be rejected");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(RejectedExecutionException.class);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.ositel.technical_test.service;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.ositel.technical_test.config.ApplicationProperties;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the XlsxFileLockManager.
+ *
+ * @see XlsxFileLockManager
+ */
+public class XlsxFileLockManagerUnitTest {
+
+    private MetricRegistry metricRegistry;
+
+    private XlsxFileLockManager xlsxFileLockManager;
+
+    @Before
+    public void setup() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        // the files of the test are mapped to different stripes
+        applicationProperties.getFileLocks().setStripes(16);
+        metricRegistry = new MetricRegistry();
+        xlsxFileLockManager = new XlsxFileLockManager(applicationProperties, metricRegistry);
+    }
+
+    @Test
+    public void readWhileWriteLockedTest() throws Exception {
+        AtomicInteger value = new AtomicInteger();
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                xlsxFileLockManager.lockUntilTransactionEnd("hot.xlsx");
+                value.set(1);
+                locked.countDown();
+                commit.await(5, TimeUnit.SECONDS);
+                value.set(2);
+                TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                    TransactionSynchronization.STATUS_COMMITTED);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+        });
+        assertThat(locked.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // the reads of the other files are not blocked by the writer
+        assertThat(xlsxFileLockManager.read("cold.xlsx", value::get)).isEqualTo(1);
+        assertThat(metricRegistry.timer(MetricRegistry.name(XlsxFileLockManager.class, "read-lock-wait")).getCount()).isEqualTo(0);
+
+        // the read of the locked file waits for the end of the transaction of the writer
+        CompletableFuture<Integer> reader = CompletableFuture.supplyAsync(() -> {
+            try {
+                return xlsxFileLockManager.read("hot.xlsx", value::get);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertThat(reader.isDone()).isFalse();
+        commit.countDown();
+        writer.get(5, TimeUnit.SECONDS);
+        assertThat(reader.get(5, TimeUnit.SECONDS)).isEqualTo(2);
+        assertThat(metricRegistry.timer(MetricRegistry.name(XlsxFileLockManager.class, "read-lock-wait")).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void readRunAgainAfterConcurrentWriteTest() throws Exception {
+        AtomicInteger reads = new AtomicInteger();
+        String result = xlsxFileLockManager.read("hot.xlsx", () -> {
+            if (reads.incrementAndGet() == 1) {
+                // a writer commits while the optimistic read is running
+                CompletableFuture.runAsync(() -> {
+                    TransactionSynchronizationManager.initSynchronization();
+                    xlsxFileLockManager.lockUntilTransactionEnd("hot.xlsx");
+                    TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                        TransactionSynchronization.STATUS_COMMITTED);
+                    TransactionSynchronizationManager.clearSynchronization();
+                }).join();
+                return "stale";
+            }
+            return "current";
+        });
+        assertThat(result).isEqualTo("current");
+        assertThat(reads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void readWithinLockingTransactionTest() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            xlsxFileLockManager.lockUntilTransactionEnd("hot.xlsx");
+            // the thread holding the write lock neither waits for itself nor locks the file twice
+            xlsxFileLockManager.lockUntilTransactionEnd("hot.xlsx");
+            assertThat(xlsxFileLockManager.read("hot.xlsx", () -> "read")).isEqualTo("read");
+            assertThat(TransactionSynchronizationManager.getSynchronizations()).hasSize(1);
+            TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(metricRegistry.timer(MetricRegistry.name(XlsxFileLockManager.class, "write-lock-wait")).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void lockManyFilesTest() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            xlsxFileLockManager.lockUntilTransactionEnd(Arrays.asList("hot.xlsx", "cold.xlsx", "hot.xlsx"));
+            // the files locked at once are then updated one by one without locking them again
+            xlsxFileLockManager.lockUntilTransactionEnd("cold.xlsx");
+            assertThat(TransactionSynchronizationManager.getSynchronizations()).hasSize(2);
+            CompletableFuture<String> reader = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return xlsxFileLockManager.read("cold.xlsx", () -> "read");
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            Thread.sleep(100);
+            assertThat(reader.isDone()).isFalse();
+            TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                TransactionSynchronization.STATUS_COMMITTED);
+            assertThat(reader.get(5, TimeUnit.SECONDS)).isEqualTo("read");
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
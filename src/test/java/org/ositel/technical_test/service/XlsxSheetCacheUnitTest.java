@@ -0,0 +1,64 @@
+package org.ositel.technical_test.service;
+
+import com.codahale.metrics.MetricRegistry;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Before;
+import org.junit.Test;
+import org.ositel.technical_test.config.ApplicationProperties;
+import org.ositel.technical_test.service.xlsx.ParsedSheet;
+import org.ositel.technical_test.service.xlsx.SheetDirectory;
+import org.ositel.technical_test.service.xlsx.XlsxSheetReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the XlsxSheetCache.
+ *
+ * @see XlsxSheetCache
+ */
+public class XlsxSheetCacheUnitTest {
+
+    private XlsxSheetCache xlsxSheetCache;
+
+    @Before
+    public void setup() {
+        xlsxSheetCache = new XlsxSheetCache(new ApplicationProperties(), new MetricRegistry());
+    }
+
+    @Test
+    public void serveSheetsOfCurrentContentTest() throws Exception {
+        ParsedSheet previousSheet = parse("previous");
+        ParsedSheet currentSheet = parse("current");
+
+        xlsxSheetCache.put(1L, "current-hash", "cached.xlsx", Collections.singletonList("data"), currentSheet);
+        assertThat(xlsxSheetCache.get(1L, "current-hash", null)).isSameAs(currentSheet);
+        // a sheet parsed from another content of the file is never served
+        assertThat(xlsxSheetCache.get(1L, "previous-hash", null)).isNull();
+
+        // a stale sheet put after the file has been written replaces the cached sheets but is not served
+        xlsxSheetCache.put(1L, "previous-hash", "cached.xlsx", Collections.singletonList("data"), previousSheet);
+        assertThat(xlsxSheetCache.get(1L, "current-hash", null)).isNull();
+        assertThat(xlsxSheetCache.getWeight()).isEqualTo(previousSheet.getWeight());
+
+        xlsxSheetCache.invalidate("cached.xlsx");
+        assertThat(xlsxSheetCache.get(1L, "previous-hash", null)).isNull();
+        assertThat(xlsxSheetCache.getWeight()).isZero();
+    }
+
+    private static ParsedSheet parse(String value) throws Exception {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        workbook.createSheet("data").createRow(0).createCell(0).setCellValue(value);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        workbook.write(out);
+        try (XlsxSheetReader reader = XlsxSheetReader.open(new ByteArrayInputStream(out.toByteArray()))) {
+            SheetDirectory.Entry entry = reader.getSheetDirectory().resolve(null);
+            ParsedSheet.Builder builder = new ParsedSheet.Builder(entry, Long.MAX_VALUE);
+            reader.readSheet(entry, builder);
+            return builder.build();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.ositel.technical_test.service.xlsx;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ositel.technical_test.service.xlsx.XlsxTestUtil.CellCollector;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.ositel.technical_test.service.xlsx.XlsxTestUtil.toBytes;
+
+/**
+ * Test class for the ColumnarFileWriter and the ColumnarFileSheet.
+ *
+ * @see ColumnarFileSheet
+ */
+public class ColumnarFileSheetUnitTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void replaySheetTest() throws Exception {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        workbook.createSheet("first").createRow(0).createCell(0).setCellValue("ignored");
+        CellStyle dateStyle = workbook.createCellStyle();
+        dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+        Sheet sheet = workbook.createSheet("typed");
+        Row header = sheet.createRow(0);
+        header.createCell(0).setCellValue("name");
+        header.createCell(1).setCellValue("value");
+        // more lines than a row group, a column only being filled in the last one
+        for (int line = 1; line <= 2 * ColumnarFileWriter.ROW_GROUP_SIZE + 10; line++) {
+            Row row = sheet.createRow(line);
+            row.createCell(0).setCellValue("line" + (line % 7));
+            row.createCell(1).setCellValue(line * 1.5);
+        }
+        Row row = sheet.getRow(2 * ColumnarFileWriter.ROW_GROUP_SIZE + 5);
+        Cell date = row.createCell(2);
+        date.setCellValue(new SimpleDateFormat("yyyy-MM-dd").parse("2017-10-17"));
+        date.setCellStyle(dateStyle);
+        row.createCell(3).setCellValue(true);
+        Cell formula = row.createCell(4);
+        formula.setCellFormula("B1*2");
+        formula.setCellValue(3);
+        row.createCell(5);
+        byte[] content = toBytes(workbook);
+
+        Path path = temporaryFolder.getRoot().toPath().resolve("1.xlsc");
+        List<String> parsedCells = new ArrayList<>();
+        try (XlsxSheetReader reader = XlsxSheetReader.open(new ByteArrayInputStream(content));
+             ColumnarFileWriter writer = new ColumnarFileWriter(path, "hash")) {
+            for (SheetDirectory.Entry entry : reader.getSheetDirectory().getEntries()) {
+                ColumnarFileWriter.SheetWriter sheetWriter = writer.startSheet(entry);
+                reader.readSheet(entry, "typed".equals(entry.getName())
+                    ? new CompositeRowHandler(sheetWriter, new CellCollector(parsedCells, ColumnarFileSheetUnitTest::typedCell)) : sheetWriter);
+                sheetWriter.finish();
+            }
+            writer.commit();
+        }
+
+        ColumnarFileSheet columnarFileSheet = ColumnarFileSheet.open(path, "hash", "typed");
+        assertThat(columnarFileSheet.getSheetIndex()).isEqualTo(1);
+        assertThat(columnarFileSheet.getLineCount()).isEqualTo(2 * ColumnarFileWriter.ROW_GROUP_SIZE + 10);
+        List<String> replayedCells = new ArrayList<>();
+        columnarFileSheet.replay(new CellCollector(replayedCells, ColumnarFileSheetUnitTest::typedCell));
+        assertThat(replayedCells).isEqualTo(parsedCells);
+        assertThat(replayedCells).contains("2=DATE 2017-10-17", "3=BOOLEAN TRUE", "4=NUMERIC formula 3", "5=BLANK ");
+
+        assertThat(ColumnarFileSheet.open(path, "hash", "0").getSheetName()).isEqualTo("first");
+        // a columnar file written from another content of the xlsx file is never read
+        assertThat(ColumnarFileSheet.open(path, "written-hash", "typed")).isNull();
+        assertThat(ColumnarFileSheet.open(temporaryFolder.getRoot().toPath().resolve("2.xlsc"), "hash", null)).isNull();
+    }
+
+    @Test
+    public void replayProjectedLinesTest() throws Exception {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet("cities");
+        Row header = sheet.createRow(0);
+        header.createCell(0).setCellValue("name");
+        header.createCell(1).setCellValue("city");
+        String[] cities = {"Paris", "Lyon", "Tunis"};
+        for (int line = 1; line <= cities.length; line++) {
+            Row row = sheet.createRow(line);
+            row.createCell(0).setCellValue("line" + line);
+            row.createCell(1).setCellValue(cities[line - 1]);
+        }
+        byte[] content = toBytes(workbook);
+        Path path = temporaryFolder.getRoot().toPath().resolve("3.xlsc");
+        try (XlsxSheetReader reader = XlsxSheetReader.open(new ByteArrayInputStream(content));
+             ColumnarFileWriter writer = new ColumnarFileWriter(path, "hash")) {
+            SheetDirectory.Entry entry = reader.getSheetDirectory().resolve(null);
+            ColumnarFileWriter.SheetWriter sheetWriter = writer.startSheet(entry);
+            reader.readSheet(entry, sheetWriter);
+            sheetWriter.finish();
+            writer.commit();
+        }
+
+        ColumnarFileSheet columnarFileSheet = ColumnarFileSheet.open(path, "hash", "cities");
+        ColumnarSheetHandler rowHandler = new ColumnarSheetHandler(new SheetQuery().pageable(new PageRequest(1, 1)).columns(Collections.singletonList("city")), columnarFileSheet.getLineCount());
+        columnarFileSheet.replay(rowHandler);
+        assertThat(rowHandler.getPageLineCount()).isEqualTo(1);
+        assertThat(rowHandler.getColumns()).hasSize(1);
+        assertThat(rowHandler.getColumns().get(0).getStrings()).containsExactly("Lyon");
+    }
+
+    /**
+     * @return the cell as "column=type value"
+     */
+    private static String typedCell(int columnIndex, SheetCell cell) {
+        return columnIndex + "=" + cell.getType() + (cell.isFormula() ? " formula " : " ") + cell.getFormattedValue();
+    }
+}
@@ -0,0 +1,99 @@
+package org.ositel.technical_test.service.xlsx;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.ositel.technical_test.service.xlsx.XlsxTestUtil.toBytes;
+
+/**
+ * Test class for the FormulaRecalculator.
+ *
+ * @see FormulaRecalculator
+ */
+public class FormulaRecalculatorUnitTest {
+
+    @Test
+    public void recalculateDependentFormulasTest() throws Exception {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        Row row = workbook.createSheet("data").createRow(0);
+        row.createCell(0).setCellValue(1);
+        row.createCell(1).setCellFormula("A1*2");
+        row.createCell(2).setCellFormula("B1+1");
+        row.createCell(3).setCellFormula("SUM(A1:A3)");
+        row.createCell(4).setCellFormula("5*2");
+        workbook.createSheet("summary").createRow(0).createCell(0).setCellFormula("data!C1*10");
+        byte[] content = toBytes(workbook);
+
+        FormulaRecalculator recalculator = FormulaRecalculator.load(content);
+        assertThat(recalculator.getFormulaCount()).isEqualTo(5);
+        Map<Integer, SheetCellEdits> cellEdits = edit(0, 0, "3");
+        assertThat(recalculator.apply(cellEdits)).isEmpty();
+        Map<Integer, SheetFormulaValues> formulaValues = recalculator.recalculate();
+
+        // only the formulas depending on the edited cell are computed again, in the other sheets too
+        assertThat(formulaValues.keySet()).containsOnly(0, 1);
+        assertThat(formulaValues.get(0).getRows().get(0).keySet()).containsExactly(1, 2, 3);
+        assertThat(formulaValues.get(0).getRows().get(0).get(2).getValue()).isEqualTo("7.0");
+        assertThat(formulaValues.get(1).getRows().get(0).get(0).getValue()).isEqualTo("70.0");
+
+        ByteArrayOutputStream patched = new ByteArrayOutputStream();
+        try (XlsxPackagePatcher patcher = XlsxPackagePatcher.open(content)) {
+            assertThat(patcher.hasFormulas()).isTrue();
+            patcher.patch(cellEdits, formulaValues, patched);
+        }
+        XSSFWorkbook patchedWorkbook = new XSSFWorkbook(new ByteArrayInputStream(patched.toByteArray()));
+        Row patchedRow = patchedWorkbook.getSheet("data").getRow(0);
+        assertThat(patchedRow.getCell(0).getStringCellValue()).isEqualTo("3");
+        assertThat(patchedRow.getCell(1).getCellFormula()).isEqualTo("A1*2");
+        assertThat(patchedRow.getCell(1).getNumericCellValue()).isEqualTo(6);
+        assertThat(patchedRow.getCell(2).getNumericCellValue()).isEqualTo(7);
+        // the text of the edited cell is ignored by the sum of the range, as by excel
+        assertThat(patchedRow.getCell(3).getNumericCellValue()).isEqualTo(0);
+        assertThat(patchedRow.getCell(4).getNumericCellValue()).isEqualTo(0);
+        assertThat(patchedWorkbook.getSheet("summary").getRow(0).getCell(0).getNumericCellValue()).isEqualTo(70);
+
+        // the graph is kept up to date by the edits, a replaced formula is not computed anymore
+        recalculator.apply(edit(0, 1, "10"));
+        formulaValues = recalculator.recalculate();
+        assertThat(formulaValues.get(0).getRows().get(0).keySet()).containsExactly(2);
+        assertThat(formulaValues.get(0).getRows().get(0).get(2).getValue()).isEqualTo("11.0");
+        assertThat(formulaValues.get(1).getRows().get(0).get(0).getValue()).isEqualTo("110.0");
+        try (XlsxPackagePatcher patcher = XlsxPackagePatcher.open(patched.toByteArray())) {
+            patcher.patch(edit(0, 1, "10"), formulaValues, new ByteArrayOutputStream());
+            fail("the replacement of a formula must not be patched");
+        } catch (XlsxPackagePatcher.UnsupportedPatchException e) {
+            // expected, the workbook of the recalculator is written instead
+        }
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        recalculator.write(written);
+        XSSFWorkbook writtenWorkbook = new XSSFWorkbook(new ByteArrayInputStream(written.toByteArray()));
+        Sheet writtenSheet = writtenWorkbook.getSheet("data");
+        assertThat(writtenSheet.getRow(0).getCell(1).getCellType()).isEqualTo(Cell.CELL_TYPE_STRING);
+        assertThat(writtenSheet.getRow(0).getCell(2).getNumericCellValue()).isEqualTo(11);
+    }
+
+    @Test
+    public void workbookWithoutFormulasTest() throws Exception {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        workbook.createSheet("data").createRow(0).createCell(0).setCellValue("value");
+        try (XlsxPackagePatcher patcher = XlsxPackagePatcher.open(toBytes(workbook))) {
+            assertThat(patcher.hasFormulas()).isFalse();
+        }
+    }
+
+    private static Map<Integer, SheetCellEdits> edit(int rowIndex, int columnIndex, String value) {
+        SheetCellEdits sheetCellEdits = new SheetCellEdits();
+        sheetCellEdits.put(rowIndex, columnIndex, value);
+        return Collections.singletonMap(0, sheetCellEdits);
+    }
+}
@@ -0,0 +1,58 @@
+package org.ositel.technical_test.service.xlsx;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+import org.ositel.technical_test.service.xlsx.XlsxTestUtil.CellCollector;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.ositel.technical_test.service.xlsx.XlsxTestUtil.toBytes;
+
+/**
+ * Test class for the SheetCellEdits.
+ *
+ * @see SheetCellEdits
+ */
+public class SheetCellEditsUnitTest {
+
+    @Test
+    public void applyCellEditsTest() throws Exception {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet("edited");
+        Row header = sheet.createRow(0);
+        header.createCell(0).setCellValue("a");
+        header.createCell(2).setCellValue("c");
+        Row line = sheet.createRow(1);
+        line.createCell(0).setCellValue("a1");
+        line.createCell(2).setCellValue("c1");
+        byte[] content = toBytes(workbook);
+
+        SheetCellEdits sheetCellEdits = new SheetCellEdits();
+        sheetCellEdits.put(1, 0, "first");
+        // the last edit of a cell wins
+        sheetCellEdits.put(1, 0, "a2");
+        sheetCellEdits.put(1, 1, "b2");
+        sheetCellEdits.put(1, 3, "d2");
+        sheetCellEdits.put(0, 2, null);
+
+        List<String> cells = new ArrayList<>();
+        try (XlsxSheetReader reader = XlsxSheetReader.open(new ByteArrayInputStream(content))) {
+            reader.setCellEdits(Collections.singletonMap(0, sheetCellEdits));
+            reader.readSheet((String) null, new CellCollector(cells));
+        }
+        assertThat(cells).containsExactly("row0", "0=a", "row1", "0=a2", "1=b2", "2=c1", "3=d2");
+
+        // the edits of the columns outside of the projection are not reported
+        cells.clear();
+        try (XlsxSheetReader reader = XlsxSheetReader.open(new ByteArrayInputStream(content))) {
+            reader.readSheet((String) null, sheetCellEdits.apply(new CellCollector(cells).withColumnCount(2)));
+        }
+        assertThat(cells).containsExactly("row0", "0=a", "row1", "0=a2", "1=b2");
+    }
+}
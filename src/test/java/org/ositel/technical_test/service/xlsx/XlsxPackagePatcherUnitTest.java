@@ -0,0 +1,127 @@
+package org.ositel.technical_test.service.xlsx;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+import org.ositel.technical_test.service.xlsx.XlsxTestUtil.CellCollector;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.ositel.technical_test.service.xlsx.XlsxTestUtil.toBytes;
+
+/**
+ * Test class for the XlsxPackagePatcher.
+ *
+ * @see XlsxPackagePatcher
+ */
+public class XlsxPackagePatcherUnitTest {
+
+    @Test
+    public void patchSheetTest() throws Exception {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        CellStyle boldStyle = workbook.createCellStyle();
+        boldStyle.setFont(workbook.createFont());
+        Sheet sheet = workbook.createSheet("edited");
+        Row header = sheet.createRow(0);
+        header.createCell(0).setCellValue("name");
+        header.createCell(1).setCellValue("age");
+        header.getCell(0).setCellStyle(boldStyle);
+        Row line = sheet.createRow(1);
+        line.createCell(0).setCellValue("john");
+        line.createCell(1).setCellValue(42);
+        workbook.createSheet("untouched").createRow(0).createCell(0).setCellValue("kept");
+        byte[] content = toBytes(workbook);
+
+        SheetCellEdits sheetCellEdits = new SheetCellEdits();
+        sheetCellEdits.put(0, 0, "<first & name>");
+        sheetCellEdits.put(1, 1, null);
+        sheetCellEdits.put(1, 2, "new");
+        sheetCellEdits.put(3, 0, "jane");
+        ByteArrayOutputStream patched = new ByteArrayOutputStream();
+        Set<CellReference> createdCells;
+        try (XlsxPackagePatcher patcher = XlsxPackagePatcher.open(content)) {
+            assertThat(patcher.getSheetDirectory().getNames()).containsExactly("edited", "untouched");
+            createdCells = patcher.patch(Collections.singletonMap(0, sheetCellEdits), patched);
+        }
+        assertThat(createdCells).containsOnly(
+            new CellReference("edited", 1, 2, false, false), new CellReference("edited", 3, 0, false, false));
+
+        XSSFWorkbook patchedWorkbook = new XSSFWorkbook(new ByteArrayInputStream(patched.toByteArray()));
+        Sheet patchedSheet = patchedWorkbook.getSheet("edited");
+        assertThat(patchedSheet.getRow(0).getCell(0).getStringCellValue()).isEqualTo("<first & name>");
+        assertThat(patchedSheet.getRow(0).getCell(0).getCellStyle().getIndex()).isEqualTo(boldStyle.getIndex());
+        assertThat(patchedSheet.getRow(0).getCell(1).getStringCellValue()).isEqualTo("age");
+        assertThat(patchedSheet.getRow(1).getCell(0).getStringCellValue()).isEqualTo("john");
+        assertThat(patchedSheet.getRow(1).getCell(1)).isNull();
+        assertThat(patchedSheet.getRow(1).getCell(2).getStringCellValue()).isEqualTo("new");
+        assertThat(patchedSheet.getRow(2)).isNull();
+        assertThat(patchedSheet.getRow(3).getCell(0).getStringCellValue()).isEqualTo("jane");
+        assertThat(patchedWorkbook.getSheet("untouched").getRow(0).getCell(0).getStringCellValue()).isEqualTo("kept");
+
+        // the streaming reader sees the patched sheet as the object model does
+        List<String> cells = new ArrayList<>();
+        try (XlsxSheetReader reader = XlsxSheetReader.open(new ByteArrayInputStream(patched.toByteArray()))) {
+            reader.readSheet("edited", new CellCollector(cells));
+        }
+        assertThat(cells).containsExactly("row0", "0=<first & name>", "1=age", "row1", "0=john", "2=new", "row3", "0=jane");
+
+        // the entries of the package which are not edited sheets are copied as they were compressed
+        try (ZipFile original = new ZipFile(new SeekableInMemoryByteChannel(content));
+             ZipFile copy = new ZipFile(new SeekableInMemoryByteChannel(patched.toByteArray()))) {
+            for (ZipArchiveEntry entry : Collections.list(original.getEntries())) {
+                if (!entry.getName().equals("xl/worksheets/sheet1.xml")) {
+                    assertThat(rawBytes(copy, copy.getEntry(entry.getName()))).as(entry.getName())
+                        .isEqualTo(rawBytes(original, entry));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void patchFormulaTest() throws Exception {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        Row row = workbook.createSheet("computed").createRow(0);
+        row.createCell(0).setCellValue(1);
+        row.createCell(1).setCellFormula("A1+1");
+        byte[] content = toBytes(workbook);
+
+        SheetCellEdits sheetCellEdits = new SheetCellEdits();
+        sheetCellEdits.put(0, 1, "replaced");
+        try (XlsxPackagePatcher patcher = XlsxPackagePatcher.open(content)) {
+            patcher.patch(Collections.singletonMap(0, sheetCellEdits), new ByteArrayOutputStream());
+            fail("the replacement of a formula must not be patched");
+        } catch (XlsxPackagePatcher.UnsupportedPatchException e) {
+            // expected, the calculation chain would reference a cell without formula
+        }
+
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        Set<CellReference> createdCells = XlsxPackagePatcher.patchWorkbook(content, Collections.singletonMap(0, sheetCellEdits), written);
+        assertThat(createdCells).isEmpty();
+        XSSFWorkbook writtenWorkbook = new XSSFWorkbook(new ByteArrayInputStream(written.toByteArray()));
+        assertThat(writtenWorkbook.getSheetAt(0).getRow(0).getCell(1).getStringCellValue()).isEqualTo("replaced");
+        assertThat(writtenWorkbook.getSheetAt(0).getRow(0).getCell(1).getCellType()).isEqualTo(Cell.CELL_TYPE_STRING);
+    }
+
+    private static byte[] rawBytes(ZipFile zipFile, ZipArchiveEntry entry) throws IOException {
+        try (InputStream raw = zipFile.getRawInputStream(entry)) {
+            return IOUtils.toByteArray(raw);
+        }
+    }
+}
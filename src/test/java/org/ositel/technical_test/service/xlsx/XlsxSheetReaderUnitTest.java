@@ -0,0 +1,175 @@
+package org.ositel.technical_test.service.xlsx;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+import org.ositel.technical_test.service.xlsx.XlsxTestUtil.CellCollector;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.ositel.technical_test.service.xlsx.XlsxTestUtil.toBytes;
+
+/**
+ * Test class for the XlsxSheetReader.
+ *
+ * @see XlsxSheetReader
+ */
+public class XlsxSheetReaderUnitTest {
+
+    @Test
+    public void readSheetTest() throws Exception {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet("first");
+        Row header = sheet.createRow(0);
+        header.createCell(0).setCellValue("name");
+        header.createCell(1).setCellValue("age");
+        Row line = sheet.createRow(1);
+        line.createCell(0).setCellValue("john");
+        line.createCell(1).setCellValue(42);
+        line.createCell(27).setCellValue(true);
+        workbook.createSheet("second").createRow(0).createCell(0).setCellValue("ignored");
+
+        List<String> cells = new ArrayList<>();
+        try (XlsxSheetReader reader = XlsxSheetReader.open(new ByteArrayInputStream(toBytes(workbook)))) {
+            reader.readSheet((String) null, new CellCollector(cells));
+        }
+        assertThat(cells).containsExactly("row0", "0=name", "1=age", "row1", "0=john", "1=42", "27=TRUE");
+    }
+
+    @Test
+    public void readTypedCellsTest() throws Exception {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        CellStyle dateStyle = workbook.createCellStyle();
+        dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+        Row row = workbook.createSheet("typed").createRow(0);
+        row.createCell(0).setCellValue(1.5);
+        Cell date = row.createCell(1);
+        date.setCellValue(new SimpleDateFormat("yyyy-MM-dd").parse("2017-10-17"));
+        date.setCellStyle(dateStyle);
+        row.createCell(2).setCellValue(false);
+        row.createCell(3).setCellValue("text");
+        Cell formula = row.createCell(4);
+        formula.setCellFormula("A1*2");
+        formula.setCellValue(3);
+        row.createCell(5);
+
+        List<String> cells = new ArrayList<>();
+        try (XlsxSheetReader reader = XlsxSheetReader.open(new ByteArrayInputStream(toBytes(workbook)))) {
+            reader.readSheet("typed", new CellCollector(cells, (columnIndex, cell) -> typedValue(cell)).withoutRows());
+        }
+        assertThat(cells).containsExactly("number 1.5", "date 2017-10-17T00:00:00Z 2017-10-17", "boolean false",
+            "STRING text", "formula 3.0", "BLANK null");
+    }
+
+    @Test
+    public void columnIndexOfTest() {
+        assertThat(SheetXmlHandler.columnIndexOf("A1")).isEqualTo(0);
+        assertThat(SheetXmlHandler.columnIndexOf("Z7")).isEqualTo(25);
+        assertThat(SheetXmlHandler.columnIndexOf("AB12")).isEqualTo(27);
+    }
+
+    @Test
+    public void rowIndexOfTest() {
+        assertThat(SheetXmlHandler.rowIndexOf("A1")).isEqualTo(0);
+        assertThat(SheetXmlHandler.rowIndexOf("AB12")).isEqualTo(11);
+        assertThat(SheetXmlHandler.rowIndexOf("AB")).isEqualTo(-1);
+    }
+
+    @Test
+    public void rejectExternalEntitiesTest() throws Exception {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        workbook.createSheet("first").createRow(0).createCell(0).setCellValue("name");
+        Path secret = Files.createTempFile("secret-", ".txt");
+        try {
+            Files.write(secret, "secret".getBytes(StandardCharsets.UTF_8));
+            String sheetXml = "<?xml version=\"1.0\"?><!DOCTYPE worksheet [<!ENTITY secret SYSTEM \"" + secret.toUri() + "\">]>"
+                + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>"
+                + "<row r=\"1\"><c r=\"A1\" t=\"inlineStr\"><is><t>&secret;</t></is></c></row></sheetData></worksheet>";
+            byte[] content = replaceEntry(toBytes(workbook), "xl/worksheets/sheet1.xml", sheetXml.getBytes(StandardCharsets.UTF_8));
+
+            List<String> cells = new ArrayList<>();
+            try (XlsxSheetReader reader = XlsxSheetReader.open(new ByteArrayInputStream(content))) {
+                reader.readSheet((String) null, new CellCollector(cells, (columnIndex, cell) -> cell.getFormattedValue()).withoutRows());
+                fail("a sheet declaring a DOCTYPE must be rejected");
+            } catch (IOException e) {
+                // expected, the entity is never resolved
+            }
+            assertThat(cells).doesNotContain("secret");
+        } finally {
+            Files.delete(secret);
+        }
+    }
+
+    @Test
+    public void rejectWorkbookEntitiesTest() throws Exception {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        workbook.createSheet("first");
+        String workbookXml = "<?xml version=\"1.0\"?><!DOCTYPE workbook [<!ENTITY name \"first\">]>"
+            + "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\""
+            + " xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">"
+            + "<sheets><sheet name=\"&name;\" sheetId=\"1\" r:id=\"rId3\"/></sheets></workbook>";
+        byte[] content = replaceEntry(toBytes(workbook), "xl/workbook.xml", workbookXml.getBytes(StandardCharsets.UTF_8));
+
+        try (XlsxSheetReader reader = XlsxSheetReader.open(new ByteArrayInputStream(content))) {
+            reader.getSheetDirectory();
+            fail("a workbook declaring a DOCTYPE must be rejected");
+        } catch (IOException e) {
+            // expected, the entity is never expanded
+        }
+    }
+
+    /**
+     * @return the xlsx content with the given entry replaced
+     */
+    static byte[] replaceEntry(byte[] content, String entryName, byte[] entryContent) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(content));
+             ZipOutputStream zipOutputStream = new ZipOutputStream(out)) {
+            ZipEntry entry;
+            while ((entry = zipInputStream.getNextEntry()) != null) {
+                zipOutputStream.putNextEntry(new ZipEntry(entry.getName()));
+                if (entry.getName().equals(entryName)) {
+                    zipOutputStream.write(entryContent);
+                } else {
+                    StreamUtils.copy(zipInputStream, zipOutputStream);
+                }
+                zipOutputStream.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @return the typed value of the cell
+     */
+    private static String typedValue(SheetCell cell) {
+        switch (cell.getType()) {
+            case NUMERIC:
+                return (cell.isFormula() ? "formula " : "number ") + cell.getNumber();
+            case DATE:
+                return "date " + Instant.ofEpochMilli(cell.getDateMillis()) + " " + cell.getFormattedValue();
+            case BOOLEAN:
+                return "boolean " + cell.getBoolean();
+            default:
+                return cell.getType() + " " + cell.getString();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.ositel.technical_test.service.xlsx;
+
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Utility class for testing the readers and writers of the xlsx files.
+ */
+final class XlsxTestUtil {
+
+    private XlsxTestUtil() {
+    }
+
+    /**
+     * @return the xlsx content of the workbook
+     */
+    static byte[] toBytes(XSSFWorkbook workbook) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        workbook.write(out);
+        return out.toByteArray();
+    }
+
+    /**
+     * collects the rows as "row index" and the cells as "column=value" by default, in the order they are reported
+     */
+    static final class CellCollector implements SheetRowHandler {
+
+        private final List<String> cells;
+
+        private final BiFunction<Integer, SheetCell, String> cellFormat;
+
+        private boolean collectsRows = true;
+
+        private int columnCount = Integer.MAX_VALUE;
+
+        CellCollector(List<String> cells) {
+            this(cells, (columnIndex, cell) -> columnIndex + "=" + cell.getFormattedValue());
+        }
+
+        CellCollector(List<String> cells, BiFunction<Integer, SheetCell, String> cellFormat) {
+            this.cells = cells;
+            this.cellFormat = cellFormat;
+        }
+
+        /**
+         * @return this collector, only collecting the cells
+         */
+        CellCollector withoutRows() {
+            this.collectsRows = false;
+            return this;
+        }
+
+        /**
+         * @return this collector, only accepting the cells of the first columns
+         */
+        CellCollector withColumnCount(int columnCount) {
+            this.columnCount = columnCount;
+            return this;
+        }
+
+        @Override
+        public boolean startRow(int rowIndex) {
+            if (collectsRows) {
+                cells.add("row" + rowIndex);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean acceptsCell(int columnIndex) {
+            return columnIndex < columnCount;
+        }
+
+        @Override
+        public void cell(int columnIndex, SheetCell cell) {
+            cells.add(cellFormat.apply(columnIndex, cell));
+        }
+
+        @Override
+        public void endRow(int rowIndex) {
+        }
+    }
+}
@@ -1,30 +1,105 @@
 package org.ositel.technical_test.web.rest;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.MockitoAnnotations;
 import org.ositel.technical_test.OsitelApp;
+import org.ositel.technical_test.config.ApplicationProperties;
+import org.ositel.technical_test.config.JacksonBinaryHttpMessageConverter;
+import org.ositel.technical_test.config.JacksonConfiguration;
+import org.ositel.technical_test.domain.XlsxColumnStats;
+import org.ositel.technical_test.domain.XlsxContent;
 import org.ositel.technical_test.domain.XlsxFile;
+import org.ositel.technical_test.domain.XlsxSheet;
+import org.ositel.technical_test.domain.enumeration.XlsxFileStatus;
+import org.ositel.technical_test.repository.XlsxCellEditRepository;
+import org.ositel.technical_test.repository.XlsxColumnStatsRepository;
+import org.ositel.technical_test.repository.XlsxContentRepository;
 import org.ositel.technical_test.repository.XlsxFileRepository;
+import org.ositel.technical_test.repository.XlsxSheetRepository;
+import org.ositel.technical_test.repository.XlsxSheetSnapshotRepository;
+import org.ositel.technical_test.service.XlsxBulkImportService;
+import org.ositel.technical_test.service.XlsxCellEditCoalescer;
+import org.ositel.technical_test.service.XlsxCellEditCompactor;
+import org.ositel.technical_test.service.XlsxColumnarStore;
+import org.ositel.technical_test.service.XlsxContentStore;
+import org.ositel.technical_test.service.XlsxFileLockManager;
 import org.ositel.technical_test.service.XlsxFileService;
+import org.ositel.technical_test.service.XlsxFileWrittenEvent;
+import org.ositel.technical_test.service.XlsxIngestService;
+import org.ositel.technical_test.service.XlsxFormulaCache;
+import org.ositel.technical_test.service.XlsxSheetCache;
+import org.ositel.technical_test.service.XlsxSheetCountedEvent;
+import org.ositel.technical_test.service.XlsxUploadService;
+import org.ositel.technical_test.service.dto.XlsxCellEditDTO;
+import org.ositel.technical_test.service.dto.XlsxImportResultDTO;
+import org.ositel.technical_test.service.impl.XlsxFileServiceImpl;
+import org.ositel.technical_test.service.xlsx.ColumnarFileWriter;
+import org.ositel.technical_test.web.rest.errors.BadRequestAlertException;
 import org.ositel.technical_test.web.rest.errors.ExceptionTranslator;
+import org.ositel.technical_test.web.rest.errors.PayloadTooLargeAlertException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.transaction.TestTransaction;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Base64Utils;
+import org.springframework.util.StreamUtils;
+import org.zalando.problem.Status;
 
 import javax.persistence.EntityManager;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -40,6 +115,8 @@ public class XlsxFileResourceIntTest {
     private static final String DEFAULT_FILE_NAME = "AAAAAAAAAA";
     private static final String UPDATED_FILE_NAME = "BBBBBBBBBB";
 
+    private static final String DEFAULT_CONTENT_HASH = "AAAAAAAAAA";
+
     private static final byte[] DEFAULT_CONTENT = TestUtil.createByteArray(1, "0");
     private static final byte[] UPDATED_CONTENT = TestUtil.createByteArray(2, "1");
     private static final String DEFAULT_CONTENT_CONTENT_TYPE = "image/jpg";
@@ -48,18 +125,66 @@ public class XlsxFileResourceIntTest {
     @Autowired
     private XlsxFileRepository xlsxFileRepository;
 
+    @Autowired
+    private XlsxSheetRepository xlsxSheetRepository;
+
+    @Autowired
+    private XlsxSheetSnapshotRepository xlsxSheetSnapshotRepository;
+
+    @Autowired
+    private XlsxColumnStatsRepository xlsxColumnStatsRepository;
+
+    @Autowired
+    private XlsxCellEditRepository xlsxCellEditRepository;
+
     @Autowired
     private XlsxFileService xlsxFileService;
 
+    @Autowired
+    private XlsxCellEditCoalescer xlsxCellEditCoalescer;
+
+    @Autowired
+    private XlsxSheetCache xlsxSheetCache;
+
+    @Autowired
+    private XlsxUploadService xlsxUploadService;
+
+    @Autowired
+    private XlsxContentStore xlsxContentStore;
+
+    @Autowired
+    private XlsxContentRepository xlsxContentRepository;
+
+    @Autowired
+    private XlsxColumnarStore xlsxColumnarStore;
+
+    @Autowired
+    private XlsxFormulaCache xlsxFormulaCache;
+
+    @Autowired
+    private XlsxFileLockManager xlsxFileLockManager;
+
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
     @Autowired
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
+    @Autowired
+    private Jackson2ObjectMapperBuilder jackson2ObjectMapperBuilder;
+
     @Autowired
     private PageableHandlerMethodArgumentResolver pageableArgumentResolver;
 
     @Autowired
     private ExceptionTranslator exceptionTranslator;
 
+    @Autowired
+    private MetricRegistry metricRegistry;
+
     @Autowired
     private EntityManager em;
 
@@ -70,11 +195,18 @@ public class XlsxFileResourceIntTest {
     @Before
     public void setup() {
         MockitoAnnotations.initMocks(this);
-        final XlsxFileResource xlsxFileResource = new XlsxFileResource(xlsxFileService);
+        ApplicationProperties importProperties = new ApplicationProperties();
+        importProperties.getBulkImport().setBatchSize(2);
+        // the batches of the imported files are saved in the thread and the transaction of the test
+        XlsxBulkImportService xlsxBulkImportService = new XlsxBulkImportService(xlsxFileService, Runnable::run, importProperties);
+        final XlsxFileResource xlsxFileResource = new XlsxFileResource(xlsxFileService, xlsxCellEditCoalescer, xlsxUploadService,
+            xlsxBulkImportService);
         this.restXlsxFileMockMvc = MockMvcBuilders.standaloneSetup(xlsxFileResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setControllerAdvice(exceptionTranslator)
-            .setMessageConverters(jacksonMessageConverter).build();
+            .setMessageConverters(new ByteArrayHttpMessageConverter(), jacksonMessageConverter,
+                JacksonConfiguration.smileHttpMessageConverter(jackson2ObjectMapperBuilder),
+                JacksonConfiguration.cborHttpMessageConverter(jackson2ObjectMapperBuilder)).build();
     }
 
     /**
@@ -84,9 +216,16 @@ public class XlsxFileResourceIntTest {
      * if they test an entity which requires the current entity.
      */
     public static XlsxFile createEntity(EntityManager em) {
+        XlsxContent content = new XlsxContent()
+            .hash(DEFAULT_CONTENT_HASH)
+            .data(DEFAULT_CONTENT)
+            .dataLength((long) DEFAULT_CONTENT.length)
+            .referenceCount(1);
+        em.persist(content);
+        em.flush();
         XlsxFile xlsxFile = new XlsxFile()
             .fileName(DEFAULT_FILE_NAME)
-            .content(DEFAULT_CONTENT);
+            .content(content);
         return xlsxFile;
     }
 
@@ -111,7 +250,7 @@ public class XlsxFileResourceIntTest {
         assertThat(xlsxFileList).hasSize(databaseSizeBeforeCreate + 1);
         XlsxFile testXlsxFile = xlsxFileList.get(xlsxFileList.size() - 1);
         assertThat(testXlsxFile.getFileName()).isEqualTo(DEFAULT_FILE_NAME);
-        assertThat(testXlsxFile.getContent()).isEqualTo(DEFAULT_CONTENT);
+        assertThat(testXlsxFile.getContent().getData()).isEqualTo(DEFAULT_CONTENT);
     }
 
     @Test
@@ -203,7 +342,7 @@ public class XlsxFileResourceIntTest {
         XlsxFile updatedXlsxFile = xlsxFileRepository.findOne(xlsxFile.getId());
         updatedXlsxFile
             .fileName(UPDATED_FILE_NAME)
-            .content(UPDATED_CONTENT);
+            .content(xlsxContentStore.store(UPDATED_CONTENT));
         restXlsxFileMockMvc.perform(put("/api/xlsx-files")
             .contentType(TestUtil.APPLICATION_JSON_UTF8)
             .content(TestUtil.convertObjectToJsonBytes(updatedXlsxFile)))
@@ -214,7 +353,7 @@ public class XlsxFileResourceIntTest {
         assertThat(xlsxFileList).hasSize(databaseSizeBeforeUpdate);
         XlsxFile testXlsxFile = xlsxFileList.get(xlsxFileList.size() - 1);
         assertThat(testXlsxFile.getFileName()).isEqualTo(UPDATED_FILE_NAME);
-        assertThat(testXlsxFile.getContent()).isEqualTo(UPDATED_CONTENT);
+        assertThat(testXlsxFile.getContent().getData()).isEqualTo(UPDATED_CONTENT);
     }
 
     @Test
@@ -253,6 +392,1065 @@ public class XlsxFileResourceIntTest {
         assertThat(xlsxFileList).hasSize(databaseSizeBeforeDelete - 1);
     }
 
+    @Test
+    @Transactional
+    public void searchExcelFile() throws Exception {
+        // Initialize the database
+        xlsxFileRepository.saveAndFlush(new XlsxFile().fileName("search.xlsx").content(xlsxContentStore.store(createXlsxContent())));
+
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "search.xlsx"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$.fileName").value("search.xlsx"))
+            .andExpect(jsonPath("$.headerColumns").value(contains("name", "city")))
+            .andExpect(jsonPath("$.linesValues[0]").value(contains("line1", "Paris")))
+            .andExpect(jsonPath("$.linesValues[2]").value(contains("line3", "Tunis")));
+    }
+
+    @Test
+    @Transactional
+    public void searchExcelFileWithPagination() throws Exception {
+        // Initialize the database
+        XlsxFile pagedXlsxFile = xlsxFileRepository.saveAndFlush(new XlsxFile().fileName("paged.xlsx").content(xlsxContentStore.store(createXlsxContent())));
+
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "paged.xlsx")
+            .param("page", "1").param("size", "2"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "3"))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("fileName=paged.xlsx&page=0&size=2>; rel=\"prev\"")))
+            .andExpect(jsonPath("$.headerColumns").value(contains("name", "city")))
+            .andExpect(jsonPath("$.linesValues.length()").value(1))
+            .andExpect(jsonPath("$.linesValues[0]").value(contains("line3", "Tunis")))
+            .andExpect(jsonPath("$.totalLines").value(3));
+
+        // the row count is kept with the sheet once the read has been committed, next pages stop reading the sheet once filled
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        try {
+            assertThat(xlsxSheetRepository.findOneByXlsxFileIdAndSheetIndex(pagedXlsxFile.getId(), 0).getRowCount()).isEqualTo(4L);
+            restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "paged.xlsx")
+                .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "3"))
+                .andExpect(jsonPath("$.linesValues[0]").value(contains("line1", "Paris")));
+            // a read counting the sheet again records nothing
+            xlsxFileService.recordSheetRowCount(new XlsxSheetCountedEvent(pagedXlsxFile.getId(),
+                xlsxFileRepository.findContentHashById(pagedXlsxFile.getId()), 0, "cities", 4));
+            assertThat(xlsxSheetRepository.findByXlsxFileIdOrderBySheetIndex(pagedXlsxFile.getId())).hasSize(1);
+        } finally {
+            // the content created before the test has been committed along with the file
+            TestTransaction.start();
+            TestTransaction.flagForCommit();
+            xlsxFileService.deleteXlsxFile("paged.xlsx");
+            xlsxContentRepository.delete(DEFAULT_CONTENT_HASH);
+            TestTransaction.end();
+        }
+    }
+
+    @Test
+    @Transactional
+    public void searchExcelFileWithPaginationOfReservedName() throws Exception {
+        // Initialize the database
+        xlsxFileRepository.saveAndFlush(new XlsxFile().fileName("cities & towns+é.xlsx").content(xlsxContentStore.store(createXlsxContent())));
+
+        MvcResult mvcResult = restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "cities & towns+é.xlsx")
+            .param("page", "0").param("size", "2"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.LINK,
+                containsString("<" + "/api/ositel/searchExcelFile?fileName=cities%20%26%20towns%2B%C3%A9.xlsx&page=1&size=2>; rel=\"next\"")))
+            .andReturn();
+        String link = mvcResult.getResponse().getHeader(HttpHeaders.LINK);
+        String next = link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+
+        // the link reads the next page of the same file
+        restXlsxFileMockMvc.perform(get(URI.create(next)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.fileName").value("cities & towns+é.xlsx"))
+            .andExpect(jsonPath("$.linesValues[0]").value(contains("line3", "Tunis")));
+    }
+
+    @Test
+    @Transactional
+    public void searchExcelFileWithColumns() throws Exception {
+        // Initialize the database
+        xlsxFileRepository.saveAndFlush(new XlsxFile().fileName("columns.xlsx").content(xlsxContentStore.store(createXlsxContent())));
+
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "columns.xlsx")
+            .param("columns", "city"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.headerColumns").value(contains("city")))
+            .andExpect(jsonPath("$.linesValues[0]").value(contains("Paris")))
+            .andExpect(jsonPath("$.linesValues[2]").value(contains("Tunis")));
+
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "columns.xlsx")
+            .param("columns", "0").param("page", "0").param("size", "1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.headerColumns").value(contains("name")))
+            .andExpect(jsonPath("$.linesValues[0]").value(contains("line1")));
+
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "columns.xlsx")
+            .param("columns", "country"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void searchExcelFileColumns() throws Exception {
+        // Initialize the database
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet("typed");
+        Row header = sheet.createRow(0);
+        String[] names = {"city", "rank", "population", "rate", "capital"};
+        for (int j = 0; j < names.length; j++) {
+            header.createCell(j).setCellValue(names[j]);
+        }
+        Object[][] lines = {{"Paris", 1, 2148000, 1.5, true}, {"Lyon", 2, 513000, null, false}, {"Tunis", 3, "n/a", 2.5, true}};
+        for (int i = 0; i < lines.length; i++) {
+            Row row = sheet.createRow(i + 1);
+            row.createCell(0).setCellValue((String) lines[i][0]);
+            row.createCell(1).setCellValue((Integer) lines[i][1]);
+            if (lines[i][2] instanceof String) {
+                row.createCell(2).setCellValue((String) lines[i][2]);
+            } else {
+                row.createCell(2).setCellValue((Integer) lines[i][2]);
+            }
+            if (lines[i][3] != null) {
+                row.createCell(3).setCellValue((Double) lines[i][3]);
+            }
+            row.createCell(4).setCellValue((Boolean) lines[i][4]);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        workbook.write(out);
+        xlsxFileRepository.saveAndFlush(new XlsxFile().fileName("typed.xlsx").content(xlsxContentStore.store(out.toByteArray())));
+
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "typed.xlsx").param("typed", "true"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.sheetName").value("typed"))
+            .andExpect(jsonPath("$.lineCount").value(3))
+            .andExpect(jsonPath("$.totalLines").value(3))
+            .andExpect(jsonPath("$.columns[0].type").value("STRING"))
+            .andExpect(jsonPath("$.columns[0].strings").value(contains("Paris", "Lyon", "Tunis")))
+            .andExpect(jsonPath("$.columns[1].type").value("INTEGER"))
+            .andExpect(jsonPath("$.columns[1].integers").value(contains(1, 2, 3)))
+            .andExpect(jsonPath("$.columns[2].type").value("STRING"))
+            .andExpect(jsonPath("$.columns[2].strings").value(contains("2148000", "513000", "n/a")))
+            .andExpect(jsonPath("$.columns[3].type").value("NUMERIC"))
+            .andExpect(jsonPath("$.columns[3].numbers").value(contains(1.5, 0.0, 2.5)))
+            .andExpect(jsonPath("$.columns[3].blanks").value(contains(1)))
+            .andExpect(jsonPath("$.columns[4].type").value("BOOLEAN"))
+            .andExpect(jsonPath("$.columns[4].booleans").value(contains(true, false, true)));
+
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "typed.xlsx").param("typed", "true")
+            .param("columns", "rate").param("page", "1").param("size", "2"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "3"))
+            .andExpect(jsonPath("$.lineCount").value(1))
+            .andExpect(jsonPath("$.columns[0].name").value("rate"))
+            .andExpect(jsonPath("$.columns[0].numbers").value(contains(2.5)));
+    }
+
+    @Test
+    @Transactional
+    public void searchExcelFileFromCache() throws Exception {
+        // Initialize the database
+        xlsxFileRepository.saveAndFlush(new XlsxFile().fileName("cached.xlsx").content(xlsxContentStore.store(createXlsxContent())));
+        Counter hits = metricRegistry.counter(MetricRegistry.name(XlsxSheetCache.class, "hits"));
+        Counter misses = metricRegistry.counter(MetricRegistry.name(XlsxSheetCache.class, "misses"));
+        long hitCount = hits.getCount();
+        long missCount = misses.getCount();
+
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "cached.xlsx"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.linesValues[0]").value(contains("line1", "Paris")));
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "cached.xlsx")
+            .param("columns", "city").param("page", "1").param("size", "1"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "3"))
+            .andExpect(jsonPath("$.headerColumns").value(contains("city")))
+            .andExpect(jsonPath("$.linesValues[0]").value(contains("Lyon")));
+        assertThat(misses.getCount()).isEqualTo(missCount + 1);
+        assertThat(hits.getCount()).isEqualTo(hitCount + 1);
+
+        // the update removes the sheet from the cache
+        restXlsxFileMockMvc.perform(put("/api/ositel/{column}/{line}/updateCellValue", 1, 1)
+            .param("fileName", "cached.xlsx").param("newValue", "Marseille"))
+            .andExpect(status().isOk());
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "cached.xlsx")
+            .param("columns", "city"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.linesValues[0]").value(contains("Marseille")));
+        assertThat(misses.getCount()).isEqualTo(missCount + 2);
+    }
+
+    @Test
+    @Transactional
+    public void searchExcelFileFromSnapshot() throws Exception {
+        restXlsxFileMockMvc.perform(fileUpload("/api/ositel/uploadExcelFile")
+            .file(new MockMultipartFile("file", "snapshot.xlsx", "application/vnd.ms-excel", createXlsxContent())))
+            .andExpect(status().isOk());
+        // the ingestion runs after the commit, which never happens in a transactional test
+        xlsxFileService.ingestXlsxFile(xlsxFileRepository.findIdByFileName("snapshot.xlsx"));
+        assertThat(xlsxSheetSnapshotRepository.findJsonByFileNameAndSheetIndex("snapshot.xlsx", 0)).isNotNull();
+
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "snapshot.xlsx"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+            .andExpect(header().string(HttpHeaders.VARY, "Accept, Accept-Encoding"))
+            .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+            .andExpect(jsonPath("$.sheetName").value("cities"))
+            .andExpect(jsonPath("$.headerColumns").value(contains("name", "city")))
+            .andExpect(jsonPath("$.linesValues[2]").value(contains("line3", "Tunis")))
+            .andExpect(jsonPath("$.totalLines").value(3));
+
+        MvcResult mvcResult = restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "snapshot.xlsx")
+            .param("sheet", "cities").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+            .andExpect(header().string(HttpHeaders.ETAG, containsString("-json-gzip-")))
+            .andReturn();
+        // the gzipped snapshot is not the json the client would get without accepting gzip
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "snapshot.xlsx")
+            .param("sheet", "cities").header(HttpHeaders.IF_NONE_MATCH, mvcResult.getResponse().getHeader(HttpHeaders.ETAG)))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "snapshot.xlsx")
+            .param("sheet", "cities").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, deflate"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+        try (GZIPInputStream json = new GZIPInputStream(new ByteArrayInputStream(mvcResult.getResponse().getContentAsByteArray()))) {
+            assertThat(StreamUtils.copyToString(json, StandardCharsets.UTF_8)).contains("[\"line3\",\"Tunis\"]");
+        }
+
+        // the update removes the snapshot until the file is ingested again
+        restXlsxFileMockMvc.perform(put("/api/ositel/{column}/{line}/updateCellValue", 1, 3)
+            .param("fileName", "snapshot.xlsx").param("newValue", "Sfax"))
+            .andExpect(status().isOk());
+        assertThat(xlsxSheetSnapshotRepository.findJsonByFileNameAndSheetIndex("snapshot.xlsx", 0)).isNull();
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "snapshot.xlsx"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.linesValues[2]").value(contains("line3", "Sfax")));
+        xlsxFileService.ingestXlsxFile(xlsxFileRepository.findIdByFileName("snapshot.xlsx"));
+        assertThat(xlsxSheetSnapshotRepository.findJsonByFileNameAndSheetIndex("snapshot.xlsx", 0)).isNotNull();
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "snapshot.xlsx"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.linesValues[2]").value(contains("line3", "Sfax")));
+    }
+
+    @Test
+    @Transactional
+    public void ingestExcelFile() throws Exception {
+        restXlsxFileMockMvc.perform(fileUpload("/api/ositel/uploadExcelFile")
+            .file(new MockMultipartFile("file", "ingested.xlsx", "application/vnd.ms-excel", createXlsxContent())))
+            .andExpect(status().isOk());
+        Long xlsxFileId = xlsxFileRepository.findIdByFileName("ingested.xlsx");
+        assertThat(xlsxFileRepository.findOne(xlsxFileId).getStatus()).isEqualTo(XlsxFileStatus.PENDING);
+
+        xlsxFileService.ingestXlsxFile(xlsxFileId);
+        assertThat(xlsxFileRepository.findOne(xlsxFileId).getStatus()).isEqualTo(XlsxFileStatus.READY);
+        XlsxSheet xlsxSheet = xlsxSheetRepository.findOneByXlsxFileIdAndSheetIndex(xlsxFileId, 0);
+        assertThat(xlsxSheet.getSheetName()).isEqualTo("cities");
+        assertThat(xlsxSheet.getRowCount()).isEqualTo(4);
+        List<XlsxColumnStats> columnStats = xlsxColumnStatsRepository.findByXlsxSheetIdOrderByColumnIndex(xlsxSheet.getId());
+        assertThat(columnStats).extracting(XlsxColumnStats::getName).containsExactly("name", "city");
+        assertThat(columnStats).extracting(XlsxColumnStats::getValueType).containsExactly("STRING", "STRING");
+        assertThat(columnStats).extracting(XlsxColumnStats::getValueCount).containsExactly(3L, 3L);
+        assertThat(xlsxSheetSnapshotRepository.findJsonGzipByFileNameAndSheetIndex("ingested.xlsx", 0)).isNotNull();
+
+        // once evicted from the cache, the sheet is read from the columnar file, with the types of the cells
+        xlsxSheetCache.invalidate("ingested.xlsx");
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "ingested.xlsx")
+            .param("columns", "city").param("page", "1").param("size", "1"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "3"))
+            .andExpect(jsonPath("$.linesValues[0]").value(contains("Lyon")));
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "ingested.xlsx")
+            .param("sheet", "cities").param("typed", "true"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.totalLines").value(3))
+            .andExpect(jsonPath("$.columns[1].strings").value(contains("Paris", "Lyon", "Tunis")));
+    }
+
+    @Test
+    @Transactional
+    public void dropIngestionOfWrittenContent() throws Exception {
+        restXlsxFileMockMvc.perform(fileUpload("/api/ositel/uploadExcelFile")
+            .file(new MockMultipartFile("file", "raced.xlsx", "application/vnd.ms-excel", createXlsxContent())))
+            .andExpect(status().isOk());
+        Long xlsxFileId = xlsxFileRepository.findIdByFileName("raced.xlsx");
+        XSSFWorkbook writtenWorkbook = new XSSFWorkbook();
+        writtenWorkbook.createSheet("written").createRow(0).createCell(0).setCellValue("written");
+        ByteArrayOutputStream writtenContent = new ByteArrayOutputStream();
+        writtenWorkbook.write(writtenContent);
+        // the file is written while its previous content is being parsed by the ingestion
+        XlsxColumnarStore racingColumnarStore = new XlsxColumnarStore(applicationProperties) {
+            @Override
+            public ColumnarFileWriter newWriter(Long fileId, String contentHash) throws IOException {
+                XlsxFile writtenFile = xlsxFileRepository.findOne(fileId);
+                writtenFile.setContent(xlsxContentStore.store(writtenContent.toByteArray()));
+                xlsxFileRepository.saveAndFlush(writtenFile);
+                return super.newWriter(fileId, contentHash);
+            }
+        };
+        XlsxFileService racingXlsxFileService = new XlsxFileServiceImpl(xlsxFileRepository, xlsxSheetRepository,
+            xlsxSheetSnapshotRepository, xlsxColumnStatsRepository, xlsxCellEditRepository, xlsxSheetCache, racingColumnarStore,
+            xlsxFormulaCache, xlsxContentStore, xlsxFileLockManager, applicationEventPublisher);
+
+        racingXlsxFileService.ingestXlsxFile(xlsxFileId);
+        em.clear();
+        // nothing built from the previous content is published, the file waits for the ingestion of its new content
+        assertThat(xlsxFileRepository.findStatusById(xlsxFileId)).isEqualTo(XlsxFileStatus.PENDING);
+        assertThat(xlsxSheetRepository.findByXlsxFileIdOrderBySheetIndex(xlsxFileId)).isEmpty();
+        assertThat(xlsxSheetSnapshotRepository.findJsonByFileNameAndSheetIndex("raced.xlsx", 0)).isNull();
+        assertThat(racingColumnarStore.open(xlsxFileId, xlsxFileRepository.findContentHashById(xlsxFileId), null)).isNull();
+        assertThat(xlsxSheetCache.get(xlsxFileId, xlsxFileRepository.findContentHashById(xlsxFileId), null)).isNull();
+
+        xlsxFileService.ingestXlsxFile(xlsxFileId);
+        assertThat(xlsxFileRepository.findStatusById(xlsxFileId)).isEqualTo(XlsxFileStatus.READY);
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "raced.xlsx"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.sheetName").value("written"))
+            .andExpect(jsonPath("$.headerColumns").value(contains("written")));
+    }
+
+    @Test
+    @Transactional
+    public void storeExcelFileContentOnce() throws Exception {
+        byte[] content = createXlsxContent();
+        for (String fileName : Arrays.asList("template-a.xlsx", "template-b.xlsx")) {
+            restXlsxFileMockMvc.perform(fileUpload("/api/ositel/uploadExcelFile")
+                .file(new MockMultipartFile("file", fileName, "application/vnd.ms-excel", content)))
+                .andExpect(status().isOk());
+        }
+        String hash = xlsxFileRepository.findByFileName("template-a.xlsx").getContent().getHash();
+        assertThat(hash).isEqualTo(String.format("%064x", new BigInteger(1, MessageDigest.getInstance("SHA-256").digest(content))));
+        assertThat(xlsxFileRepository.findByFileName("template-b.xlsx").getContent().getHash()).isEqualTo(hash);
+        em.clear();
+        assertThat(xlsxContentRepository.findOne(hash).getReferenceCount()).isEqualTo(2);
+
+        // an edited file holds a content of its own, the other file keeps the previous one
+        restXlsxFileMockMvc.perform(put("/api/ositel/{column}/{line}/updateCellValue", 1, 1)
+            .param("fileName", "template-a.xlsx").param("newValue", "Nice"))
+            .andExpect(status().isOk());
+        em.clear();
+        String editedHash = xlsxFileRepository.findByFileName("template-a.xlsx").getContent().getHash();
+        assertThat(editedHash).isNotEqualTo(hash);
+        assertThat(xlsxContentRepository.findOne(hash).getReferenceCount()).isEqualTo(1);
+        assertThat(xlsxContentRepository.findOne(editedHash).getReferenceCount()).isEqualTo(1);
+
+        // the content is removed with the last file holding it
+        restXlsxFileMockMvc.perform(delete("/api/ositel/deleteExcelFile").param("fileName", "template-b.xlsx"))
+            .andExpect(status().isOk());
+        em.clear();
+        assertThat(xlsxFileRepository.findIdByFileName("template-b.xlsx")).isNull();
+        assertThat(xlsxContentRepository.findOne(hash)).isNull();
+        assertThat(xlsxContentRepository.findOne(editedHash)).isNotNull();
+        restXlsxFileMockMvc.perform(delete("/api/ositel/deleteExcelFile").param("fileName", "template-b.xlsx"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void listExcelFilesMetadata() throws Exception {
+        byte[] content = createXlsxContent();
+        for (String fileName : Arrays.asList("listed-a.xlsx", "listed-b.xlsx", "listed-c.xlsx")) {
+            restXlsxFileMockMvc.perform(fileUpload("/api/ositel/uploadExcelFile")
+                .file(new MockMultipartFile("file", fileName, "application/vnd.ms-excel", content)))
+                .andExpect(status().isOk());
+        }
+        Long firstId = xlsxFileRepository.findIdByFileName("listed-a.xlsx");
+        Long secondId = xlsxFileRepository.findIdByFileName("listed-b.xlsx");
+        xlsxFileService.ingestXlsxFile(firstId);
+        em.flush();
+        em.clear();
+        String hash = xlsxFileRepository.findByFileName("listed-a.xlsx").getContent().getHash();
+
+        // the files are listed after the given id, the next link carries the id of the last file listed
+        restXlsxFileMockMvc.perform(get("/api/ositel/xlsx-files").param("afterId", String.valueOf(firstId - 1)).param("size", "2"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(header().string("X-Total-Count", String.valueOf(xlsxFileRepository.count())))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("afterId=" + secondId + "&size=2>; rel=\"next\"")))
+            .andExpect(jsonPath("$.length()").value(2))
+            .andExpect(jsonPath("$[0].fileName").value("listed-a.xlsx"))
+            .andExpect(jsonPath("$[0].status").value(XlsxFileStatus.READY.toString()))
+            .andExpect(jsonPath("$[0].contentHash").value(hash))
+            .andExpect(jsonPath("$[0].size").value(content.length))
+            .andExpect(jsonPath("$[0].sheetCount").value(1))
+            .andExpect(jsonPath("$[0].rowCount").value(4))
+            .andExpect(jsonPath("$[0].createdDate").isNotEmpty())
+            .andExpect(jsonPath("$[0].content").doesNotExist())
+            .andExpect(jsonPath("$[1].fileName").value("listed-b.xlsx"))
+            .andExpect(jsonPath("$[1].sheetCount").value(0))
+            .andExpect(jsonPath("$[1].rowCount").isEmpty());
+
+        restXlsxFileMockMvc.perform(get("/api/ositel/xlsx-files").param("afterId", String.valueOf(secondId)).param("size", "2"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.LINK, not(containsString("rel=\"next\""))))
+            .andExpect(jsonPath("$[*].fileName").value(contains("listed-c.xlsx")));
+
+        restXlsxFileMockMvc.perform(get("/api/ositel/xlsx-files").param("size", "0"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void importExcelFilesFromArchive() throws Exception {
+        byte[] content = createXlsxContent();
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            zip.putNextEntry(new ZipEntry("month/"));
+            for (String entryName : Arrays.asList("month/imported-a.xlsx", "month/imported-b.xlsx", "__MACOSX/month/._imported-a.xlsx",
+                "readme.txt", "imported-c.xlsx", "other/imported-a.xlsx")) {
+                zip.putNextEntry(new ZipEntry(entryName));
+                zip.write(content);
+            }
+        }
+
+        restXlsxFileMockMvc.perform(fileUpload("/api/ositel/importExcelFiles")
+            .file(new MockMultipartFile("file", "month.zip", "application/zip", archive.toByteArray())))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].fileName").value(contains("imported-a.xlsx", "imported-b.xlsx", "imported-c.xlsx", "imported-a.xlsx")))
+            .andExpect(jsonPath("$.[*].status").value(contains("IMPORTED", "IMPORTED", "IMPORTED", "FAILED")));
+        for (String fileName : Arrays.asList("imported-a.xlsx", "imported-b.xlsx", "imported-c.xlsx")) {
+            XlsxFile importedFile = xlsxFileRepository.findByFileName(fileName);
+            assertThat(importedFile.getStatus()).isEqualTo(XlsxFileStatus.PENDING);
+            assertThat(importedFile.getContent().getData()).isEqualTo(content);
+        }
+
+        restXlsxFileMockMvc.perform(fileUpload("/api/ositel/importExcelFiles")
+            .file(new MockMultipartFile("file", "month.zip", "application/zip", "not a zip".getBytes(StandardCharsets.UTF_8))))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void importExcelFilesFromArchiveWithinLimits() throws Exception {
+        byte[] content = createXlsxContent();
+        xlsxFileService.uploadAndSaveXlsxFile("taken.xlsx", new ByteArrayInputStream(content));
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        // a few bytes in the archive inflating to a megabyte
+        entries.put("bomb.xlsx", new byte[1024 * 1024]);
+        entries.put("limited-a.xlsx", content);
+        entries.put("taken.xlsx", content);
+        ApplicationProperties importProperties = new ApplicationProperties();
+        importProperties.getBulkImport().setBatchSize(2);
+        importProperties.getBulkImport().setMaxEntryBytes(content.length);
+        List<XlsxImportResultDTO> results = importArchive(entries, importProperties);
+        assertThat(results).extracting("fileName").containsExactly("bomb.xlsx", "limited-a.xlsx", "taken.xlsx");
+        assertThat(results).extracting("status").containsExactly(XlsxImportResultDTO.Status.FAILED,
+            XlsxImportResultDTO.Status.IMPORTED, XlsxImportResultDTO.Status.FAILED);
+        assertThat(results.get(0).getMessage()).isEqualTo("The xlsx file {bomb.xlsx} inflates to more than " + content.length + " bytes");
+        assertThat(results.get(2).getMessage()).isEqualTo("The xlsx file {taken.xlsx} already exists");
+        assertThat(xlsxFileRepository.findByFileName("bomb.xlsx")).isNull();
+
+        // the files are saved one by one here, a failing batch would have been saved within the transaction of the test
+        entries.clear();
+        entries.put("limited-b.xlsx", content);
+        entries.put("limited-c.xlsx", content);
+        importProperties.getBulkImport().setBatchSize(1);
+        importProperties.getBulkImport().setMaxTotalBytes(content.length * 3L / 2);
+        results = importArchive(entries, importProperties);
+        assertThat(results).extracting("status").containsExactly(XlsxImportResultDTO.Status.IMPORTED, XlsxImportResultDTO.Status.FAILED);
+        assertThat(results.get(1).getMessage()).isEqualTo("The xlsx files of the archive inflate to more than " + content.length * 3L / 2 + " bytes");
+        assertThat(xlsxFileRepository.findByFileName("limited-c.xlsx")).isNull();
+
+        importProperties.getBulkImport().setMaxEntries(1);
+        try {
+            importArchive(entries, importProperties);
+            fail("an archive holding too many entries must be rejected");
+        } catch (BadRequestAlertException e) {
+            assertThat(e.getErrorKey()).isEqualTo("archive.tooManyEntries");
+        }
+
+        // a name taken under the lock of the files rejects the whole batch
+        Map<String, InputStream> contents = new LinkedHashMap<>();
+        contents.put("limited-d.xlsx", new ByteArrayInputStream(content));
+        contents.put("taken.xlsx", new ByteArrayInputStream(content));
+        try {
+            xlsxFileService.uploadAndSaveXlsxFiles(contents);
+            fail("a batch holding an existing file must be rejected");
+        } catch (BadRequestAlertException e) {
+            assertThat(e.getErrorKey()).isEqualTo("fileName.exists");
+        }
+    }
+
+    private List<XlsxImportResultDTO> importArchive(Map<String, byte[]> entries, ApplicationProperties importProperties) throws IOException {
+        File archive = File.createTempFile("import", ".zip");
+        try {
+            try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive.toPath()))) {
+                for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                    zip.putNextEntry(new ZipEntry(entry.getKey()));
+                    zip.write(entry.getValue());
+                }
+            }
+            return new XlsxBulkImportService(xlsxFileService, Runnable::run, importProperties).importArchive(archive);
+        } finally {
+            Files.delete(archive.toPath());
+        }
+    }
+
+    @Test
+    @Transactional
+    public void uploadExcelFileInChunks() throws Exception {
+        byte[] content = createXlsxContent();
+        int half = content.length / 2;
+        MvcResult mvcResult = restXlsxFileMockMvc.perform(post("/api/ositel/uploads").param("fileName", "chunked.xlsx"))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.fileName").value("chunked.xlsx"))
+            .andReturn();
+        String uploadId = new ObjectMapper().readTree(mvcResult.getResponse().getContentAsByteArray()).get("uploadId").asText();
+
+        // the chunks are received in any order, a chunk sent again replaces the previous one
+        restXlsxFileMockMvc.perform(put("/api/ositel/uploads/{uploadId}/chunks/{index}", uploadId, 1)
+            .content(Arrays.copyOfRange(content, half, content.length)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.chunks").value(contains(1)));
+        restXlsxFileMockMvc.perform(post("/api/ositel/uploads/{uploadId}/commit", uploadId))
+            .andExpect(status().isBadRequest());
+        restXlsxFileMockMvc.perform(put("/api/ositel/uploads/{uploadId}/chunks/{index}", uploadId, 0)
+            .content(new byte[half]))
+            .andExpect(status().isOk());
+        restXlsxFileMockMvc.perform(put("/api/ositel/uploads/{uploadId}/chunks/{index}", uploadId, 0)
+            .content(Arrays.copyOfRange(content, 0, half)))
+            .andExpect(status().isOk());
+        restXlsxFileMockMvc.perform(get("/api/ositel/uploads/{uploadId}", uploadId))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.chunks").value(contains(0, 1)))
+            .andExpect(jsonPath("$.size").value(content.length));
+
+        restXlsxFileMockMvc.perform(post("/api/ositel/uploads/{uploadId}/commit", uploadId))
+            .andExpect(status().isOk());
+        Long xlsxFileId = xlsxFileRepository.findIdByFileName("chunked.xlsx");
+        assertThat(xlsxFileRepository.findOne(xlsxFileId).getContent().getData()).isEqualTo(content);
+        xlsxFileService.ingestXlsxFile(xlsxFileId);
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "chunked.xlsx"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.linesValues[2]").value(contains("line3", "Tunis")));
+
+        // the committed upload is removed
+        restXlsxFileMockMvc.perform(get("/api/ositel/uploads/{uploadId}", uploadId))
+            .andExpect(status().isNotFound());
+        restXlsxFileMockMvc.perform(put("/api/ositel/uploads/{uploadId}/chunks/{index}", "../chunked", 0)
+            .content(content))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional
+    public void abortExcelFileUpload() throws Exception {
+        String uploadId = xlsxUploadService.startUpload("aborted.xlsx").getUploadId();
+        xlsxUploadService.writeChunk(uploadId, 0, new ByteArrayInputStream(createXlsxContent()));
+
+        restXlsxFileMockMvc.perform(delete("/api/ositel/uploads/{uploadId}", uploadId))
+            .andExpect(status().isOk());
+        restXlsxFileMockMvc.perform(post("/api/ositel/uploads/{uploadId}/commit", uploadId))
+            .andExpect(status().isNotFound());
+        assertThat(xlsxFileRepository.findIdByFileName("aborted.xlsx")).isNull();
+    }
+
+    @Test
+    @Transactional
+    public void limitExcelFileUploadSize() throws Exception {
+        byte[] content = createXlsxContent();
+        int half = content.length / 2;
+        ApplicationProperties uploadProperties = new ApplicationProperties();
+        uploadProperties.getUploads().setDirectory("target/uploads");
+        uploadProperties.getUploads().setMaxChunkBytes(content.length - half);
+        uploadProperties.getUploads().setMaxUploadBytes(content.length);
+        XlsxUploadService limitedUploadService = new XlsxUploadService(xlsxFileService, uploadProperties);
+
+        String uploadId = limitedUploadService.startUpload("limited.xlsx").getUploadId();
+        try {
+            limitedUploadService.writeChunk(uploadId, 0, new ByteArrayInputStream(content));
+            fail("a chunk larger than the limit must be rejected");
+        } catch (PayloadTooLargeAlertException e) {
+            assertThat(e.getStatus()).isEqualTo(Status.REQUEST_ENTITY_TOO_LARGE);
+            assertThat(e.getErrorKey()).isEqualTo("upload.chunkTooLarge");
+        }
+        assertThat(limitedUploadService.findUpload(uploadId).getChunks()).isEmpty();
+        limitedUploadService.writeChunk(uploadId, 0, new ByteArrayInputStream(Arrays.copyOfRange(content, 0, half)));
+        limitedUploadService.writeChunk(uploadId, 1, new ByteArrayInputStream(Arrays.copyOfRange(content, half, content.length)));
+        try {
+            limitedUploadService.writeChunk(uploadId, 2, new ByteArrayInputStream(new byte[1]));
+            fail("a chunk making the upload larger than the limit must be rejected");
+        } catch (PayloadTooLargeAlertException e) {
+            assertThat(e.getErrorKey()).isEqualTo("upload.tooLarge");
+        }
+        // a chunk sent again replaces the previous one in the size of the upload
+        limitedUploadService.writeChunk(uploadId, 1, new ByteArrayInputStream(Arrays.copyOfRange(content, half, content.length)));
+        limitedUploadService.commitUpload(uploadId);
+        assertThat(xlsxFileRepository.findByFileName("limited.xlsx").getContent().getData()).isEqualTo(content);
+
+        // the chunks written in parallel are checked again by the commit, which leaves the upload as it was
+        uploadId = xlsxUploadService.startUpload("too-large.xlsx").getUploadId();
+        xlsxUploadService.writeChunk(uploadId, 0, new ByteArrayInputStream(content));
+        xlsxUploadService.writeChunk(uploadId, 1, new ByteArrayInputStream(new byte[1]));
+        try {
+            limitedUploadService.commitUpload(uploadId);
+            fail("an upload larger than the limit must not be committed");
+        } catch (PayloadTooLargeAlertException e) {
+            assertThat(e.getErrorKey()).isEqualTo("upload.tooLarge");
+        }
+        assertThat(xlsxUploadService.findUpload(uploadId).getChunks()).containsExactly(0, 1);
+        xlsxUploadService.abortUpload(uploadId);
+        assertThat(xlsxFileRepository.findIdByFileName("too-large.xlsx")).isNull();
+    }
+
+    @Test
+    @Transactional
+    public void removeExpiredExcelFileUploads() throws Exception {
+        ApplicationProperties uploadProperties = new ApplicationProperties();
+        uploadProperties.getUploads().setDirectory("target/uploads");
+        uploadProperties.getUploads().setExpiration(60000);
+        XlsxUploadService expiringUploadService = new XlsxUploadService(xlsxFileService, uploadProperties);
+        long now = System.currentTimeMillis();
+        String expiredUploadId = expiringUploadService.startUpload("expired.xlsx").getUploadId();
+        Files.setLastModifiedTime(Paths.get("target/uploads", expiredUploadId), FileTime.fromMillis(now - 120000));
+        Path commit = Files.createDirectories(Paths.get("target/uploads", UUID.randomUUID() + ".commit"));
+        Files.setLastModifiedTime(commit, FileTime.fromMillis(now - 120000));
+        Path interruptedCommit = Files.createDirectories(Paths.get("target/uploads", UUID.randomUUID() + ".commit"));
+        Files.setLastModifiedTime(interruptedCommit, FileTime.fromMillis(now - 60000 * 11));
+
+        expiringUploadService.removeExpiredUploads();
+        assertThat(Paths.get("target/uploads", expiredUploadId)).doesNotExist();
+        // a commit may still be reading its chunks long after its last chunk
+        assertThat(commit).exists();
+        assertThat(interruptedCommit).doesNotExist();
+        Files.delete(commit);
+    }
+
+    @Test
+    @Transactional
+    public void ingestInvalidExcelFile() throws Exception {
+        XlsxFile invalidFile = xlsxFileRepository.saveAndFlush(new XlsxFile().fileName("invalid.xlsx")
+            .content(xlsxContentStore.store(DEFAULT_CONTENT)).status(XlsxFileStatus.PENDING));
+        Meter failures = metricRegistry.meter(MetricRegistry.name(XlsxIngestService.class, "failures"));
+        long failureCount = failures.getCount();
+
+        new XlsxIngestService(xlsxFileService, Runnable::run, metricRegistry)
+            .onXlsxFileWritten(new XlsxFileWrittenEvent(invalidFile.getId()));
+        assertThat(xlsxFileRepository.findOne(invalidFile.getId()).getStatus()).isEqualTo(XlsxFileStatus.FAILED);
+        assertThat(failures.getCount()).isEqualTo(failureCount + 1);
+    }
+
+    @Test
+    @Transactional
+    public void getExcelFileSchema() throws Exception {
+        // Initialize the database
+        XlsxFile schemaFile = xlsxFileRepository.saveAndFlush(new XlsxFile().fileName("schema.xlsx").content(xlsxContentStore.store(createXlsxContent())));
+
+        restXlsxFileMockMvc.perform(get("/api/ositel/excelFileSchema").param("fileName", "schema.xlsx"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.sheetName").value("cities"))
+            // POI does not declare the used range of the sheets it writes
+            .andExpect(jsonPath("$.rowCount").doesNotExist())
+            .andExpect(jsonPath("$.columns[*].name").value(contains("name", "city")))
+            .andExpect(jsonPath("$.columns[*].type").value(contains("STRING", "STRING")))
+            .andExpect(jsonPath("$.columns[0].valueCount").doesNotExist());
+
+        // once ingested, the schema is read from the statistics of the sheet
+        xlsxFileService.ingestXlsxFile(schemaFile.getId());
+        restXlsxFileMockMvc.perform(get("/api/ositel/excelFileSchema").param("fileName", "schema.xlsx").param("sheet", "cities"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.rowCount").value(4))
+            .andExpect(jsonPath("$.columns[1].name").value("city"))
+            .andExpect(jsonPath("$.columns[1].valueCount").value(3))
+            .andExpect(jsonPath("$.columns[1].blankCount").value(0));
+
+        restXlsxFileMockMvc.perform(get("/api/ositel/excelFileSchema").param("fileName", "unknown.xlsx"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void searchExcelFileInBinaryFormats() throws Exception {
+        // Initialize the database
+        xlsxFileRepository.saveAndFlush(new XlsxFile().fileName("binary.xlsx").content(xlsxContentStore.store(createXlsxContent())));
+
+        MvcResult mvcResult = restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "binary.xlsx")
+            .accept(JacksonBinaryHttpMessageConverter.APPLICATION_SMILE))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(JacksonBinaryHttpMessageConverter.APPLICATION_SMILE))
+            .andExpect(header().string(HttpHeaders.VARY, "Accept, Accept-Encoding"))
+            .andReturn();
+        JsonNode smile = new ObjectMapper(new SmileFactory()).readTree(mvcResult.getResponse().getContentAsByteArray());
+        assertThat(smile.get("sheetName").asText()).isEqualTo("cities");
+        assertThat(smile.get("linesValues").get(1).get(1).asText()).isEqualTo("Lyon");
+
+        mvcResult = restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "binary.xlsx")
+            .param("typed", "true").accept(JacksonBinaryHttpMessageConverter.APPLICATION_CBOR))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(JacksonBinaryHttpMessageConverter.APPLICATION_CBOR))
+            .andExpect(header().string(HttpHeaders.VARY, "Accept"))
+            .andReturn();
+        JsonNode cbor = new ObjectMapper(new CBORFactory()).readTree(mvcResult.getResponse().getContentAsByteArray());
+        assertThat(cbor.get("totalLines").asLong()).isEqualTo(3);
+        assertThat(cbor.get("columns").get(1).get("strings").get(2).asText()).isEqualTo("Tunis");
+
+        // json stays the default format
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "binary.xlsx")
+            .accept(MediaType.ALL))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    @Transactional
+    public void searchAndUpdateExcelFileSheet() throws Exception {
+        // Initialize the database with a workbook of two sheets
+        XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(createXlsxContent()));
+        Row header = workbook.createSheet("countries").createRow(0);
+        header.createCell(0).setCellValue("country");
+        workbook.getSheet("countries").createRow(1).createCell(0).setCellValue("France");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        workbook.write(out);
+        xlsxFileRepository.saveAndFlush(new XlsxFile().fileName("sheets.xlsx").content(xlsxContentStore.store(out.toByteArray())));
+
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "sheets.xlsx")
+            .param("sheet", "countries"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.sheetName").value("countries"))
+            .andExpect(jsonPath("$.headerColumns").value(contains("country")))
+            .andExpect(jsonPath("$.linesValues[0]").value(contains("France")));
+
+        restXlsxFileMockMvc.perform(put("/api/ositel/{column}/{line}/updateCellValue", 0, 1)
+            .param("fileName", "sheets.xlsx").param("sheet", "1").param("newValue", "Tunisia"))
+            .andExpect(status().isOk());
+
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "sheets.xlsx")
+            .param("sheet", "1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.linesValues[0]").value(contains("Tunisia")));
+
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "sheets.xlsx")
+            .param("sheet", "missing"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void updateExcelFileCellValues() throws Exception {
+        // Initialize the database
+        xlsxFileRepository.saveAndFlush(new XlsxFile().fileName("batch.xlsx").content(xlsxContentStore.store(createXlsxContent())));
+
+        restXlsxFileMockMvc.perform(put("/api/ositel/updateCellValues").param("fileName", "batch.xlsx")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(Arrays.asList(
+                new XlsxCellEditDTO(null, 1, 1, "Marseille"),
+                new XlsxCellEditDTO("cities", 3, 0, "line4"),
+                new XlsxCellEditDTO("0", 3, 1, "Sfax")))))
+            .andExpect(status().isOk());
+
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "batch.xlsx"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.linesValues[0]").value(contains("line1", "Marseille")))
+            .andExpect(jsonPath("$.linesValues[2]").value(contains("line4", "Sfax")));
+
+        // a batch holding a missing cell is rejected as a whole
+        restXlsxFileMockMvc.perform(put("/api/ositel/updateCellValues").param("fileName", "batch.xlsx")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(Arrays.asList(
+                new XlsxCellEditDTO(null, 2, 1, "Nice"),
+                new XlsxCellEditDTO(null, 10, 1, "Sousse")))))
+            .andExpect(status().isBadRequest());
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "batch.xlsx"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.linesValues[1]").value(contains("line2", "Lyon")));
+    }
+
+    @Test
+    @Transactional
+    public void conditionalExcelFileRequests() throws Exception {
+        // Initialize the database
+        Long xlsxFileId = xlsxFileRepository.saveAndFlush(new XlsxFile().fileName("versioned.xlsx").content(xlsxContentStore.store(createXlsxContent()))).getId();
+
+        String eTag = restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "versioned.xlsx"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"0-json\""))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "versioned.xlsx")
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.VARY, "Accept, Accept-Encoding"));
+
+        // the other representations of the same version have their own ETag
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "versioned.xlsx")
+            .accept(JacksonBinaryHttpMessageConverter.APPLICATION_SMILE).header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"0-smile\""));
+        String pageETag = restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "versioned.xlsx")
+            .param("size", "1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, startsWith("\"0-json-")))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "versioned.xlsx")
+            .param("size", "1").header(HttpHeaders.IF_NONE_MATCH, pageETag))
+            .andExpect(status().isNotModified());
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "versioned.xlsx")
+            .param("size", "2").header(HttpHeaders.IF_NONE_MATCH, pageETag))
+            .andExpect(status().isOk());
+
+        // an update based on another version is rejected, the first update based on the current version wins
+        restXlsxFileMockMvc.perform(put("/api/ositel/{column}/{line}/updateCellValue", 1, 1)
+            .param("fileName", "versioned.xlsx").param("newValue", "Nice").header(HttpHeaders.IF_MATCH, "\"7\""))
+            .andExpect(status().isPreconditionFailed());
+        restXlsxFileMockMvc.perform(put("/api/ositel/{column}/{line}/updateCellValue", 1, 1)
+            .param("fileName", "versioned.xlsx").param("newValue", "Nice").header(HttpHeaders.IF_MATCH, eTag))
+            .andExpect(status().isOk());
+        restXlsxFileMockMvc.perform(put("/api/ositel/updateCellValues").param("fileName", "versioned.xlsx")
+            .header(HttpHeaders.IF_MATCH, eTag)
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(Collections.singletonList(new XlsxCellEditDTO(null, 1, 1, "Marseille")))))
+            .andExpect(status().isPreconditionFailed());
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "versioned.xlsx")
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"1-json\""))
+            .andExpect(jsonPath("$.linesValues[0]").value(contains("line1", "Nice")));
+
+        // the recorded edits of an ingested file increment its version as well
+        xlsxFileService.ingestXlsxFile(xlsxFileId);
+        restXlsxFileMockMvc.perform(put("/api/ositel/{column}/{line}/updateCellValue", 1, 2)
+            .param("fileName", "versioned.xlsx").param("newValue", "Nantes").header(HttpHeaders.IF_MATCH, "\"1\""))
+            .andExpect(status().isOk());
+        restXlsxFileMockMvc.perform(put("/api/ositel/{column}/{line}/updateCellValue", 1, 2)
+            .param("fileName", "versioned.xlsx").param("newValue", "Lille").header(HttpHeaders.IF_MATCH, "\"1\""))
+            .andExpect(status().isPreconditionFailed());
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "versioned.xlsx").param("typed", "true"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, startsWith("\"2-json-")));
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "versioned.xlsx"))
+            .andExpect(jsonPath("$.linesValues[1]").value(contains("line2", "Nantes")));
+    }
+
+    @Test
+    @Transactional
+    public void recordExcelFileCellEditsOfSparseSheet() throws Exception {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet("cities");
+        sheet.createRow(0).createCell(0).setCellValue("name");
+        sheet.getRow(0).createCell(1).setCellValue("city");
+        sheet.createRow(1).createCell(0).setCellValue("line1");
+        sheet.getRow(1).createCell(1).setCellValue("Paris");
+        // the row 2 is missing and the row 3 has no city
+        sheet.createRow(3).createCell(0).setCellValue("line3");
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        workbook.write(content);
+        restXlsxFileMockMvc.perform(fileUpload("/api/ositel/uploadExcelFile")
+            .file(new MockMultipartFile("file", "sparse.xlsx", "application/vnd.ms-excel", content.toByteArray())))
+            .andExpect(status().isOk());
+        Long xlsxFileId = xlsxFileRepository.findIdByFileName("sparse.xlsx");
+        xlsxFileService.ingestXlsxFile(xlsxFileId);
+
+        // the edited cells are checked against the cells of the sheet, as when they are written in the content
+        restXlsxFileMockMvc.perform(put("/api/ositel/{column}/{line}/updateCellValue", 1, 3)
+            .param("fileName", "sparse.xlsx").param("newValue", "Tunis"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.cell.doesNotExist"));
+        restXlsxFileMockMvc.perform(put("/api/ositel/{column}/{line}/updateCellValue", 0, 2)
+            .param("fileName", "sparse.xlsx").param("newValue", "line2"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.cell.doesNotExist"));
+        restXlsxFileMockMvc.perform(put("/api/ositel/{column}/{line}/updateCellValue", 0, 3)
+            .param("fileName", "sparse.xlsx").param("newValue", "line4"))
+            .andExpect(status().isOk());
+        assertThat(xlsxCellEditRepository.findByXlsxFileIdOrderById(xlsxFileId)).hasSize(1);
+
+        // the edit is applied to the row it was recorded for over the cached sheet, the columnar file and the content
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "sparse.xlsx"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.linesValues[1]").value(contains("line4")));
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "sparse.xlsx")
+            .param("typed", "true"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.columns[0].strings").value(contains("line1", "line4")));
+        xlsxSheetCache.invalidate("sparse.xlsx");
+        xlsxColumnarStore.delete(xlsxFileId);
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "sparse.xlsx"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.linesValues[1]").value(contains("line4")));
+    }
+
+    @Test
+    @Transactional
+    public void recordAndCompactExcelFileCellEdits() throws Exception {
+        restXlsxFileMockMvc.perform(fileUpload("/api/ositel/uploadExcelFile")
+            .file(new MockMultipartFile("file", "edited.xlsx", "application/vnd.ms-excel", createXlsxContent())))
+            .andExpect(status().isOk());
+        Long xlsxFileId = xlsxFileRepository.findIdByFileName("edited.xlsx");
+        xlsxFileService.ingestXlsxFile(xlsxFileId);
+        byte[] ingestedContent = xlsxFileRepository.findOne(xlsxFileId).getContent().getData();
+
+        // once ingested, the edits are recorded without writing the content
+        restXlsxFileMockMvc.perform(put("/api/ositel/updateCellValues").param("fileName", "edited.xlsx")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(Arrays.asList(
+                new XlsxCellEditDTO(null, 1, 1, "Nice"),
+                new XlsxCellEditDTO("cities", 1, 1, "Marseille")))))
+            .andExpect(status().isOk());
+        restXlsxFileMockMvc.perform(put("/api/ositel/{column}/{line}/updateCellValue", 0, 3)
+            .param("fileName", "edited.xlsx").param("newValue", "line4"))
+            .andExpect(status().isOk());
+        restXlsxFileMockMvc.perform(put("/api/ositel/{column}/{line}/updateCellValue", 2, 1)
+            .param("fileName", "edited.xlsx").param("newValue", "France"))
+            .andExpect(status().isBadRequest());
+        assertThat(xlsxCellEditRepository.findByXlsxFileIdOrderById(xlsxFileId)).hasSize(3);
+        assertThat(xlsxFileRepository.findOne(xlsxFileId).getContent().getData()).isEqualTo(ingestedContent);
+
+        // the edits are applied over the cached sheet, the columnar file and the content
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "edited.xlsx"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.linesValues[0]").value(contains("line1", "Marseille")))
+            .andExpect(jsonPath("$.linesValues[2]").value(contains("line4", "Tunis")));
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "edited.xlsx")
+            .param("typed", "true"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.columns[1].strings").value(contains("Marseille", "Lyon", "Tunis")));
+        xlsxSheetCache.invalidate("edited.xlsx");
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "edited.xlsx"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.linesValues[0]").value(contains("line1", "Marseille")));
+        MvcResult mvcResult = restXlsxFileMockMvc.perform(get("/api/ositel/exportExcelFile")
+            .param("fileName", "edited.xlsx").param("format", "csv"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        mvcResult.getAsyncResult();
+        assertThat(mvcResult.getResponse().getContentAsString()).isEqualTo(
+            "name,city\r\nline1,Marseille\r\nline2,Lyon\r\nline4,Tunis\r\n");
+
+        // the compactor writes the edits in the content
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getCellEdits().setCompactionThreshold(3);
+        new XlsxCellEditCompactor(xlsxFileService, xlsxCellEditRepository, applicationProperties, metricRegistry).compactCellEdits();
+        assertThat(xlsxCellEditRepository.findByXlsxFileIdOrderById(xlsxFileId)).isEmpty();
+        XlsxFile compactedFile = xlsxFileRepository.findOne(xlsxFileId);
+        assertThat(compactedFile.getStatus()).isEqualTo(XlsxFileStatus.PENDING);
+        XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(compactedFile.getContent().getData()));
+        assertThat(workbook.getSheetAt(0).getRow(1).getCell(1).getStringCellValue()).isEqualTo("Marseille");
+        assertThat(workbook.getSheetAt(0).getRow(3).getCell(0).getStringCellValue()).isEqualTo("line4");
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "edited.xlsx"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.linesValues[0]").value(contains("line1", "Marseille")));
+    }
+
+    @Test
+    @Transactional
+    public void searchNonExistingExcelFile() throws Exception {
+        restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile").param("fileName", "unknown.xlsx"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void streamExcelFile() throws Exception {
+        // Initialize the database
+        xlsxFileRepository.saveAndFlush(new XlsxFile().fileName("stream.xlsx").content(xlsxContentStore.store(createXlsxContent())));
+
+        MvcResult mvcResult = restXlsxFileMockMvc.perform(get("/api/ositel/searchExcelFile")
+            .param("fileName", "stream.xlsx").param("stream", "true"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        // wait for the body to be fully streamed, it is written in the response of the first dispatch
+        mvcResult.getAsyncResult();
+        jsonPath("$.fileName").value("stream.xlsx").match(mvcResult);
+        jsonPath("$.headerColumns").value(contains("name", "city")).match(mvcResult);
+        jsonPath("$.linesValues[1]").value(contains("line2", "Lyon")).match(mvcResult);
+    }
+
+    @Test
+    @Transactional
+    public void exportExcelFileInNdjson() throws Exception {
+        // Initialize the database
+        xlsxFileRepository.saveAndFlush(new XlsxFile().fileName("export.xlsx").content(xlsxContentStore.store(createXlsxContent())));
+
+        MvcResult mvcResult = restXlsxFileMockMvc.perform(get("/api/ositel/exportExcelFile")
+            .param("fileName", "export.xlsx").param("format", "ndjson"))
+            .andExpect(request().asyncStarted())
+            .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/x-ndjson"))
+            .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"export.ndjson\"; filename*=UTF-8''export.ndjson"))
+            .andReturn();
+        mvcResult.getAsyncResult();
+        assertThat(mvcResult.getResponse().getContentAsString()).isEqualTo(
+            "{\"name\":\"line1\",\"city\":\"Paris\"}\n{\"name\":\"line2\",\"city\":\"Lyon\"}\n{\"name\":\"line3\",\"city\":\"Tunis\"}\n");
+
+        restXlsxFileMockMvc.perform(get("/api/ositel/exportExcelFile")
+            .param("fileName", "export.xlsx").param("format", "xml"))
+            .andExpect(status().isBadRequest());
+
+        // the name given by the client cannot end the header, it is given whole in the RFC 5987 form
+        xlsxFileRepository.saveAndFlush(new XlsxFile().fileName("r\u00e9sum\u00e9 \"2017\";.xlsx").content(xlsxContentStore.store(createXlsxContent())));
+        restXlsxFileMockMvc.perform(get("/api/ositel/exportExcelFile")
+            .param("fileName", "r\u00e9sum\u00e9 \"2017\";.xlsx").param("format", "ndjson"))
+            .andExpect(request().asyncStarted())
+            .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"r_sum_ _2017__.ndjson\"; filename*=UTF-8''r%C3%A9sum%C3%A9%20%222017%22%3B.ndjson"))
+            .andReturn().getAsyncResult();
+    }
+
+    @Test
+    @Transactional
+    public void exportExcelFileInCsv() throws Exception {
+        // Initialize the database
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet("quoted");
+        String[][] rows = {{"name", "comment", "city"}, {"line1", "a \"quoted\", value"}, {"line2", "", "Lyon"}};
+        for (int i = 0; i < rows.length; i++) {
+            Row row = sheet.createRow(i);
+            for (int j = 0; j < rows[i].length; j++) {
+                if (!rows[i][j].isEmpty()) {
+                    row.createCell(j).setCellValue(rows[i][j]);
+                }
+            }
+        }
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        workbook.write(content);
+        xlsxFileRepository.saveAndFlush(new XlsxFile().fileName("export.xlsx").content(xlsxContentStore.store(content.toByteArray())));
+
+        MvcResult mvcResult = restXlsxFileMockMvc.perform(get("/api/ositel/exportExcelFile")
+            .param("fileName", "export.xlsx").param("format", "csv").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+            .andExpect(request().asyncStarted())
+            .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "text/csv;charset=UTF-8"))
+            .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+            .andReturn();
+        mvcResult.getAsyncResult();
+        try (GZIPInputStream csv = new GZIPInputStream(new ByteArrayInputStream(mvcResult.getResponse().getContentAsByteArray()))) {
+            assertThat(StreamUtils.copyToString(csv, StandardCharsets.UTF_8)).isEqualTo(
+                "name,comment,city\r\nline1,\"a \"\"quoted\"\", value\",\r\nline2,,Lyon\r\n");
+        }
+
+        // gzip refused with a quality of 0, or only named as part of another coding, is not sent
+        for (String acceptEncoding : Arrays.asList("gzip;q=0, deflate", "x-gzip-foo", "*;q=0.5, gzip; q=0")) {
+            restXlsxFileMockMvc.perform(get("/api/ositel/exportExcelFile")
+                .param("fileName", "export.xlsx").param("format", "csv").header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding))
+                .andExpect(request().asyncStarted())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andReturn().getAsyncResult();
+        }
+        restXlsxFileMockMvc.perform(get("/api/ositel/exportExcelFile")
+            .param("fileName", "export.xlsx").param("format", "csv").header(HttpHeaders.ACCEPT_ENCODING, "identity, *;q=0.1"))
+            .andExpect(request().asyncStarted())
+            .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+            .andReturn().getAsyncResult();
+    }
+
+    /**
+     * Create a xlsx workbook with a header row and three lines.
+     */
+    public static byte[] createXlsxContent() throws IOException {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet("cities");
+        String[][] rows = {{"name", "city"}, {"line1", "Paris"}, {"line2", "Lyon"}, {"line3", "Tunis"}};
+        for (int i = 0; i < rows.length; i++) {
+            Row row = sheet.createRow(i);
+            for (int j = 0; j < rows[i].length; j++) {
+                row.createCell(j).setCellValue(rows[i][j]);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        workbook.write(out);
+        return out.toByteArray();
+    }
+
     @Test
     @Transactional
     public void equalsVerifier() throws Exception {